@@ -4,6 +4,7 @@ plugins {
     java
     application
     id("com.gradleup.shadow") version "8.3.5"
+    id("me.champeau.jmh") version "0.7.3"
 }
 
 group = "dev.metabrix.urfu"
@@ -16,6 +17,10 @@ repositories {
 dependencies {
     implementation("org.jetbrains:annotations:26.0.1")
 
+    // схемы аргументов команд разбираются во время компиляции, во время работы процессор не нужен
+    compileOnly(project(":processor"))
+    annotationProcessor(project(":processor"))
+
     implementation("com.typesafe:config:1.4.3")
     implementation("org.json:json:20240303")
 
@@ -44,6 +49,12 @@ java {
     }
 }
 
+tasks.withType<JavaCompile>().configureEach {
+    // процессор обрабатывает только @CommandArguments, и с -Xlint:all javac предупреждает
+    // о каждой другой аннотации, которую не забрал ни один процессор
+    options.compilerArgs.add("-Xlint:-processing")
+}
+
 tasks.shadowJar {
     mergeServiceFiles()
     transform(Log4j2PluginsCacheFileTransformer::class.java)
@@ -53,6 +64,22 @@ tasks.test {
     useJUnitPlatform()
 }
 
+tasks.register<JavaExec>("loadHarness") {
+    group = "verification"
+    description = "Runs the bot against a local fake Bot API and reports throughput and latency percentiles."
+    classpath = sourceSets.test.get().runtimeClasspath
+    mainClass = "dev.metabrix.urfu.oopbot.harness.LoadHarness"
+    args = (findProperty("harnessArgs") as String?)?.trim()?.split(Regex("\\s+"))?.filter { it.isNotEmpty() } ?: emptyList()
+}
+
+jmh {
+    jmhVersion = "1.37"
+    // -PjmhIncludes="CommandRouterBenchmark" запускает только выбранные бенчмарки
+    (findProperty("jmhIncludes") as String?)?.let { includes = listOf(it) }
+    // -PjmhProfilers="gc" подключает профилировщики JMH, например, для оценки выделения памяти
+    (findProperty("jmhProfilers") as String?)?.let { profilers = it.split(",") }
+}
+
 application {
     mainClass = "dev.metabrix.urfu.oopbot.Main"
 }
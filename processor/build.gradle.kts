@@ -0,0 +1,20 @@
+plugins {
+    java
+}
+
+group = "dev.metabrix.urfu"
+version = "1.2.0-SNAPSHOT"
+
+repositories {
+    mavenCentral()
+}
+
+val targetJavaVersion = 21
+java {
+    val javaVersion = JavaVersion.toVersion(targetJavaVersion)
+    sourceCompatibility = javaVersion
+    targetCompatibility = javaVersion
+    if (JavaVersion.current() < javaVersion) {
+        toolchain.languageVersion.set(JavaLanguageVersion.of(targetJavaVersion))
+    }
+}
@@ -0,0 +1,169 @@
+package dev.metabrix.urfu.oopbot.processor;
+
+import dev.metabrix.urfu.oopbot.util.command.arguments.CommandArguments;
+import dev.metabrix.urfu.oopbot.util.command.arguments.OptionalArgument;
+import java.io.IOException;
+import java.io.Writer;
+import java.util.Set;
+import javax.annotation.processing.AbstractProcessor;
+import javax.annotation.processing.RoundEnvironment;
+import javax.annotation.processing.SupportedAnnotationTypes;
+import javax.lang.model.SourceVersion;
+import javax.lang.model.element.Element;
+import javax.lang.model.element.ElementKind;
+import javax.lang.model.element.Modifier;
+import javax.lang.model.element.RecordComponentElement;
+import javax.lang.model.element.TypeElement;
+import javax.lang.model.type.TypeKind;
+import javax.lang.model.type.TypeMirror;
+import javax.tools.Diagnostic;
+
+/**
+ * Процессор аннотаций, который генерирует код разбора аргументов для схем {@link CommandArguments}.
+ * <p>
+ * Сгенерированный метод <code>parse</code> читает аргументы по порядку: пропускает пробелы, проверяет,
+ * что ввод не закончился и что токен можно прочитать как число, и только затем читает его. Так ошибки
+ * ввода возвращаются как <code>ArgumentParseResult.Failure</code>, а не выбрасываются.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+@SupportedAnnotationTypes("dev.metabrix.urfu.oopbot.util.command.arguments.CommandArguments")
+public class CommandArgumentsProcessor extends AbstractProcessor {
+    private static final String COMMAND_PACKAGE = "dev.metabrix.urfu.oopbot.util.command";
+
+    @Override
+    public SourceVersion getSupportedSourceVersion() {
+        return SourceVersion.latestSupported();
+    }
+
+    @Override
+    public boolean process(Set<? extends TypeElement> annotations, RoundEnvironment roundEnv) {
+        for (Element element : roundEnv.getElementsAnnotatedWith(CommandArguments.class)) {
+            if (element.getKind() != ElementKind.RECORD) {
+                this.error(element, "@CommandArguments can only be applied to records");
+                continue;
+            }
+
+            TypeElement record = (TypeElement) element;
+            if (record.getModifiers().contains(Modifier.PRIVATE)) {
+                this.error(record, "@CommandArguments record must not be private");
+                continue;
+            }
+            if (this.validate(record)) this.generate(record);
+        }
+        return true;
+    }
+
+    private boolean validate(TypeElement record) {
+        boolean valid = true;
+        boolean optionalSeen = false;
+        for (RecordComponentElement component : record.getRecordComponents()) {
+            if (argumentType(component.asType()) == null) {
+                this.error(component, "Command argument must be int, long or String");
+                valid = false;
+            }
+
+            boolean optional = component.getAnnotation(OptionalArgument.class) != null;
+            if (optionalSeen && !optional) {
+                this.error(component, "Required command argument cannot follow an optional one");
+                valid = false;
+            }
+            optionalSeen |= optional;
+        }
+        return valid;
+    }
+
+    private void generate(TypeElement record) {
+        String packageName = this.processingEnv.getElementUtils().getPackageOf(record).getQualifiedName().toString();
+        String recordName = record.getQualifiedName().toString();
+        String parserName = record.getSimpleName() + "Parser";
+        String resultType = COMMAND_PACKAGE + ".ArgumentParseResult";
+
+        StringBuilder source = new StringBuilder();
+        if (!packageName.isEmpty()) source.append("package ").append(packageName).append(";\n\n");
+        source.append("/**\n")
+            .append(" * Разбор аргументов {@link ").append(recordName).append("}, сгенерирован по схеме аргументов.\n")
+            .append(" */\n")
+            .append("@javax.annotation.processing.Generated(\"").append(CommandArgumentsProcessor.class.getName()).append("\")\n")
+            .append("final class ").append(parserName).append(" {\n")
+            .append("    private ").append(parserName).append("() {\n")
+            .append("    }\n\n")
+            .append("    static ").append(resultType).append('<').append(recordName).append("> parse(")
+            .append(COMMAND_PACKAGE).append(".CommandInput input) {\n");
+
+        StringBuilder arguments = new StringBuilder();
+        for (RecordComponentElement component : record.getRecordComponents()) {
+            ArgumentType type = argumentType(component.asType());
+            String name = component.getSimpleName().toString();
+            boolean optional = component.getAnnotation(OptionalArgument.class) != null;
+            // имена локальных переменных с префиксом, чтобы не совпасть с параметром input
+            String variable = "arg_" + name;
+
+            source.append("        input.skipWhitespace();\n")
+                .append("        ").append(type.javaType).append(' ').append(variable).append(";\n")
+                .append("        if (!input.hasRemainingInput()) {\n");
+            if (optional) {
+                source.append("            ").append(variable).append(" = ").append(type.defaultValue).append(";\n");
+            } else {
+                appendFailure(source, resultType, name, "MISSING");
+            }
+            if (type.checkMethod != null) {
+                source.append("        } else if (!input.").append(type.checkMethod).append("()) {\n");
+                appendFailure(source, resultType, name, "INVALID");
+            }
+            source.append("        } else {\n")
+                .append("            ").append(variable).append(" = input.").append(type.readMethod).append("();\n")
+                .append("        }\n");
+
+            if (!arguments.isEmpty()) arguments.append(", ");
+            arguments.append(variable);
+        }
+
+        source.append("        return new ").append(resultType).append(".Success<>(new ").append(recordName)
+            .append('(').append(arguments).append("));\n")
+            .append("    }\n")
+            .append("}\n");
+
+        String qualifiedParserName = packageName.isEmpty() ? parserName : packageName + '.' + parserName;
+        try (Writer writer = this.processingEnv.getFiler().createSourceFile(qualifiedParserName, record).openWriter()) {
+            writer.write(source.toString());
+        } catch (IOException ex) {
+            this.error(record, "Unable to write " + qualifiedParserName + ": " + ex.getMessage());
+        }
+    }
+
+    private static void appendFailure(StringBuilder source, String resultType, String argument, String reason) {
+        source.append("            return new ").append(resultType).append(".Failure<>(\"").append(argument).append("\", ")
+            .append(resultType).append(".Reason.").append(reason).append(", input.getCursor());\n");
+    }
+
+    private static ArgumentType argumentType(TypeMirror type) {
+        if (type.getKind() == TypeKind.INT) return ArgumentType.INT;
+        if (type.getKind() == TypeKind.LONG) return ArgumentType.LONG;
+        if (type.getKind() == TypeKind.DECLARED && type.toString().equals("java.lang.String")) return ArgumentType.STRING;
+        return null;
+    }
+
+    private void error(Element element, String message) {
+        this.processingEnv.getMessager().printMessage(Diagnostic.Kind.ERROR, message, element);
+    }
+
+    private enum ArgumentType {
+        INT("int", "0", "canReadInt", "readInt"),
+        LONG("long", "0L", "canReadLong", "readLong"),
+        STRING("String", "null", null, "readToken");
+
+        private final String javaType;
+        private final String defaultValue;
+        private final String checkMethod;
+        private final String readMethod;
+
+        ArgumentType(String javaType, String defaultValue, String checkMethod, String readMethod) {
+            this.javaType = javaType;
+            this.defaultValue = defaultValue;
+            this.checkMethod = checkMethod;
+            this.readMethod = readMethod;
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package dev.metabrix.urfu.oopbot.util.command.arguments;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Схема аргументов команды.
+ * <p>
+ * Ставится на запись, компоненты которой — аргументы команды в порядке ввода. Поддерживаются
+ * компоненты типов {@code int}, {@code long} и {@link String}: числа читаются из токена целиком,
+ * а строка — это один токен. Необязательные аргументы помечаются {@link OptionalArgument} и
+ * могут идти только после всех обязательных.
+ * <p>
+ * Для каждой схемы во время компиляции генерируется класс <code>&lt;имя записи&gt;Parser</code> в том же
+ * пакете со статическим методом <code>parse(CommandInput)</code>, который разбирает аргументы
+ * без рефлексии и исключений и возвращает <code>ArgumentParseResult</code>.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.TYPE)
+public @interface CommandArguments {
+}
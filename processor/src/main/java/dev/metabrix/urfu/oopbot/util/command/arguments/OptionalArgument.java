@@ -0,0 +1,18 @@
+package dev.metabrix.urfu.oopbot.util.command.arguments;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Необязательный аргумент в схеме {@link CommandArguments}. Если ввод закончился раньше,
+ * аргумент получает значение по умолчанию: {@code 0} для чисел и {@code null} для строк.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+@Retention(RetentionPolicy.SOURCE)
+@Target(ElementType.RECORD_COMPONENT)
+public @interface OptionalArgument {
+}
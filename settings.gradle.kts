@@ -1,2 +1,3 @@
 rootProject.name = "oop-course-bot"
 
+include("processor")
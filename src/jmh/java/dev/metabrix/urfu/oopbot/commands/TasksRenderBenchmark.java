@@ -0,0 +1,108 @@
+package dev.metabrix.urfu.oopbot.commands;
+
+import dev.metabrix.urfu.oopbot.storage.model.Task;
+import dev.metabrix.urfu.oopbot.storage.model.User;
+import dev.metabrix.urfu.oopbot.util.Emoji;
+import dev.metabrix.urfu.oopbot.util.markdown.MarkdownWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Сравнивает отрисовку страницы списка задач шаблонами {@link dev.metabrix.urfu.oopbot.util.markdown.MarkdownTemplate}
+ * с прежней реализацией на <code>String.formatted</code>, {@link StringBuilder} и экранировании регулярным выражением.
+ * <p>
+ * Запуск: <code>gradle jmh -PjmhIncludes=TasksRenderBenchmark -PjmhProfilers=gc</code>.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TasksRenderBenchmark {
+    private static final @NotNull DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy 'в' HH:mm:ss")
+        .withZone(ZoneId.systemDefault());
+
+    private final @NotNull List<@NotNull Task> tasks = new ArrayList<>();
+    private final @NotNull Map<@NotNull Integer, @NotNull User> users = new HashMap<>();
+
+    @Setup
+    public void setup() {
+        Instant now = Instant.parse("2024-03-01T10:15:30Z");
+        this.users.put(1, new User(1, 100, "student_one", now, null));
+        this.users.put(2, new User(2, 200, null, now, null));
+        for (int i = 0; i < 5; i++) {
+            this.tasks.add(new Task(
+                i + 1, 1,
+                "Лабораторная работа №" + (i + 1) + " (ООП).",
+                "Сделать задание из методички.\nСдать до пятницы!\nНе забыть отчёт - 2 страницы.",
+                1 + i % 2, now,
+                i % 2 == 0 ? 2 : null, i % 2 == 0 ? now.plusSeconds(3600) : null
+            ));
+        }
+    }
+
+    @Benchmark
+    public @NotNull String legacy() {
+        StringBuilder message = new StringBuilder();
+        message.append("%s *Задачи:* страница %d из %d\n".formatted(Emoji.NOTEBOOK, 1, 3));
+        for (Task task : this.tasks) {
+            message.append("\n");
+
+            User createdBy = this.users.get(task.createdById());
+            message.append("*%s* _\\(создана %s %s\\)_\n".formatted(
+                sanitizeString(task.name()),
+                createdBy == null ? "<null>" : legacyMention(createdBy),
+                sanitizeString(DATE_FORMAT.format(task.createdAt()))
+            ));
+            if (task.updatedAt() != null) {
+                User updatedBy = task.updatedById() == null ? null : this.users.get(task.updatedById());
+                message.append("_Последнее изменение %s от %s_\n".formatted(
+                    sanitizeString(DATE_FORMAT.format(task.updatedAt())),
+                    updatedBy == null ? "<null>" : legacyMention(updatedBy)
+                ));
+            }
+
+            if (task.description() == null) continue;
+
+            for (String line : task.description().split("\n")) {
+                message.append(">").append(sanitizeString(line)).append("\n");
+            }
+        }
+        return message.toString();
+    }
+
+    @Benchmark
+    public @NotNull String template() {
+        MarkdownWriter message = MarkdownWriter.get();
+        TasksCommand.writeTasksPage(message, this.tasks, this.users::get, 0, 3);
+        return message.toString();
+    }
+
+    /**
+     * Прежнее экранирование из {@code Util.sanitizeString}.
+     */
+    private static @NotNull String sanitizeString(@NotNull String string) {
+        return string.replaceAll("([_*\\[\\]()~`>#+\\-=|{}.!])", "\\\\$1");
+    }
+
+    /**
+     * Прежнее упоминание из {@code User.markdownMention}.
+     */
+    private static @NotNull String legacyMention(@NotNull User user) {
+        return user.telegramUsername() != null
+            ? "@" + user.telegramUsername()
+            : "[<no username>](tg://user?id=" + user.telegramId() + ")";
+    }
+}
@@ -0,0 +1,103 @@
+package dev.metabrix.urfu.oopbot.util.command;
+
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Сравнивает разбор аргументов команды {@link CommandInputImpl} с прежней реализацией, которая
+ * копировала текст сообщения без <code>/</code> и создавала подстроки при каждом чтении
+ * (методы {@link CommandInput} по умолчанию).
+ * <p>
+ * Запуск: <code>gradle jmh -PjmhIncludes=CommandInputBenchmark -PjmhProfilers=gc</code>, выделение памяти
+ * на одну разобранную команду — в строке <code>gc.alloc.rate.norm</code>.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandInputBenchmark {
+    @Param({
+        "/tasks list 2",
+        "/tasks comments 42 list 3",
+    })
+    public String text;
+
+    @Benchmark
+    public void legacy(@NotNull Blackhole blackhole) {
+        parse(new LegacyCommandInput(this.text.substring(1), 0), blackhole);
+    }
+
+    @Benchmark
+    public void view(@NotNull Blackhole blackhole) {
+        parse(CommandInput.of(this.text, 1), blackhole);
+    }
+
+    /**
+     * Разбирает команду так же, как {@link dev.metabrix.urfu.oopbot.commands.TasksCommand}: сравнивает
+     * подкоманды с известными и читает числа.
+     */
+    private static void parse(@NotNull CommandInput input, @NotNull Blackhole blackhole) {
+        input.setCursor(5); // "tasks"
+        switch (input.readToken()) {
+            case "list" -> blackhole.consume(input.readInt());
+            case "comments" -> {
+                blackhole.consume(input.readInt());
+                blackhole.consume("list".equals(input.readToken()));
+                blackhole.consume(input.readInt());
+            }
+            default -> blackhole.consume(input);
+        }
+    }
+
+    /**
+     * Прежняя реализация: только обязательные методы, всё остальное — методы {@link CommandInput} по умолчанию.
+     */
+    private static final class LegacyCommandInput implements CommandInput {
+        private final @NotNull String rawInput;
+        private int cursor;
+
+        private LegacyCommandInput(@NotNull String rawInput, int cursor) {
+            this.rawInput = rawInput;
+            this.cursor = cursor;
+        }
+
+        @Override
+        public @NotNull String getRawInput() {
+            return this.rawInput;
+        }
+
+        @Override
+        public int getCursor() {
+            return this.cursor;
+        }
+
+        @Override
+        public @NotNull CommandInput setCursor(int position) {
+            this.cursor = position;
+            return this;
+        }
+
+        @Override
+        public void moveCursor(int chars) {
+            if (this.cursor + chars > this.getRawLength()) throw new CursorOutOfBoundsException(this.cursor + chars, this.getRawLength());
+            this.cursor += chars;
+        }
+
+        @Override
+        public @NotNull CommandInput appendString(@NotNull String string) {
+            return new LegacyCommandInput(this.rawInput + string, this.cursor);
+        }
+
+        @Override
+        public @NotNull CommandInput copy() {
+            return new LegacyCommandInput(this.rawInput, this.cursor);
+        }
+    }
+}
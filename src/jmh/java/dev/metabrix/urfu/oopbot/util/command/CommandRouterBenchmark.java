@@ -0,0 +1,72 @@
+package dev.metabrix.urfu.oopbot.util.command;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Pattern;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Сравнивает {@link CommandRouter} с прежним разбором команд: регулярным выражением,
+ * чтением токена, {@link String#split(String)} по <code>@</code> и поиском в {@link HashMap}.
+ * <p>
+ * Запуск: <code>gradle jmh -PjmhIncludes=CommandRouterBenchmark</code>, для оценки выделения памяти
+ * добавьте профилировщик <code>gc</code>.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CommandRouterBenchmark {
+    private static final @NotNull String BOT_USERNAME = "oop_course_bot";
+    private static final @NotNull Pattern COMMAND_REGEX = Pattern.compile("^/[^/]+(?:@[A-Za-z0-9_]+)?(?:\\s.+)?$");
+    private static final @NotNull Map<@NotNull String, @NotNull String> COMMANDS = Map.of(
+        "start", "START",
+        "help", "START",
+        "tasks", "TASKS"
+    );
+
+    private final @NotNull HashMap<@NotNull String, @NotNull String> commandMap = new HashMap<>(COMMANDS);
+    private final @NotNull CommandRouter<@NotNull String> router = new CommandRouter<>(COMMANDS);
+
+    @Param({
+        "/start",
+        "/tasks list 2",
+        "/tasks@oop_course_bot new",
+        "/spaghetti monster",
+        "Купить картошку",
+    })
+    public String text;
+
+    @Benchmark
+    public void legacy(@NotNull Blackhole blackhole) {
+        blackhole.consume(this.legacyRoute(this.text));
+    }
+
+    @Benchmark
+    public void router(@NotNull Blackhole blackhole) {
+        int route = this.router.route(this.text, BOT_USERNAME);
+        blackhole.consume(route >= 0 ? this.router.get(route) : null);
+    }
+
+    private @Nullable String legacyRoute(@NotNull String text) {
+        if (!COMMAND_REGEX.matcher(text).matches()) return null;
+
+        CommandInput input = CommandInput.of(text.substring(1));
+        String commandLabel = input.readToken();
+        String[] tagSplitParts = commandLabel.split("@");
+        if (tagSplitParts.length > 1) {
+            if (!tagSplitParts[tagSplitParts.length - 1].equalsIgnoreCase(BOT_USERNAME)) return null;
+            commandLabel = commandLabel.substring(0, commandLabel.length() - BOT_USERNAME.length() - 1);
+        }
+        return this.commandMap.get(commandLabel);
+    }
+}
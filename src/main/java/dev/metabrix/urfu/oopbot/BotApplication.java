@@ -1,16 +1,35 @@
 package dev.metabrix.urfu.oopbot;
 
+import dev.metabrix.urfu.oopbot.cluster.ClusterCoordinator;
 import dev.metabrix.urfu.oopbot.console.Console;
 import dev.metabrix.urfu.oopbot.console.ConsoleHandler;
+import dev.metabrix.urfu.oopbot.journal.UpdateJournal;
+import dev.metabrix.urfu.oopbot.storage.ClusterStorage;
 import dev.metabrix.urfu.oopbot.storage.DataStorage;
+import dev.metabrix.urfu.oopbot.telegram.FloodLimiter;
+import dev.metabrix.urfu.oopbot.telegram.UpdateExecutor;
+import dev.metabrix.urfu.oopbot.telegram.UpdateIngress;
+import dev.metabrix.urfu.oopbot.telegram.UpdateListener;
+import dev.metabrix.urfu.oopbot.telegram.UpdateType;
 import dev.metabrix.urfu.oopbot.telegram.TelegramBot;
+import dev.metabrix.urfu.oopbot.telegram.WebhookBotSession;
 import dev.metabrix.urfu.oopbot.util.LogUtils;
 import dev.metabrix.urfu.oopbot.util.Util;
+import dev.metabrix.urfu.oopbot.util.command.CommandPipeline;
+import java.net.InetSocketAddress;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.meta.TelegramBotsApi;
+import org.telegram.telegrambots.meta.api.methods.updates.SetWebhook;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 import org.telegram.telegrambots.meta.generics.BotSession;
 import org.telegram.telegrambots.updatesreceivers.DefaultBotSession;
@@ -29,12 +48,21 @@ public class BotApplication {
     private final @NotNull BotConfiguration configuration;
 
     private final @NotNull Console console;
-    private final @NotNull TelegramBot bot;
+    private final @NotNull List<@NotNull TelegramBot> bots;
+    private final @NotNull MainUpdateListener updateListener;
 
     private final @NotNull Object stateLock = new Object();
-    private @Nullable BotSession currentSession;
+    private @Nullable List<@NotNull BotSession> currentSessions;
+
+    private final @NotNull ReentrantLock pollingLock = new ReentrantLock();
+    private @Nullable TelegramBotsApi botsApi;
+    private @Nullable List<@NotNull BotSession> clusterPollingSessions;
+    private boolean clusterPollingAllowed;
 
     private @Nullable DataStorage storage;
+    private @Nullable UpdateExecutor updateExecutor;
+    private @Nullable UpdateIngress updateIngress;
+    private @Nullable ClusterCoordinator clusterCoordinator;
 
     /**
      * Создаёт приложение.
@@ -47,23 +75,38 @@ public class BotApplication {
         this.configuration = configuration;
 
         this.console = new Console(this, new ConsoleHandler());
-        this.bot = new TelegramBot(
-            this,
-            configuration.botInfo().username(),
-            configuration.botInfo().token(),
-            new MainUpdateListener(this)
-        );
+        this.updateListener = new MainUpdateListener(this, configuration.throttle());
+        List<TelegramBot> bots = new ArrayList<>(configuration.bots().size());
+        for (BotConfiguration.BotInfo botInfo : configuration.bots()) {
+            bots.add(new TelegramBot(this, botInfo, createBotOptions(botInfo, this.updateListener), this.updateListener));
+        }
+        this.bots = List.copyOf(bots);
+    }
+
+    private static @NotNull DefaultBotOptions createBotOptions(
+        @NotNull BotConfiguration.BotInfo botInfo,
+        @NotNull UpdateListener updateListener
+    ) {
+        DefaultBotOptions options = new DefaultBotOptions();
+        options.setBaseUrl(botInfo.apiUrl());
+        // подписываемся только на те события, которые обрабатываются, остальные Telegram не будет присылать
+        Set<UpdateType> handledTypes = updateListener.getHandledUpdateTypes();
+        // пустой список Telegram понимает как «все типы событий»
+        checkState(!handledTypes.isEmpty(), "Update listener does not handle any update types");
+        options.setAllowedUpdates(handledTypes.stream().map(UpdateType::getApiName).toList());
+        return options;
     }
 
     /**
-     * Возвращает бота (клиента Telegram API).
+     * Возвращает ботов (клиентов Telegram API), которых обслуживает приложение. У каждого бота своя
+     * сессия получения событий и свои лимиты отправки, а хранилище данных и обработка событий общие.
      *
-     * @return бот
-     * @since 1.0.0
+     * @return боты, первый из них — основной
+     * @since 1.2.0
      * @author metabrix
      */
-    public @NotNull TelegramBot getBot() {
-        return this.bot;
+    public @NotNull List<@NotNull TelegramBot> getBots() {
+        return this.bots;
     }
 
     /**
@@ -80,6 +123,67 @@ public class BotApplication {
         return storage;
     }
 
+    /**
+     * Возвращает исполнитель обработчиков событий, если бот запущен, в противном случае выбрасывает {@link IllegalStateException}.
+     *
+     * @return исполнитель обработчиков событий
+     * @throws IllegalStateException если бот не запущен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull UpdateExecutor getUpdateExecutor() {
+        UpdateExecutor updateExecutor = this.updateExecutor;
+        checkState(updateExecutor != null, "Bot is not running");
+        return updateExecutor;
+    }
+
+    /**
+     * Возвращает входной ограничитель событий, если бот запущен, в противном случае выбрасывает {@link IllegalStateException}.
+     *
+     * @return входной ограничитель событий
+     * @throws IllegalStateException если бот не запущен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull UpdateIngress getUpdateIngress() {
+        UpdateIngress updateIngress = this.updateIngress;
+        checkState(updateIngress != null, "Bot is not running");
+        return updateIngress;
+    }
+
+    /**
+     * Возвращает конвейер, через который выполняются команды и нажатия кнопок всех ботов.
+     *
+     * @return конвейер выполнения команд
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull CommandPipeline getCommandPipeline() {
+        return this.updateListener.getPipeline();
+    }
+
+    /**
+     * Возвращает защиту от флуда, общую для всех ботов.
+     *
+     * @return защита от флуда или {@code null}, если она выключена
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @Nullable FloodLimiter getFloodLimiter() {
+        return this.updateListener.getFloodLimiter();
+    }
+
+    /**
+     * Возвращает координатор кластера, если бот запущен в кластерном режиме.
+     *
+     * @return координатор кластера или {@code null}, если бот не запущен или кластерный режим выключен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @Nullable ClusterCoordinator getClusterCoordinator() {
+        return this.clusterCoordinator;
+    }
+
     /**
      * Запускает приложение.
      *
@@ -89,21 +193,146 @@ public class BotApplication {
      */
     public void start() throws Exception {
         synchronized (this.stateLock) {
-            checkState(this.currentSession == null, "Bot is already running");
+            checkState(this.currentSessions == null, "Bot is already running");
 
             long startMillis = Util.monotonicMillis();
 
             this.storage = this.configuration.dataStorage().createStorage();
+            TelegramBot primaryBot = this.bots.getFirst();
+            int assignedChats = this.storage.chats().assignUnownedChats(primaryBot.getBotId());
+            if (assignedChats > 0) LOGGER.info("Assigned {} existing chats to @{}", assignedChats, primaryBot.getBotUsername());
+
+            this.updateExecutor = this.configuration.updates().createExecutor();
+            this.updateIngress = new UpdateIngress(this.configuration.updates().ingress());
+
+            BotConfiguration.Updates.Journal journalConfiguration = this.configuration.updates().journal();
+            for (TelegramBot bot : this.bots) {
+                UpdateJournal journal = null;
+                if (journalConfiguration.enabled()) {
+                    // ID событий у разных ботов пересекаются, поэтому у каждого бота свой журнал
+                    Path directory = this.bots.size() == 1
+                        ? journalConfiguration.directory()
+                        : journalConfiguration.directory().resolve(bot.getBotUsername());
+                    journal = UpdateJournal.open(directory, journalConfiguration.segmentSize());
+                }
+                bot.start(this.configuration.outbound(), journal, this.configuration.updates().errors());
+            }
 
             TelegramBotsApi botsApi = new TelegramBotsApi(DefaultBotSession.class);
-            this.currentSession = botsApi.registerBot(this.bot);
-            checkState(this.currentSession != null, "Bot startup was successful, but the created session is null");
+            this.botsApi = botsApi;
+
+            BotConfiguration.Cluster cluster = this.configuration.cluster();
+            if (cluster.enabled()) {
+                ClusterStorage clusterStorage = this.storage.cluster();
+                checkState(clusterStorage != null, "Storage " + this.storage.getType().getSerializedName() + " does not support the cluster mode");
+                this.setClusterPollingAllowed(true);
+                this.clusterCoordinator = new ClusterCoordinator(cluster, clusterStorage, this.bots, this::updateClusterPolling);
+                this.clusterCoordinator.start();
+            }
+
+            List<BotSession> sessions = new ArrayList<>(this.bots.size());
+            for (TelegramBot bot : this.bots) {
+                LOGGER.info("Receiving updates for @{}: {}", bot.getBotUsername(), String.join(", ", bot.getOptions().getAllowedUpdates()));
+                // в кластере long polling ведёт только один узел, см. updateClusterPolling
+                if (cluster.enabled() && this.configuration.updates().mode() == BotConfiguration.Updates.Mode.LONG_POLLING) continue;
+
+                BotSession session = switch (this.configuration.updates().mode()) {
+                    case LONG_POLLING -> botsApi.registerBot(bot);
+                    case WEBHOOK -> this.startWebhookSession(bot);
+                };
+                checkState(session != null, "Bot startup was successful, but the created session is null");
+                sessions.add(session);
+            }
+            this.currentSessions = List.copyOf(sessions);
 
             long elapsedMillis = Util.monotonicMillis() - startMillis;
             LOGGER.info("Connected ({}s)!", String.format(Locale.ROOT, "%.3f", elapsedMillis / 1000.0));
         }
 
-        this.console.start();
+        if (this.configuration.console().enabled()) this.console.start();
+    }
+
+    /**
+     * Регистрирует вебхук в Telegram API и запускает HTTP-сервер, принимающий события.
+     *
+     * @param bot бот, которому Telegram будет отправлять события
+     * @return запущенная сессия
+     * @throws TelegramApiException когда Telegram API возвращает ошибку при регистрации вебхука
+     * @since 1.2.0
+     * @author metabrix
+     */
+    private @NotNull BotSession startWebhookSession(@NotNull TelegramBot bot) throws TelegramApiException {
+        BotConfiguration.Updates.Webhook webhook = this.configuration.updates().webhook();
+        checkState(webhook != null, "Webhook configuration is missing");
+
+        WebhookBotSession session = new WebhookBotSession(
+            new InetSocketAddress(webhook.host(), webhook.port()),
+            webhook.path(),
+            webhook.secretToken()
+        );
+        session.setCallback(bot);
+        session.start();
+
+        try {
+            bot.execute(SetWebhook.builder()
+                .url(webhook.url())
+                .secretToken(webhook.secretToken())
+                .maxConnections(webhook.maxConnections())
+                .allowedUpdates(bot.getOptions().getAllowedUpdates())
+                .build());
+        } catch (TelegramApiException ex) {
+            session.stop();
+            throw ex;
+        }
+
+        return session;
+    }
+
+    /**
+     * Запускает или останавливает long polling в кластерном режиме. Вызывается
+     * {@link ClusterCoordinator координатором} после каждого продления аренды шардов.
+     *
+     * @param poller должен ли этот узел получать события через long polling
+     * @since 1.2.0
+     * @author metabrix
+     */
+    private void updateClusterPolling(boolean poller) {
+        if (this.configuration.updates().mode() != BotConfiguration.Updates.Mode.LONG_POLLING) return;
+
+        this.pollingLock.lock();
+        try {
+            if (poller && this.clusterPollingAllowed && this.clusterPollingSessions == null) {
+                TelegramBotsApi botsApi = this.botsApi;
+                checkState(botsApi != null, "Bot is not running");
+
+                List<BotSession> sessions = new ArrayList<>(this.bots.size());
+                try {
+                    for (TelegramBot bot : this.bots) {
+                        sessions.add(botsApi.registerBot(bot));
+                    }
+                } catch (TelegramApiException ex) {
+                    sessions.forEach(BotSession::stop);
+                    LOGGER.error("Failed to start long polling, will retry on the next heartbeat", ex);
+                    return;
+                }
+                this.clusterPollingSessions = List.copyOf(sessions);
+            } else if ((!poller || !this.clusterPollingAllowed) && this.clusterPollingSessions != null) {
+                this.clusterPollingSessions.forEach(BotSession::stop);
+                this.clusterPollingSessions = null;
+            }
+        } finally {
+            this.pollingLock.unlock();
+        }
+    }
+
+    private void setClusterPollingAllowed(boolean allowed) {
+        this.pollingLock.lock();
+        try {
+            this.clusterPollingAllowed = allowed;
+        } finally {
+            this.pollingLock.unlock();
+        }
+        if (!allowed) this.updateClusterPolling(false);
     }
 
     /**
@@ -114,14 +343,49 @@ public class BotApplication {
      */
     public void stop() throws Exception {
         synchronized (this.stateLock) {
-            checkState(this.currentSession != null, "Bot is not running");
+            checkState(this.currentSessions != null, "Bot is not running");
 
             LOGGER.info("Stopping the bot session...");
 
             long startMillis = Util.monotonicMillis();
+            long deadlineNanos = System.nanoTime() + this.configuration.updates().drainTimeout().toNanos();
+
+            this.setClusterPollingAllowed(false);
+            for (BotSession session : this.currentSessions) {
+                session.stop();
+            }
+            this.currentSessions = null;
+            this.botsApi = null;
+            if (this.clusterCoordinator != null) {
+                // аренда шардов продлевается, пока узел дообрабатывает принятые события
+                this.clusterCoordinator.stopRouting();
+            }
+
+            if (this.updateIngress != null) {
+                // дожидаемся обработки уже полученных событий, пока хранилище ещё открыто
+                int pending = this.updateIngress.awaitDrained(remaining(deadlineNanos));
+                if (pending > 0) LOGGER.warn("{} updates were not processed before the drain timeout", pending);
+                this.updateIngress = null;
+            }
+            if (this.updateExecutor != null) {
+                int dropped = this.updateExecutor.close(remaining(deadlineNanos));
+                if (dropped > 0) {
+                    LOGGER.warn("Dropped {} queued updates, they will be {}", dropped,
+                        this.configuration.updates().journal().enabled() ? "replayed from the journal on the next start" : "lost");
+                }
+                this.updateExecutor = null;
+            }
 
-            this.currentSession.stop();
-            this.currentSession = null;
+            for (TelegramBot bot : this.bots) {
+                // отправляем ответы, которые обработчики уже поставили в очередь
+                int dropped = bot.stop(remaining(deadlineNanos));
+                if (dropped > 0) LOGGER.warn("Dropped {} outbound requests of @{}", dropped, bot.getBotUsername());
+            }
+
+            if (this.clusterCoordinator != null) {
+                this.clusterCoordinator.close();
+                this.clusterCoordinator = null;
+            }
 
             if (this.storage != null) {
                 this.storage.close();
@@ -133,6 +397,10 @@ public class BotApplication {
         }
     }
 
+    private static @NotNull Duration remaining(long deadlineNanos) {
+        return Duration.ofNanos(Math.max(deadlineNanos - System.nanoTime(), 0));
+    }
+
     /**
      * Проверяет, работает ли сейчас бот.
      *
@@ -141,6 +409,6 @@ public class BotApplication {
      * @author metabrix
      */
     public boolean isRunning() {
-        return this.currentSession != null;
+        return this.currentSessions != null;
     }
 }
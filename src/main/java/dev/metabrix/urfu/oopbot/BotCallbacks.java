@@ -0,0 +1,76 @@
+package dev.metabrix.urfu.oopbot;
+
+import dev.metabrix.urfu.oopbot.commands.TasksCommand;
+import dev.metabrix.urfu.oopbot.util.callback.CallbackCodec;
+import dev.metabrix.urfu.oopbot.util.callback.CallbackData;
+import dev.metabrix.urfu.oopbot.util.callback.CallbackWriter;
+import dev.metabrix.urfu.oopbot.util.command.CommandExecutionResult;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+/**
+ * Кнопки бота. Здесь регистрируются типы данных всех кнопок бота.
+ * <p>
+ * Номера действий: 1–9 — общие кнопки, 10–19 — кнопки {@link TasksCommand}.
+ *
+ * @see CallbackCodec
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class BotCallbacks {
+    private static final @NotNull CallbackCodec CODEC = new CallbackCodec();
+
+    static {
+        CODEC.register(1, DeleteMessage.class, reader -> new DeleteMessage(), (ctx, data) -> {
+            Message message = ctx.getCallbackMessage();
+            if (message == null) return CompletableFuture.completedFuture(CommandExecutionResult.SUCCESS);
+            return ctx.getInteraction().executeAsync(org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage.builder()
+                .chatId(message.getChatId())
+                .messageId(message.getMessageId())
+                .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+        });
+        ((TasksCommand) BotCommand.TASKS.getHandler()).registerCallbacks(CODEC);
+    }
+
+    private BotCallbacks() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Кодирует данные кнопки.
+     *
+     * @param data данные
+     * @return строка для <code>callback_data</code>
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull String encode(@NotNull CallbackData data) {
+        return CODEC.encode(data);
+    }
+
+    /**
+     * Декодирует данные кнопки.
+     *
+     * @param callbackData строка из <code>callback_data</code>
+     * @return данные вместе с обработчиком или {@code null}, если это не данные кнопок бота
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @Nullable CallbackCodec.Decoded<?> decode(@NotNull String callbackData) {
+        return CODEC.decode(callbackData);
+    }
+
+    /**
+     * Кнопка, удаляющая сообщение, к которому она прикреплена.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record DeleteMessage() implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+        }
+    }
+}
@@ -3,6 +3,7 @@ package dev.metabrix.urfu.oopbot;
 import dev.metabrix.urfu.oopbot.commands.StartCommand;
 import dev.metabrix.urfu.oopbot.commands.TasksCommand;
 import dev.metabrix.urfu.oopbot.util.command.CommandHandler;
+import dev.metabrix.urfu.oopbot.util.command.CommandRouter;
 import java.util.HashMap;
 import java.util.Set;
 import org.jetbrains.annotations.NotNull;
@@ -21,6 +22,7 @@ public enum BotCommand {
     ;
 
     private static final @NotNull HashMap<@NotNull String, @NotNull BotCommand> COMMANDS = new HashMap<>();
+    private static final @NotNull CommandRouter<@NotNull BotCommand> ROUTER;
 
     static {
         for (BotCommand command : BotCommand.values()) {
@@ -29,6 +31,7 @@ public enum BotCommand {
                 COMMANDS.put(alias, command);
             }
         }
+        ROUTER = new CommandRouter<>(COMMANDS);
     }
 
     private final @NotNull String name;
@@ -86,4 +89,15 @@ public enum BotCommand {
     public static @Nullable BotCommand byName(@NotNull String name) {
         return COMMANDS.get(name);
     }
+
+    /**
+     * Возвращает маршрутизатор, который находит команду по тексту сообщения.
+     *
+     * @return маршрутизатор команд
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull CommandRouter<@NotNull BotCommand> router() {
+        return ROUTER;
+    }
 }
@@ -5,10 +5,16 @@ import com.typesafe.config.ConfigException;
 import com.typesafe.config.ConfigFactory;
 import dev.metabrix.urfu.oopbot.storage.impl.mysql.MySQLDataStorage;
 import dev.metabrix.urfu.oopbot.storage.impl.sqlite.SQLiteDataStorage;
+import dev.metabrix.urfu.oopbot.telegram.ShardedUpdateExecutor;
+import dev.metabrix.urfu.oopbot.telegram.UpdateExecutor;
+import dev.metabrix.urfu.oopbot.telegram.UpdateType;
+import dev.metabrix.urfu.oopbot.telegram.VirtualThreadUpdateExecutor;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
 import java.util.*;
 import java.util.function.BiFunction;
+import java.util.regex.Pattern;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -17,16 +23,24 @@ import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
 /**
  * Конфигурация бота.
  *
- * @param botInfo информация о Telegram-боте
+ * @param bots Telegram-боты, которые обслуживает приложение; первый из них — основной
  * @param console интерактивная консоль
  * @param dataStorage хранилище данных
+ * @param updates получение событий Telegram API
+ * @param outbound отправка запросов в Telegram API
+ * @param throttle защита от слишком частых действий пользователей
+ * @param cluster совместная работа нескольких процессов бота
  * @since 1.0.0
  * @author metabrix
  */
 public record BotConfiguration(
-    @NotNull BotInfo botInfo,
+    @NotNull List<@NotNull BotInfo> bots,
     @NotNull Console console,
-    @NotNull DataStorage dataStorage
+    @NotNull DataStorage dataStorage,
+    @NotNull Updates updates,
+    @NotNull Outbound outbound,
+    @NotNull Throttle throttle,
+    @NotNull Cluster cluster
 ) {
     /**
      * Загружает конфигурацию из <code>.conf</code>-файла.
@@ -49,25 +63,108 @@ public record BotConfiguration(
      * @author metabrix
      */
     public static @NotNull BotConfiguration fromConfig(@NotNull Config config) {
+        List<BotInfo> bots = readBots(config);
+        Updates updates = Updates.fromConfig(config.hasPath("updates") ? config.getConfig("updates") : ConfigFactory.empty(), "updates.");
+        checkArgument(
+            bots.size() == 1 || updates.mode() != Updates.Mode.WEBHOOK,
+            "updates.mode = " + Updates.Mode.WEBHOOK + " supports only a single bot, use " + Updates.Mode.LONG_POLLING + " for multiple bots"
+        );
+
+        DataStorage dataStorage = DataStorage.fromConfig(config.getConfig("data-storage"), "data-storage.");
+        Cluster cluster = Cluster.fromConfig(config.hasPath("cluster") ? config.getConfig("cluster") : ConfigFactory.empty(), "cluster.");
+        if (cluster.enabled()) {
+            // аренда шардов хранится в базе данных, общей для всех узлов
+            checkArgument(
+                dataStorage.type() == DataStorage.Type.MYSQL,
+                "cluster.enabled = true requires data-storage.type = " + DataStorage.Type.MYSQL.getSerializedName()
+            );
+            // журнал локален для процесса, а события чата после перезапуска может обрабатывать другой узел
+            checkArgument(!updates.journal().enabled(), "cluster.enabled = true cannot be used with updates.journal.enabled = true");
+            // состояния диалогов меняют все узлы, и фильтр в памяти одного узла не узнал бы об изменениях других
+            DataStorage.MySQLConfiguration mysql = (DataStorage.MySQLConfiguration) dataStorage.configurations().get(DataStorage.Type.MYSQL);
+            checkArgument(
+                !mysql.dialogStateFilter(),
+                "cluster.enabled = true cannot be used with data-storage.mysql.dialog-state-filter = true"
+            );
+            // то же с индексом названий задач: задачи других узлов в него не попали бы
+            checkArgument(
+                !mysql.taskNameIndex(),
+                "cluster.enabled = true cannot be used with data-storage.mysql.task-name-index = true"
+            );
+        }
+
         return new BotConfiguration(
-            BotInfo.fromConfig(config.getConfig("bot-info"), "bot-info."),
+            bots,
             Console.fromConfig(config.getConfig("console")),
-            DataStorage.fromConfig(config.getConfig("data-storage"), "data-storage.")
+            dataStorage,
+            updates,
+            Outbound.fromConfig(config.hasPath("outbound") ? config.getConfig("outbound") : ConfigFactory.empty(), "outbound."),
+            Throttle.fromConfig(config.hasPath("throttle") ? config.getConfig("throttle") : ConfigFactory.empty(), "throttle."),
+            cluster
         );
     }
 
     /**
-     * Секция <code>bot-info</code> в конфигурации.
+     * Читает список ботов из секции <code>bots</code>, а если её нет — единственного бота из секции <code>bot-info</code>.
+     */
+    private static @NotNull List<@NotNull BotInfo> readBots(@NotNull Config config) {
+        if (!config.hasPath("bots")) return List.of(BotInfo.fromConfig(config.getConfig("bot-info"), "bot-info."));
+
+        List<? extends Config> botConfigs = config.getConfigList("bots");
+        checkArgument(!botConfigs.isEmpty(), "bots cannot be empty");
+
+        List<BotInfo> bots = new ArrayList<>(botConfigs.size());
+        Set<String> usernames = new HashSet<>();
+        Set<String> tokens = new HashSet<>();
+        for (int i = 0; i < botConfigs.size(); i++) {
+            String pathPrefix = "bots[" + i + "].";
+            BotInfo bot = BotInfo.fromConfig(botConfigs.get(i), pathPrefix);
+            checkArgument(usernames.add(bot.username().toLowerCase(Locale.ROOT)), pathPrefix + "username is used by another bot");
+            checkArgument(tokens.add(bot.token()), pathPrefix + "token is used by another bot");
+            bots.add(bot);
+        }
+        return List.copyOf(bots);
+    }
+
+    /**
+     * Секция <code>bot-info</code> или элемент списка <code>bots</code> в конфигурации.
      *
      * @param username юзернейм бота
      * @param token API-токен бота
+     * @param apiUrl базовый адрес Telegram Bot API, к которому дописываются токен и имя метода
      * @since 1.0.0
      * @author metabrix
      */
     public record BotInfo(
         @NotNull String username,
-        @NotNull String token
+        @NotNull String token,
+        @NotNull String apiUrl
     ) {
+        /**
+         * Адрес Telegram Bot API по умолчанию.
+         *
+         * @since 1.2.0
+         */
+        public static final @NotNull String DEFAULT_API_URL = "https://api.telegram.org/bot";
+
+        /**
+         * Возвращает ID бота в Telegram — часть токена до двоеточия. По нему данные ботов
+         * разделяются в общем хранилище.
+         *
+         * @return ID бота в Telegram
+         * @throws IllegalStateException если токен не в формате <code>&lt;ID бота&gt;:&lt;токен авторизации&gt;</code>
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public long botId() {
+            int separatorIndex = this.token.indexOf(':');
+            try {
+                if (separatorIndex > 0) return Long.parseLong(this.token, 0, separatorIndex, 10);
+            } catch (NumberFormatException ignored) {
+            }
+            throw new IllegalStateException("Token of @" + this.username + " must be in format \"<bot ID>:<authorization token>\"");
+        }
+
         /**
          * Создаёт {@link BotInfo} из объекта {@link Config}.
          *
@@ -83,7 +180,10 @@ public record BotConfiguration(
             String token = config.hasPath("token") ? config.getString("token") : null;
             checkArgument(token != null && !token.isBlank(), pathPrefix + "token cannot be null or blank");
 
-            return new BotInfo(username, token);
+            String apiUrl = config.hasPath("api-url") ? config.getString("api-url") : DEFAULT_API_URL;
+            checkArgument(!apiUrl.isBlank(), pathPrefix + "api-url cannot be blank");
+
+            return new BotInfo(username, token, apiUrl);
         }
     }
 
@@ -300,6 +400,8 @@ public record BotConfiguration(
          * @param password пароль
          * @param tablePrefix префикс названия таблиц бота
          * @param poolSize размер пула потоков
+         * @param dialogStateFilter держать ли в памяти множество пар пользователь–чат с состоянием диалога
+         * @param taskNameIndex держать ли в памяти индекс названий задач для поиска
          * @since 1.1.0
          * @author metabrix
          */
@@ -310,7 +412,9 @@ public record BotConfiguration(
             @NotNull String username,
             @NotNull String password,
             @NotNull String tablePrefix,
-            int poolSize
+            int poolSize,
+            boolean dialogStateFilter,
+            boolean taskNameIndex
         ) {
             /**
              * Создаёт {@link MySQLConfiguration} из объекта {@link Config}.
@@ -341,7 +445,13 @@ public record BotConfiguration(
                 int poolSize = config.hasPath("pool-size") ? config.getInt("pool-size") : 4;
                 checkArgument(poolSize > 0, pathPrefix + "pool-size must be greater than 0");
 
-                return new MySQLConfiguration(host, port, database, username, password, tablePrefix, poolSize);
+                boolean dialogStateFilter = config.hasPath("dialog-state-filter") && config.getBoolean("dialog-state-filter");
+
+                boolean taskNameIndex = config.hasPath("task-name-index") && config.getBoolean("task-name-index");
+
+                return new MySQLConfiguration(
+                    host, port, database, username, password, tablePrefix, poolSize, dialogStateFilter, taskNameIndex
+                );
             }
         }
 
@@ -385,4 +495,670 @@ public record BotConfiguration(
             }
         }
     }
+
+    /**
+     * Секция <code>updates</code> в конфигурации.
+     *
+     * @param mode способ получения событий
+     * @param webhook настройки вебхука или {@code null}, если события получаются не через вебхук
+     * @param execution способ выполнения обработчиков событий
+     * @param workers количество потоков, обрабатывающих события в режиме {@link Execution#SHARDED}
+     * @param ingress ограничение количества событий в обработке
+     * @param journal журнал событий
+     * @param drainTimeout сколько при остановке ждать обработки уже принятых событий и отправки ответов
+     * @param errors отчёты об ошибках обработки событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record Updates(
+        @NotNull Mode mode,
+        @Nullable Webhook webhook,
+        @NotNull Execution execution,
+        int workers,
+        @NotNull Ingress ingress,
+        @NotNull Journal journal,
+        @NotNull Duration drainTimeout,
+        @NotNull Errors errors
+    ) {
+        /**
+         * Создаёт {@link Updates} из объекта {@link Config}.
+         *
+         * @param config объект {@link Config}
+         * @return {@link Updates} из указанного {@link Config}
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public static @NotNull Updates fromConfig(@NotNull Config config, @NotNull String pathPrefix) {
+            Mode mode = config.hasPath("mode") ? Mode.bySerializedName(config.getString("mode")) : Mode.LONG_POLLING;
+            checkArgument(mode != null, pathPrefix + "mode must be one of " + Arrays.toString(Mode.values()));
+
+            Webhook webhook = null;
+            if (mode == Mode.WEBHOOK) {
+                checkArgument(
+                    config.hasPath("webhook"),
+                    pathPrefix + "webhook section must be present to receive updates via webhook"
+                );
+                webhook = Webhook.fromConfig(config.getConfig("webhook"), pathPrefix + "webhook.");
+            }
+
+            Execution execution = config.hasPath("execution")
+                ? Execution.bySerializedName(config.getString("execution"))
+                : Execution.SHARDED;
+            checkArgument(execution != null, pathPrefix + "execution must be one of " + Arrays.toString(Execution.values()));
+
+            int workers = config.hasPath("workers") ? config.getInt("workers") : 0;
+            checkArgument(workers >= 0, pathPrefix + "workers cannot be negative");
+            if (workers == 0) workers = Runtime.getRuntime().availableProcessors();
+
+            Ingress ingress = Ingress.fromConfig(
+                config.hasPath("ingress") ? config.getConfig("ingress") : ConfigFactory.empty(),
+                pathPrefix + "ingress."
+            );
+
+            Journal journal = Journal.fromConfig(
+                config.hasPath("journal") ? config.getConfig("journal") : ConfigFactory.empty(),
+                pathPrefix + "journal."
+            );
+
+            Duration drainTimeout = config.hasPath("drain-timeout") ? config.getDuration("drain-timeout") : Duration.ofSeconds(30);
+            checkArgument(!drainTimeout.isNegative(), pathPrefix + "drain-timeout cannot be negative");
+
+            Errors errors = Errors.fromConfig(
+                config.hasPath("errors") ? config.getConfig("errors") : ConfigFactory.empty(),
+                pathPrefix + "errors."
+            );
+
+            return new Updates(mode, webhook, execution, workers, ingress, journal, drainTimeout, errors);
+        }
+
+        /**
+         * Создаёт исполнитель обработчиков событий согласно конфигурации.
+         *
+         * @return исполнитель обработчиков событий
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public @NotNull UpdateExecutor createExecutor() {
+            return switch (this.execution) {
+                case SHARDED -> new ShardedUpdateExecutor(this.workers);
+                case VIRTUAL_THREADS -> new VirtualThreadUpdateExecutor();
+            };
+        }
+
+        /**
+         * Способ выполнения обработчиков событий.
+         *
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public enum Execution {
+            /**
+             * События распределяются по чатам между фиксированным числом потоков платформы.
+             */
+            SHARDED("sharded"),
+            /**
+             * Каждый чат с необработанными событиями обрабатывается в своём виртуальном потоке.
+             */
+            VIRTUAL_THREADS("virtual-threads"),
+            ;
+
+            private final @NotNull String serializedName;
+
+            Execution(@NotNull String serializedName) {
+                this.serializedName = serializedName;
+            }
+
+            /**
+             * Возвращает название способа выполнения в файле конфигурации.
+             *
+             * @return название в файле конфигурации
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public @NotNull String getSerializedName() {
+                return this.serializedName;
+            }
+
+            @Override
+            public @NotNull String toString() {
+                return this.serializedName;
+            }
+
+            /**
+             * Возвращает способ выполнения по его названию в файле конфигурации.
+             *
+             * @param serializedName название в файле конфигурации
+             * @return способ выполнения или {@code null}, если способа с таким названием нет
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public static @Nullable Execution bySerializedName(@NotNull String serializedName) {
+                for (Execution execution : values()) {
+                    if (execution.serializedName.equals(serializedName)) return execution;
+                }
+                return null;
+            }
+        }
+
+        /**
+         * Способ получения событий Telegram API.
+         *
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public enum Mode {
+            /**
+             * Long polling: бот сам запрашивает события методом <code>getUpdates</code>.
+             */
+            LONG_POLLING("long-polling"),
+            /**
+             * Вебхук: Telegram отправляет события POST-запросами на встроенный HTTP-сервер бота.
+             */
+            WEBHOOK("webhook"),
+            ;
+
+            private final @NotNull String serializedName;
+
+            Mode(@NotNull String serializedName) {
+                this.serializedName = serializedName;
+            }
+
+            /**
+             * Возвращает название способа получения событий в файле конфигурации.
+             *
+             * @return название в файле конфигурации
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public @NotNull String getSerializedName() {
+                return this.serializedName;
+            }
+
+            @Override
+            public @NotNull String toString() {
+                return this.serializedName;
+            }
+
+            /**
+             * Возвращает способ получения событий по его названию в файле конфигурации.
+             *
+             * @param serializedName название в файле конфигурации
+             * @return способ получения событий или {@code null}, если способа с таким названием нет
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public static @Nullable Mode bySerializedName(@NotNull String serializedName) {
+                for (Mode mode : values()) {
+                    if (mode.serializedName.equals(serializedName)) return mode;
+                }
+                return null;
+            }
+        }
+
+        /**
+         * Конфигурация вебхука.
+         *
+         * @param url публичный HTTPS-адрес, на который Telegram будет отправлять события
+         * @param host адрес, на котором встроенный HTTP-сервер принимает подключения
+         * @param port порт встроенного HTTP-сервера
+         * @param path путь, по которому встроенный HTTP-сервер принимает события
+         * @param secretToken секретный токен, который Telegram передаёт в каждом запросе,
+         *                    или {@code null}, если проверять запросы не нужно
+         * @param maxConnections максимальное количество одновременных подключений от Telegram
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public record Webhook(
+            @NotNull String url,
+            @NotNull String host,
+            int port,
+            @NotNull String path,
+            @Nullable String secretToken,
+            int maxConnections
+        ) {
+            private static final @NotNull Pattern SECRET_TOKEN_PATTERN = Pattern.compile("^[A-Za-z0-9_-]{1,256}$");
+
+            /**
+             * Создаёт {@link Webhook} из объекта {@link Config}.
+             *
+             * @param config объект {@link Config}
+             * @return {@link Webhook} из указанного {@link Config}
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public static @NotNull Webhook fromConfig(@NotNull Config config, @NotNull String pathPrefix) {
+                String url = config.hasPath("url") ? config.getString("url") : null;
+                checkArgument(url != null && url.startsWith("https://"), pathPrefix + "url must be an HTTPS URL");
+
+                String host = config.hasPath("host") ? config.getString("host") : "0.0.0.0";
+                checkArgument(!host.isBlank(), pathPrefix + "host cannot be blank");
+
+                int port = config.hasPath("port") ? config.getInt("port") : 8080;
+                checkArgument(0 <= port && port <= 65535, pathPrefix + "port must be between 0 and 65535");
+
+                String path = config.hasPath("path") ? config.getString("path") : "/telegram";
+                checkArgument(path.startsWith("/"), pathPrefix + "path must start with /");
+
+                String secretToken = config.hasPath("secret-token") ? config.getString("secret-token") : "";
+                checkArgument(
+                    secretToken.isEmpty() || SECRET_TOKEN_PATTERN.matcher(secretToken).matches(),
+                    pathPrefix + "secret-token must be 1-256 characters long and contain only A-Z, a-z, 0-9, _ and -"
+                );
+
+                int maxConnections = config.hasPath("max-connections") ? config.getInt("max-connections") : 40;
+                checkArgument(
+                    1 <= maxConnections && maxConnections <= 100,
+                    pathPrefix + "max-connections must be between 1 and 100"
+                );
+
+                return new Webhook(url, host, port, path, secretToken.isEmpty() ? null : secretToken, maxConnections);
+            }
+        }
+
+        /**
+         * Конфигурация ограничения количества событий в обработке.
+         *
+         * @param capacity максимальное количество принятых, но ещё не обработанных событий
+         * @param busyReply нужно ли отвечать на отброшенные команды и нажатия кнопок сообщением о перегрузке
+         * @param policies политики отбрасывания по типам событий; для типов, которых нет в списке,
+         *                 используется {@link DropPolicy#WHEN_FULL}
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public record Ingress(
+            int capacity,
+            boolean busyReply,
+            @NotNull Map<@NotNull UpdateType, @NotNull DropPolicy> policies
+        ) {
+            private static final @NotNull Map<@NotNull UpdateType, @NotNull DropPolicy> DEFAULT_POLICIES = Map.of(
+                // правки, опросы и inline-запросы теряют смысл, если их обработать с опозданием
+                UpdateType.EDITED_MESSAGE, DropPolicy.WHEN_BUSY,
+                UpdateType.EDITED_CHANNEL_POST, DropPolicy.WHEN_BUSY,
+                UpdateType.INLINE_QUERY, DropPolicy.WHEN_BUSY,
+                UpdateType.CHOSEN_INLINE_QUERY, DropPolicy.WHEN_BUSY,
+                UpdateType.POLL, DropPolicy.WHEN_BUSY,
+                UpdateType.POLL_ANSWER, DropPolicy.WHEN_BUSY,
+                // платежи и изменения участников редки, и терять их нельзя
+                UpdateType.SHIPPING_QUERY, DropPolicy.NEVER,
+                UpdateType.PRE_CHECKOUT_QUERY, DropPolicy.NEVER,
+                UpdateType.MY_CHAT_MEMBER, DropPolicy.NEVER
+            );
+
+            /**
+             * Создаёт {@link Ingress} из объекта {@link Config}.
+             *
+             * @param config объект {@link Config}
+             * @return {@link Ingress} из указанного {@link Config}
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public static @NotNull Ingress fromConfig(@NotNull Config config, @NotNull String pathPrefix) {
+                int capacity = config.hasPath("capacity") ? config.getInt("capacity") : 10000;
+                checkArgument(capacity > 0, pathPrefix + "capacity must be positive");
+
+                boolean busyReply = !config.hasPath("busy-reply") || config.getBoolean("busy-reply");
+
+                Map<UpdateType, DropPolicy> policies = new EnumMap<>(UpdateType.class);
+                policies.putAll(DEFAULT_POLICIES);
+                if (config.hasPath("policies")) {
+                    Config policiesConfig = config.getConfig("policies");
+                    for (String typeName : policiesConfig.root().keySet()) {
+                        UpdateType type = UpdateType.byApiName(typeName);
+                        checkArgument(type != null, pathPrefix + "policies." + typeName + " is not a known update type");
+
+                        DropPolicy policy = DropPolicy.bySerializedName(policiesConfig.getString(typeName));
+                        checkArgument(
+                            policy != null,
+                            pathPrefix + "policies." + typeName + " must be one of " + Arrays.toString(DropPolicy.values())
+                        );
+                        policies.put(type, policy);
+                    }
+                }
+
+                return new Ingress(capacity, busyReply, Collections.unmodifiableMap(policies));
+            }
+
+            /**
+             * Возвращает политику отбрасывания для типа событий.
+             *
+             * @param type тип событий или {@code null} для неподдерживаемых типов
+             * @return политика отбрасывания
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public @NotNull DropPolicy policy(@Nullable UpdateType type) {
+                DropPolicy policy = type == null ? null : this.policies.get(type);
+                return policy != null ? policy : DropPolicy.WHEN_FULL;
+            }
+
+            /**
+             * Политика отбрасывания событий при перегрузке.
+             *
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public enum DropPolicy {
+                /**
+                 * Событие принимается всегда, даже сверх ёмкости.
+                 */
+                NEVER("never"),
+                /**
+                 * Событие отбрасывается, когда очередь заполнена.
+                 */
+                WHEN_FULL("when-full"),
+                /**
+                 * Событие отбрасывается, когда очередь заполнена наполовину, оставляя место
+                 * для более важных событий.
+                 */
+                WHEN_BUSY("when-busy"),
+                ;
+
+                private final @NotNull String serializedName;
+
+                DropPolicy(@NotNull String serializedName) {
+                    this.serializedName = serializedName;
+                }
+
+                /**
+                 * Возвращает количество событий в очереди, начиная с которого событие отбрасывается.
+                 *
+                 * @param capacity ёмкость очереди
+                 * @return порог отбрасывания
+                 * @since 1.2.0
+                 * @author metabrix
+                 */
+                public int limit(int capacity) {
+                    return switch (this) {
+                        case NEVER -> Integer.MAX_VALUE;
+                        case WHEN_FULL -> capacity;
+                        case WHEN_BUSY -> Math.max(1, capacity / 2);
+                    };
+                }
+
+                /**
+                 * Возвращает название политики в файле конфигурации.
+                 *
+                 * @return название в файле конфигурации
+                 * @since 1.2.0
+                 * @author metabrix
+                 */
+                public @NotNull String getSerializedName() {
+                    return this.serializedName;
+                }
+
+                @Override
+                public @NotNull String toString() {
+                    return this.serializedName;
+                }
+
+                /**
+                 * Возвращает политику по её названию в файле конфигурации.
+                 *
+                 * @param serializedName название в файле конфигурации
+                 * @return политика или {@code null}, если политики с таким названием нет
+                 * @since 1.2.0
+                 * @author metabrix
+                 */
+                public static @Nullable DropPolicy bySerializedName(@NotNull String serializedName) {
+                    for (DropPolicy policy : values()) {
+                        if (policy.serializedName.equals(serializedName)) return policy;
+                    }
+                    return null;
+                }
+            }
+        }
+
+        /**
+         * Конфигурация журнала событий.
+         *
+         * @param enabled включён ли журнал
+         * @param directory директория, в которой хранятся сегменты журнала
+         * @param segmentSize размер сегмента журнала в байтах
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public record Journal(
+            boolean enabled,
+            @NotNull Path directory,
+            int segmentSize
+        ) {
+            private static final int MIN_SEGMENT_SIZE = 1024 * 1024;
+
+            /**
+             * Создаёт {@link Journal} из объекта {@link Config}.
+             *
+             * @param config объект {@link Config}
+             * @return {@link Journal} из указанного {@link Config}
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public static @NotNull Journal fromConfig(@NotNull Config config, @NotNull String pathPrefix) {
+                boolean enabled = config.hasPath("enabled") && config.getBoolean("enabled");
+
+                String directory = config.hasPath("directory") ? config.getString("directory") : "journal";
+                checkArgument(!directory.isBlank(), pathPrefix + "directory cannot be blank");
+
+                long segmentSize = config.hasPath("segment-size") ? config.getBytes("segment-size") : 16L * 1024 * 1024;
+                checkArgument(
+                    segmentSize >= MIN_SEGMENT_SIZE && segmentSize <= Integer.MAX_VALUE,
+                    pathPrefix + "segment-size must be between 1 MiB and 2 GiB"
+                );
+
+                return new Journal(enabled, Path.of(directory), (int) segmentSize);
+            }
+        }
+
+        /**
+         * Конфигурация отчётов об ошибках обработки событий.
+         *
+         * @param summaryInterval как часто выводить сводку ошибок
+         * @param samplesPerInterval для скольких ошибок за интервал выводить событие целиком
+         * @param maxGroups сколько разных пар «причина, чат» считать отдельно, остальные считаются вместе
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public record Errors(
+            @NotNull Duration summaryInterval,
+            int samplesPerInterval,
+            int maxGroups
+        ) {
+            /**
+             * Создаёт {@link Errors} из объекта {@link Config}.
+             *
+             * @param config объект {@link Config}
+             * @return {@link Errors} из указанного {@link Config}
+             * @since 1.2.0
+             * @author metabrix
+             */
+            public static @NotNull Errors fromConfig(@NotNull Config config, @NotNull String pathPrefix) {
+                Duration summaryInterval = config.hasPath("summary-interval") ? config.getDuration("summary-interval") : Duration.ofMinutes(1);
+                checkArgument(summaryInterval.toMillis() > 0, pathPrefix + "summary-interval must be positive");
+
+                int samplesPerInterval = config.hasPath("samples-per-interval") ? config.getInt("samples-per-interval") : 5;
+                checkArgument(samplesPerInterval >= 0, pathPrefix + "samples-per-interval cannot be negative");
+
+                int maxGroups = config.hasPath("max-groups") ? config.getInt("max-groups") : 1000;
+                checkArgument(maxGroups > 0, pathPrefix + "max-groups must be positive");
+
+                return new Errors(summaryInterval, samplesPerInterval, maxGroups);
+            }
+        }
+    }
+
+    /**
+     * Секция <code>outbound</code> в конфигурации.
+     *
+     * @param globalPerSecond сколько сообщений в секунду бот может отправить во все чаты вместе
+     * @param chatPerSecond сколько сообщений в секунду бот может отправить в один личный чат
+     * @param chatBurst сколько сообщений подряд можно отправить в один чат без ожидания
+     * @param groupPerMinute сколько сообщений в минуту бот может отправить в одну группу или канал
+     * @param maxRetries сколько раз повторять запрос, на который Telegram ответил ошибкой 429
+     * @param maxConnections сколько соединений с Telegram API бот может держать одновременно
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record Outbound(
+        double globalPerSecond,
+        double chatPerSecond,
+        int chatBurst,
+        double groupPerMinute,
+        int maxRetries,
+        int maxConnections
+    ) {
+        /**
+         * Создаёт {@link Outbound} из объекта {@link Config}.
+         *
+         * @param config объект {@link Config}
+         * @return {@link Outbound} из указанного {@link Config}
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public static @NotNull Outbound fromConfig(@NotNull Config config, @NotNull String pathPrefix) {
+            double globalPerSecond = config.hasPath("global-per-second") ? config.getDouble("global-per-second") : 30;
+            checkArgument(globalPerSecond > 0, pathPrefix + "global-per-second must be positive");
+
+            double chatPerSecond = config.hasPath("chat-per-second") ? config.getDouble("chat-per-second") : 1;
+            checkArgument(chatPerSecond > 0, pathPrefix + "chat-per-second must be positive");
+
+            int chatBurst = config.hasPath("chat-burst") ? config.getInt("chat-burst") : 3;
+            checkArgument(chatBurst > 0, pathPrefix + "chat-burst must be positive");
+
+            double groupPerMinute = config.hasPath("group-per-minute") ? config.getDouble("group-per-minute") : 20;
+            checkArgument(groupPerMinute > 0, pathPrefix + "group-per-minute must be positive");
+
+            int maxRetries = config.hasPath("max-retries") ? config.getInt("max-retries") : 5;
+            checkArgument(maxRetries >= 0, pathPrefix + "max-retries cannot be negative");
+
+            int maxConnections = config.hasPath("max-connections") ? config.getInt("max-connections") : 32;
+            checkArgument(maxConnections > 0, pathPrefix + "max-connections must be positive");
+
+            return new Outbound(globalPerSecond, chatPerSecond, chatBurst, groupPerMinute, maxRetries, maxConnections);
+        }
+    }
+
+    /**
+     * Секция <code>throttle</code> в конфигурации.
+     *
+     * @param enabled включена ли защита от флуда
+     * @param window длина скользящего окна
+     * @param userLimit сколько действий один пользователь может совершить за окно
+     * @param chatLimit сколько действий может быть совершено в одном чате за окно
+     * @param maxTracked сколько разных пользователей и сколько разных чатов отслеживается за окно,
+     *                   действия остальных не ограничиваются
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record Throttle(
+        boolean enabled,
+        @NotNull Duration window,
+        int userLimit,
+        int chatLimit,
+        int maxTracked
+    ) {
+        /**
+         * Создаёт {@link Throttle} из объекта {@link Config}.
+         *
+         * @param config объект {@link Config}
+         * @return {@link Throttle} из указанного {@link Config}
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public static @NotNull Throttle fromConfig(@NotNull Config config, @NotNull String pathPrefix) {
+            boolean enabled = !config.hasPath("enabled") || config.getBoolean("enabled");
+
+            Duration window = config.hasPath("window") ? config.getDuration("window") : Duration.ofSeconds(10);
+            checkArgument(window.toMillis() > 0, pathPrefix + "window must be positive");
+
+            int userLimit = config.hasPath("user-limit") ? config.getInt("user-limit") : 20;
+            checkArgument(userLimit > 0, pathPrefix + "user-limit must be positive");
+
+            int chatLimit = config.hasPath("chat-limit") ? config.getInt("chat-limit") : 60;
+            checkArgument(chatLimit > 0, pathPrefix + "chat-limit must be positive");
+
+            int maxTracked = config.hasPath("max-tracked") ? config.getInt("max-tracked") : 4096;
+            checkArgument(maxTracked > 0 && maxTracked <= 1 << 29, pathPrefix + "max-tracked must be between 1 and " + (1 << 29));
+
+            return new Throttle(enabled, window, userLimit, chatLimit, maxTracked);
+        }
+    }
+
+    /**
+     * Секция <code>cluster</code> в конфигурации.
+     *
+     * @param enabled включён ли кластерный режим
+     * @param nodeId уникальный идентификатор узла в кластере
+     * @param advertisedUrl адрес, по которому другие узлы пересылают этому узлу события
+     * @param host адрес, на котором HTTP-сервер узла принимает пересланные события
+     * @param port порт HTTP-сервера узла
+     * @param secret общий секрет узлов, который передаётся в каждом пересланном событии,
+     *               или {@code null}, если проверять запросы не нужно
+     * @param shards количество шардов, на которые делятся чаты; должно совпадать на всех узлах
+     * @param leaseDuration срок аренды шарда, после которого шард упавшего узла переходит к другим узлам
+     * @param heartbeatInterval интервал продления аренды
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record Cluster(
+        boolean enabled,
+        @NotNull String nodeId,
+        @NotNull String advertisedUrl,
+        @NotNull String host,
+        int port,
+        @Nullable String secret,
+        int shards,
+        @NotNull Duration leaseDuration,
+        @NotNull Duration heartbeatInterval
+    ) {
+        private static final @NotNull Pattern NODE_ID_PATTERN = Pattern.compile("^[A-Za-z0-9_.-]{1,64}$");
+        private static final int MAX_SHARDS = 4096;
+
+        /**
+         * Создаёт {@link Cluster} из объекта {@link Config}.
+         *
+         * @param config объект {@link Config}
+         * @return {@link Cluster} из указанного {@link Config}
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public static @NotNull Cluster fromConfig(@NotNull Config config, @NotNull String pathPrefix) {
+            boolean enabled = config.hasPath("enabled") && config.getBoolean("enabled");
+
+            String nodeId = config.hasPath("node-id") ? config.getString("node-id") : "";
+            String advertisedUrl = config.hasPath("advertised-url") ? config.getString("advertised-url") : "";
+            if (enabled) {
+                checkArgument(
+                    NODE_ID_PATTERN.matcher(nodeId).matches(),
+                    pathPrefix + "node-id must be 1-64 characters long and contain only A-Z, a-z, 0-9, _, . and -"
+                );
+                checkArgument(
+                    advertisedUrl.startsWith("http://") || advertisedUrl.startsWith("https://"),
+                    pathPrefix + "advertised-url must be an HTTP or HTTPS URL"
+                );
+            }
+
+            String host = config.hasPath("host") ? config.getString("host") : "0.0.0.0";
+            checkArgument(!host.isBlank(), pathPrefix + "host cannot be blank");
+
+            int port = config.hasPath("port") ? config.getInt("port") : 8090;
+            checkArgument(0 <= port && port <= 65535, pathPrefix + "port must be between 0 and 65535");
+
+            String secret = config.hasPath("secret") ? config.getString("secret") : "";
+
+            int shards = config.hasPath("shards") ? config.getInt("shards") : 64;
+            checkArgument(1 <= shards && shards <= MAX_SHARDS, pathPrefix + "shards must be between 1 and " + MAX_SHARDS);
+
+            Duration leaseDuration = config.hasPath("lease-duration") ? config.getDuration("lease-duration") : Duration.ofSeconds(15);
+            Duration heartbeatInterval = config.hasPath("heartbeat-interval") ? config.getDuration("heartbeat-interval") : Duration.ofSeconds(5);
+            checkArgument(heartbeatInterval.toMillis() > 0, pathPrefix + "heartbeat-interval must be positive");
+            checkArgument(
+                leaseDuration.compareTo(heartbeatInterval.multipliedBy(2)) >= 0,
+                pathPrefix + "lease-duration must be at least twice as long as heartbeat-interval"
+            );
+
+            return new Cluster(
+                enabled, nodeId, advertisedUrl, host, port, secret.isEmpty() ? null : secret,
+                shards, leaseDuration, heartbeatInterval
+            );
+        }
+    }
 }
@@ -26,7 +26,9 @@ public class Main {
         BotConfiguration config = loadConfigOrSaveDefault();
 
         try {
-            LOGGER.info("Starting the @{} bot", config.botInfo().username());
+            for (BotConfiguration.BotInfo botInfo : config.bots()) {
+                LOGGER.info("Starting the @{} bot", botInfo.username());
+            }
             BotApplication application = new BotApplication(config);
             application.start();
 
@@ -1,27 +1,40 @@
 package dev.metabrix.urfu.oopbot;
 
 import dev.metabrix.urfu.oopbot.interaction.CallbackQueryInteraction;
+import dev.metabrix.urfu.oopbot.interaction.Interaction;
 import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
+import dev.metabrix.urfu.oopbot.interaction.impl.CallbackMessageInteractionImpl;
 import dev.metabrix.urfu.oopbot.interaction.impl.MessageInteractionImpl;
+import dev.metabrix.urfu.oopbot.storage.TaskStorage;
 import dev.metabrix.urfu.oopbot.storage.model.Chat;
 import dev.metabrix.urfu.oopbot.storage.model.User;
 import dev.metabrix.urfu.oopbot.storage.model.dialog.DialogState;
+import dev.metabrix.urfu.oopbot.telegram.FloodLimiter;
 import dev.metabrix.urfu.oopbot.telegram.MessageUpdateContext;
 import dev.metabrix.urfu.oopbot.telegram.UpdateListener;
 import dev.metabrix.urfu.oopbot.util.Emoji;
 import dev.metabrix.urfu.oopbot.util.LogUtils;
+import dev.metabrix.urfu.oopbot.util.callback.CallbackCodec;
 import dev.metabrix.urfu.oopbot.util.command.*;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.CompletableFuture;
-import java.util.regex.Pattern;
+import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.AnswerInlineQuery;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
 import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.MaybeInaccessibleMessage;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.InlineQuery;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.inputmessagecontent.InputTextMessageContent;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResult;
+import org.telegram.telegrambots.meta.api.objects.inlinequery.result.InlineQueryResultArticle;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 /**
@@ -33,137 +46,263 @@ import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 public class MainUpdateListener implements UpdateListener {
     private static final @NotNull Logger LOGGER = LogUtils.getLogger();
 
-    private static final @NotNull Pattern COMMAND_REGEX = Pattern.compile("^/[^/]+(?:@[A-Za-z0-9_]+)?(?:\\s.+)?$");
+    private static final @NotNull CommandRouter<@NotNull BotCommand> ROUTER = BotCommand.router();
+    private static final @NotNull String COMMAND_CALLBACK_PREFIX = "command:";
+    private static final @NotNull String DELETE_MESSAGE_CALLBACK = "delete-message";
+    private static final @NotNull String UNKNOWN_COMMAND_REPLY = Emoji.X + " Неизвестная команда :(";
+    private static final @NotNull String THROTTLED_CALLBACK_REPLY = Emoji.HOURGLASS + " Слишком много действий, подождите немного";
+    private static final int INLINE_QUERY_RESULTS = 50;
+    private static final int INLINE_QUERY_CACHE_SECONDS = 10;
 
     private final @NotNull BotApplication application;
+    private final @Nullable FloodLimiter floodLimiter;
+    private final @NotNull CommandPipeline pipeline = CommandPipeline.builder()
+        .stage("replies", MainUpdateListener::replyToResult)
+        .stage("forwards", MainUpdateListener::ignoreForwarded)
+        .stage("session", this::resetSession)
+        .build();
 
-    public MainUpdateListener(@NotNull BotApplication application) {
+    public MainUpdateListener(@NotNull BotApplication application, @NotNull BotConfiguration.Throttle throttle) {
         this.application = application;
+        this.floodLimiter = throttle.enabled() ? new FloodLimiter(throttle) : null;
     }
 
-    @Override
-    public void handleMessage(@NotNull MessageInteraction interaction) throws TelegramApiException {
-        // ignore forwarded messages
-        if (interaction.getMessage().getForwardSenderName() != null) return;
+    /**
+     * Возвращает конвейер, через который выполняются команды и нажатия кнопок.
+     *
+     * @return конвейер выполнения команд
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull CommandPipeline getPipeline() {
+        return this.pipeline;
+    }
+
+    /**
+     * Возвращает защиту от флуда.
+     *
+     * @return защита от флуда или {@code null}, если она выключена
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @Nullable FloodLimiter getFloodLimiter() {
+        return this.floodLimiter;
+    }
 
-        MessageUpdateContext updateContext = new MessageUpdateContext(interaction);
+    @Override
+    public @NotNull CompletableFuture<Void> handleMessage(@NotNull MessageInteraction interaction) throws TelegramApiException {
+        return this.dispatchMessage(interaction, true);
+    }
 
+    /**
+     * Выполняет команду из сообщения или передаёт сообщение диалогу.
+     *
+     * @param interaction взаимодействие с сообщением
+     * @param throttle нужно ли учитывать сообщение в защите от флуда; нажатия кнопок учитываются до вызова
+     * @return future, которое завершится после обработки сообщения
+     */
+    private @NotNull CompletableFuture<Void> dispatchMessage(@NotNull MessageInteraction interaction, boolean throttle) {
         Message message = interaction.getMessage();
         String text = message.getText();
-        if (text == null || !COMMAND_REGEX.matcher(text).matches()) {
-            DialogState dialogState = updateContext.getDialogState();
-            if (dialogState == null) {
-                if (message.getChat().isUserChat()) {
-                    this.respondUnknownCommand(interaction);
-                }
-            } else {
-                dialogState.handleMessage(interaction);
-            }
-            return;
-        }
+        int route = text != null ? ROUTER.route(text, interaction.getBot().getBotUsername()) : CommandRouter.NOT_COMMAND;
+        if (route == CommandRouter.NOT_COMMAND) {
+            // ignore forwarded messages
+            if (message.getForwardSenderName() != null) return CompletableFuture.completedFuture(null);
 
-        User user = updateContext.createOrUpdateUser();
-        Chat chat = updateContext.createChatIfNotExists();
-
-        // remove any existing dialog state - we're processing commands now
-        this.application.getStorage().dialogStates().delete(user.id(), chat.id());
-
-        CommandContext ctx = new CommandContextImpl(interaction);
-        CommandInput input = ctx.getCommandInput();
-
-        String commandLabel = input.readToken();
-        String[] tagSplitParts = commandLabel.split("@");
-        if (tagSplitParts.length > 1) {
-            if (tagSplitParts[tagSplitParts.length - 1].equalsIgnoreCase(this.application.getBot().getBotUsername())) {
-                commandLabel = commandLabel.substring(0, commandLabel.length() - this.application.getBot().getBotUsername().length() - 1);
-            } else {
-                // command name has a bot tag, and it's not us
-                return;
-            }
+            return this.application.getStorage()
+                .supplyAsync(storage -> new MessageUpdateContext(interaction).getDialogState())
+                .thenCompose(dialogState -> {
+                    // ordinary group conversation is not addressed to the bot and must not use up the limits
+                    if (dialogState == null && !message.getChat().isUserChat()) return CompletableFuture.completedFuture(null);
+                    // too many actions from this user or in this chat, drop the message silently
+                    if (throttle && !this.tryAcquire(message)) return CompletableFuture.completedFuture(null);
+                    if (dialogState != null) return dialogState.handleMessage(interaction);
+                    return this.respondUnknownCommand(interaction);
+                });
         }
-
-        BotCommand command = BotCommand.byName(commandLabel);
-        if (command == null) {
-            this.respondUnknownCommand(interaction);
-            return;
+        // a command for another bot is not addressed to us either
+        if (throttle && route != CommandRouter.OTHER_BOT && !this.tryAcquire(message)) {
+            return CompletableFuture.completedFuture(null);
         }
 
+        CommandContext ctx = new CommandContextImpl(interaction);
+        Function<CommandContext, CompletableFuture<CommandExecutionResult>> handler = switch (route) {
+            // command name has a bot tag, and it's not us
+            case CommandRouter.OTHER_BOT -> ignored -> CompletableFuture.completedFuture(CommandExecutionResult.SUCCESS);
+            case CommandRouter.UNKNOWN_COMMAND -> ignored -> CompletableFuture.completedFuture(CommandExecutionResult.UNKNOWN_COMMAND);
+            default -> {
+                // the input has no leading slash, skip the command label that the router has already matched
+                ctx.getCommandInput().setCursor(CommandRouter.labelEnd(text) - 1);
+                yield ROUTER.get(route).getHandler()::executeFuture;
+            }
+        };
+        return this.pipeline.execute(ctx, handler).thenAccept(result -> {});
+    }
 
-        CommandHandler handler = command.getHandler();
-        CompletableFuture<CommandExecutionResult> future;
-        try {
-            future = handler.executeFuture(ctx);
-        } catch (Exception ex) {
-            future = CompletableFuture.failedFuture(ex);
-        }
-        future
+    private static @NotNull CompletableFuture<@NotNull CommandExecutionResult> replyToResult(
+        @NotNull CommandContext ctx,
+        @NotNull CommandMiddleware.Next next
+    ) {
+        return next.proceed(ctx)
             .exceptionally(throwable -> {
-                LOGGER.error("Failed to process command: {}", ctx.getCommandInput().getRawInput(), throwable);
+                LOGGER.error("Failed to process command: {}", ctx, throwable);
                 return CommandExecutionResult.INTERNAL_ERROR;
             })
-            .thenAcceptAsync(result -> {
-                try {
-                    switch (result) {
-                        case SUCCESS -> {}
-                        case INTERNAL_ERROR -> interaction.execute(SendMessage.builder()
-                            .chatId(message.getChatId())
-                            .text(Emoji.X + " Во время выполнения команды произошла внутренняя ошибка, попробуйте ещё раз.")
-                            .build());
-                        case INVALID_SYNTAX -> interaction.execute(SendMessage.builder()
-                            .chatId(message.getChatId())
-                            .text(Emoji.X + " Неверный синтаксис команды :(")
-                            .build());
-                        case UNKNOWN_COMMAND -> this.respondUnknownCommand(interaction);
-                    }
-                } catch (TelegramApiException e) {
-                    LOGGER.error("Failed to process command execution result", e);
-                }
+            .thenCompose(result -> {
+                String reply = switch (result) {
+                    case SUCCESS -> null;
+                    case INTERNAL_ERROR -> Emoji.X + " Во время выполнения команды произошла внутренняя ошибка, попробуйте ещё раз.";
+                    case INVALID_SYNTAX -> Emoji.X + " Неверный синтаксис команды :(";
+                    case UNKNOWN_COMMAND -> UNKNOWN_COMMAND_REPLY;
+                };
+                if (reply == null) return CompletableFuture.completedFuture(result);
+
+                return ctx.getInteraction().executeAsync(SendMessage.builder()
+                        .chatId(ctx.getTelegramChat().getId())
+                        .text(reply)
+                        .build())
+                    .handle((message, throwable) -> {
+                        if (throwable != null) LOGGER.error("Failed to process command execution result", throwable);
+                        return result;
+                    });
             });
     }
 
+    private static @NotNull CompletableFuture<@NotNull CommandExecutionResult> ignoreForwarded(
+        @NotNull CommandContext ctx,
+        @NotNull CommandMiddleware.Next next
+    ) {
+        if (ctx.getMessage().getForwardSenderName() != null) return CompletableFuture.completedFuture(CommandExecutionResult.SUCCESS);
+        return next.proceed(ctx);
+    }
+
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> resetSession(
+        @NotNull CommandContext ctx,
+        @NotNull CommandMiddleware.Next next
+    ) {
+        return this.application.getStorage().supplyAsync(storage -> {
+            MessageUpdateContext updateContext = ctx.getUpdateContext();
+            User user = updateContext.createOrUpdateUser();
+            Chat chat = updateContext.createChatIfNotExists();
+
+            // remove any existing dialog state - we're processing commands now
+            storage.dialogStates().delete(user.id(), chat.id());
+            return null;
+        }).thenCompose(ignored -> next.proceed(ctx));
+    }
+
     @Override
-    public void handleCallbackQuery(@NotNull CallbackQueryInteraction interaction) throws TelegramApiException {
+    public @NotNull CompletableFuture<Void> handleCallbackQuery(@NotNull CallbackQueryInteraction interaction) throws TelegramApiException {
         CallbackQuery query = interaction.getQuery();
-        String callbackData = query.getData();
-        if (callbackData == null) {
-            interaction.executeAsync(AnswerCallbackQuery.builder()
-                .callbackQueryId(query.getId())
-                .build());
-            return;
-        }
 
         MaybeInaccessibleMessage queryMessage = query.getMessage();
-        String[] parts = callbackData.split(":");
-        switch (parts[0]) {
-            case "command" -> { // format: "command:<command_line>"
-                org.telegram.telegrambots.meta.api.objects.Chat chat = new org.telegram.telegrambots.meta.api.objects.Chat();
-                chat.setId(queryMessage.getChatId());
-
-                Message message = new Message();
-                message.setFrom(interaction.getTelegramUser());
-                message.setChat(chat);
-                message.setText("/" + parts[1]);
-                interaction.getUpdate().setMessage(message);
-
-                this.handleMessage(new MessageInteractionImpl(interaction.getApplication(), interaction.getUpdate(), Update::getMessage));
-            }
-            case "delete-message" -> { // format: "delete-message"
-                interaction.executeAsync(DeleteMessage.builder()
-                    .chatId(queryMessage.getChatId())
-                    .messageId(queryMessage.getMessageId())
-                    .build());
-            }
+        long userId = query.getFrom().getId();
+        if (!this.tryAcquire(userId, queryMessage != null ? queryMessage.getChatId() : userId)) {
+            return interaction.executeAsync(AnswerCallbackQuery.builder()
+                .callbackQueryId(query.getId())
+                .text(THROTTLED_CALLBACK_REPLY)
+                .build()).thenAccept(ignored -> {});
         }
 
+        // answer right away, so the client hides the loading indicator before the handler does any work
         interaction.executeAsync(AnswerCallbackQuery.builder()
             .callbackQueryId(query.getId())
             .build());
+
+        String callbackData = query.getData();
+        if (callbackData == null) return CompletableFuture.completedFuture(null);
+
+        CallbackCodec.Decoded<?> decoded = BotCallbacks.decode(callbackData);
+        if (decoded != null) return this.handleCallback(interaction, decoded);
+
+        CompletableFuture<Void> future = CompletableFuture.completedFuture(null);
+
+        if (callbackData.startsWith(COMMAND_CALLBACK_PREFIX)) { // legacy format: "command:<command_line>"
+            future = this.dispatchMessage(this.toMessageInteraction(interaction, "/" + callbackData.substring(COMMAND_CALLBACK_PREFIX.length())), false);
+        } else if (callbackData.startsWith(DELETE_MESSAGE_CALLBACK)) { // legacy format: "delete-message:<chat_id>"
+            interaction.executeAsync(DeleteMessage.builder()
+                .chatId(queryMessage.getChatId())
+                .messageId(queryMessage.getMessageId())
+                .build());
+        }
+        return future;
+    }
+
+    private @NotNull CompletableFuture<Void> handleCallback(
+        @NotNull CallbackQueryInteraction interaction,
+        @NotNull CallbackCodec.Decoded<?> decoded
+    ) {
+        // the message is too old to be accessed, so the button can't do anything useful with it
+        if (!(interaction.getQuery().getMessage() instanceof Message)) return CompletableFuture.completedFuture(null);
+
+        MessageInteraction messageInteraction = new CallbackMessageInteractionImpl(interaction.getBot(), interaction.getUpdate());
+        return this.pipeline.execute(new CallbackContextImpl(messageInteraction, decoded.data()), decoded::handle).thenAccept(result -> {});
+    }
+
+    /**
+     * Отвечает на inline-запрос задачами из личного чата пользователя с ботом, в названии которых
+     * есть слово, начинающееся с текста запроса.
+     */
+    @Override
+    public @NotNull CompletableFuture<Void> handleInlineQuery(@NotNull Interaction interaction) throws TelegramApiException {
+        InlineQuery query = interaction.getUpdate().getInlineQuery();
+        long botId = interaction.getBot().getBotId();
+        long userId = query.getFrom().getId();
+
+        return interaction.getStorage().supplyAsync(storage -> {
+            // ищем задачи личного чата пользователя с ботом, у которого ID чата совпадает с ID пользователя
+            Chat chat = storage.chats().getByTelegramId(botId, userId);
+            if (chat == null) return List.<TaskStorage.NameMatch>of();
+            return storage.tasks().searchByName(chat.id(), query.getQuery(), INLINE_QUERY_RESULTS);
+        }).thenCompose(matches -> {
+            List<InlineQueryResult> results = new ArrayList<>(matches.size());
+            for (TaskStorage.NameMatch match : matches) {
+                results.add(InlineQueryResultArticle.builder()
+                    .id(String.valueOf(match.id()))
+                    .title(match.name())
+                    .inputMessageContent(InputTextMessageContent.builder()
+                        .messageText(Emoji.PAGE_FACING_UP + " " + match.name())
+                        .build())
+                    .build());
+            }
+            return interaction.executeAsync(AnswerInlineQuery.builder()
+                .inlineQueryId(query.getId())
+                .results(results)
+                .cacheTime(INLINE_QUERY_CACHE_SECONDS)
+                .isPersonal(true)
+                .build());
+        }).thenAccept(ignored -> {});
+    }
+
+    /**
+     * Превращает нажатие кнопки старого формата в сообщение от нажавшего пользователя в чате с кнопкой.
+     */
+    private @NotNull MessageInteraction toMessageInteraction(@NotNull CallbackQueryInteraction interaction, @NotNull String text) {
+        org.telegram.telegrambots.meta.api.objects.Chat chat = new org.telegram.telegrambots.meta.api.objects.Chat();
+        chat.setId(interaction.getQuery().getMessage().getChatId());
+
+        Message message = new Message();
+        message.setFrom(interaction.getTelegramUser());
+        message.setChat(chat);
+        message.setText(text);
+        interaction.getUpdate().setMessage(message);
+
+        return new MessageInteractionImpl(interaction.getBot(), interaction.getUpdate(), Update::getMessage);
+    }
+
+    private boolean tryAcquire(@NotNull Message message) {
+        long chatId = message.getChatId();
+        return this.tryAcquire(message.getFrom() != null ? message.getFrom().getId() : chatId, chatId);
     }
 
-    private void respondUnknownCommand(@NotNull MessageInteraction interaction) throws TelegramApiException {
-        interaction.execute(SendMessage.builder()
+    private boolean tryAcquire(long userId, long chatId) {
+        return this.floodLimiter == null || this.floodLimiter.tryAcquire(userId, chatId);
+    }
+
+    private @NotNull CompletableFuture<Void> respondUnknownCommand(@NotNull MessageInteraction interaction) {
+        return interaction.executeAsync(SendMessage.builder()
             .chatId(interaction.getTelegramChat().getId())
-            .text(Emoji.X + " Неизвестная команда :(")
-            .build());
+            .text(UNKNOWN_COMMAND_REPLY)
+            .build()).thenAccept(ignored -> {});
     }
 }
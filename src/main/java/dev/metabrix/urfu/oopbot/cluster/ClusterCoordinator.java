@@ -0,0 +1,480 @@
+package dev.metabrix.urfu.oopbot.cluster;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import dev.metabrix.urfu.oopbot.storage.ClusterStorage;
+import dev.metabrix.urfu.oopbot.telegram.TelegramBot;
+import dev.metabrix.urfu.oopbot.telegram.Updates;
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkState;
+
+/**
+ * Координатор узла в кластере из нескольких процессов бота с общим хранилищем MySQL.
+ * <p>
+ * Чаты делятся на шарды по {@link Updates#getOrderingKey(Update) ключу упорядочивания},
+ * и каждый шард в любой момент обрабатывает только один узел — тот, который держит аренду шарда
+ * (см. {@link ShardLeaseTable}). Событие, полученное узлом через вебхук или long polling,
+ * обрабатывается на месте, если шард принадлежит этому узлу, а иначе пересылается по HTTP узлу-владельцу.
+ * Если владельца нет или он не отвечает, пересылка повторяется после следующего продления аренды,
+ * когда шарды упавшего узла уже перейдут к живым.
+ * <p>
+ * Long polling в кластере ведёт только один узел — владелец шарда {@code 0}; эту роль
+ * сообщает обработчик, переданный в конструктор.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class ClusterCoordinator implements AutoCloseable {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+    private static final @NotNull ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final @NotNull Duration FORWARD_TIMEOUT = Duration.ofSeconds(5);
+    private static final int POLLER_SHARD = 0;
+    /**
+     * Значение счётчика событий в обработке у шарда, который отдаётся другому узлу. Счётчик
+     * остаётся отрицательным, сколько бы событий ни попытались принять, и такие события не принимаются.
+     */
+    private static final int RELEASING = Integer.MIN_VALUE / 2;
+
+    /**
+     * Путь, по которому узлы принимают пересланные события; за ним следует ID бота в Telegram.
+     *
+     * @since 1.2.0
+     */
+    public static final @NotNull String FORWARD_PATH = "/cluster/updates/";
+
+    /**
+     * Заголовок, в котором узлы передают общий секрет кластера.
+     *
+     * @since 1.2.0
+     */
+    public static final @NotNull String SECRET_HEADER = "X-Oopbot-Cluster-Secret";
+
+    private final @NotNull BotConfiguration.Cluster configuration;
+    private final @NotNull ShardLeaseTable leaseTable;
+    private final @NotNull Map<@NotNull Long, @NotNull TelegramBot> bots;
+    private final @NotNull Consumer<@NotNull Boolean> pollerListener;
+    private final @NotNull AtomicIntegerArray inFlight;
+    // шарды, которым запрещён приём событий до публикации новой таблицы; используется только при продлении
+    private final boolean @NotNull [] releasing;
+    private final int maxForwardAttempts;
+
+    private final @NotNull ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(
+        task -> new Thread(task, "Cluster Coordinator")
+    );
+    private final @NotNull HttpClient httpClient = HttpClient.newBuilder()
+        .connectTimeout(FORWARD_TIMEOUT)
+        .executor(Executors.newVirtualThreadPerTaskExecutor())
+        .build();
+    private final @NotNull ClusterServer server;
+
+    private final @NotNull LongAdder localUpdates = new LongAdder();
+    private final @NotNull LongAdder forwardedUpdates = new LongAdder();
+    private final @NotNull LongAdder forwardRetries = new LongAdder();
+    private final @NotNull LongAdder lostUpdates = new LongAdder();
+
+    private volatile @NotNull ShardLeaseTable.RoutingTable routingTable = ShardLeaseTable.RoutingTable.EMPTY;
+    private volatile boolean routing;
+    private volatile boolean poller;
+
+    /**
+     * Создаёт координатор.
+     *
+     * @param configuration конфигурация кластера
+     * @param storage хранилище аренды шардов
+     * @param bots боты приложения
+     * @param pollerListener вызывается после каждого продления аренды с {@code true}, если этот узел
+     *                       должен получать события через long polling, и с {@code false}, если не должен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public ClusterCoordinator(
+        @NotNull BotConfiguration.Cluster configuration,
+        @NotNull ClusterStorage storage,
+        @NotNull List<@NotNull TelegramBot> bots,
+        @NotNull Consumer<@NotNull Boolean> pollerListener
+    ) {
+        this(configuration, new ShardLeaseTable(
+            storage, configuration.nodeId(), configuration.advertisedUrl(), configuration.shards(), configuration.leaseDuration()
+        ), bots, pollerListener);
+    }
+
+    ClusterCoordinator(
+        @NotNull BotConfiguration.Cluster configuration,
+        @NotNull ShardLeaseTable leaseTable,
+        @NotNull List<@NotNull TelegramBot> bots,
+        @NotNull Consumer<@NotNull Boolean> pollerListener
+    ) {
+        this.configuration = configuration;
+        this.leaseTable = leaseTable;
+        Map<Long, TelegramBot> botsById = new HashMap<>();
+        for (TelegramBot bot : bots) {
+            botsById.put(bot.getBotId(), bot);
+        }
+        this.bots = Map.copyOf(botsById);
+        this.pollerListener = pollerListener;
+        this.inFlight = new AtomicIntegerArray(configuration.shards());
+        this.releasing = new boolean[configuration.shards()];
+        // за это время аренда шардов недоступного узла истекает и переходит к другим узлам
+        long heartbeatMillis = configuration.heartbeatInterval().toMillis();
+        this.maxForwardAttempts = (int) ((configuration.leaseDuration().toMillis() + heartbeatMillis - 1) / heartbeatMillis) + 2;
+        this.server = new ClusterServer(
+            new InetSocketAddress(configuration.host(), configuration.port()),
+            configuration.secret(),
+            this::acceptForwarded
+        );
+    }
+
+    /**
+     * Регистрирует узел в кластере, берёт в аренду его долю шардов и начинает принимать
+     * события от других узлов.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void start() {
+        checkState(!this.routing, "Cluster coordinator is already running");
+        this.leaseTable.createShards();
+        this.heartbeat();
+        this.server.start();
+        this.routing = true;
+
+        long heartbeatMillis = this.configuration.heartbeatInterval().toMillis();
+        this.scheduler.scheduleWithFixedDelay(this::heartbeatSafely, heartbeatMillis, heartbeatMillis, TimeUnit.MILLISECONDS);
+        LOGGER.info(
+            "Joined the cluster as {}: {} of {} shards, {} live nodes",
+            this.configuration.nodeId(), this.getOwnedShards(), this.configuration.shards(), this.routingTable.liveNodes()
+        );
+    }
+
+    /**
+     * Передаёт событие на обработку узлу, которому принадлежит шард его чата: этому узлу через
+     * {@link TelegramBot#accept(Update, Runnable)} или другому через HTTP.
+     *
+     * @param bot бот, получивший событие
+     * @param update событие
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void route(@NotNull TelegramBot bot, @NotNull Update update) {
+        this.route(bot, update, 1);
+    }
+
+    private void route(@NotNull TelegramBot bot, @NotNull Update update, int attempt) {
+        if (!this.routing) {
+            this.lostUpdates.increment();
+            LOGGER.warn("Dropped update {}: the node is leaving the cluster", update.getUpdateId());
+            return;
+        }
+
+        int shard = ShardLeaseTable.shardOf(Updates.getOrderingKey(update), this.configuration.shards());
+        if (this.tryAcceptLocally(bot, update, shard)) return;
+
+        ShardLeaseTable.RoutingTable table = this.routingTable;
+        String owner = table.owner(shard);
+        String address = owner != null && !owner.equals(this.configuration.nodeId()) ? table.addresses().get(owner) : null;
+        if (address == null) {
+            // шард свободен или аренда этого узла истекла — ждём следующего продления
+            this.retryLater(bot, update, attempt, "shard " + shard + " has no live owner");
+            return;
+        }
+
+        HttpRequest request;
+        try {
+            request = this.createForwardRequest(address, bot, update);
+        } catch (JsonProcessingException | IllegalArgumentException ex) {
+            this.lostUpdates.increment();
+            LOGGER.error("Failed to forward update {} to {}", update.getUpdateId(), owner, ex);
+            return;
+        }
+        this.httpClient.sendAsync(request, HttpResponse.BodyHandlers.discarding()).whenComplete((response, throwable) -> {
+            if (throwable == null && response.statusCode() == 200) {
+                this.forwardedUpdates.increment();
+            } else {
+                String reason = throwable != null ? throwable.toString() : "HTTP " + response.statusCode();
+                this.retryLater(bot, update, attempt, "forwarding to " + owner + " failed: " + reason);
+            }
+        });
+    }
+
+    private boolean tryAcceptLocally(@NotNull TelegramBot bot, @NotNull Update update, int shard) {
+        // счётчик увеличивается до проверки таблицы: продление либо увидит событие и не отдаст шард,
+        // либо уже запретило приём, либо опубликовало таблицу, которую прочитает эта проверка
+        if (this.inFlight.incrementAndGet(shard) <= 0) {
+            this.inFlight.decrementAndGet(shard);
+            return false;
+        }
+        ShardLeaseTable.RoutingTable table = this.routingTable;
+        if (!this.configuration.nodeId().equals(table.owner(shard)) || System.nanoTime() - table.validUntilNanos() >= 0) {
+            this.inFlight.decrementAndGet(shard);
+            return false;
+        }
+
+        this.localUpdates.increment();
+        bot.accept(update, () -> this.inFlight.decrementAndGet(shard));
+        return true;
+    }
+
+    private @NotNull HttpRequest createForwardRequest(
+        @NotNull String address,
+        @NotNull TelegramBot bot,
+        @NotNull Update update
+    ) throws JsonProcessingException {
+        String base = address.endsWith("/") ? address.substring(0, address.length() - 1) : address;
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create(base + FORWARD_PATH + bot.getBotId()))
+            .timeout(FORWARD_TIMEOUT)
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofByteArray(OBJECT_MAPPER.writeValueAsBytes(update)));
+        if (this.configuration.secret() != null) builder.header(SECRET_HEADER, this.configuration.secret());
+        return builder.build();
+    }
+
+    private void retryLater(@NotNull TelegramBot bot, @NotNull Update update, int attempt, @NotNull String reason) {
+        if (attempt >= this.maxForwardAttempts) {
+            this.lostUpdates.increment();
+            LOGGER.error("Dropped update {} after {} attempts: {}", update.getUpdateId(), attempt, reason);
+            return;
+        }
+
+        LOGGER.debug("Retrying update {} later: {}", update.getUpdateId(), reason);
+        this.forwardRetries.increment();
+        try {
+            this.scheduler.schedule(
+                () -> this.route(bot, update, attempt + 1),
+                this.configuration.heartbeatInterval().toMillis(), TimeUnit.MILLISECONDS
+            );
+        } catch (RejectedExecutionException ex) {
+            this.lostUpdates.increment();
+            LOGGER.warn("Dropped update {}: the node is leaving the cluster", update.getUpdateId());
+        }
+    }
+
+    /**
+     * Принимает событие, пересланное другим узлом.
+     *
+     * @return результат приёма
+     */
+    private @NotNull ClusterServer.Result acceptForwarded(long botId, @NotNull Update update) {
+        TelegramBot bot = this.bots.get(botId);
+        if (bot == null) return ClusterServer.Result.UNKNOWN_BOT;
+        if (!this.routing) return ClusterServer.Result.NOT_OWNER;
+
+        int shard = ShardLeaseTable.shardOf(Updates.getOrderingKey(update), this.configuration.shards());
+        // если шард уже перешёл к другому узлу, отправитель повторит пересылку по свежей таблице
+        return this.tryAcceptLocally(bot, update, shard) ? ClusterServer.Result.ACCEPTED : ClusterServer.Result.NOT_OWNER;
+    }
+
+    private void heartbeatSafely() {
+        try {
+            this.heartbeat();
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to renew shard leases, will retry in {}", this.configuration.heartbeatInterval(), ex);
+            // аренда могла истечь, а шард 0 — перейти к другому узлу
+            this.updatePoller(false);
+        }
+    }
+
+    private void heartbeat() {
+        ShardLeaseTable.RoutingTable previous = this.routingTable;
+        ShardLeaseTable.RoutingTable table = this.leaseTable.heartbeat(this::stopAccepting);
+        this.routingTable = table;
+        // новая таблица опубликована, дальше приём событий решает она; если продление не удалось,
+        // шард мог быть уже отдан, поэтому приём остаётся запрещённым до следующего продления
+        for (int shard = 0; shard < this.releasing.length; shard++) {
+            if (!this.releasing[shard]) continue;
+            this.releasing[shard] = false;
+            this.inFlight.addAndGet(shard, -RELEASING);
+        }
+
+        if (previous.liveNodes() != table.liveNodes()) {
+            LOGGER.info("Cluster has {} live nodes, this node owns {} shards", table.liveNodes(), table.countOwned(this.configuration.nodeId()));
+        }
+        this.updatePoller(this.configuration.nodeId().equals(table.owner(POLLER_SHARD)));
+    }
+
+    /**
+     * Запрещает приём событий шарда, если его события сейчас не обрабатываются.
+     *
+     * @return можно ли отдать шард
+     */
+    private boolean stopAccepting(int shard) {
+        if (this.releasing[shard]) return true;
+        if (!this.inFlight.compareAndSet(shard, 0, RELEASING)) return false;
+        this.releasing[shard] = true;
+        return true;
+    }
+
+    private void updatePoller(boolean poller) {
+        if (this.poller != poller) {
+            this.poller = poller;
+            LOGGER.info(poller ? "This node is now receiving updates for the cluster" : "This node is no longer receiving updates for the cluster");
+        }
+        // вызываем при каждом продлении, чтобы неудачный запуск long polling повторился
+        try {
+            this.pollerListener.accept(poller);
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to switch update receiving", ex);
+        }
+    }
+
+    /**
+     * Перестаёт принимать и пересылать события. Аренда шардов продолжает продлеваться, пока
+     * узел дообрабатывает уже принятые события, — до вызова {@link #close()}.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void stopRouting() {
+        this.routing = false;
+        this.server.stop();
+    }
+
+    /**
+     * Останавливает продление аренды, освобождает шарды узла и удаляет его из кластера.
+     * Вызывается после того, как все принятые события обработаны.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    public void close() {
+        this.stopRouting();
+        this.scheduler.shutdownNow();
+        try {
+            if (!this.scheduler.awaitTermination(this.configuration.heartbeatInterval().toMillis(), TimeUnit.MILLISECONDS)) {
+                LOGGER.warn("Cluster coordinator did not stop in time");
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.httpClient.close();
+
+        try {
+            this.leaseTable.leave();
+        } catch (RuntimeException ex) {
+            LOGGER.error("Failed to release shard leases, they will expire in {}", this.configuration.leaseDuration(), ex);
+        }
+        this.routingTable = ShardLeaseTable.RoutingTable.EMPTY;
+        LOGGER.info("Left the cluster");
+    }
+
+    /**
+     * Возвращает идентификатор этого узла.
+     *
+     * @return идентификатор узла
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull String getNodeId() {
+        return this.configuration.nodeId();
+    }
+
+    /**
+     * Возвращает количество шардов, принадлежащих этому узлу на момент последнего продления аренды.
+     *
+     * @return количество шардов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getOwnedShards() {
+        return this.routingTable.countOwned(this.configuration.nodeId());
+    }
+
+    /**
+     * Возвращает количество живых узлов на момент последнего продления аренды.
+     *
+     * @return количество узлов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getLiveNodes() {
+        return this.routingTable.liveNodes();
+    }
+
+    /**
+     * Возвращает количество событий, принятых на обработку этим узлом.
+     *
+     * @return количество событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getLocalUpdates() {
+        return this.localUpdates.sum();
+    }
+
+    /**
+     * Возвращает количество событий, переданных другим узлам.
+     *
+     * @return количество событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getForwardedUpdates() {
+        return this.forwardedUpdates.sum();
+    }
+
+    /**
+     * Возвращает количество отложенных повторов пересылки.
+     *
+     * @return количество повторов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getForwardRetries() {
+        return this.forwardRetries.sum();
+    }
+
+    /**
+     * Возвращает количество событий, которые не удалось передать ни одному узлу.
+     *
+     * @return количество событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getLostUpdates() {
+        return this.lostUpdates.sum();
+    }
+
+    /**
+     * Проверяет, получает ли этот узел события через long polling для всего кластера.
+     *
+     * @return {@code true}, если узел владеет шардом {@code 0}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public boolean isPoller() {
+        return this.poller;
+    }
+
+    /**
+     * Возвращает адрес, на котором узел фактически принимает пересланные события.
+     *
+     * @return адрес HTTP-сервера или {@code null}, если узел не запущен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @Nullable InetSocketAddress getBoundAddress() {
+        return this.server.getBoundAddress();
+    }
+}
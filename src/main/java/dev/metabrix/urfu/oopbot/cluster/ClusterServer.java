@@ -0,0 +1,182 @@
+package dev.metabrix.urfu.oopbot.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkState;
+
+/**
+ * HTTP-сервер, принимающий события, пересланные другими узлами кластера.
+ * <p>
+ * Событие передаётся POST-запросом на {@link ClusterCoordinator#FORWARD_PATH}, за которым следует
+ * ID бота. Ответ {@code 200} означает, что событие принято, {@code 409} — что шард чата
+ * этому узлу уже не принадлежит и отправителю нужно повторить пересылку позже.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+final class ClusterServer {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+    private static final @NotNull ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    private final @NotNull InetSocketAddress address;
+    private final byte @Nullable [] secret;
+    private final @NotNull Handler handler;
+
+    private @Nullable HttpServer server;
+    private @Nullable ExecutorService executor;
+
+    /**
+     * Создаёт сервер.
+     *
+     * @param address адрес, на котором сервер принимает подключения
+     * @param secret общий секрет кластера или {@code null}, если проверять запросы не нужно
+     * @param handler обработчик пересланных событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    ClusterServer(@NotNull InetSocketAddress address, @Nullable String secret, @NotNull Handler handler) {
+        this.address = address;
+        this.secret = secret == null ? null : secret.getBytes(StandardCharsets.UTF_8);
+        this.handler = handler;
+    }
+
+    synchronized void start() {
+        checkState(this.server == null, "Server is already running");
+
+        HttpServer server;
+        try {
+            server = HttpServer.create(this.address, 0);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to start the cluster server on " + this.address, ex);
+        }
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext(ClusterCoordinator.FORWARD_PATH, this::handleExchange);
+        server.start();
+
+        this.server = server;
+        this.executor = executor;
+        LOGGER.info("Listening for forwarded updates on {}{}", server.getAddress(), ClusterCoordinator.FORWARD_PATH);
+    }
+
+    synchronized void stop() {
+        if (this.server == null) return;
+
+        this.server.stop(0);
+        this.server = null;
+        if (this.executor != null) {
+            this.executor.close();
+            this.executor = null;
+        }
+    }
+
+    synchronized @Nullable InetSocketAddress getBoundAddress() {
+        return this.server != null ? this.server.getAddress() : null;
+    }
+
+    private void handleExchange(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!this.isAuthorized(exchange)) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            long botId;
+            try {
+                botId = Long.parseLong(exchange.getRequestURI().getPath().substring(ClusterCoordinator.FORWARD_PATH.length()));
+            } catch (NumberFormatException ex) {
+                exchange.sendResponseHeaders(404, -1);
+                return;
+            }
+
+            Update update;
+            try (InputStream is = exchange.getRequestBody()) {
+                update = OBJECT_MAPPER.readValue(is, Update.class);
+            } catch (IOException ex) {
+                LOGGER.warn("Received malformed forwarded update from {}", exchange.getRemoteAddress(), ex);
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            Result result;
+            try {
+                result = this.handler.accept(botId, update);
+            } catch (RuntimeException ex) {
+                LOGGER.error("Failed to accept forwarded update {}", update.getUpdateId(), ex);
+                result = Result.NOT_OWNER;
+            }
+            exchange.sendResponseHeaders(result.statusCode, -1);
+        }
+    }
+
+    private boolean isAuthorized(@NotNull HttpExchange exchange) {
+        if (this.secret == null) return true;
+
+        String header = exchange.getRequestHeaders().getFirst(ClusterCoordinator.SECRET_HEADER);
+        return header != null && MessageDigest.isEqual(this.secret, header.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Результат приёма пересланного события.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    enum Result {
+        /**
+         * Событие принято на обработку.
+         */
+        ACCEPTED(200),
+        /**
+         * Такого бота на узле нет.
+         */
+        UNKNOWN_BOT(404),
+        /**
+         * Шард чата этому узлу не принадлежит.
+         */
+        NOT_OWNER(409),
+        ;
+
+        private final int statusCode;
+
+        Result(int statusCode) {
+            this.statusCode = statusCode;
+        }
+    }
+
+    /**
+     * Обработчик пересланных событий.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @FunctionalInterface
+    interface Handler {
+        /**
+         * Принимает пересланное событие.
+         *
+         * @param botId ID бота в Telegram, которому адресовано событие
+         * @param update событие
+         * @return результат приёма
+         */
+        @NotNull Result accept(long botId, @NotNull Update update);
+    }
+}
@@ -0,0 +1,204 @@
+package dev.metabrix.urfu.oopbot.cluster;
+
+import dev.metabrix.urfu.oopbot.storage.ClusterStorage;
+import dev.metabrix.urfu.oopbot.storage.model.ClusterNode;
+import dev.metabrix.urfu.oopbot.storage.model.ShardLease;
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.IntPredicate;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Аренда шардов чатов одним узлом кластера.
+ * <p>
+ * При каждом {@link #heartbeat(IntPredicate) продлении} узел берёт в аренду свободные шарды,
+ * пока у него не наберётся равная доля от всех шардов, и отдаёт лишние, если узлов стало больше.
+ * Отдаются только шарды, события которых сейчас не обрабатываются, чтобы новый владелец не начал
+ * обрабатывать события чата раньше, чем старый закончит.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+final class ShardLeaseTable {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+
+    private final @NotNull ClusterStorage storage;
+    private final @NotNull String nodeId;
+    private final @NotNull String address;
+    private final int shards;
+    private final @NotNull Duration leaseDuration;
+
+    /**
+     * Создаёт таблицу аренды.
+     *
+     * @param storage хранилище аренды
+     * @param nodeId идентификатор этого узла
+     * @param address адрес, по которому другие узлы пересылают этому узлу события
+     * @param shards количество шардов
+     * @param leaseDuration срок аренды
+     * @since 1.2.0
+     * @author metabrix
+     */
+    ShardLeaseTable(
+        @NotNull ClusterStorage storage,
+        @NotNull String nodeId,
+        @NotNull String address,
+        int shards,
+        @NotNull Duration leaseDuration
+    ) {
+        checkArgument(shards > 0, "Shard count must be positive");
+        this.storage = storage;
+        this.nodeId = nodeId;
+        this.address = address;
+        this.shards = shards;
+        this.leaseDuration = leaseDuration;
+    }
+
+    /**
+     * Возвращает номер шарда, к которому относится ключ упорядочивания события.
+     *
+     * @param orderingKey ключ упорядочивания (ID чата или пользователя)
+     * @param shards количество шардов
+     * @return номер шарда от {@code 0} до {@code shards - 1}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    static int shardOf(long orderingKey, int shards) {
+        // перемешиваем биты, чтобы ID соседних чатов попадали в разные шарды
+        long hash = orderingKey;
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        return (int) Math.floorMod(hash, (long) shards);
+    }
+
+    /**
+     * Создаёт недостающие шарды в хранилище. Вызывается один раз при запуске узла.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void createShards() {
+        this.storage.createShards(this.shards);
+    }
+
+    /**
+     * Продлевает регистрацию узла и аренду его шардов, затем выравнивает количество шардов узла.
+     *
+     * @param stopAccepting вызывается перед тем, как отдать шард: если события шарда сейчас не обрабатываются,
+     *                      запрещает принимать новые и возвращает {@code true}, иначе возвращает {@code false}
+     *                      и шард остаётся у узла
+     * @return новая таблица маршрутизации
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull RoutingTable heartbeat(@NotNull IntPredicate stopAccepting) {
+        // аренда в хранилище продлевается не раньше этого момента, поэтому локальный срок не длиннее настоящего
+        long startNanos = System.nanoTime();
+        this.storage.heartbeat(this.nodeId, this.address, this.leaseDuration);
+        this.storage.renewShards(this.nodeId, this.leaseDuration);
+
+        List<ClusterNode> nodes = this.storage.getLiveNodes();
+        String[] owners = new String[this.shards];
+        for (ShardLease lease : this.storage.getShardLeases()) {
+            if (lease.shard() < this.shards) owners[lease.shard()] = lease.nodeId();
+        }
+
+        List<Integer> owned = new ArrayList<>();
+        for (int shard = 0; shard < this.shards; shard++) {
+            if (this.nodeId.equals(owners[shard])) owned.add(shard);
+        }
+        int fairShare = (this.shards + Math.max(nodes.size(), 1) - 1) / Math.max(nodes.size(), 1);
+
+        if (owned.size() > fairShare) {
+            for (int i = owned.size() - 1; i >= 0 && owned.size() > fairShare; i--) {
+                int shard = owned.get(i);
+                if (!stopAccepting.test(shard)) continue;
+                this.storage.releaseShard(shard, this.nodeId);
+                owners[shard] = null;
+                owned.remove(i);
+                LOGGER.info("Released shard {} to rebalance between {} nodes", shard, nodes.size());
+            }
+        } else {
+            for (int shard = 0; shard < this.shards && owned.size() < fairShare; shard++) {
+                if (owners[shard] != null) continue;
+                if (this.storage.acquireShard(shard, this.nodeId, this.leaseDuration)) {
+                    owners[shard] = this.nodeId;
+                    owned.add(shard);
+                    LOGGER.info("Acquired shard {}", shard);
+                }
+            }
+        }
+
+        Map<String, String> addresses = new HashMap<>();
+        for (ClusterNode node : nodes) {
+            addresses.put(node.id(), node.address());
+        }
+        addresses.put(this.nodeId, this.address);
+        return new RoutingTable(owners, Map.copyOf(addresses), nodes.size(), startNanos + this.leaseDuration.toNanos());
+    }
+
+    /**
+     * Освобождает все шарды узла и удаляет его регистрацию.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void leave() {
+        this.storage.leave(this.nodeId);
+    }
+
+    /**
+     * Снимок владельцев шардов на момент последнего продления аренды.
+     *
+     * @param owners идентификаторы узлов-владельцев по номеру шарда, {@code null} для свободных шардов
+     * @param addresses адреса живых узлов по идентификатору
+     * @param liveNodes количество живых узлов
+     * @param validUntilNanos момент по {@link System#nanoTime()}, после которого аренда шардов этого узла могла истечь
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record RoutingTable(
+        @Nullable String @NotNull [] owners,
+        @NotNull Map<@NotNull String, @NotNull String> addresses,
+        int liveNodes,
+        long validUntilNanos
+    ) {
+        /**
+         * Пустая таблица: ни один шард никому не принадлежит.
+         */
+        static final @NotNull RoutingTable EMPTY = new RoutingTable(new String[0], Map.of(), 0, Long.MIN_VALUE);
+
+        /**
+         * Возвращает владельца шарда.
+         *
+         * @param shard номер шарда
+         * @return идентификатор узла или {@code null}, если шард свободен
+         */
+        @Nullable String owner(int shard) {
+            return shard < this.owners.length ? this.owners[shard] : null;
+        }
+
+        /**
+         * Возвращает количество шардов, принадлежащих узлу.
+         *
+         * @param nodeId идентификатор узла
+         * @return количество шардов
+         */
+        int countOwned(@NotNull String nodeId) {
+            int count = 0;
+            for (String owner : this.owners) {
+                if (nodeId.equals(owner)) count++;
+            }
+            return count;
+        }
+    }
+}
@@ -4,18 +4,18 @@ import dev.metabrix.urfu.oopbot.BotCommand;
 import dev.metabrix.urfu.oopbot.util.Emoji;
 import dev.metabrix.urfu.oopbot.util.command.CommandContext;
 import dev.metabrix.urfu.oopbot.util.command.CommandExecutionResult;
-import dev.metabrix.urfu.oopbot.util.command.CommandHandler;
+import dev.metabrix.urfu.oopbot.util.command.FutureCommandHandler;
 import java.util.Arrays;
+import java.util.concurrent.CompletableFuture;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.telegram.telegrambots.meta.api.methods.ParseMode;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
-public class StartCommand implements CommandHandler {
+public class StartCommand implements FutureCommandHandler {
     @Override
-    public @NotNull CommandExecutionResult execute(@NotNull CommandContext ctx) throws TelegramApiException {
-        ctx.getInteraction().execute(SendMessage.builder()
+    public @NotNull CompletableFuture<@NotNull CommandExecutionResult> executeFuture(@NotNull CommandContext ctx) {
+        return ctx.getInteraction().executeAsync(SendMessage.builder()
             .chatId(ctx.getTelegramChat().getId())
             .parseMode(ParseMode.MARKDOWNV2)
             .text(
@@ -35,7 +35,6 @@ public class StartCommand implements CommandHandler {
                     Emoji.EYES
                 )
             )
-            .build());
-        return CommandExecutionResult.SUCCESS;
+            .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
     }
 }
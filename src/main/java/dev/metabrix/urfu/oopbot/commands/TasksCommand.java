@@ -1,60 +1,132 @@
 package dev.metabrix.urfu.oopbot.commands;
 
+import dev.metabrix.urfu.oopbot.BotCallbacks;
+import dev.metabrix.urfu.oopbot.storage.DataStorage;
 import dev.metabrix.urfu.oopbot.storage.TaskStorage;
 import dev.metabrix.urfu.oopbot.storage.model.Task;
 import dev.metabrix.urfu.oopbot.storage.model.TaskComment;
 import dev.metabrix.urfu.oopbot.storage.model.User;
+import dev.metabrix.urfu.oopbot.storage.model.dialog.DialogState;
 import dev.metabrix.urfu.oopbot.storage.model.dialog.ReadingNewTaskComment;
 import dev.metabrix.urfu.oopbot.storage.model.dialog.ReadingNewTaskName;
 import dev.metabrix.urfu.oopbot.storage.model.dialog.ReadingUpdatedTaskDescription;
 import dev.metabrix.urfu.oopbot.storage.model.dialog.ReadingUpdatedTaskName;
 import dev.metabrix.urfu.oopbot.util.Emoji;
-import dev.metabrix.urfu.oopbot.util.Util;
+import dev.metabrix.urfu.oopbot.util.callback.CallbackCodec;
+import dev.metabrix.urfu.oopbot.util.callback.CallbackData;
+import dev.metabrix.urfu.oopbot.util.callback.CallbackWriter;
+import dev.metabrix.urfu.oopbot.util.command.ArgumentParseResult;
 import dev.metabrix.urfu.oopbot.util.command.CommandContext;
 import dev.metabrix.urfu.oopbot.util.command.CommandExecutionResult;
 import dev.metabrix.urfu.oopbot.util.command.FutureCommandHandler;
-import java.sql.Date;
-import java.text.SimpleDateFormat;
+import dev.metabrix.urfu.oopbot.util.command.arguments.CommandArguments;
+import dev.metabrix.urfu.oopbot.util.command.arguments.OptionalArgument;
+import dev.metabrix.urfu.oopbot.util.markdown.MarkdownTemplate;
+import dev.metabrix.urfu.oopbot.util.markdown.MarkdownWriter;
 import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+import java.util.function.IntFunction;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.telegram.telegrambots.meta.api.methods.ParseMode;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
 import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
 
 public class TasksCommand implements FutureCommandHandler {
     private static final int TASKS_PAGE_SIZE = 5;
     private static final int COMMENTS_PAGE_SIZE = 5;
-    private static final @NotNull SimpleDateFormat DATE_FORMAT = new SimpleDateFormat("dd.MM.yyyy 'в' HH:mm:ss");
+    private static final int ADD_COMMENT = -1;
+    private static final @NotNull DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy 'в' HH:mm:ss")
+        .withZone(ZoneId.systemDefault());
+
+    private static final @NotNull String NO_TASKS = """
+        %s *Создайте первую задачу\\!*
+        
+        Используйте кнопку ниже или `/tasks new`, чтобы создать задачу\\.
+        """.formatted(Emoji.PAGE_FACING_UP);
+    private static final @NotNull String NO_COMMENTS = """
+        %s *Комментариев к этой задаче пока нет*
+        
+        Используйте кнопку ниже, чтобы оставить первый комментарий\\.
+        """.formatted(Emoji.PAGE_FACING_UP);
+    private static final @NotNull MarkdownTemplate TASKS_HEADER = MarkdownTemplate.compile(Emoji.NOTEBOOK + " *Задачи:* страница {} из {}\n");
+    private static final @NotNull MarkdownTemplate TASK_TITLE = MarkdownTemplate.compile("*{}* _\\(создана {} {}\\)_\n");
+    private static final @NotNull MarkdownTemplate UPDATED = MarkdownTemplate.compile("_Последнее изменение {} от {}_\n");
+    private static final @NotNull MarkdownTemplate COMMENTS_HEADER = MarkdownTemplate.compile(
+        Emoji.WRITING_HAND + " *Комментарии к задаче «{}»:* страница {} из {}\n"
+    );
+    private static final @NotNull MarkdownTemplate COMMENT_TITLE = MarkdownTemplate.compile("*{}*, {}\n");
+    private static final @NotNull MarkdownTemplate DELETE_CONFIRMATION = MarkdownTemplate.compile(
+        Emoji.EXCLAMATION_MARK + " Подтвердите удаление задачи «{}»"
+    );
 
     @Override
     public @NotNull CompletableFuture<@NotNull CommandExecutionResult> executeFuture(@NotNull CommandContext ctx) {
         String subCommand = ctx.getCommandInput().readToken();
         return switch (subCommand) {
             case "new" -> this.handleNew(ctx);
-            case "list" -> {
-                int pageIndex = 0;
-                try {
-                    pageIndex = ctx.getCommandInput().readInt() - 1;
-                    if (pageIndex < 0) throw new IllegalArgumentException();
-                } catch (IllegalArgumentException ignored) {
-                }
-                yield this.handleList(ctx, pageIndex);
-            }
-            case "show" -> this.handleShow(ctx);
-            case "edit-name" -> this.handleEditName(ctx);
-            case "edit-description" -> this.handleEditDescription(ctx);
-            case "delete-request" -> this.handleDeleteRequest(ctx);
-            case "delete-confirm" -> this.handleDeleteConfirm(ctx);
-            case "comments" -> this.handleComments(ctx);
+            case "list" -> this.handleList(ctx, readPage(ctx));
+            case "show" -> this.withTaskId(ctx, this::handleShow);
+            case "edit-name" -> this.withTaskId(ctx, this::handleEditName);
+            case "edit-description" -> this.withTaskId(ctx, this::handleEditDescription);
+            case "delete-request" -> this.withTaskId(ctx, this::handleDeleteRequest);
+            case "delete-confirm" -> this.withTaskId(ctx, this::handleDeleteConfirm);
+            case "comments" -> this.withTaskId(ctx, this::handleComments);
             default -> this.handleHelp(ctx);
         };
     }
 
+    /**
+     * Регистрирует кнопки команды.
+     *
+     * @param codec кодек данных кнопок
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void registerCallbacks(@NotNull CallbackCodec codec) {
+        codec
+            .register(10, NewTask.class, reader -> new NewTask(), (ctx, data) -> this.handleNew(ctx))
+            .register(11, ListTasks.class, reader -> new ListTasks(reader.readInt()), (ctx, data) -> this.handleList(ctx, data.page()))
+            .register(12, ShowTask.class, reader -> new ShowTask(reader.readInt()), (ctx, data) -> this.handleShow(ctx, data.taskId()))
+            .register(13, EditTaskName.class, reader -> new EditTaskName(reader.readInt()), (ctx, data) -> this.handleEditName(ctx, data.taskId()))
+            .register(14, EditTaskDescription.class, reader -> new EditTaskDescription(reader.readInt()), (ctx, data) -> this.handleEditDescription(ctx, data.taskId()))
+            .register(15, DeleteTaskRequest.class, reader -> new DeleteTaskRequest(reader.readInt()), (ctx, data) -> this.handleDeleteRequest(ctx, data.taskId()))
+            .register(16, DeleteTaskConfirm.class, reader -> new DeleteTaskConfirm(reader.readInt()), (ctx, data) -> this.handleDeleteConfirm(ctx, data.taskId()))
+            .register(17, ListComments.class, reader -> new ListComments(reader.readInt(), reader.readInt()), (ctx, data) -> this.handleComments(ctx, data.taskId(), data.page()))
+            .register(18, AddComment.class, reader -> new AddComment(reader.readInt()), (ctx, data) -> this.handleComments(ctx, data.taskId(), ADD_COMMENT));
+    }
+
+    /**
+     * Читает номер страницы списка. Номер страницы есть только у кнопок переключения страниц.
+     *
+     * @return номер страницы, начиная с 1, или 0, если номера нет
+     */
+    private static int readPage(@NotNull CommandContext ctx) {
+        return PageArgumentsParser.parse(ctx.getCommandInput()) instanceof ArgumentParseResult.Success<PageArguments>(PageArguments arguments)
+            ? Math.max(arguments.page(), 0)
+            : 0;
+    }
+
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> withTaskId(
+        @NotNull CommandContext ctx,
+        @NotNull BiFunction<@NotNull CommandContext, @NotNull Integer, @NotNull CompletableFuture<@NotNull CommandExecutionResult>> handler
+    ) {
+        return switch (TaskIdArgumentsParser.parse(ctx.getCommandInput())) {
+            case ArgumentParseResult.Success<TaskIdArguments>(TaskIdArguments arguments) -> handler.apply(ctx, arguments.taskId());
+            case ArgumentParseResult.Failure<TaskIdArguments> ignored -> this.handleHelp(ctx);
+        };
+    }
+
     private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleHelp(@NotNull CommandContext ctx) {
         return ctx.getInteraction().executeAsync(SendMessage.builder()
             .chatId(ctx.getTelegramChat().getId())
@@ -64,11 +136,11 @@ public class TasksCommand implements FutureCommandHandler {
                 .keyboardRow(List.of(
                     InlineKeyboardButton.builder()
                         .text(Emoji.PAGE_FACING_UP + " Создать задачу")
-                        .callbackData("command:tasks new")
+                        .callbackData(BotCallbacks.encode(new NewTask()))
                         .build(),
                     InlineKeyboardButton.builder()
                         .text(Emoji.NOTEBOOK + " Список задач")
-                        .callbackData("command:tasks list")
+                        .callbackData(BotCallbacks.encode(new ListTasks(0)))
                         .build()
                 )).build())
             .build()
@@ -76,82 +148,57 @@ public class TasksCommand implements FutureCommandHandler {
     }
 
     private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleNew(@NotNull CommandContext ctx) {
-        ctx.getStorage().dialogStates().set(
-            ctx.getSender().id(),
-            ctx.getChat().id(),
-            ReadingNewTaskName.INSTANCE
-        );
-        return ctx.getInteraction().executeAsync(SendMessage.builder()
+        return ctx.getStorage().supplyAsync(storage -> {
+            storage.dialogStates().set(ctx.getSender().id(), ctx.getChat().id(), ReadingNewTaskName.INSTANCE);
+            return null;
+        }).thenCompose(ignored -> ctx.getInteraction().executeAsync(SendMessage.builder()
             .chatId(ctx.getTelegramChat().getId())
             .parseMode(ParseMode.MARKDOWNV2)
             .text(Emoji.WRITING_HAND + " Напишите название новой задачи")
-            .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+            .build())).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+    }
+
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleList(@NotNull CommandContext ctx, int page) {
+        // номер страницы есть только у кнопок переключения страниц, их сообщение можно изменить
+        return this.handleList(ctx, Math.max(page - 1, 0), page > 0);
+    }
+
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleList(@NotNull CommandContext ctx, int pageIndex, boolean inPlace) {
+        return ctx.getStorage()
+            .supplyAsync(storage -> this.renderTasksPage(ctx, storage, pageIndex))
+            .thenCompose(page -> this.sendPage(ctx, inPlace, page));
     }
 
-    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleList(@NotNull CommandContext ctx, int pageIndex) {
-        int totalTasks = ctx.getStorage().tasks().countTasksByChatId(ctx.getChat().id());
+    private @NotNull Page renderTasksPage(@NotNull CommandContext ctx, @NotNull DataStorage storage, int pageIndex) {
+        int totalTasks = storage.tasks().countTasksByChatId(ctx.getChat().id());
         int totalPages = totalTasks / TASKS_PAGE_SIZE + (totalTasks % TASKS_PAGE_SIZE == 0 ? 0 : 1);
 
         if (totalPages == 0) {
-            return ctx.getInteraction().executeAsync(SendMessage.builder()
-                .chatId(ctx.getTelegramChat().getId())
-                .parseMode(ParseMode.MARKDOWNV2)
-                .text("""
-                    %s *Создайте первую задачу\\!*
-                    
-                    Используйте кнопку ниже или `/tasks new`, чтобы создать задачу\\.
-                    """.formatted(Emoji.PAGE_FACING_UP))
-                .replyMarkup(InlineKeyboardMarkup.builder().keyboardRow(List.of(
-                    InlineKeyboardButton.builder()
-                        .text(Emoji.PAGE_FACING_UP + " Создать первую задачу")
-                        .callbackData("command:tasks new")
-                        .build()
-                )).build())
-                .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+            return new Page(NO_TASKS, InlineKeyboardMarkup.builder().keyboardRow(List.of(
+                InlineKeyboardButton.builder()
+                    .text(Emoji.PAGE_FACING_UP + " Создать первую задачу")
+                    .callbackData(BotCallbacks.encode(new NewTask()))
+                    .build()
+            )).build());
         }
 
-        if (pageIndex >= totalPages) return this.handleList(ctx, 0);
-
-        StringBuilder message = new StringBuilder();
-
-        message.append("%s *Задачи:* страница %d из %d\n".formatted(Emoji.NOTEBOOK, pageIndex + 1, totalPages));
+        if (pageIndex >= totalPages) pageIndex = 0;
 
         HashMap<Integer, User> userCache = new HashMap<>();
-        List<Task> tasks = ctx.getStorage().tasks().searchTasksByChatId(
+        List<Task> tasks = storage.tasks().searchTasksByChatId(
             TASKS_PAGE_SIZE, pageIndex * TASKS_PAGE_SIZE,
             TaskStorage.Sort.UPDATED_AT, false,
             ctx.getChat().id()
         );
-        for (Task task : tasks) {
-            message.append("\n");
-
-            User createdBy = userCache.computeIfAbsent(task.createdById(), ctx.getStorage().users()::getById);
-            message.append("*%s* _\\(создана %s %s\\)_\n".formatted(
-                Util.sanitizeString(task.name()),
-                createdBy == null ? "<null>" : createdBy.markdownMention(),
-                formatInstant(task.createdAt())
-            ));
-            if (task.updatedAt() != null) {
-                User updatedBy = task.updatedById() == null ? null : userCache.computeIfAbsent(task.updatedById(), ctx.getStorage().users()::getById);
-                message.append("_Последнее изменение %s от %s_\n".formatted(
-                    formatInstant(task.updatedAt()),
-                    updatedBy == null ? "<null>" : updatedBy.markdownMention()
-                ));
-            }
-
-            if (task.description() == null) continue;
-
-            for (String line : task.description().split("\n")) {
-                message.append(">").append(Util.sanitizeString(line)).append("\n");
-            }
-        }
+        MarkdownWriter message = MarkdownWriter.get();
+        writeTasksPage(message, tasks, userId -> userCache.computeIfAbsent(userId, storage.users()::getById), pageIndex, totalPages);
 
         List<InlineKeyboardButton> taskButtons = new ArrayList<>(tasks.size());
         for (int i = 0; i < tasks.size(); i++) {
             Task task = tasks.get(i);
             taskButtons.add(InlineKeyboardButton.builder()
                 .text((i + 1) + Emoji.KEYCAP_SUFFIX.toString())
-                .callbackData("command:tasks show %d".formatted(task.id()))
+                .callbackData(BotCallbacks.encode(new ShowTask(task.id())))
                 .build());
         }
 
@@ -160,77 +207,52 @@ public class TasksCommand implements FutureCommandHandler {
         if (page > 1) {
             pageButtons.add(InlineKeyboardButton.builder()
                 .text("← Страница " + (page - 1))
-                .callbackData("command:tasks list %d".formatted(page - 1))
+                .callbackData(BotCallbacks.encode(new ListTasks(page - 1)))
                 .build());
         }
         if (page < totalPages) {
             pageButtons.add(InlineKeyboardButton.builder()
                 .text("Страница " + (page + 1) + " →")
-                .callbackData("command:tasks list %d".formatted(page + 1))
+                .callbackData(BotCallbacks.encode(new ListTasks(page + 1)))
                 .build());
         }
 
-        return ctx.getInteraction().executeAsync(SendMessage.builder()
-            .chatId(ctx.getTelegramChat().getId())
-            .parseMode(ParseMode.MARKDOWNV2)
-            .text(message.toString())
-            .replyMarkup(InlineKeyboardMarkup.builder()
-                .keyboardRow(taskButtons)
-                .keyboardRow(pageButtons)
-                .build())
-            .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+        return new Page(message.toString(), InlineKeyboardMarkup.builder()
+            .keyboardRow(taskButtons)
+            .keyboardRow(pageButtons)
+            .build());
     }
 
-    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleShow(@NotNull CommandContext ctx) {
-        int taskId;
-        try {
-            taskId = ctx.getCommandInput().readInt();
-        } catch (NumberFormatException ex) {
-            return this.handleHelp(ctx);
-        }
-
-        Task task = ctx.getStorage().tasks().getById(taskId);
-        if (task == null) {
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleShow(@NotNull CommandContext ctx, int taskId) {
+        return ctx.getStorage().supplyAsync(storage -> this.renderTask(storage, taskId)).thenCompose(page -> {
+            if (page == null) return this.replyTaskNotFound(ctx);
             return ctx.getInteraction().executeAsync(SendMessage.builder()
                 .chatId(ctx.getTelegramChat().getId())
                 .parseMode(ParseMode.MARKDOWNV2)
-                .text(Emoji.X + " *Задача не найдена*")
+                .text(page.text())
+                .replyMarkup(page.replyMarkup())
                 .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
-        }
+        });
+    }
 
-        StringBuilder message = new StringBuilder();
+    private @Nullable Page renderTask(@NotNull DataStorage storage, int taskId) {
+        Task task = storage.tasks().getById(taskId);
+        if (task == null) return null;
 
-        User createdBy = ctx.getStorage().users().getById(task.createdById());
-        message.append("*%s* _\\(создана %s %s\\)_\n".formatted(
-            Util.sanitizeString(task.name()),
-            createdBy == null ? "<null>" : createdBy.markdownMention(),
-            formatInstant(task.createdAt())
-        ));
-        if (task.updatedAt() != null) {
-            User updatedBy = task.updatedById() == null ? null : ctx.getStorage().users().getById(task.updatedById());
-            message.append("_Последнее изменение %s от %s_\n".formatted(
-                formatInstant(task.updatedAt()),
-                updatedBy == null ? "<null>" : updatedBy.markdownMention()
-            ));
-        }
+        User createdBy = storage.users().getById(task.createdById());
+        User updatedBy = task.updatedAt() == null || task.updatedById() == null ? null : storage.users().getById(task.updatedById());
 
+        MarkdownWriter message = MarkdownWriter.get();
+        writeTaskTitle(message, task, createdBy, updatedBy);
         if (task.description() != null) {
-            message.append("\n").append("*Описание:*\n");
-            for (String line : task.description().split("\n")) {
-                message.append(">").append(Util.sanitizeString(line)).append("\n");
-            }
+            message.raw("\n*Описание:*\n").quote(task.description());
         }
 
-        SendMessage.SendMessageBuilder builder = SendMessage.builder()
-            .chatId(ctx.getTelegramChat().getId())
-            .parseMode(ParseMode.MARKDOWNV2)
-            .text(message.toString());
-
         InlineKeyboardMarkup.InlineKeyboardMarkupBuilder keyboard = InlineKeyboardMarkup.builder();
         keyboard.keyboardRow(List.of(
             InlineKeyboardButton.builder()
                 .text(Emoji.WRITING_HAND + " Комментарии")
-                .callbackData("command:tasks comments %d list".formatted(taskId))
+                .callbackData(BotCallbacks.encode(new ListComments(taskId, 0)))
                 .build()
         ));
 
@@ -239,218 +261,117 @@ public class TasksCommand implements FutureCommandHandler {
                 .keyboardRow(List.of(
                     InlineKeyboardButton.builder()
                         .text("Изменить название")
-                        .callbackData("command:tasks edit-name %d".formatted(taskId))
+                        .callbackData(BotCallbacks.encode(new EditTaskName(taskId)))
                         .build(),
                     InlineKeyboardButton.builder()
                         .text("Изменить описание")
-                        .callbackData("command:tasks edit-description %d".formatted(taskId))
+                        .callbackData(BotCallbacks.encode(new EditTaskDescription(taskId)))
                         .build()
                 ))
                 .keyboardRow(List.of(
                     InlineKeyboardButton.builder()
                         .text("Удалить задачу")
-                        .callbackData("command:tasks delete-request %d".formatted(taskId))
+                        .callbackData(BotCallbacks.encode(new DeleteTaskRequest(taskId)))
                         .build()
                 ));
         }
 
-        builder.replyMarkup(keyboard.build());
-
-        return ctx.getInteraction()
-            .executeAsync(builder.build())
-            .thenApply(ignored -> CommandExecutionResult.SUCCESS);
+        return new Page(message.toString(), keyboard.build());
     }
 
-    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleEditName(@NotNull CommandContext ctx) {
-        int taskId;
-        try {
-            taskId = ctx.getCommandInput().readInt();
-        } catch (NumberFormatException ex) {
-            return this.handleHelp(ctx);
-        }
-
-        Task task = ctx.getStorage().tasks().getById(taskId);
-        if (task == null) {
-            return ctx.getInteraction().executeAsync(SendMessage.builder()
-                .chatId(ctx.getTelegramChat().getId())
-                .parseMode(ParseMode.MARKDOWNV2)
-                .text(Emoji.X + " *Задача не найдена*")
-                .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
-        }
-
-        ctx.getStorage().dialogStates().set(task.createdById(), task.chatId(), new ReadingUpdatedTaskName(task.id()));
-
-        return ctx.getInteraction().executeAsync(SendMessage.builder()
-            .chatId(ctx.getTelegramChat().getId())
-            .parseMode(ParseMode.MARKDOWNV2)
-            .text(Emoji.WRITING_HAND + " Напишите новое название задачи")
-            .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleEditName(@NotNull CommandContext ctx, int taskId) {
+        return this.startDialog(ctx, taskId, task -> new ReadingUpdatedTaskName(task.id()), " Напишите новое название задачи");
     }
 
-    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleEditDescription(@NotNull CommandContext ctx) {
-        int taskId;
-        try {
-            taskId = ctx.getCommandInput().readInt();
-        } catch (NumberFormatException ex) {
-            return this.handleHelp(ctx);
-        }
-
-        Task task = ctx.getStorage().tasks().getById(taskId);
-        if (task == null) {
-            return ctx.getInteraction().executeAsync(SendMessage.builder()
-                .chatId(ctx.getTelegramChat().getId())
-                .parseMode(ParseMode.MARKDOWNV2)
-                .text(Emoji.X + " *Задача не найдена*")
-                .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
-        }
-
-        ctx.getStorage().dialogStates().set(task.createdById(), task.chatId(), new ReadingUpdatedTaskDescription(task.id()));
-
-        return ctx.getInteraction().executeAsync(SendMessage.builder()
-            .chatId(ctx.getTelegramChat().getId())
-            .parseMode(ParseMode.MARKDOWNV2)
-            .text(Emoji.WRITING_HAND + " Напишите новое описание задачи")
-            .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleEditDescription(@NotNull CommandContext ctx, int taskId) {
+        return this.startDialog(ctx, taskId, task -> new ReadingUpdatedTaskDescription(task.id()), " Напишите новое описание задачи");
     }
 
-    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleDeleteRequest(@NotNull CommandContext ctx) {
-        int taskId;
-        try {
-            taskId = ctx.getCommandInput().readInt();
-        } catch (NumberFormatException ex) {
-            return this.handleHelp(ctx);
-        }
-
-        Task task = ctx.getStorage().tasks().getById(taskId);
-        if (task == null) {
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleDeleteRequest(@NotNull CommandContext ctx, int taskId) {
+        return ctx.getStorage().supplyAsync(storage -> storage.tasks().getById(taskId)).thenCompose(task -> {
+            if (task == null) return this.replyTaskNotFound(ctx);
             return ctx.getInteraction().executeAsync(SendMessage.builder()
                 .chatId(ctx.getTelegramChat().getId())
                 .parseMode(ParseMode.MARKDOWNV2)
-                .text(Emoji.X + " *Задача не найдена*")
+                .text(DELETE_CONFIRMATION.format(task.name()))
+                .replyMarkup(InlineKeyboardMarkup.builder().keyboardRow(List.of(
+                    InlineKeyboardButton.builder()
+                        .text(Emoji.TRASH_BIN + " Удалить задачу")
+                        .callbackData(BotCallbacks.encode(new DeleteTaskConfirm(taskId)))
+                        .build(),
+                    InlineKeyboardButton.builder()
+                        .text(Emoji.X + " Отмена")
+                        .callbackData(BotCallbacks.encode(new BotCallbacks.DeleteMessage()))
+                        .build()
+                )).build())
                 .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
-        }
-
-        return ctx.getInteraction().executeAsync(SendMessage.builder()
-            .chatId(ctx.getTelegramChat().getId())
-            .parseMode(ParseMode.MARKDOWNV2)
-            .text(Emoji.EXCLAMATION_MARK + " Подтвердите удаление задачи «" + Util.sanitizeString(task.name()) + "»")
-            .replyMarkup(InlineKeyboardMarkup.builder().keyboardRow(List.of(
-                InlineKeyboardButton.builder()
-                    .text(Emoji.TRASH_BIN + " Удалить задачу")
-                    .callbackData("command:tasks delete-confirm %d".formatted(taskId))
-                    .build(),
-                InlineKeyboardButton.builder()
-                    .text(Emoji.X + " Отмена")
-                    .callbackData("delete-message:%d".formatted(ctx.getTelegramChat().getId()))
-                    .build()
-            )).build())
-            .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+        });
     }
 
-    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleDeleteConfirm(@NotNull CommandContext ctx) {
-        int taskId;
-        try {
-            taskId = ctx.getCommandInput().readInt();
-        } catch (NumberFormatException ex) {
-            return this.handleHelp(ctx);
-        }
-
-        boolean success = ctx.getStorage().tasks().delete(taskId);
-
-        CompletableFuture<CommandExecutionResult> future = ctx.getInteraction().executeAsync(SendMessage.builder()
-            .chatId(ctx.getTelegramChat().getId())
-            .parseMode(ParseMode.MARKDOWNV2)
-            .text(success ? Emoji.WHITE_CHECK_MARK + " Задача удалена" : Emoji.X + " *Задача не найдена*")
-            .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
-
-        future.thenAccept(ignored -> this.handleList(ctx, 0));
-
-        return future;
-    }
-
-    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleComments(@NotNull CommandContext ctx) {
-        int taskId;
-        try {
-            taskId = ctx.getCommandInput().readInt();
-        } catch (NumberFormatException ex) {
-            return this.handleHelp(ctx);
-        }
-
-        Task task = ctx.getStorage().tasks().getById(taskId);
-        if (task == null) {
-            return ctx.getInteraction().executeAsync(SendMessage.builder()
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleDeleteConfirm(@NotNull CommandContext ctx, int taskId) {
+        return ctx.getStorage().supplyAsync(storage -> storage.tasks().delete(taskId))
+            .thenCompose(success -> ctx.getInteraction().executeAsync(SendMessage.builder()
                 .chatId(ctx.getTelegramChat().getId())
                 .parseMode(ParseMode.MARKDOWNV2)
-                .text(Emoji.X + " *Задача не найдена*")
-                .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
-        }
+                .text(success ? Emoji.WHITE_CHECK_MARK + " Задача удалена" : Emoji.X + " *Задача не найдена*")
+                .build()))
+            .thenCompose(ignored -> this.handleList(ctx, 0, false));
+    }
 
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleComments(@NotNull CommandContext ctx, int taskId) {
         return switch (ctx.getCommandInput().readToken()) {
-            case "list" -> {
-                int pageIndex = 0;
-                try {
-                    pageIndex = ctx.getCommandInput().readInt() - 1;
-                    if (pageIndex < 0) throw new IllegalArgumentException();
-                } catch (IllegalArgumentException ignored) {
-                }
-                yield this.handleCommentsList(ctx, task, pageIndex);
-            }
-            case "add" -> this.handleCommentsAdd(ctx, task);
+            case "list" -> this.handleComments(ctx, taskId, readPage(ctx));
+            case "add" -> this.handleComments(ctx, taskId, ADD_COMMENT);
             // если хочешь, можешь аналогично добавить редактирование и удаление комментариев
             default -> this.handleHelp(ctx);
         };
     }
 
-    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleCommentsList(@NotNull CommandContext ctx, @NotNull Task task, int pageIndex) {
-        int totalComments = ctx.getStorage().tasks().comments().countByTaskId(task.id());
+    /**
+     * Показывает страницу комментариев к задаче или, если {@code page} равен {@link #ADD_COMMENT}, начинает написание комментария.
+     */
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleComments(@NotNull CommandContext ctx, int taskId, int page) {
+        if (page == ADD_COMMENT) {
+            return this.startDialog(ctx, taskId, task -> new ReadingNewTaskComment(task.id()), " Напишите комментарий к задаче");
+        }
+
+        boolean inPlace = page > 0;
+        return ctx.getStorage().supplyAsync(storage -> {
+            Task task = storage.tasks().getById(taskId);
+            return task == null ? null : this.renderCommentsPage(storage, task, Math.max(page - 1, 0));
+        }).thenCompose(commentsPage -> {
+            if (commentsPage == null) return this.replyTaskNotFound(ctx);
+            return this.sendPage(ctx, inPlace, commentsPage);
+        });
+    }
+
+    private @NotNull Page renderCommentsPage(@NotNull DataStorage storage, @NotNull Task task, int pageIndex) {
+        int totalComments = storage.tasks().comments().countByTaskId(task.id());
         int totalPages = totalComments / COMMENTS_PAGE_SIZE + (totalComments % COMMENTS_PAGE_SIZE == 0 ? 0 : 1);
 
         if (totalPages == 0) {
-            return ctx.getInteraction().executeAsync(SendMessage.builder()
-                .chatId(ctx.getTelegramChat().getId())
-                .parseMode(ParseMode.MARKDOWNV2)
-                .text("""
-                    %s *Комментариев к этой задаче пока нет*
-                    
-                    Используйте кнопку ниже, чтобы оставить первый комментарий\\.
-                    """.formatted(Emoji.PAGE_FACING_UP))
-                .replyMarkup(InlineKeyboardMarkup.builder().keyboardRow(List.of(
-                    InlineKeyboardButton.builder()
-                        .text(Emoji.WRITING_HAND + " Написать комментарий")
-                        .callbackData("command:tasks comments %d add".formatted(task.id()))
-                        .build()
-                )).build())
-                .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+            return new Page(NO_COMMENTS, InlineKeyboardMarkup.builder().keyboardRow(List.of(
+                InlineKeyboardButton.builder()
+                    .text(Emoji.WRITING_HAND + " Написать комментарий")
+                    .callbackData(BotCallbacks.encode(new AddComment(task.id())))
+                    .build()
+            )).build());
         }
 
-        if (pageIndex >= totalPages) return this.handleCommentsList(ctx, task, 0);
-
-        StringBuilder message = new StringBuilder();
+        if (pageIndex >= totalPages) pageIndex = 0;
 
-        message.append("%s *Комментарии к задаче «%s»:* страница %d из %d\n".formatted(
-            Emoji.WRITING_HAND, Util.sanitizeString(task.name()), pageIndex + 1, totalPages
-        ));
+        MarkdownWriter message = MarkdownWriter.get();
+        message.template(COMMENTS_HEADER, task.name(), pageIndex + 1, totalPages);
 
         HashMap<Integer, User> userCache = new HashMap<>();
-        List<TaskComment> comments = ctx.getStorage().tasks().comments().getByTaskId(task.id(), COMMENTS_PAGE_SIZE, pageIndex * COMMENTS_PAGE_SIZE, true);
+        List<TaskComment> comments = storage.tasks().comments().getByTaskId(task.id(), COMMENTS_PAGE_SIZE, pageIndex * COMMENTS_PAGE_SIZE, true);
         for (TaskComment comment : comments) {
-            message.append("\n");
-
-            User createdBy = userCache.computeIfAbsent(comment.authorId(), ctx.getStorage().users()::getById);
-            message.append("*%s*, %s\n".formatted(
-                createdBy == null ? "<null>" : createdBy.markdownMention(),
-                formatInstant(comment.postedAt())
-            ));
+            User createdBy = userCache.computeIfAbsent(comment.authorId(), storage.users()::getById);
+            message.raw('\n').template(COMMENT_TITLE, mention(createdBy), date(comment.postedAt()));
             if (comment.updatedAt() != null) {
-                message.append("_Последнее изменение %s от %s_\n".formatted(
-                    formatInstant(comment.updatedAt()),
-                    createdBy == null ? "<null>" : createdBy.markdownMention()
-                ));
-            }
-
-            for (String line : comment.content().split("\n")) {
-                message.append(">").append(Util.sanitizeString(line)).append("\n");
+                message.template(UPDATED, date(comment.updatedAt()), mention(createdBy));
             }
+            message.quote(comment.content());
         }
 
         int page = pageIndex + 1;
@@ -458,42 +379,283 @@ public class TasksCommand implements FutureCommandHandler {
         if (page > 1) {
             pageButtons.add(InlineKeyboardButton.builder()
                 .text("← Страница " + (page - 1))
-                .callbackData("command:tasks comments %d list %d".formatted(task.id(), page - 1))
+                .callbackData(BotCallbacks.encode(new ListComments(task.id(), page - 1)))
                 .build());
         }
         if (page < totalPages) {
             pageButtons.add(InlineKeyboardButton.builder()
                 .text("Страница " + (page + 1) + " →")
-                .callbackData("command:tasks comments %d list %d".formatted(task.id(), page + 1))
+                .callbackData(BotCallbacks.encode(new ListComments(task.id(), page + 1)))
                 .build());
         }
 
         List<InlineKeyboardButton> secondRow = List.of(
             InlineKeyboardButton.builder()
                 .text(Emoji.WRITING_HAND + " Написать комментарий")
-                .callbackData("command:tasks comments %d add".formatted(task.id()))
+                .callbackData(BotCallbacks.encode(new AddComment(task.id())))
                 .build()
         );
 
+        return new Page(message.toString(), InlineKeyboardMarkup.builder()
+            .keyboardRow(pageButtons)
+            .keyboardRow(secondRow)
+            .build());
+    }
+
+    /**
+     * Переводит автора задачи в диалог с ботом и отправляет подсказку.
+     *
+     * @param dialogState функция, создающая состояние диалога для найденной задачи
+     * @param prompt текст подсказки после эмодзи
+     */
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> startDialog(
+        @NotNull CommandContext ctx,
+        int taskId,
+        @NotNull Function<@NotNull Task, @NotNull DialogState> dialogState,
+        @NotNull String prompt
+    ) {
+        return ctx.getStorage().supplyAsync(storage -> {
+            Task task = storage.tasks().getById(taskId);
+            if (task == null) return false;
+            storage.dialogStates().set(task.createdById(), task.chatId(), dialogState.apply(task));
+            return true;
+        }).thenCompose(found -> {
+            if (!found) return this.replyTaskNotFound(ctx);
+            return ctx.getInteraction().executeAsync(SendMessage.builder()
+                .chatId(ctx.getTelegramChat().getId())
+                .parseMode(ParseMode.MARKDOWNV2)
+                .text(Emoji.WRITING_HAND + prompt)
+                .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+        });
+    }
+
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> replyTaskNotFound(@NotNull CommandContext ctx) {
         return ctx.getInteraction().executeAsync(SendMessage.builder()
             .chatId(ctx.getTelegramChat().getId())
             .parseMode(ParseMode.MARKDOWNV2)
-            .text(message.toString())
-            .replyMarkup(InlineKeyboardMarkup.builder().keyboardRow(pageButtons).keyboardRow(secondRow).build())
+            .text(Emoji.X + " *Задача не найдена*")
             .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
     }
 
-    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleCommentsAdd(@NotNull CommandContext ctx, @NotNull Task task) {
-        ctx.getStorage().dialogStates().set(task.createdById(), task.chatId(), new ReadingNewTaskComment(task.id()));
+    /**
+     * Отправляет страницу списка. Если страница запрошена кнопкой переключения страниц, то вместо
+     * нового сообщения изменяется сообщение с этой кнопкой.
+     */
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> sendPage(
+        @NotNull CommandContext ctx,
+        boolean inPlace,
+        @NotNull Page page
+    ) {
+        Message callbackMessage = inPlace ? ctx.getCallbackMessage() : null;
+        if (callbackMessage != null) {
+            return ctx.getInteraction().executeAsync(EditMessageText.builder()
+                .chatId(callbackMessage.getChatId())
+                .messageId(callbackMessage.getMessageId())
+                .parseMode(ParseMode.MARKDOWNV2)
+                .text(page.text())
+                .replyMarkup(page.replyMarkup())
+                .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
+        }
 
         return ctx.getInteraction().executeAsync(SendMessage.builder()
             .chatId(ctx.getTelegramChat().getId())
             .parseMode(ParseMode.MARKDOWNV2)
-            .text(Emoji.WRITING_HAND + " Напишите комментарий к задаче")
+            .text(page.text())
+            .replyMarkup(page.replyMarkup())
             .build()).thenApply(ignored -> CommandExecutionResult.SUCCESS);
     }
 
-    private @NotNull String formatInstant(@NotNull Instant instant) {
-        return Util.sanitizeString(DATE_FORMAT.format(Date.from(instant)));
+    /**
+     * Записывает страницу списка задач.
+     *
+     * @param users функция, возвращающая пользователя по внутреннему ID или {@code null}, если такого пользователя нет
+     */
+    static void writeTasksPage(
+        @NotNull MarkdownWriter message,
+        @NotNull List<@NotNull Task> tasks,
+        @NotNull IntFunction<@Nullable User> users,
+        int pageIndex,
+        int totalPages
+    ) {
+        message.template(TASKS_HEADER, pageIndex + 1, totalPages);
+        for (Task task : tasks) {
+            User createdBy = users.apply(task.createdById());
+            User updatedBy = task.updatedAt() == null || task.updatedById() == null ? null : users.apply(task.updatedById());
+            writeTaskTitle(message.raw('\n'), task, createdBy, updatedBy);
+            if (task.description() != null) message.quote(task.description());
+        }
+    }
+
+    /**
+     * Записывает название задачи, её автора и последнее изменение.
+     */
+    private static void writeTaskTitle(@NotNull MarkdownWriter message, @NotNull Task task, @Nullable User createdBy, @Nullable User updatedBy) {
+        message.template(TASK_TITLE, task.name(), mention(createdBy), date(task.createdAt()));
+        if (task.updatedAt() != null) {
+            message.template(UPDATED, date(task.updatedAt()), mention(updatedBy));
+        }
+    }
+
+    private static @NotNull MarkdownTemplate.Fragment mention(@Nullable User user) {
+        return writer -> {
+            if (user == null) {
+                writer.text("<null>");
+            } else {
+                user.writeMarkdownMention(writer);
+            }
+        };
+    }
+
+    private static @NotNull MarkdownTemplate.Fragment date(@NotNull Instant instant) {
+        return writer -> writer.text(DATE_FORMAT, instant);
+    }
+
+    /**
+     * Отрисованная страница: текст сообщения и кнопки под ним.
+     */
+    private record Page(@NotNull String text, @NotNull InlineKeyboardMarkup replyMarkup) {
+    }
+
+    /**
+     * Аргументы подкоманд, которые работают с одной задачей.
+     *
+     * @param taskId ID задачи
+     */
+    @CommandArguments
+    record TaskIdArguments(int taskId) {
+    }
+
+    /**
+     * Аргументы подкоманд со списком.
+     *
+     * @param page номер страницы, начиная с 1, или 0, если номера нет
+     */
+    @CommandArguments
+    record PageArguments(@OptionalArgument int page) {
+    }
+
+    /**
+     * Кнопка создания задачи.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record NewTask() implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+        }
+    }
+
+    /**
+     * Кнопка списка задач.
+     *
+     * @param page номер страницы, начиная с 1, или 0, чтобы отправить первую страницу новым сообщением
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record ListTasks(int page) implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+            writer.writeInt(this.page);
+        }
+    }
+
+    /**
+     * Кнопка просмотра задачи.
+     *
+     * @param taskId ID задачи
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record ShowTask(int taskId) implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+            writer.writeInt(this.taskId);
+        }
+    }
+
+    /**
+     * Кнопка изменения названия задачи.
+     *
+     * @param taskId ID задачи
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record EditTaskName(int taskId) implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+            writer.writeInt(this.taskId);
+        }
+    }
+
+    /**
+     * Кнопка изменения описания задачи.
+     *
+     * @param taskId ID задачи
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record EditTaskDescription(int taskId) implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+            writer.writeInt(this.taskId);
+        }
+    }
+
+    /**
+     * Кнопка удаления задачи, которая запрашивает подтверждение.
+     *
+     * @param taskId ID задачи
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record DeleteTaskRequest(int taskId) implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+            writer.writeInt(this.taskId);
+        }
+    }
+
+    /**
+     * Кнопка подтверждения удаления задачи.
+     *
+     * @param taskId ID задачи
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record DeleteTaskConfirm(int taskId) implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+            writer.writeInt(this.taskId);
+        }
+    }
+
+    /**
+     * Кнопка списка комментариев к задаче.
+     *
+     * @param taskId ID задачи
+     * @param page номер страницы, начиная с 1, или 0, чтобы отправить первую страницу новым сообщением
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record ListComments(int taskId, int page) implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+            writer.writeInt(this.taskId).writeInt(this.page);
+        }
+    }
+
+    /**
+     * Кнопка написания комментария к задаче.
+     *
+     * @param taskId ID задачи
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record AddComment(int taskId) implements CallbackData {
+        @Override
+        public void write(@NotNull CallbackWriter writer) {
+            writer.writeInt(this.taskId);
+        }
     }
 }
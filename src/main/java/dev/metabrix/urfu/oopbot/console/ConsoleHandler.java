@@ -1,8 +1,19 @@
 package dev.metabrix.urfu.oopbot.console;
 
 import dev.metabrix.urfu.oopbot.BotApplication;
+import dev.metabrix.urfu.oopbot.cluster.ClusterCoordinator;
+import dev.metabrix.urfu.oopbot.journal.UpdateJournal;
+import dev.metabrix.urfu.oopbot.storage.impl.sql.IndexedTaskStorage;
+import dev.metabrix.urfu.oopbot.telegram.FloodLimiter;
+import dev.metabrix.urfu.oopbot.telegram.OutboundScheduler;
+import dev.metabrix.urfu.oopbot.telegram.TelegramBot;
+import dev.metabrix.urfu.oopbot.telegram.UpdateErrorReporter;
+import dev.metabrix.urfu.oopbot.telegram.UpdateExecutor;
+import dev.metabrix.urfu.oopbot.telegram.UpdateIngress;
 import dev.metabrix.urfu.oopbot.util.LogUtils;
 import dev.metabrix.urfu.oopbot.util.command.CommandInput;
+import dev.metabrix.urfu.oopbot.util.command.CommandPipeline;
+import java.util.Locale;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 
@@ -30,10 +41,86 @@ public class ConsoleHandler {
         try {
             switch (input.readToken()) {
                 case "stop" -> application.stop();
+                case "updates" -> this.printUpdateStats(application);
                 default -> LOGGER.info("Unknown command: {}", rawInput);
             }
         } catch (Exception ex) {
             LOGGER.error("Failed to execute console command: {}", input, ex);
         }
     }
+
+    /**
+     * Выводит статистику входного ограничителя, очередей исполнителя обработчиков событий,
+     * этапов конвейера команд, защиты от флуда, индекса названий задач, кластера, а также ошибок, журнала и исходящих запросов каждого бота.
+     *
+     * @param application приложение бота
+     * @since 1.2.0
+     * @author metabrix
+     */
+    private void printUpdateStats(@NotNull BotApplication application) {
+        UpdateIngress ingress = application.getUpdateIngress();
+        LOGGER.info("Ingress: {}/{} queued", ingress.getQueuedUpdates(), ingress.getConfiguration().capacity());
+        for (UpdateIngress.TypeStats stats : ingress.getStats()) {
+            LOGGER.info(
+                "  {}: {} accepted, {} shed",
+                stats.type() != null ? stats.type() : "unknown", stats.acceptedUpdates(), stats.shedUpdates()
+            );
+        }
+        for (UpdateExecutor.QueueStats stats : application.getUpdateExecutor().getStats()) {
+            LOGGER.info(
+                "{}: {} queued, {} processed, wait avg {} ms, max {} ms",
+                stats.name(), stats.queueDepth(), stats.processedUpdates(),
+                String.format(Locale.ROOT, "%.3f", stats.averageWaitMillis()),
+                String.format(Locale.ROOT, "%.3f", stats.maxWaitMillis())
+            );
+        }
+        LOGGER.info("Command pipeline:");
+        for (CommandPipeline.StageStats stats : application.getCommandPipeline().getStats()) {
+            LOGGER.info(
+                "  {}: {} invocations, {} short-circuited, avg {} ms, max {} ms",
+                stats.name(), stats.invocations(), stats.shortCircuits(),
+                String.format(Locale.ROOT, "%.3f", stats.averageMillis()),
+                String.format(Locale.ROOT, "%.3f", stats.maxMillis())
+            );
+        }
+        FloodLimiter floodLimiter = application.getFloodLimiter();
+        if (floodLimiter != null) {
+            LOGGER.info(
+                "Flood limiter: {} allowed, {} throttled by user limit, {} throttled by chat limit, {} untracked",
+                floodLimiter.getAllowedActions(), floodLimiter.getUserThrottledActions(),
+                floodLimiter.getChatThrottledActions(), floodLimiter.getUntrackedActions()
+            );
+        }
+        if (application.getStorage().tasks() instanceof IndexedTaskStorage taskIndex) {
+            LOGGER.info(
+                "Task name index: {} tasks in {} chats, ~{} KiB",
+                taskIndex.getIndexedTasks(), taskIndex.getIndexedChats(), taskIndex.getEstimatedIndexBytes() / 1024
+            );
+        }
+        ClusterCoordinator cluster = application.getClusterCoordinator();
+        if (cluster != null) {
+            LOGGER.info(
+                "Cluster node {}{}: {} shards owned, {} live nodes, {} updates handled locally, {} forwarded, {} forward retries, {} lost",
+                cluster.getNodeId(), cluster.isPoller() ? " (poller)" : "", cluster.getOwnedShards(), cluster.getLiveNodes(),
+                cluster.getLocalUpdates(), cluster.getForwardedUpdates(), cluster.getForwardRetries(), cluster.getLostUpdates()
+            );
+        }
+        for (TelegramBot bot : application.getBots()) {
+            UpdateErrorReporter errors = bot.getErrorReporter();
+            LOGGER.info(
+                "@{}: {} duplicates dropped, {} failed",
+                bot.getBotUsername(), bot.getDeduplicator().getDuplicates(), errors != null ? errors.getFailedUpdates() : 0
+            );
+            UpdateJournal journal = bot.getUpdateJournal();
+            if (journal != null) {
+                LOGGER.info("  Journal: {} pending entries in {} segments", journal.getPendingEntries(), journal.getSegmentCount());
+            }
+            OutboundScheduler outbound = bot.getOutboundScheduler();
+            LOGGER.info(
+                "  Outbound: {} queued, {} sent, {} unchanged edits skipped, {} rate limited by Telegram, {} failed",
+                outbound.getQueuedRequests(), outbound.getSentRequests(), outbound.getSkippedRequests(),
+                outbound.getRateLimitedRequests(), outbound.getFailedRequests()
+            );
+        }
+    }
 }
@@ -31,7 +31,7 @@ public interface ChatInteraction extends Interaction {
      */
     default @Nullable Chat getChatIfExists() {
         org.telegram.telegrambots.meta.api.objects.Chat telegramChat = this.getTelegramChat();
-        return this.getStorage().chats().getByTelegramId(telegramChat.getId());
+        return this.getStorage().chats().getByTelegramId(this.getBot().getBotId(), telegramChat.getId());
     }
 
     /**
@@ -2,8 +2,11 @@ package dev.metabrix.urfu.oopbot.interaction;
 
 import dev.metabrix.urfu.oopbot.BotApplication;
 import dev.metabrix.urfu.oopbot.storage.DataStorage;
+import dev.metabrix.urfu.oopbot.telegram.OutboundScheduler;
+import dev.metabrix.urfu.oopbot.telegram.TelegramBot;
 import java.io.Serializable;
 import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 import org.jetbrains.annotations.NotNull;
 import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
@@ -15,6 +18,15 @@ import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
  * @author metabrix
  */
 public interface Interaction {
+    /**
+     * Возвращает бота, которому пришло событие.
+     *
+     * @return бот
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull TelegramBot getBot();
+
     /**
      * Возвращает приложение бота.
      *
@@ -22,7 +34,9 @@ public interface Interaction {
      * @since 1.1.0
      * @author metabrix
      */
-    @NotNull BotApplication getApplication();
+    default @NotNull BotApplication getApplication() {
+        return this.getBot().getApplication();
+    }
 
     /**
      * Возвращает хранилище данных.
@@ -45,7 +59,8 @@ public interface Interaction {
     @NotNull org.telegram.telegrambots.meta.api.objects.Update getUpdate();
 
     /**
-     * Асинхронно отправляет запрос в Telegram API и возвращает ответ в виде {@link CompletableFuture}.
+     * Ставит запрос в очередь {@link OutboundScheduler планировщика исходящих запросов} и возвращает ответ
+     * в виде {@link CompletableFuture}.
      *
      * @param request запрос
      * @param <T> тип ответа
@@ -54,15 +69,11 @@ public interface Interaction {
      * @author metabrix
      */
     default <T extends Serializable> @NotNull CompletableFuture<T> executeAsync(@NotNull BotApiMethod<T> request) {
-        try {
-            return this.getApplication().getBot().executeAsync(request);
-        } catch (TelegramApiException ex) {
-            throw new RuntimeException(ex);
-        }
+        return this.getBot().getOutboundScheduler().submit(request);
     }
 
     /**
-     * Синхронно отправляет запрос в Telegram API и возвращает ответ.
+     * Ставит запрос в очередь {@link OutboundScheduler планировщика исходящих запросов} и дожидается ответа.
      *
      * @param request запрос
      * @param <T> тип ответа
@@ -72,7 +83,11 @@ public interface Interaction {
      * @author metabrix
      */
     default <T extends Serializable> T execute(@NotNull BotApiMethod<T> request) throws TelegramApiException {
-        return this.getApplication().getBot().execute(request);
+        try {
+            return this.executeAsync(request).join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof TelegramApiException cause) throw cause;
+            throw ex;
+        }
     }
-
 }
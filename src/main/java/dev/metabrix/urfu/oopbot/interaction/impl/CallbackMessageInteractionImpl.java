@@ -0,0 +1,52 @@
+package dev.metabrix.urfu.oopbot.interaction.impl;
+
+import dev.metabrix.urfu.oopbot.interaction.CallbackQueryInteraction;
+import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
+import dev.metabrix.urfu.oopbot.telegram.TelegramBot;
+import org.jetbrains.annotations.NotNull;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.api.objects.User;
+
+public class CallbackMessageInteractionImpl implements MessageInteraction, CallbackQueryInteraction {
+    private final @NotNull TelegramBot bot;
+    private final @NotNull Update update;
+
+    public CallbackMessageInteractionImpl(@NotNull TelegramBot bot, @NotNull Update update) {
+        this.bot = bot;
+        this.update = update;
+    }
+
+    @Override
+    public @NotNull TelegramBot getBot() {
+        return this.bot;
+    }
+
+    @Override
+    public @NotNull Update getUpdate() {
+        return this.update;
+    }
+
+    @Override
+    public @NotNull CallbackQuery getQuery() {
+        return this.update.getCallbackQuery();
+    }
+
+    @Override
+    public @NotNull Message getMessage() {
+        return (Message) this.getQuery().getMessage();
+    }
+
+    @Override
+    public @NotNull User getTelegramUser() {
+        // the message with the button was sent by the bot, the button was pressed by the query sender
+        return this.getQuery().getFrom();
+    }
+
+    @Override
+    public @NotNull Chat getTelegramChat() {
+        return this.getMessage().getChat();
+    }
+}
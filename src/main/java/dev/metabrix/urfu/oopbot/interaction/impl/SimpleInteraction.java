@@ -1,22 +1,22 @@
 package dev.metabrix.urfu.oopbot.interaction.impl;
 
-import dev.metabrix.urfu.oopbot.BotApplication;
 import dev.metabrix.urfu.oopbot.interaction.Interaction;
+import dev.metabrix.urfu.oopbot.telegram.TelegramBot;
 import org.jetbrains.annotations.NotNull;
 import org.telegram.telegrambots.meta.api.objects.Update;
 
 public class SimpleInteraction implements Interaction {
-    private final @NotNull BotApplication application;
+    private final @NotNull TelegramBot bot;
     private final @NotNull Update update;
 
-    public SimpleInteraction(@NotNull BotApplication application, @NotNull Update update) {
-        this.application = application;
+    public SimpleInteraction(@NotNull TelegramBot bot, @NotNull Update update) {
+        this.bot = bot;
         this.update = update;
     }
 
     @Override
-    public @NotNull BotApplication getApplication() {
-        return this.application;
+    public @NotNull TelegramBot getBot() {
+        return this.bot;
     }
 
     @Override
@@ -1,30 +1,30 @@
 package dev.metabrix.urfu.oopbot.interaction.impl;
 
-import dev.metabrix.urfu.oopbot.BotApplication;
 import dev.metabrix.urfu.oopbot.interaction.UserInteraction;
+import dev.metabrix.urfu.oopbot.telegram.TelegramBot;
 import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.api.objects.User;
 
 public class UserInteractionImpl implements UserInteraction {
-    private final @NotNull BotApplication application;
+    private final @NotNull TelegramBot bot;
     private final @NotNull Update update;
     private final @NotNull Function<@NotNull Update, @NotNull User> userFunction;
 
     public UserInteractionImpl(
-        @NotNull BotApplication application,
+        @NotNull TelegramBot bot,
         @NotNull Update update,
         @NotNull Function<@NotNull Update, @NotNull User> userFunction
     ) {
-        this.application = application;
+        this.bot = bot;
         this.update = update;
         this.userFunction = userFunction;
     }
 
     @Override
-    public @NotNull BotApplication getApplication() {
-        return this.application;
+    public @NotNull TelegramBot getBot() {
+        return this.bot;
     }
 
     @Override
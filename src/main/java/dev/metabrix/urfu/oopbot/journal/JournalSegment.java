@@ -0,0 +1,239 @@
+package dev.metabrix.urfu.oopbot.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Сегмент журнала — файл фиксированного размера, отображённый в память.
+ * <p>
+ * Записи идут подряд с начала файла, каждая в формате:
+ * <pre>
+ * int  длина данных (0 — записей дальше нет)
+ * int  CRC32 данных
+ * byte состояние ({@link #STATE_PENDING} или {@link #STATE_COMPLETE})
+ * byte[] данные
+ * </pre>
+ * Длина записывается последней, поэтому запись, прерванная падением процесса, не видна при чтении.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+final class JournalSegment {
+    static final int HEADER_SIZE = Integer.BYTES + Integer.BYTES + Byte.BYTES;
+    static final byte STATE_PENDING = 0;
+    static final byte STATE_COMPLETE = 1;
+
+    private static final int CRC_OFFSET = Integer.BYTES;
+    private static final int STATE_OFFSET = Integer.BYTES + Integer.BYTES;
+    private static final @NotNull String FILE_SUFFIX = ".journal";
+
+    private final long sequence;
+    private final @NotNull Path path;
+    private final @NotNull MappedByteBuffer buffer;
+    private final @NotNull AtomicInteger pendingEntries = new AtomicInteger();
+
+    private int writePosition;
+    private boolean sealed = false;
+    private boolean deleted = false;
+
+    private JournalSegment(long sequence, @NotNull Path path, @NotNull MappedByteBuffer buffer, int writePosition) {
+        this.sequence = sequence;
+        this.path = path;
+        this.buffer = buffer;
+        this.writePosition = writePosition;
+    }
+
+    /**
+     * Создаёт новый пустой сегмент.
+     *
+     * @param directory директория журнала
+     * @param sequence порядковый номер сегмента
+     * @param size размер сегмента в байтах
+     * @return созданный сегмент
+     * @throws IOException если произойдёт ошибка ввода/вывода
+     * @since 1.2.0
+     * @author metabrix
+     */
+    static @NotNull JournalSegment create(@NotNull Path directory, long sequence, int size) throws IOException {
+        Path path = directory.resolve(fileName(sequence));
+        try (FileChannel channel = FileChannel.open(
+            path,
+            StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE
+        )) {
+            // отображение остаётся действительным и после закрытия канала
+            return new JournalSegment(sequence, path, channel.map(FileChannel.MapMode.READ_WRITE, 0, size), 0);
+        }
+    }
+
+    /**
+     * Открывает существующий сегмент для чтения незавершённых записей.
+     *
+     * @param path путь к файлу сегмента
+     * @return открытый сегмент
+     * @throws IOException если произойдёт ошибка ввода/вывода
+     * @since 1.2.0
+     * @author metabrix
+     */
+    static @NotNull JournalSegment open(@NotNull Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size());
+            JournalSegment segment = new JournalSegment(parseSequence(path), path, buffer, 0);
+            segment.sealed = true;
+            return segment;
+        }
+    }
+
+    /**
+     * Проверяет, является ли файл сегментом журнала.
+     *
+     * @param path путь к файлу
+     * @return {@code true}, если файл — сегмент журнала
+     * @since 1.2.0
+     * @author metabrix
+     */
+    static boolean isSegmentFile(@NotNull Path path) {
+        String fileName = path.getFileName().toString();
+        if (!fileName.endsWith(FILE_SUFFIX)) return false;
+        try {
+            parseSequence(path);
+            return true;
+        } catch (NumberFormatException ex) {
+            return false;
+        }
+    }
+
+    /**
+     * Возвращает порядковый номер сегмента по имени его файла.
+     *
+     * @param path путь к файлу сегмента
+     * @return порядковый номер сегмента
+     * @throws NumberFormatException если имя файла не является именем сегмента
+     * @since 1.2.0
+     * @author metabrix
+     */
+    static long parseSequence(@NotNull Path path) {
+        String fileName = path.getFileName().toString();
+        return Long.parseLong(fileName.substring(0, fileName.length() - FILE_SUFFIX.length()));
+    }
+
+    private static @NotNull String fileName(long sequence) {
+        return String.format("%020d", sequence) + FILE_SUFFIX;
+    }
+
+    long sequence() {
+        return this.sequence;
+    }
+
+    /**
+     * Дописывает запись в сегмент. Вызывающий код должен синхронизировать вызовы.
+     *
+     * @param payload данные записи
+     * @return смещение записи или {@code -1}, если в сегменте не хватает места
+     * @since 1.2.0
+     * @author metabrix
+     */
+    int tryAppend(byte @NotNull [] payload) {
+        int offset = this.writePosition;
+        if (this.buffer.capacity() - offset < HEADER_SIZE + payload.length) return -1;
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        this.buffer.put(offset + HEADER_SIZE, payload);
+        this.buffer.putInt(offset + CRC_OFFSET, (int) crc.getValue());
+        this.buffer.put(offset + STATE_OFFSET, STATE_PENDING);
+        this.buffer.putInt(offset, payload.length);
+
+        this.writePosition = offset + HEADER_SIZE + payload.length;
+        this.pendingEntries.incrementAndGet();
+        return offset;
+    }
+
+    /**
+     * Отмечает запись завершённой прямо в файле.
+     *
+     * @param offset смещение записи
+     * @return {@code true}, если это была последняя незавершённая запись сегмента
+     * @since 1.2.0
+     * @author metabrix
+     */
+    boolean markComplete(int offset) {
+        this.buffer.put(offset + STATE_OFFSET, STATE_COMPLETE);
+        return this.pendingEntries.decrementAndGet() == 0;
+    }
+
+    /**
+     * Читает данные всех незавершённых записей сегмента. Чтение останавливается на первой
+     * недописанной или повреждённой записи.
+     *
+     * @return данные незавершённых записей в порядке их добавления
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull List<byte @NotNull []> readPending() {
+        List<byte[]> pending = new ArrayList<>();
+        CRC32 crc = new CRC32();
+        int position = 0;
+        while (this.buffer.capacity() - position >= HEADER_SIZE) {
+            int length = this.buffer.getInt(position);
+            if (length <= 0 || length > this.buffer.capacity() - position - HEADER_SIZE) break;
+
+            byte[] payload = new byte[length];
+            this.buffer.get(position + HEADER_SIZE, payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != this.buffer.getInt(position + CRC_OFFSET)) break;
+
+            if (this.buffer.get(position + STATE_OFFSET) == STATE_PENDING) pending.add(payload);
+            position += HEADER_SIZE + length;
+        }
+        return pending;
+    }
+
+    int pendingEntries() {
+        return this.pendingEntries.get();
+    }
+
+    boolean isSealed() {
+        return this.sealed;
+    }
+
+    /**
+     * Закрывает сегмент для записи. Содержимое сбрасывается на диск отдельным вызовом {@link #force()}.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void seal() {
+        this.sealed = true;
+    }
+
+    void force() {
+        this.buffer.force();
+    }
+
+    /**
+     * Удаляет файл сегмента. Повторные вызовы ничего не делают.
+     *
+     * @return {@code true}, если файл был удалён этим вызовом
+     * @throws IOException если произойдёт ошибка ввода/вывода
+     * @since 1.2.0
+     * @author metabrix
+     */
+    boolean delete() throws IOException {
+        if (this.deleted) return false;
+        this.deleted = true;
+        // отображение освободится сборщиком мусора, удалять отображённый файл в Linux можно
+        Files.deleteIfExists(this.path);
+        return true;
+    }
+}
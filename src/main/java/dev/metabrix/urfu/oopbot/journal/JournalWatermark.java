@@ -0,0 +1,94 @@
+package dev.metabrix.urfu.oopbot.journal;
+
+import java.io.IOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Файл с наибольшим <code>update_id</code>, записанным в журнал, и временем его записи.
+ * <p>
+ * Файл отображён в память, поэтому обновление — это запись 16 байт без системных вызовов.
+ * Класс не потокобезопасен, вызывающий код должен синхронизировать вызовы.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+final class JournalWatermark {
+    static final @NotNull String FILE_NAME = "watermark";
+
+    private static final int UPDATE_ID_OFFSET = 0;
+    private static final int RECORDED_AT_OFFSET = Long.BYTES;
+    private static final int SIZE = Long.BYTES + Long.BYTES;
+    private static final long NONE = -1;
+
+    private final @NotNull MappedByteBuffer buffer;
+
+    private JournalWatermark(@NotNull MappedByteBuffer buffer) {
+        this.buffer = buffer;
+    }
+
+    /**
+     * Открывает файл отметки в директории журнала, создавая его, если его нет.
+     *
+     * @param directory директория журнала
+     * @return открытая отметка
+     * @throws IOException если произойдёт ошибка ввода/вывода
+     * @since 1.2.0
+     * @author metabrix
+     */
+    static @NotNull JournalWatermark open(@NotNull Path directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(
+            directory.resolve(FILE_NAME),
+            StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE
+        )) {
+            boolean created = channel.size() < SIZE;
+            // отображение остаётся действительным и после закрытия канала
+            JournalWatermark watermark = new JournalWatermark(channel.map(FileChannel.MapMode.READ_WRITE, 0, SIZE));
+            if (created) watermark.buffer.putLong(UPDATE_ID_OFFSET, NONE);
+            return watermark;
+        }
+    }
+
+    /**
+     * Возвращает наибольший записанный <code>update_id</code>.
+     *
+     * @return <code>update_id</code> или отрицательное число, если отметки ещё нет
+     * @since 1.2.0
+     * @author metabrix
+     */
+    long updateId() {
+        return this.buffer.getLong(UPDATE_ID_OFFSET);
+    }
+
+    /**
+     * Возвращает время записи отметки.
+     *
+     * @return время в миллисекундах с начала эпохи Unix
+     * @since 1.2.0
+     * @author metabrix
+     */
+    long recordedAtMillis() {
+        return this.buffer.getLong(RECORDED_AT_OFFSET);
+    }
+
+    /**
+     * Записывает <code>update_id</code>, если он больше уже записанного, и время записи.
+     *
+     * @param updateId <code>update_id</code>
+     * @param nowMillis текущее время в миллисекундах с начала эпохи Unix
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void advance(long updateId, long nowMillis) {
+        if (updateId < this.updateId()) return;
+        this.buffer.putLong(UPDATE_ID_OFFSET, updateId);
+        this.buffer.putLong(RECORDED_AT_OFFSET, nowMillis);
+    }
+
+    void force() {
+        this.buffer.force();
+    }
+}
@@ -0,0 +1,353 @@
+package dev.metabrix.urfu.oopbot.journal;
+
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+import static dev.metabrix.urfu.oopbot.util.Checks.checkState;
+
+/**
+ * Журнал событий, обеспечивающий обработку каждого события хотя бы один раз.
+ * <p>
+ * Событие дописывается в журнал до того, как попадает в обработку, и отмечается завершённым
+ * после того, как обработка закончилась. Если процесс упадёт раньше, при следующем запуске
+ * незавершённые события будут {@link #getRecoveredEntries() восстановлены} и обработаны заново.
+ * <p>
+ * Журнал состоит из сегментов фиксированного размера, отображённых в память, поэтому добавление
+ * записи — это копирование в память без системных вызовов. Когда сегмент заполняется, создаётся
+ * новый, а заполненный сбрасывается на диск в фоновом потоке и удаляется, как только все его
+ * записи завершены. При открытии журнал
+ * уплотняется: незавершённые записи старых сегментов переносятся в новый сегмент, а старые удаляются.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class UpdateJournal implements AutoCloseable {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+
+    private final @NotNull Path directory;
+    private final int segmentSize;
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+    private final @NotNull List<@NotNull JournalSegment> segments = new ArrayList<>();
+    private final @NotNull List<@NotNull RecoveredEntry> recoveredEntries;
+    private final @NotNull ExecutorService flusher = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "Update Journal Flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final @NotNull JournalWatermark watermark;
+
+    private @NotNull JournalSegment activeSegment;
+    private volatile boolean closed = false;
+
+    private UpdateJournal(
+        @NotNull Path directory,
+        int segmentSize,
+        long nextSequence,
+        @NotNull List<byte @NotNull []> pendingPayloads
+    ) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        this.watermark = JournalWatermark.open(directory);
+        this.activeSegment = JournalSegment.create(directory, nextSequence, segmentSize);
+        this.segments.add(this.activeSegment);
+
+        List<RecoveredEntry> recoveredEntries = new ArrayList<>(pendingPayloads.size());
+        for (byte[] payload : pendingPayloads) {
+            recoveredEntries.add(new RecoveredEntry(this.append(payload), payload));
+        }
+        this.activeSegment.force();
+        this.recoveredEntries = List.copyOf(recoveredEntries);
+    }
+
+    /**
+     * Открывает журнал в указанной директории, восстанавливая незавершённые записи.
+     *
+     * @param directory директория журнала, создаётся, если её нет
+     * @param segmentSize размер сегмента в байтах
+     * @return открытый журнал
+     * @throws IOException если произойдёт ошибка ввода/вывода
+     * @throws IllegalArgumentException если размер сегмента слишком маленький
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull UpdateJournal open(@NotNull Path directory, int segmentSize) throws IOException {
+        checkArgument(segmentSize > JournalSegment.HEADER_SIZE, "Segment size is too small");
+        Files.createDirectories(directory);
+
+        List<Path> segmentPaths;
+        try (Stream<Path> files = Files.list(directory)) {
+            segmentPaths = files
+                .filter(JournalSegment::isSegmentFile)
+                .sorted(Comparator.comparingLong(JournalSegment::parseSequence))
+                .toList();
+        }
+
+        List<byte[]> pendingPayloads = new ArrayList<>();
+        long nextSequence = 0;
+        for (Path segmentPath : segmentPaths) {
+            JournalSegment segment = JournalSegment.open(segmentPath);
+            pendingPayloads.addAll(segment.readPending());
+            nextSequence = segment.sequence() + 1;
+        }
+
+        UpdateJournal journal = new UpdateJournal(directory, segmentSize, nextSequence, pendingPayloads);
+        // незавершённые записи уже перенесены в новый сегмент и сброшены на диск
+        for (Path segmentPath : segmentPaths) {
+            Files.deleteIfExists(segmentPath);
+        }
+        if (!pendingPayloads.isEmpty()) {
+            LOGGER.info("Recovered {} unfinished updates from the journal in {}", pendingPayloads.size(), directory);
+        }
+        return journal;
+    }
+
+    /**
+     * Возвращает записи, которые не были завершены к моменту остановки предыдущего процесса.
+     * Их нужно обработать и {@link #complete(Entry) завершить}, как и новые записи.
+     *
+     * @return восстановленные записи в порядке их добавления
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull List<@NotNull RecoveredEntry> getRecoveredEntries() {
+        return this.recoveredEntries;
+    }
+
+    /**
+     * Дописывает запись в журнал.
+     *
+     * @param payload данные записи
+     * @return добавленная запись
+     * @throws IOException если не удалось создать новый сегмент
+     * @throws IllegalArgumentException если данные не помещаются в сегмент
+     * @throws IllegalStateException если журнал закрыт
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull Entry append(byte @NotNull [] payload) throws IOException {
+        checkArgument(
+            payload.length <= this.segmentSize - JournalSegment.HEADER_SIZE,
+            "Journal entry of " + payload.length + " bytes does not fit into a segment"
+        );
+
+        this.lock.lock();
+        try {
+            checkState(!this.closed, "Journal is closed");
+
+            int offset = this.activeSegment.tryAppend(payload);
+            if (offset == -1) {
+                this.rotate();
+                offset = this.activeSegment.tryAppend(payload);
+                assert offset != -1 : "Payload must fit into an empty segment";
+            }
+            return new Entry(this.activeSegment, offset);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Отмечает запись завершённой. Повторные вызовы для одной записи ничего не делают.
+     *
+     * @param entry запись
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void complete(@NotNull Entry entry) {
+        if (this.closed || !entry.completed.compareAndSet(false, true)) return;
+        // запись в отображённую память не требует блокировки, она нужна только для удаления сегмента
+        if (!entry.segment.markComplete(entry.offset)) return;
+
+        this.lock.lock();
+        try {
+            if (!this.closed && entry.segment.isSealed()) this.deleteSegment(entry.segment);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Запоминает <code>update_id</code> события, записанного в журнал. После перезапуска события с
+     * идентификатором не больше отметки уже либо обработаны, либо восстановлены из журнала, поэтому
+     * повторно присланные Telegram события можно отбросить.
+     *
+     * @param updateId <code>update_id</code> записанного события
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void advanceWatermark(long updateId) {
+        this.lock.lock();
+        try {
+            if (!this.closed) this.watermark.advance(updateId, System.currentTimeMillis());
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает наибольший <code>update_id</code>, записанный в журнал, в том числе до перезапуска.
+     *
+     * @return отметка или {@code null}, если в журнал ещё не записывали события
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @Nullable Watermark getWatermark() {
+        this.lock.lock();
+        try {
+            long updateId = this.watermark.updateId();
+            return updateId >= 0 ? new Watermark(updateId, Instant.ofEpochMilli(this.watermark.recordedAtMillis())) : null;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество незавершённых записей.
+     *
+     * @return количество незавершённых записей
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getPendingEntries() {
+        this.lock.lock();
+        try {
+            int pendingEntries = 0;
+            for (JournalSegment segment : this.segments) {
+                pendingEntries += segment.pendingEntries();
+            }
+            return pendingEntries;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество сегментов журнала на диске.
+     *
+     * @return количество сегментов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getSegmentCount() {
+        this.lock.lock();
+        try {
+            return this.segments.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Сбрасывает журнал на диск и закрывает его. Незавершённые записи будут восстановлены
+     * при следующем открытии журнала.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            if (this.closed) return;
+            this.closed = true;
+            // заполненные сегменты, которые фоновый поток ещё не сбросил, сбрасываются здесь
+            this.flusher.shutdown();
+            for (JournalSegment segment : this.segments) {
+                segment.force();
+            }
+            this.watermark.force();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void rotate() throws IOException {
+        JournalSegment previousSegment = this.activeSegment;
+        JournalSegment nextSegment = JournalSegment.create(this.directory, previousSegment.sequence() + 1, this.segmentSize);
+
+        previousSegment.seal();
+        this.activeSegment = nextSegment;
+        this.segments.add(nextSegment);
+        if (previousSegment.pendingEntries() == 0) {
+            this.deleteSegment(previousSegment);
+        } else {
+            // сброс всего сегмента на диск долгий, а событие принимается под блокировкой журнала
+            this.flushLater(previousSegment);
+        }
+    }
+
+    private void flushLater(@NotNull JournalSegment segment) {
+        // журнал закрывается под той же блокировкой, поэтому поток ещё принимает задачи
+        this.flusher.execute(() -> {
+            try {
+                segment.force();
+            } catch (RuntimeException ex) {
+                LOGGER.warn("Failed to flush journal segment {}", segment.sequence(), ex);
+            }
+        });
+    }
+
+    private void deleteSegment(@NotNull JournalSegment segment) {
+        this.segments.remove(segment);
+        try {
+            segment.delete();
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to delete completed journal segment {}", segment.sequence(), ex);
+        }
+    }
+
+    /**
+     * Запись журнала.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static final class Entry {
+        private final @NotNull JournalSegment segment;
+        private final int offset;
+        private final @NotNull AtomicBoolean completed = new AtomicBoolean();
+
+        private Entry(@NotNull JournalSegment segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+    }
+
+    /**
+     * Запись, восстановленная при открытии журнала.
+     *
+     * @param entry запись, которую нужно завершить после обработки
+     * @param payload данные записи
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record RecoveredEntry(@NotNull Entry entry, byte @NotNull [] payload) {
+    }
+
+    /**
+     * Наибольший <code>update_id</code>, записанный в журнал.
+     *
+     * @param updateId <code>update_id</code>
+     * @param recordedAt когда он был записан
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record Watermark(long updateId, @NotNull Instant recordedAt) {
+    }
+}
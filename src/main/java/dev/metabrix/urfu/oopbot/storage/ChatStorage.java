@@ -7,7 +7,10 @@ import org.jetbrains.annotations.Nullable;
 
 /**
  * Хранилище чатов.
- * 
+ * <p>
+ * Один и тот же чат Telegram, в котором работают несколько ботов, хранится отдельно для каждого бота,
+ * поэтому задачи и состояния диалогов разных ботов не пересекаются.
+ *
  * @since 1.1.0
  * @author metabrix
  */
@@ -15,15 +18,16 @@ public interface ChatStorage {
     /**
      * Создаёт чат.
      *
+     * @param botId ID бота в Telegram
      * @param telegramId ID чата в Telegram
      * @param installedById ID пользователя в Telegram, начавшего работу с ботом в чате
      * @return созданный чат
      * @throws DuplicateObjectException если чат с таким ID в Telegram уже
-     *         существует в хранилище
+     *         существует в хранилище для этого бота
      * @since 1.1.0
      * @author metabrix
      */
-    @NotNull Chat create(long telegramId, int installedById) throws DuplicateObjectException;
+    @NotNull Chat create(long botId, long telegramId, int installedById) throws DuplicateObjectException;
 
     /**
      * Возвращает чат по ID.
@@ -38,12 +42,23 @@ public interface ChatStorage {
     /**
      * Возвращает чат по ID в Telegram.
      *
+     * @param botId ID бота в Telegram
      * @param telegramId ID чата в Telegram
-     * @return чат по ID в Telegram или {@code null}, если такого чата нет
+     * @return чат по ID в Telegram или {@code null}, если такого чата у этого бота нет
      * @since 1.1.0
      * @author metabrix
      */
-    @Nullable Chat getByTelegramId(long telegramId);
+    @Nullable Chat getByTelegramId(long botId, long telegramId);
+
+    /**
+     * Привязывает к боту чаты, созданные до того, как в хранилище появилось разделение по ботам.
+     *
+     * @param botId ID бота в Telegram
+     * @return количество привязанных чатов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    int assignUnownedChats(long botId);
 
     /**
      * Удаляет чат по ID.
@@ -0,0 +1,97 @@
+package dev.metabrix.urfu.oopbot.storage;
+
+import dev.metabrix.urfu.oopbot.storage.model.ClusterNode;
+import dev.metabrix.urfu.oopbot.storage.model.ShardLease;
+import java.time.Duration;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Хранилище узлов кластера и аренды шардов чатов.
+ * <p>
+ * Сроки аренды отсчитываются по часам хранилища, поэтому расхождение часов узлов на них не влияет.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public interface ClusterStorage {
+    /**
+     * Создаёт недостающие шарды с номерами от {@code 0} до {@code shards - 1}. Созданные шарды никому не принадлежат.
+     *
+     * @param shards количество шардов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void createShards(int shards);
+
+    /**
+     * Регистрирует узел или продлевает его регистрацию.
+     *
+     * @param nodeId идентификатор узла
+     * @param address адрес, по которому другие узлы пересылают узлу события
+     * @param leaseDuration на сколько продлить регистрацию
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void heartbeat(@NotNull String nodeId, @NotNull String address, @NotNull Duration leaseDuration);
+
+    /**
+     * Возвращает узлы, регистрация которых ещё не истекла.
+     *
+     * @return живые узлы
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull List<@NotNull ClusterNode> getLiveNodes();
+
+    /**
+     * Возвращает все шарды и их текущих владельцев.
+     *
+     * @return шарды, упорядоченные по номеру
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull List<@NotNull ShardLease> getShardLeases();
+
+    /**
+     * Берёт шард в аренду, если он свободен, его аренда истекла или он уже принадлежит этому узлу.
+     *
+     * @param shard номер шарда
+     * @param nodeId идентификатор узла
+     * @param leaseDuration срок аренды
+     * @return {@code true}, если шард теперь принадлежит узлу
+     * @since 1.2.0
+     * @author metabrix
+     */
+    boolean acquireShard(int shard, @NotNull String nodeId, @NotNull Duration leaseDuration);
+
+    /**
+     * Продлевает аренду всех шардов узла.
+     *
+     * @param nodeId идентификатор узла
+     * @param leaseDuration новый срок аренды
+     * @return количество продлённых шардов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    int renewShards(@NotNull String nodeId, @NotNull Duration leaseDuration);
+
+    /**
+     * Освобождает шард, если он принадлежит узлу.
+     *
+     * @param shard номер шарда
+     * @param nodeId идентификатор узла
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void releaseShard(int shard, @NotNull String nodeId);
+
+    /**
+     * Освобождает все шарды узла и удаляет его регистрацию.
+     *
+     * @param nodeId идентификатор узла
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void leave(@NotNull String nodeId);
+}
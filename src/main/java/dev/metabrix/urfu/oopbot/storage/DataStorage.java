@@ -1,7 +1,10 @@
 package dev.metabrix.urfu.oopbot.storage;
 
 import dev.metabrix.urfu.oopbot.BotConfiguration;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 /**
  * Хранилище данных бота.
@@ -55,6 +58,31 @@ public interface DataStorage extends AutoCloseable {
      */
     @NotNull DialogStateStorage dialogStates();
 
+    /**
+     * Возвращает хранилище узлов кластера и аренды шардов.
+     *
+     * @return хранилище кластера или {@code null}, если хранилище не поддерживает кластерный режим
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Nullable ClusterStorage cluster();
+
+    /**
+     * Выполняет запрос к хранилищу в отдельном потоке хранилища, не блокируя вызывающий поток.
+     * <p>
+     * Потоков хранилища столько же, сколько соединений в пуле, поэтому запросы не конкурируют за соединения.
+     * Продолжения результата без явного исполнителя тоже выполняются в потоке хранилища, поэтому в них
+     * нельзя ждать другие запросы к хранилищу.
+     *
+     * @param query запрос, может вызывать любые методы хранилища
+     * @param <T> тип результата
+     * @return результат запроса
+     * @throws IllegalStateException если хранилище закрыто
+     * @since 1.2.0
+     * @author metabrix
+     */
+    <T> @NotNull CompletableFuture<T> supplyAsync(@NotNull Function<? super @NotNull DataStorage, ? extends T> query);
+
     /**
      * Проверяет, закрыто ли хранилище.
      *
@@ -65,7 +93,7 @@ public interface DataStorage extends AutoCloseable {
     boolean isClosed();
 
     /**
-     * Завершает активные запросы и закрывает соединения.
+     * Завершает активные запросы, в том числе поставленные в очередь {@link #supplyAsync(Function)}, и закрывает соединения.
      *
      * @since 1.1.0
      * @author metabrix
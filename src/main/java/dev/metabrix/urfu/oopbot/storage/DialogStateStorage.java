@@ -1,6 +1,7 @@
 package dev.metabrix.urfu.oopbot.storage;
 
 import dev.metabrix.urfu.oopbot.storage.model.dialog.DialogState;
+import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -48,4 +49,43 @@ public interface DialogStateStorage {
      * @author metabrix
      */
     boolean delete(int userId, int chatId);
+
+    /**
+     * Проверяет, может ли у пользователя быть состояние диалога в чате, не обращаясь к базе данных.
+     * <p>
+     * Метод может ошибаться только в одну сторону: если он вернул {@code false}, состояния диалога
+     * точно нет, а {@code true} означает, что его нужно получить через {@link #get(int, int)}.
+     * По умолчанию всегда возвращает {@code true}.
+     *
+     * @param telegramUserId ID пользователя в Telegram
+     * @param telegramChatId ID чата в Telegram
+     * @return {@code false}, если состояния диалога точно нет
+     * @since 1.2.0
+     * @author metabrix
+     */
+    default boolean mightExist(long telegramUserId, long telegramChatId) {
+        return true;
+    }
+
+    /**
+     * Возвращает ключи всех установленных состояний диалогов.
+     *
+     * @return список ключей
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull List<@NotNull Key> getAllKeys();
+
+    /**
+     * Ключ состояния диалога.
+     *
+     * @param userId ID пользователя в хранилище
+     * @param chatId ID чата в хранилище
+     * @param telegramUserId ID пользователя в Telegram
+     * @param telegramChatId ID чата в Telegram
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record Key(int userId, int chatId, long telegramUserId, long telegramChatId) {
+    }
 }
@@ -143,6 +143,30 @@ public interface TaskStorage {
      */
     boolean delete(int id);
 
+    /**
+     * Ищет задачи в чате по началу слова в названии без учёта регистра: запрос <code>отч</code>
+     * найдёт задачи «Отчёт» и «Сдать отчёт».
+     *
+     * @param chatId внутренний ID чата
+     * @param query запрос; если он пустой, возвращаются последние созданные задачи
+     * @param limit максимальное количество задач в списке
+     * @return найденные задачи, сначала последние созданные
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull List<@NotNull NameMatch> searchByName(int chatId, @NotNull String query, int limit);
+
+    /**
+     * Задача, найденная по названию.
+     *
+     * @param id внутренний ID задачи
+     * @param name название задачи
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record NameMatch(int id, @NotNull String name) {
+    }
+
     /**
      * Свойство задачи для сортировки.
      *
@@ -0,0 +1,159 @@
+package dev.metabrix.urfu.oopbot.storage.impl.mysql;
+
+import dev.metabrix.urfu.oopbot.storage.ClusterStorage;
+import dev.metabrix.urfu.oopbot.storage.impl.sql.SQLConnectionPool;
+import dev.metabrix.urfu.oopbot.storage.impl.sql.SQLTables;
+import dev.metabrix.urfu.oopbot.storage.model.ClusterNode;
+import dev.metabrix.urfu.oopbot.storage.model.ShardLease;
+import dev.metabrix.urfu.oopbot.util.exception.StorageException;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+public class MySQLClusterStorage implements ClusterStorage {
+    private final @NotNull SQLConnectionPool pool;
+    private final @NotNull SQLTables tables;
+
+    MySQLClusterStorage(@NotNull SQLConnectionPool pool, @NotNull SQLTables tables) {
+        this.pool = pool;
+        this.tables = tables;
+    }
+
+    @Override
+    public void createShards(int shards) {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "INSERT IGNORE INTO " + this.tables.shardLeases() + " (shard) VALUES (?)"
+        )) {
+            for (int shard = 0; shard < shards; shard++) {
+                s.setInt(1, shard);
+                s.addBatch();
+            }
+            s.executeBatch();
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
+    @Override
+    public void heartbeat(@NotNull String nodeId, @NotNull String address, @NotNull Duration leaseDuration) {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "INSERT INTO " + this.tables.clusterNodes() + " (id, address, expires_at) VALUES (?, ?, NOW(3) + INTERVAL ? MICROSECOND) " +
+                "ON DUPLICATE KEY UPDATE address = ?, expires_at = NOW(3) + INTERVAL ? MICROSECOND"
+        )) {
+            long leaseMicros = toMicros(leaseDuration);
+            s.setString(1, nodeId);
+            s.setString(2, address);
+            s.setLong(3, leaseMicros);
+            s.setString(4, address);
+            s.setLong(5, leaseMicros);
+            s.executeUpdate();
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
+    @Override
+    public @NotNull List<@NotNull ClusterNode> getLiveNodes() {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "SELECT id, address FROM " + this.tables.clusterNodes() + " WHERE expires_at >= NOW(3) ORDER BY id"
+        )) {
+            try (ResultSet rs = s.executeQuery()) {
+                List<ClusterNode> nodes = new ArrayList<>();
+                while (rs.next()) {
+                    nodes.add(new ClusterNode(rs.getString("id"), rs.getString("address")));
+                }
+                return nodes;
+            }
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
+    @Override
+    public @NotNull List<@NotNull ShardLease> getShardLeases() {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "SELECT shard, CASE WHEN expires_at >= NOW(3) THEN node_id END AS node_id " +
+                "FROM " + this.tables.shardLeases() + " ORDER BY shard"
+        )) {
+            try (ResultSet rs = s.executeQuery()) {
+                List<ShardLease> leases = new ArrayList<>();
+                while (rs.next()) {
+                    leases.add(new ShardLease(rs.getInt("shard"), rs.getString("node_id")));
+                }
+                return leases;
+            }
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
+    @Override
+    public boolean acquireShard(int shard, @NotNull String nodeId, @NotNull Duration leaseDuration) {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "UPDATE " + this.tables.shardLeases() + " SET node_id = ?, expires_at = NOW(3) + INTERVAL ? MICROSECOND " +
+                "WHERE shard = ? AND (node_id IS NULL OR node_id = ? OR expires_at IS NULL OR expires_at < NOW(3))"
+        )) {
+            s.setString(1, nodeId);
+            s.setLong(2, toMicros(leaseDuration));
+            s.setInt(3, shard);
+            s.setString(4, nodeId);
+            return s.executeUpdate() > 0;
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
+    @Override
+    public int renewShards(@NotNull String nodeId, @NotNull Duration leaseDuration) {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "UPDATE " + this.tables.shardLeases() + " SET expires_at = NOW(3) + INTERVAL ? MICROSECOND WHERE node_id = ?"
+        )) {
+            s.setLong(1, toMicros(leaseDuration));
+            s.setString(2, nodeId);
+            return s.executeUpdate();
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
+    @Override
+    public void releaseShard(int shard, @NotNull String nodeId) {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "UPDATE " + this.tables.shardLeases() + " SET node_id = NULL, expires_at = NULL WHERE shard = ? AND node_id = ?"
+        )) {
+            s.setInt(1, shard);
+            s.setString(2, nodeId);
+            s.executeUpdate();
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
+    @Override
+    public void leave(@NotNull String nodeId) {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "UPDATE " + this.tables.shardLeases() + " SET node_id = NULL, expires_at = NULL WHERE node_id = ?"
+        )) {
+            s.setString(1, nodeId);
+            s.executeUpdate();
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "DELETE FROM " + this.tables.clusterNodes() + " WHERE id = ?"
+        )) {
+            s.setString(1, nodeId);
+            s.executeUpdate();
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
+    private static long toMicros(@NotNull Duration duration) {
+        return duration.toNanos() / 1000;
+    }
+}
@@ -2,12 +2,19 @@ package dev.metabrix.urfu.oopbot.storage.impl.mysql;
 
 import dev.metabrix.urfu.oopbot.BotConfiguration;
 import dev.metabrix.urfu.oopbot.storage.*;
+import dev.metabrix.urfu.oopbot.storage.impl.sql.CachedChatStorage;
+import dev.metabrix.urfu.oopbot.storage.impl.sql.FilteredDialogStateStorage;
+import dev.metabrix.urfu.oopbot.storage.impl.sql.IndexedTaskStorage;
 import dev.metabrix.urfu.oopbot.storage.impl.sql.SQLConnectionPool;
 import dev.metabrix.urfu.oopbot.storage.impl.sql.SQLTables;
 import dev.metabrix.urfu.oopbot.util.LogUtils;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLSyntaxErrorException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
 import org.slf4j.Logger;
 
@@ -18,21 +25,34 @@ public class MySQLDataStorage implements DataStorage {
 
     private final @NotNull SQLTables tables;
     private final @NotNull SQLConnectionPool pool;
+    private final @NotNull ExecutorService executor;
 
     private final @NotNull UserStorage users;
     private final @NotNull ChatStorage chats;
     private final @NotNull TaskStorage tasks;
     private final @NotNull DialogStateStorage dialogStates;
+    private final @NotNull ClusterStorage cluster;
 
     public MySQLDataStorage(@NotNull BotConfiguration.DataStorage.MySQLConfiguration configuration) throws Exception {
         this.tables = new SQLTables(configuration.tablePrefix());
         this.pool = new MySQLConnectionPool(configuration);
         this.updateSchema();
+        this.executor = Executors.newFixedThreadPool(
+            this.pool.poolSize(),
+            Thread.ofPlatform().name("MySQL Storage Worker #", 0).daemon().factory()
+        );
 
         this.users = new MySQLUserStorage(this.pool, this.tables);
-        this.chats = new MySQLChatStorage(this.pool, this.tables);
-        this.tasks = new MySQLTaskStorage(this.pool, this.tables);
-        this.dialogStates = new MySQLDialogStateStorage(this.pool, this.tables);
+        // с индексом названий задач inline-поиск не обращается к базе данных, и чат пользователя тоже берётся из кэша
+        ChatStorage chats = new MySQLChatStorage(this.pool, this.tables);
+        this.chats = configuration.taskNameIndex() ? new CachedChatStorage(chats) : chats;
+        TaskStorage tasks = new MySQLTaskStorage(this.pool, this.tables);
+        this.tasks = configuration.taskNameIndex() ? new IndexedTaskStorage(tasks) : tasks;
+        DialogStateStorage dialogStates = new MySQLDialogStateStorage(this.pool, this.tables);
+        this.dialogStates = configuration.dialogStateFilter()
+            ? new FilteredDialogStateStorage(dialogStates, this.users, this.chats)
+            : dialogStates;
+        this.cluster = new MySQLClusterStorage(this.pool, this.tables);
     }
 
     private void updateSchema() throws Exception {
@@ -114,6 +134,18 @@ public class MySQLDataStorage implements DataStorage {
         return this.dialogStates;
     }
 
+    @Override
+    public @NotNull ClusterStorage cluster() {
+        checkNotClosed();
+        return this.cluster;
+    }
+
+    @Override
+    public <T> @NotNull CompletableFuture<T> supplyAsync(@NotNull Function<? super @NotNull DataStorage, ? extends T> query) {
+        checkNotClosed();
+        return CompletableFuture.supplyAsync(() -> query.apply(this), this.executor);
+    }
+
     @Override
     public boolean isClosed() {
         return this.pool.isClosed();
@@ -121,6 +153,7 @@ public class MySQLDataStorage implements DataStorage {
 
     @Override
     public void close() throws Exception {
+        this.executor.close();
         this.pool.close();
     }
     
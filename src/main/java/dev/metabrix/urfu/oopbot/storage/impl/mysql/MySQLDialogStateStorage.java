@@ -10,6 +10,8 @@ import dev.metabrix.urfu.oopbot.util.exception.StorageException;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
 import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 import org.json.JSONException;
@@ -91,4 +93,29 @@ public class MySQLDialogStateStorage implements DialogStateStorage {
             throw new StorageException(ex);
         }
     }
+
+    @Override
+    public @NotNull List<@NotNull Key> getAllKeys() {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "SELECT d.user_id, d.chat_id, u.telegram_id AS telegram_user_id, c.telegram_id AS telegram_chat_id " +
+                "FROM " + this.tables.dialogStates() + " d " +
+                "JOIN " + this.tables.users() + " u ON u.id = d.user_id " +
+                "JOIN " + this.tables.chats() + " c ON c.id = d.chat_id"
+        )) {
+            try (ResultSet rs = s.executeQuery()) {
+                List<Key> keys = new ArrayList<>();
+                while (rs.next()) {
+                    keys.add(new Key(
+                        rs.getInt("user_id"),
+                        rs.getInt("chat_id"),
+                        rs.getLong("telegram_user_id"),
+                        rs.getLong("telegram_chat_id")
+                    ));
+                }
+                return keys;
+            }
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
 }
@@ -150,6 +150,61 @@ enum MySQLSchemaUpdate {
             s.executeUpdate();
         }
     }),
+    SEPARATE_CHATS_BY_BOT((connection, tables, logger) -> {
+        // чаты, созданные до этого обновления, получают bot_id = 0 и привязываются к основному боту при запуске
+        logger.info("Adding bot_id to table {}", tables.chats());
+        try (PreparedStatement s = connection.prepareStatement(
+            "ALTER TABLE " + tables.chats() + " " +
+                "ADD COLUMN bot_id BIGINT NOT NULL DEFAULT 0 AFTER id, " +
+                "DROP INDEX telegram_id, " +
+                "ADD UNIQUE (bot_id, telegram_id)"
+        )) {
+            s.executeUpdate();
+        }
+
+        try (PreparedStatement s = connection.prepareStatement(
+            "INSERT INTO " + tables.version() + " (version, time) VALUES (?, ?)"
+        )) {
+            s.setInt(1, 3);
+            s.setTimestamp(2, Timestamp.from(Instant.now()));
+            s.executeUpdate();
+        }
+    }),
+    INTRODUCE_CLUSTER_LEASES((connection, tables, logger) -> {
+        logger.info("Creating table {}", tables.clusterNodes());
+        try (PreparedStatement s = connection.prepareStatement(
+            "CREATE TABLE IF NOT EXISTS " + tables.clusterNodes() + " (" +
+                "id VARCHAR(64) NOT NULL, " +
+                "address VARCHAR(255) NOT NULL, " +
+                "expires_at TIMESTAMP(3) NOT NULL, " +
+                "PRIMARY KEY (id), " +
+                "INDEX (expires_at)" +
+                ")"
+        )) {
+            s.executeUpdate();
+        }
+
+        logger.info("Creating table {}", tables.shardLeases());
+        try (PreparedStatement s = connection.prepareStatement(
+            "CREATE TABLE IF NOT EXISTS " + tables.shardLeases() + " (" +
+                "shard INT NOT NULL, " +
+                "node_id VARCHAR(64) DEFAULT NULL, " +
+                "expires_at TIMESTAMP(3) NULL DEFAULT NULL, " +
+                "PRIMARY KEY (shard), " +
+                "INDEX (node_id)" +
+                ")"
+        )) {
+            s.executeUpdate();
+        }
+
+        try (PreparedStatement s = connection.prepareStatement(
+            "INSERT INTO " + tables.version() + " (version, time) VALUES (?, ?)"
+        )) {
+            s.setInt(1, 4);
+            s.setTimestamp(2, Timestamp.from(Instant.now()));
+            s.executeUpdate();
+        }
+    }),
     ;
 
     private static final @NotNull Logger LOGGER = LogUtils.getLogger();
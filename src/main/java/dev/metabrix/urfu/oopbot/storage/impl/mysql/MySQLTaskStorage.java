@@ -222,4 +222,30 @@ public class MySQLTaskStorage implements TaskStorage {
             throw new StorageException(ex);
         }
     }
+
+    @Override
+    public @NotNull List<@NotNull NameMatch> searchByName(int chatId, @NotNull String query, int limit) {
+        String prefix = escapeLike(query.strip().toLowerCase(Locale.ROOT)) + "%";
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "SELECT id, name FROM " + this.tables.tasks() + " WHERE chat_id = ? AND " +
+                "(LOWER(name) LIKE ? ESCAPE '!' OR LOWER(name) LIKE ? ESCAPE '!') ORDER BY id DESC LIMIT ?"
+        )) {
+            s.setInt(1, chatId);
+            s.setString(2, prefix);
+            s.setString(3, "% " + prefix);
+            s.setInt(4, limit);
+
+            try (ResultSet rs = s.executeQuery()) {
+                List<NameMatch> matches = new ArrayList<>();
+                while (rs.next()) matches.add(new NameMatch(rs.getInt("id"), rs.getString("name")));
+                return matches;
+            }
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
+    private static @NotNull String escapeLike(@NotNull String string) {
+        return string.replace("!", "!!").replace("%", "!%").replace("_", "!_");
+    }
 }
@@ -2,12 +2,15 @@ package dev.metabrix.urfu.oopbot.storage.impl.sql;
 
 import java.sql.Connection;
 import java.sql.SQLException;
+import java.util.concurrent.locks.ReentrantLock;
 import org.jetbrains.annotations.NotNull;
 
 import static dev.metabrix.urfu.oopbot.util.Checks.checkState;
 
 public abstract class AbstractSQLConnectionPool implements SQLConnectionPool {
     private final @NotNull Connection[] pool;
+    // не synchronized: внутри блокировки идут сетевые вызовы, которые закрепили бы виртуальный поток за потоком-носителем
+    private final @NotNull ReentrantLock poolLock = new ReentrantLock();
     private boolean poolInitialized = false;
     private int poolCursor = 0; // -1 if pool is closed
 
@@ -32,29 +35,32 @@ public abstract class AbstractSQLConnectionPool implements SQLConnectionPool {
 
     @Override
     public @NotNull Connection getConnection() throws SQLException {
-        synchronized (this.pool) {
+        this.poolLock.lock();
+        try {
             checkState(this.poolInitialized, "Connection pool is not yet initialized");
             checkState(!this.isClosed(), "Connection pool is closed");
 
             SQLException lastException = null;
             assert this.pool.length != 0 : "Pool size must be positive";
             for (int i = 0; i < this.pool.length; i++) {
-                Connection connection = this.pool[(this.poolCursor + i) % this.pool.length];
-                if (!connection.isValid(3)) {
-                    try {
-                        connection = this.newConnection();
-                        this.poolCursor = (this.poolCursor + i) % this.pool.length;
-                        this.pool[(this.poolCursor + i) % this.pool.length] = connection;
-                        return connection;
-                    } catch (SQLException ex) {
-                        lastException = ex;
-                    }
-                } else {
-                    this.poolCursor = (this.poolCursor + i) % this.pool.length;
+                // раздаём соединения по кругу, распределяя запросы параллельных обработчиков по всему пулу
+                int index = this.poolCursor;
+                this.poolCursor = (this.poolCursor + 1) % this.pool.length;
+
+                Connection connection = this.pool[index];
+                if (connection.isValid(3)) return connection;
+
+                try {
+                    connection = this.newConnection();
+                    this.pool[index] = connection;
                     return connection;
+                } catch (SQLException ex) {
+                    lastException = ex;
                 }
             }
             throw lastException;
+        } finally {
+            this.poolLock.unlock();
         }
     }
 
@@ -67,11 +73,14 @@ public abstract class AbstractSQLConnectionPool implements SQLConnectionPool {
     public void close() throws Exception {
         if (!this.poolInitialized) return;
 
-        synchronized (this.pool) {
+        this.poolLock.lock();
+        try {
             for (Connection connection : this.pool) {
                 connection.close();
             }
             this.poolCursor = -1;
+        } finally {
+            this.poolLock.unlock();
         }
     }
 }
@@ -0,0 +1,114 @@
+package dev.metabrix.urfu.oopbot.storage.impl.sql;
+
+import dev.metabrix.urfu.oopbot.storage.ChatStorage;
+import dev.metabrix.urfu.oopbot.storage.model.Chat;
+import dev.metabrix.urfu.oopbot.util.exception.DuplicateObjectException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Хранилище чатов, которое держит в памяти последние найденные по ID в Telegram чаты, чтобы не обращаться
+ * к базе данных на каждое событие и каждый inline-запрос.
+ * <p>
+ * Кэшируются только найденные чаты, поэтому созданный чат виден сразу, а удалённый чат убирается из кэша
+ * в {@link #delete(int)}. Кэш можно использовать, только если никто, кроме этого процесса, не удаляет чаты
+ * из базы данных.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class CachedChatStorage implements ChatStorage {
+    private static final int DEFAULT_CAPACITY = 65536;
+
+    private final @NotNull ChatStorage delegate;
+    // изменяется и читается только под блокировкой this.cache
+    private final @NotNull Map<@NotNull TelegramKey, @NotNull Chat> cache;
+    private long deletions = 0;
+
+    /**
+     * Создаёт хранилище с кэшем на 65536 чатов.
+     *
+     * @param delegate хранилище, в котором хранятся чаты
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public CachedChatStorage(@NotNull ChatStorage delegate) {
+        this(delegate, DEFAULT_CAPACITY);
+    }
+
+    CachedChatStorage(@NotNull ChatStorage delegate, int capacity) {
+        this.delegate = delegate;
+        // в порядке доступа, чтобы при переполнении вытеснялись давно не использованные чаты
+        this.cache = new LinkedHashMap<>(16, 0.75F, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<TelegramKey, Chat> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    @Override
+    public @NotNull Chat create(long botId, long telegramId, int installedById) throws DuplicateObjectException {
+        return this.delegate.create(botId, telegramId, installedById);
+    }
+
+    @Override
+    public @Nullable Chat getById(int id) {
+        return this.delegate.getById(id);
+    }
+
+    @Override
+    public @Nullable Chat getByTelegramId(long botId, long telegramId) {
+        TelegramKey key = new TelegramKey(botId, telegramId);
+        long seenDeletions;
+        synchronized (this.cache) {
+            Chat chat = this.cache.get(key);
+            if (chat != null) return chat;
+            seenDeletions = this.deletions;
+        }
+
+        Chat chat = this.delegate.getByTelegramId(botId, telegramId);
+        if (chat == null) return null;
+        synchronized (this.cache) {
+            // пока чат читался из базы данных, его могли удалить, и тогда он не должен попасть в кэш
+            if (this.deletions == seenDeletions) this.cache.put(key, chat);
+        }
+        return chat;
+    }
+
+    @Override
+    public int assignUnownedChats(long botId) {
+        // кэшируются только чаты с ботом, поэтому привязка чатов без бота кэш не меняет
+        return this.delegate.assignUnownedChats(botId);
+    }
+
+    @Override
+    public boolean delete(int id) {
+        synchronized (this.cache) {
+            this.deletions++;
+        }
+        boolean deleted = this.delegate.delete(id);
+        synchronized (this.cache) {
+            this.cache.values().removeIf(chat -> chat.id() == id);
+        }
+        return deleted;
+    }
+
+    /**
+     * Возвращает количество чатов в кэше.
+     *
+     * @return количество чатов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int size() {
+        synchronized (this.cache) {
+            return this.cache.size();
+        }
+    }
+
+    private record TelegramKey(long botId, long telegramId) {
+    }
+}
@@ -0,0 +1,275 @@
+package dev.metabrix.urfu.oopbot.storage.impl.sql;
+
+import dev.metabrix.urfu.oopbot.storage.ChatStorage;
+import dev.metabrix.urfu.oopbot.storage.DialogStateStorage;
+import dev.metabrix.urfu.oopbot.storage.UserStorage;
+import dev.metabrix.urfu.oopbot.storage.model.Chat;
+import dev.metabrix.urfu.oopbot.storage.model.User;
+import dev.metabrix.urfu.oopbot.storage.model.dialog.DialogState;
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.util.List;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Хранилище состояний диалогов, которое держит в памяти множество пар пользователь–чат,
+ * у которых есть состояние диалога, и не обращается к базе данных для остальных пар.
+ * <p>
+ * Множество загружается из базы данных при создании и обновляется в {@link #set(int, int, DialogState)}
+ * и {@link #delete(int, int)}, поэтому его можно использовать, только если никто, кроме этого процесса,
+ * не меняет состояния диалогов в базе данных.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class FilteredDialogStateStorage implements DialogStateStorage {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+    private static final int KEY_LOCKS = 64;
+
+    private final @NotNull DialogStateStorage delegate;
+    private final @NotNull UserStorage users;
+    private final @NotNull ChatStorage chats;
+
+    // ключ в хранилище -> ключ в Telegram, и количество ключей в хранилище для каждого ключа в Telegram
+    private final @NotNull LongLongMap telegramKeys = new LongLongMap();
+    private final @NotNull LongLongMap telegramKeyCounts = new LongLongMap();
+    private final @NotNull ReadWriteLock lock = new ReentrantReadWriteLock();
+    // set и delete одной пары выполняются под одной блокировкой, чтобы запись в базу данных и изменение фильтра не перемешались
+    private final @NotNull Lock @NotNull [] keyLocks = new Lock[KEY_LOCKS];
+
+    /**
+     * Создаёт хранилище и загружает ключи всех состояний диалогов из указанного хранилища.
+     *
+     * @param delegate хранилище, в котором хранятся состояния диалогов
+     * @param users хранилище пользователей
+     * @param chats хранилище чатов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public FilteredDialogStateStorage(
+        @NotNull DialogStateStorage delegate,
+        @NotNull UserStorage users,
+        @NotNull ChatStorage chats
+    ) {
+        this.delegate = delegate;
+        this.users = users;
+        this.chats = chats;
+        for (int i = 0; i < this.keyLocks.length; i++) this.keyLocks[i] = new ReentrantLock();
+
+        List<Key> keys = delegate.getAllKeys();
+        for (Key key : keys) {
+            this.add(storageKey(key.userId(), key.chatId()), telegramKey(key.telegramUserId(), key.telegramChatId()));
+        }
+        LOGGER.info("Loaded {} dialog states into the dialog state filter", keys.size());
+    }
+
+    @Override
+    public @Nullable DialogState get(int userId, int chatId) {
+        if (!this.contains(storageKey(userId, chatId))) return null;
+        return this.delegate.get(userId, chatId);
+    }
+
+    @Override
+    public void set(int userId, int chatId, @NotNull DialogState dialogState) {
+        long storageKey = storageKey(userId, chatId);
+        Lock keyLock = this.keyLock(storageKey);
+        keyLock.lock();
+        try {
+            if (!this.contains(storageKey)) {
+                User user = this.users.getById(userId);
+                checkArgument(user != null, "User " + userId + " does not exist");
+                Chat chat = this.chats.getById(chatId);
+                checkArgument(chat != null, "Chat " + chatId + " does not exist");
+
+                // ключ добавляется до записи в базу данных, чтобы mightExist не пропустил уже записанное состояние
+                this.lock.writeLock().lock();
+                try {
+                    this.add(storageKey, telegramKey(user.telegramId(), chat.telegramId()));
+                } finally {
+                    this.lock.writeLock().unlock();
+                }
+            }
+            this.delegate.set(userId, chatId, dialogState);
+        } finally {
+            keyLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean delete(int userId, int chatId) {
+        long storageKey = storageKey(userId, chatId);
+        Lock keyLock = this.keyLock(storageKey);
+        keyLock.lock();
+        try {
+            if (!this.contains(storageKey)) return false;
+
+            // set для той же пары ждёт блокировку ключа, поэтому не может записать состояние между удалением и обновлением фильтра
+            boolean deleted = this.delegate.delete(userId, chatId);
+            this.lock.writeLock().lock();
+            try {
+                long telegramKey = this.telegramKeys.remove(storageKey);
+                if (telegramKey != 0) {
+                    long count = this.telegramKeyCounts.get(telegramKey);
+                    if (count > 1) {
+                        this.telegramKeyCounts.put(telegramKey, count - 1);
+                    } else {
+                        this.telegramKeyCounts.remove(telegramKey);
+                    }
+                }
+            } finally {
+                this.lock.writeLock().unlock();
+            }
+            return deleted;
+        } finally {
+            keyLock.unlock();
+        }
+    }
+
+    @Override
+    public boolean mightExist(long telegramUserId, long telegramChatId) {
+        long telegramKey = telegramKey(telegramUserId, telegramChatId);
+        this.lock.readLock().lock();
+        try {
+            return this.telegramKeyCounts.get(telegramKey) != 0;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public @NotNull List<@NotNull Key> getAllKeys() {
+        return this.delegate.getAllKeys();
+    }
+
+    /**
+     * Возвращает количество состояний диалогов, известных фильтру.
+     *
+     * @return количество состояний диалогов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int size() {
+        this.lock.readLock().lock();
+        try {
+            return this.telegramKeys.size();
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private boolean contains(long storageKey) {
+        this.lock.readLock().lock();
+        try {
+            return this.telegramKeys.get(storageKey) != 0;
+        } finally {
+            this.lock.readLock().unlock();
+        }
+    }
+
+    private @NotNull Lock keyLock(long storageKey) {
+        return this.keyLocks[(int) ((storageKey * 0x9E3779B97F4A7C15L) >>> 32) & (KEY_LOCKS - 1)];
+    }
+
+    private void add(long storageKey, long telegramKey) {
+        if (this.telegramKeys.get(storageKey) != 0) return;
+        this.telegramKeys.put(storageKey, telegramKey);
+        this.telegramKeyCounts.put(telegramKey, this.telegramKeyCounts.get(telegramKey) + 1);
+    }
+
+    private static long storageKey(int userId, int chatId) {
+        // ID в хранилище положительные, поэтому ключ никогда не равен 0
+        return (long) userId << 32 | (chatId & 0xFFFFFFFFL);
+    }
+
+    private static long telegramKey(long telegramUserId, long telegramChatId) {
+        // у разных пар могут совпасть ключи, поэтому telegramKeyCounts хранит количество, а mightExist может ошибиться в сторону true
+        long key = (telegramUserId * 0x9E3779B97F4A7C15L + telegramChatId) * 0xBF58476D1CE4E5B9L;
+        key ^= key >>> 31;
+        return key == 0 ? 1 : key;
+    }
+
+    /**
+     * Таблица long -> long с открытой адресацией и линейным пробированием. Ключ 0 обозначает пустую ячейку,
+     * а {@link #get(long)} возвращает 0 для отсутствующего ключа.
+     */
+    private static final class LongLongMap {
+        private long @NotNull [] keys = new long[16];
+        private long @NotNull [] values = new long[16];
+        private int size = 0;
+
+        private int size() {
+            return this.size;
+        }
+
+        private long get(long key) {
+            int mask = this.keys.length - 1;
+            for (int slot = slot(key, mask); this.keys[slot] != 0; slot = (slot + 1) & mask) {
+                if (this.keys[slot] == key) return this.values[slot];
+            }
+            return 0;
+        }
+
+        private void put(long key, long value) {
+            if ((this.size + 1) * 2 > this.keys.length) this.resize(this.keys.length * 2);
+
+            int mask = this.keys.length - 1;
+            int slot = slot(key, mask);
+            while (this.keys[slot] != 0) {
+                if (this.keys[slot] == key) {
+                    this.values[slot] = value;
+                    return;
+                }
+                slot = (slot + 1) & mask;
+            }
+            this.keys[slot] = key;
+            this.values[slot] = value;
+            this.size++;
+        }
+
+        private long remove(long key) {
+            int mask = this.keys.length - 1;
+            int hole = slot(key, mask);
+            while (this.keys[hole] != key) {
+                if (this.keys[hole] == 0) return 0;
+                hole = (hole + 1) & mask;
+            }
+            long value = this.values[hole];
+
+            // сдвигаем назад следующие записи цепочки, чтобы в ней не осталось пустой ячейки
+            for (int next = (hole + 1) & mask; this.keys[next] != 0; next = (next + 1) & mask) {
+                int ideal = slot(this.keys[next], mask);
+                if (((next - ideal) & mask) >= ((next - hole) & mask)) {
+                    this.keys[hole] = this.keys[next];
+                    this.values[hole] = this.values[next];
+                    hole = next;
+                }
+            }
+            this.keys[hole] = 0;
+            this.values[hole] = 0;
+            this.size--;
+            return value;
+        }
+
+        private void resize(int capacity) {
+            long[] oldKeys = this.keys;
+            long[] oldValues = this.values;
+            this.keys = new long[capacity];
+            this.values = new long[capacity];
+            this.size = 0;
+            for (int i = 0; i < oldKeys.length; i++) {
+                if (oldKeys[i] != 0) this.put(oldKeys[i], oldValues[i]);
+            }
+        }
+
+        private static int slot(long key, int mask) {
+            return (int) ((key * 0x9E3779B97F4A7C15L) >>> 32) & mask;
+        }
+    }
+}
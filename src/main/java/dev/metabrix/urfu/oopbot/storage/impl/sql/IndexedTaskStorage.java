@@ -0,0 +1,135 @@
+package dev.metabrix.urfu.oopbot.storage.impl.sql;
+
+import dev.metabrix.urfu.oopbot.storage.TaskCommentsStorage;
+import dev.metabrix.urfu.oopbot.storage.TaskStorage;
+import dev.metabrix.urfu.oopbot.storage.model.Task;
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+/**
+ * Хранилище задач, которое ищет задачи по названию в индексе в памяти, а не в базе данных.
+ * <p>
+ * Индекс загружается из базы данных при создании и обновляется в {@link #create(int, String, String, int)},
+ * {@link #updateName(int, String, int)} и {@link #delete(int)}, поэтому его можно использовать, только если
+ * никто, кроме этого процесса, не меняет задачи в базе данных.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class IndexedTaskStorage implements TaskStorage {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+
+    private final @NotNull TaskStorage delegate;
+    private final @NotNull TaskNameIndex index = new TaskNameIndex();
+
+    /**
+     * Создаёт хранилище и загружает названия всех задач из указанного хранилища.
+     *
+     * @param delegate хранилище, в котором хранятся задачи
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public IndexedTaskStorage(@NotNull TaskStorage delegate) {
+        this.delegate = delegate;
+
+        List<Task> tasks = delegate.searchTasks(Integer.MAX_VALUE, 0, Sort.CREATED_AT, true, null, null);
+        List<TaskNameIndex.Entry> entries = new ArrayList<>(tasks.size());
+        for (Task task : tasks) entries.add(new TaskNameIndex.Entry(task.id(), task.chatId(), task.name()));
+        this.index.putAll(entries);
+        LOGGER.info(
+            "Loaded {} task names from {} chats into the task name index, ~{} KiB",
+            this.index.getTaskCount(), this.index.getChatCount(), this.index.getEstimatedBytes() / 1024
+        );
+    }
+
+    @Override
+    public @NotNull TaskCommentsStorage comments() {
+        return this.delegate.comments();
+    }
+
+    @Override
+    public @NotNull Task create(int chatId, @NotNull String name, @Nullable String description, int createdById) {
+        Task task = this.delegate.create(chatId, name, description, createdById);
+        this.index.put(task.id(), task.chatId(), task.name());
+        return task;
+    }
+
+    @Override
+    public @Nullable Task getById(int id) {
+        return this.delegate.getById(id);
+    }
+
+    @Override
+    public @NotNull List<@NotNull Task> searchTasks(
+        int limit, int offset,
+        @NotNull Sort sort, boolean ascending,
+        @Nullable Integer chatId, @Nullable Integer createdById
+    ) {
+        return this.delegate.searchTasks(limit, offset, sort, ascending, chatId, createdById);
+    }
+
+    @Override
+    public int countTasks(@Nullable Integer chatId, @Nullable Integer createdById) {
+        return this.delegate.countTasks(chatId, createdById);
+    }
+
+    @Override
+    public void updateName(int id, @NotNull String newName, int updatedById) {
+        this.delegate.updateName(id, newName, updatedById);
+        this.index.rename(id, newName);
+    }
+
+    @Override
+    public void updateDescription(int id, @Nullable String newDescription, int updatedById) {
+        this.delegate.updateDescription(id, newDescription, updatedById);
+    }
+
+    @Override
+    public boolean delete(int id) {
+        boolean deleted = this.delegate.delete(id);
+        this.index.remove(id);
+        return deleted;
+    }
+
+    @Override
+    public @NotNull List<@NotNull NameMatch> searchByName(int chatId, @NotNull String query, int limit) {
+        return this.index.search(chatId, query, limit);
+    }
+
+    /**
+     * Возвращает количество задач в индексе названий.
+     *
+     * @return количество задач
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getIndexedTasks() {
+        return this.index.getTaskCount();
+    }
+
+    /**
+     * Возвращает количество чатов, у которых есть задачи в индексе названий.
+     *
+     * @return количество чатов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getIndexedChats() {
+        return this.index.getChatCount();
+    }
+
+    /**
+     * Возвращает приблизительный размер индекса названий в куче.
+     *
+     * @return размер индекса в байтах
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getEstimatedIndexBytes() {
+        return this.index.getEstimatedBytes();
+    }
+}
@@ -8,7 +8,9 @@ public record SQLTables(
     @NotNull String chats,
     @NotNull String tasks,
     @NotNull String tasksComments,
-    @NotNull String dialogStates
+    @NotNull String dialogStates,
+    @NotNull String clusterNodes,
+    @NotNull String shardLeases
 ) {
     public SQLTables(@NotNull String tablePrefix) {
         this(
@@ -17,7 +19,9 @@ public record SQLTables(
             tablePrefix + "chats",
             tablePrefix + "tasks",
             tablePrefix + "tasks_comments",
-            tablePrefix + "dialog_states"
+            tablePrefix + "dialog_states",
+            tablePrefix + "cluster_nodes",
+            tablePrefix + "shard_leases"
         );
     }
 }
@@ -0,0 +1,294 @@
+package dev.metabrix.urfu.oopbot.storage.impl.sql;
+
+import dev.metabrix.urfu.oopbot.storage.TaskStorage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Индекс названий задач для поиска по началу слова.
+ * <p>
+ * Для каждого чата хранится неизменяемый снимок: названия задач, отсортированные по ID, и отсортированный массив
+ * «терминов» — суффиксов названия, которые начинаются с начала слова. Поиск — двоичный поиск по терминам и
+ * просмотр подряд идущих терминов с нужным префиксом, поэтому он не берёт блокировок. Изменение задачи
+ * пересобирает снимок её чата.
+ * <p>
+ * Память на задачу ограничена: у задачи не больше {@link #MAX_TERMS_PER_TASK} терминов, каждый — 8 байт
+ * (номер задачи в снимке и смещение в названии), а сравниваются только первые {@link #MAX_TERM_LENGTH} символов термина.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+final class TaskNameIndex {
+    static final int MAX_TERM_LENGTH = 32;
+    static final int MAX_TERMS_PER_TASK = 16;
+    static final char WORD_SEPARATOR = ' ';
+
+    // приблизительные размеры объектов в куче со сжатыми указателями
+    private static final int OBJECT_HEADER_BYTES = 16;
+    private static final int STRING_BYTES = 24 + OBJECT_HEADER_BYTES;
+    private static final int MAP_ENTRY_BYTES = 32 + 2 * OBJECT_HEADER_BYTES;
+
+    private final @NotNull ConcurrentHashMap<Integer, ChatIndex> chats = new ConcurrentHashMap<>();
+    // ID задачи -> ID чата, изменяется и читается только под блокировкой this
+    private final @NotNull Map<Integer, Integer> taskChats = new HashMap<>();
+    private long chatBytes = 0;
+
+    /**
+     * Добавляет задачи в индекс, пересобирая каждый затронутый чат один раз.
+     */
+    synchronized void putAll(@NotNull List<@NotNull Entry> entries) {
+        Map<Integer, Map<Integer, String>> changes = new HashMap<>();
+        for (Entry entry : entries) {
+            Integer previousChatId = this.taskChats.put(entry.taskId(), entry.chatId());
+            if (previousChatId != null && previousChatId != entry.chatId()) {
+                changes.computeIfAbsent(previousChatId, k -> new HashMap<>()).put(entry.taskId(), null);
+            }
+            changes.computeIfAbsent(entry.chatId(), k -> new HashMap<>()).put(entry.taskId(), entry.name());
+        }
+        changes.forEach(this::rebuild);
+    }
+
+    synchronized void put(int taskId, int chatId, @NotNull String name) {
+        this.putAll(List.of(new Entry(taskId, chatId, name)));
+    }
+
+    /**
+     * Изменяет название задачи, если она есть в индексе.
+     */
+    synchronized void rename(int taskId, @NotNull String name) {
+        Integer chatId = this.taskChats.get(taskId);
+        if (chatId != null) this.rebuild(chatId, Map.of(taskId, name));
+    }
+
+    synchronized void remove(int taskId) {
+        Integer chatId = this.taskChats.remove(taskId);
+        if (chatId == null) return;
+
+        Map<Integer, String> changes = new HashMap<>();
+        changes.put(taskId, null);
+        this.rebuild(chatId, changes);
+    }
+
+    /**
+     * Ищет задачи в чате так же, как {@link TaskStorage#searchByName(int, String, int)}.
+     */
+    @NotNull List<TaskStorage.@NotNull NameMatch> search(int chatId, @NotNull String query, int limit) {
+        ChatIndex index = this.chats.get(chatId);
+        if (index == null || limit <= 0) return List.of();
+
+        String normalizedQuery = normalize(query.strip());
+        if (normalizedQuery.isEmpty()) {
+            // задачи в снимке отсортированы по ID, последние созданные — в конце
+            List<TaskStorage.NameMatch> matches = new ArrayList<>(Math.min(limit, index.taskIds.length));
+            for (int slot = index.taskIds.length - 1; slot >= 0 && matches.size() < limit; slot--) {
+                matches.add(new TaskStorage.NameMatch(index.taskIds[slot], index.names[slot]));
+            }
+            return matches;
+        }
+
+        boolean truncated = normalizedQuery.length() > MAX_TERM_LENGTH;
+        String prefix = truncated ? normalizedQuery.substring(0, MAX_TERM_LENGTH) : normalizedQuery;
+        boolean[] matched = new boolean[index.taskIds.length];
+        for (int i = index.lowerBound(prefix); i < index.terms.length && index.termStartsWith(index.terms[i], prefix); i++) {
+            int slot = slot(index.terms[i]);
+            // термины обрезаны, поэтому длинный запрос нужно сверить с названием целиком
+            if (truncated && !index.normalizedNames[slot].startsWith(normalizedQuery, offset(index.terms[i]))) continue;
+            matched[slot] = true;
+        }
+
+        List<TaskStorage.NameMatch> matches = new ArrayList<>();
+        for (int slot = matched.length - 1; slot >= 0 && matches.size() < limit; slot--) {
+            if (matched[slot]) matches.add(new TaskStorage.NameMatch(index.taskIds[slot], index.names[slot]));
+        }
+        return matches;
+    }
+
+    synchronized int getTaskCount() {
+        return this.taskChats.size();
+    }
+
+    int getChatCount() {
+        return this.chats.size();
+    }
+
+    /**
+     * Возвращает приблизительный размер индекса в куче.
+     */
+    synchronized long getEstimatedBytes() {
+        return this.chatBytes + (long) this.taskChats.size() * MAP_ENTRY_BYTES;
+    }
+
+    /**
+     * Пересобирает снимок чата, применяя изменения: ID задачи -> новое название или {@code null}, если задачу нужно удалить.
+     */
+    private void rebuild(int chatId, @NotNull Map<Integer, String> changes) {
+        ChatIndex previous = this.chats.get(chatId);
+        List<IndexedTask> tasks = new ArrayList<>();
+        if (previous != null) {
+            for (int slot = 0; slot < previous.taskIds.length; slot++) {
+                int taskId = previous.taskIds[slot];
+                if (changes.containsKey(taskId)) continue;
+                tasks.add(new IndexedTask(taskId, previous.names[slot], previous.normalizedNames[slot]));
+            }
+        }
+        changes.forEach((taskId, name) -> {
+            if (name != null) tasks.add(new IndexedTask(taskId, name, normalize(name)));
+        });
+
+        if (previous != null) this.chatBytes -= previous.estimatedBytes;
+        if (tasks.isEmpty()) {
+            this.chats.remove(chatId);
+            return;
+        }
+
+        ChatIndex index = ChatIndex.build(tasks);
+        this.chatBytes += index.estimatedBytes;
+        this.chats.put(chatId, index);
+    }
+
+    private static @NotNull String normalize(@NotNull String string) {
+        return string.toLowerCase(Locale.ROOT);
+    }
+
+    private static long term(int slot, int offset) {
+        return (long) slot << 32 | offset;
+    }
+
+    private static int slot(long term) {
+        return (int) (term >>> 32);
+    }
+
+    private static int offset(long term) {
+        return (int) term;
+    }
+
+    /**
+     * Задача для добавления в индекс.
+     */
+    record Entry(int taskId, int chatId, @NotNull String name) {
+    }
+
+    private record IndexedTask(int id, @NotNull String name, @NotNull String normalizedName) {
+    }
+
+    private static final class ChatIndex {
+        private final int @NotNull [] taskIds;
+        private final @NotNull String @NotNull [] names;
+        private final @NotNull String @NotNull [] normalizedNames;
+        private final long @NotNull [] terms;
+        private final long estimatedBytes;
+
+        private ChatIndex(int @NotNull [] taskIds, @NotNull String @NotNull [] names, @NotNull String @NotNull [] normalizedNames, long @NotNull [] terms) {
+            this.taskIds = taskIds;
+            this.names = names;
+            this.normalizedNames = normalizedNames;
+            this.terms = terms;
+
+            long bytes = 3 * OBJECT_HEADER_BYTES + 4L * taskIds.length + 8L * names.length + 8L * terms.length;
+            for (int slot = 0; slot < names.length; slot++) {
+                bytes += stringBytes(names[slot]);
+                // toLowerCase возвращает ту же строку, если в названии нет заглавных букв
+                if (normalizedNames[slot] != names[slot]) bytes += stringBytes(normalizedNames[slot]);
+            }
+            this.estimatedBytes = bytes;
+        }
+
+        private static @NotNull ChatIndex build(@NotNull List<IndexedTask> tasks) {
+            tasks.sort(Comparator.comparingInt(IndexedTask::id));
+
+            int[] taskIds = new int[tasks.size()];
+            String[] names = new String[tasks.size()];
+            String[] normalizedNames = new String[tasks.size()];
+            long[] terms = new long[tasks.size() * MAX_TERMS_PER_TASK];
+            int termCount = 0;
+            for (int slot = 0; slot < tasks.size(); slot++) {
+                IndexedTask task = tasks.get(slot);
+                taskIds[slot] = task.id();
+                names[slot] = task.name();
+                normalizedNames[slot] = task.normalizedName();
+
+                String name = task.normalizedName();
+                int taskTerms = 0;
+                for (int offset = 0; offset < name.length() && taskTerms < MAX_TERMS_PER_TASK; offset++) {
+                    // слова разделяются только пробелом, как в LIKE '% запрос%' у хранилищ без индекса
+                    boolean wordStart = name.charAt(offset) != WORD_SEPARATOR
+                        && (offset == 0 || name.charAt(offset - 1) == WORD_SEPARATOR);
+                    if (wordStart) {
+                        terms[termCount++] = term(slot, offset);
+                        taskTerms++;
+                    }
+                }
+            }
+
+            ChatIndex index = new ChatIndex(taskIds, names, normalizedNames, Arrays.copyOf(terms, termCount));
+            index.sortTerms();
+            return index;
+        }
+
+        private void sortTerms() {
+            Long[] boxed = new Long[this.terms.length];
+            for (int i = 0; i < boxed.length; i++) boxed[i] = this.terms[i];
+            Arrays.sort(boxed, this::compareTerms);
+            for (int i = 0; i < boxed.length; i++) this.terms[i] = boxed[i];
+        }
+
+        /**
+         * Возвращает индекс первого термина, который не меньше префикса.
+         */
+        private int lowerBound(@NotNull String prefix) {
+            int low = 0;
+            int high = this.terms.length;
+            while (low < high) {
+                int middle = (low + high) >>> 1;
+                if (this.compareTerm(this.terms[middle], prefix) < 0) {
+                    low = middle + 1;
+                } else {
+                    high = middle;
+                }
+            }
+            return low;
+        }
+
+        private boolean termStartsWith(long term, @NotNull String prefix) {
+            String name = this.normalizedNames[slot(term)];
+            return name.startsWith(prefix, offset(term));
+        }
+
+        private int compareTerms(long a, long b) {
+            String nameA = this.normalizedNames[slot(a)];
+            String nameB = this.normalizedNames[slot(b)];
+            return compare(nameA, offset(a), termEnd(nameA, offset(a)), nameB, offset(b), termEnd(nameB, offset(b)));
+        }
+
+        private int compareTerm(long term, @NotNull String prefix) {
+            String name = this.normalizedNames[slot(term)];
+            return compare(name, offset(term), termEnd(name, offset(term)), prefix, 0, prefix.length());
+        }
+
+        private static int termEnd(@NotNull String name, int offset) {
+            return Math.min(name.length(), offset + MAX_TERM_LENGTH);
+        }
+
+        private static int compare(@NotNull String a, int startA, int endA, @NotNull String b, int startB, int endB) {
+            int length = Math.min(endA - startA, endB - startB);
+            for (int i = 0; i < length; i++) {
+                int difference = a.charAt(startA + i) - b.charAt(startB + i);
+                if (difference != 0) return difference;
+            }
+            return (endA - startA) - (endB - startB);
+        }
+
+        private static long stringBytes(@NotNull String string) {
+            boolean latin1 = true;
+            for (int i = 0; i < string.length() && latin1; i++) latin1 = string.charAt(i) < 256;
+            return STRING_BYTES + (long) string.length() * (latin1 ? 1 : 2);
+        }
+    }
+}
@@ -23,21 +23,23 @@ public class SQLiteChatStorage implements ChatStorage {
     }
 
     @Override
-    public @NotNull Chat create(long telegramId, int installedById) throws DuplicateObjectException {
+    public @NotNull Chat create(long botId, long telegramId, int installedById) throws DuplicateObjectException {
         try (PreparedStatement s = this.pool.getConnection().prepareStatement(
-            "INSERT INTO " + this.tables.chats() + " (telegram_id, installed_by_id, installed_at) VALUES (?, ?, ?)",
+            "INSERT INTO " + this.tables.chats() + " (bot_id, telegram_id, installed_by_id, installed_at) VALUES (?, ?, ?, ?)",
             PreparedStatement.RETURN_GENERATED_KEYS
         )) {
             Instant installedAt = Instant.now();
-            s.setLong(1, telegramId);
-            s.setInt(2, installedById);
-            s.setTimestamp(3, Timestamp.from(installedAt));
+            s.setLong(1, botId);
+            s.setLong(2, telegramId);
+            s.setInt(3, installedById);
+            s.setTimestamp(4, Timestamp.from(installedAt));
             s.executeUpdate();
 
             try (ResultSet rs = s.getGeneratedKeys()) {
                 rs.next();
                 return new Chat(
                     rs.getInt(1),
+                    botId,
                     telegramId,
                     installedById,
                     installedAt,
@@ -47,7 +49,7 @@ public class SQLiteChatStorage implements ChatStorage {
             }
         } catch (SQLException ex) {
             if (ex instanceof SQLiteException sqLiteException && sqLiteException.getResultCode() == SQLiteErrorCode.SQLITE_CONSTRAINT_UNIQUE) {
-                throw new DuplicateObjectException(Chat.class, "telegramId=" + telegramId, ex);
+                throw new DuplicateObjectException(Chat.class, "botId=" + botId + ", telegramId=" + telegramId, ex);
             } else {
                 throw new StorageException(ex);
             }
@@ -66,6 +68,7 @@ public class SQLiteChatStorage implements ChatStorage {
                     Timestamp updatedAt = rs.getTimestamp("updated_at");
                     return new Chat(
                         rs.getInt("id"),
+                        rs.getLong("bot_id"),
                         rs.getLong("telegram_id"),
                         rs.getInt("installed_by_id"),
                         rs.getTimestamp("installed_at").toInstant(),
@@ -82,17 +85,19 @@ public class SQLiteChatStorage implements ChatStorage {
     }
 
     @Override
-    public @Nullable Chat getByTelegramId(long telegramId) {
+    public @Nullable Chat getByTelegramId(long botId, long telegramId) {
         try (PreparedStatement s = this.pool.getConnection().prepareStatement(
-            "SELECT * FROM " + this.tables.chats() + " WHERE telegram_id = ? LIMIT 1"
+            "SELECT * FROM " + this.tables.chats() + " WHERE bot_id = ? AND telegram_id = ? LIMIT 1"
         )) {
-            s.setLong(1, telegramId);
+            s.setLong(1, botId);
+            s.setLong(2, telegramId);
             try (ResultSet rs = s.executeQuery()) {
                 if (rs.next()) {
                     int updatedById = rs.getInt("updated_by_id");
                     Timestamp updatedAt = rs.getTimestamp("updated_at");
                     return new Chat(
                         rs.getInt("id"),
+                        rs.getLong("bot_id"),
                         rs.getLong("telegram_id"),
                         rs.getInt("installed_by_id"),
                         rs.getTimestamp("installed_at").toInstant(),
@@ -108,6 +113,18 @@ public class SQLiteChatStorage implements ChatStorage {
         return null;
     }
 
+    @Override
+    public int assignUnownedChats(long botId) {
+        try (PreparedStatement s = this.pool.getConnection().prepareStatement(
+            "UPDATE " + this.tables.chats() + " SET bot_id = ? WHERE bot_id = 0"
+        )) {
+            s.setLong(1, botId);
+            return s.executeUpdate();
+        } catch (SQLException ex) {
+            throw new StorageException(ex);
+        }
+    }
+
     @Override
     public boolean delete(int id) {
         try (PreparedStatement s = this.pool.getConnection().prepareStatement(
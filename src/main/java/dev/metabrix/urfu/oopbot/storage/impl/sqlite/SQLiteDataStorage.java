@@ -2,12 +2,20 @@ package dev.metabrix.urfu.oopbot.storage.impl.sqlite;
 
 import dev.metabrix.urfu.oopbot.BotConfiguration;
 import dev.metabrix.urfu.oopbot.storage.*;
+import dev.metabrix.urfu.oopbot.storage.impl.sql.CachedChatStorage;
+import dev.metabrix.urfu.oopbot.storage.impl.sql.FilteredDialogStateStorage;
+import dev.metabrix.urfu.oopbot.storage.impl.sql.IndexedTaskStorage;
 import dev.metabrix.urfu.oopbot.storage.impl.sql.SQLConnectionPool;
 import dev.metabrix.urfu.oopbot.storage.impl.sql.SQLTables;
 import dev.metabrix.urfu.oopbot.util.LogUtils;
 import java.sql.PreparedStatement;
 import java.sql.ResultSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
 import org.sqlite.SQLiteException;
 
@@ -18,6 +26,7 @@ public class SQLiteDataStorage implements DataStorage {
 
     private final @NotNull SQLTables tables;
     private final @NotNull SQLConnectionPool pool;
+    private final @NotNull ExecutorService executor;
 
     private final @NotNull UserStorage users;
     private final @NotNull ChatStorage chats;
@@ -28,11 +37,20 @@ public class SQLiteDataStorage implements DataStorage {
         this.tables = new SQLTables(configuration.tablePrefix());
         this.pool = new SQLiteConnectionPool(configuration);
         this.updateSchema();
+        this.executor = Executors.newFixedThreadPool(
+            this.pool.poolSize(),
+            Thread.ofPlatform().name("SQLite Storage Worker #", 0).daemon().factory()
+        );
 
         this.users = new SQLiteUserStorage(this.pool, this.tables);
-        this.chats = new SQLiteChatStorage(this.pool, this.tables);
-        this.tasks = new SQLiteTaskStorage(this.pool, this.tables);
-        this.dialogStates = new SQLiteDialogStateStorage(this.pool, this.tables);
+        // файл SQLite использует только этот процесс, поэтому кэш чатов, индекс названий задач и фильтр состояний диалогов всегда актуальны
+        this.chats = new CachedChatStorage(new SQLiteChatStorage(this.pool, this.tables));
+        this.tasks = new IndexedTaskStorage(new SQLiteTaskStorage(this.pool, this.tables));
+        this.dialogStates = new FilteredDialogStateStorage(
+            new SQLiteDialogStateStorage(this.pool, this.tables),
+            this.users,
+            this.chats
+        );
     }
 
     private void updateSchema() throws Exception {
@@ -114,6 +132,18 @@ public class SQLiteDataStorage implements DataStorage {
         return this.dialogStates;
     }
 
+    @Override
+    public @Nullable ClusterStorage cluster() {
+        // SQLite хранит данные в локальном файле, его нельзя разделить между узлами
+        return null;
+    }
+
+    @Override
+    public <T> @NotNull CompletableFuture<T> supplyAsync(@NotNull Function<? super @NotNull DataStorage, ? extends T> query) {
+        checkNotClosed();
+        return CompletableFuture.supplyAsync(() -> query.apply(this), this.executor);
+    }
+
     @Override
     public boolean isClosed() {
         return this.pool.isClosed();
@@ -121,6 +151,7 @@ public class SQLiteDataStorage implements DataStorage {
 
     @Override
     public void close() throws Exception {
+        this.executor.close();
         this.pool.close();
     }
     
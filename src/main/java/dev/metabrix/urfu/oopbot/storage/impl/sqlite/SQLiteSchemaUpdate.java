@@ -175,6 +175,48 @@ enum SQLiteSchemaUpdate {
             s.executeUpdate();
         }
     }),
+    SEPARATE_CHATS_BY_BOT((connection, tables, logger) -> {
+        // SQLite не умеет удалять ограничение UNIQUE (telegram_id), поэтому таблица пересоздаётся;
+        // чаты, созданные до этого обновления, получают bot_id = 0 и привязываются к основному боту при запуске
+        logger.info("Adding bot_id to table {}", tables.chats());
+        String newTable = tables.chats() + "_new";
+        try (PreparedStatement s = connection.prepareStatement(
+            "CREATE TABLE " + newTable + " (" +
+                "id INTEGER PRIMARY KEY AUTOINCREMENT, " +
+                "bot_id INTEGER NOT NULL DEFAULT 0, " +
+                "telegram_id INTEGER NOT NULL, " +
+                "installed_by_id INTEGER NOT NULL, " +
+                "installed_at DATETIME NOT NULL, " +
+                "updated_by_id INTEGER DEFAULT NULL, " +
+                "updated_at DATETIME DEFAULT NULL, " +
+                "UNIQUE (bot_id, telegram_id), " +
+                "CONSTRAINT fk_chats_installed_by_id__id FOREIGN KEY (installed_by_id) REFERENCES " + tables.users() + " (id) ON DELETE RESTRICT ON UPDATE RESTRICT, " +
+                "CONSTRAINT fk_chats_updated_by_id__id FOREIGN KEY (updated_by_id) REFERENCES " + tables.users() + " (id) ON DELETE RESTRICT ON UPDATE RESTRICT" +
+                ")"
+        )) {
+            s.executeUpdate();
+        }
+        try (PreparedStatement s = connection.prepareStatement(
+            "INSERT INTO " + newTable + " (id, telegram_id, installed_by_id, installed_at, updated_by_id, updated_at) " +
+                "SELECT id, telegram_id, installed_by_id, installed_at, updated_by_id, updated_at FROM " + tables.chats()
+        )) {
+            s.executeUpdate();
+        }
+        try (PreparedStatement s = connection.prepareStatement("DROP TABLE " + tables.chats())) {
+            s.executeUpdate();
+        }
+        try (PreparedStatement s = connection.prepareStatement("ALTER TABLE " + newTable + " RENAME TO " + tables.chats())) {
+            s.executeUpdate();
+        }
+
+        try (PreparedStatement s = connection.prepareStatement(
+            "INSERT INTO " + tables.version() + " (version, time) VALUES (?, ?)"
+        )) {
+            s.setInt(1, 3);
+            s.setTimestamp(2, Timestamp.from(Instant.now()));
+            s.executeUpdate();
+        }
+    }),
     ;
 
     private static final @NotNull Logger LOGGER = LogUtils.getLogger();
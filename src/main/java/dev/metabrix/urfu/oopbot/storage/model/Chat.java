@@ -8,6 +8,7 @@ import org.jetbrains.annotations.Nullable;
  * Чат в боте.
  *
  * @param id внутренний ID чата
+ * @param botId ID бота в Telegram, которому принадлежит чат
  * @param telegramId ID чата в Telegram
  * @param installedAt дата-время начала работы с ботом в чате
  * @param updatedAt дата-время последнего обновления данных чата
@@ -16,6 +17,7 @@ import org.jetbrains.annotations.Nullable;
  */
 public record Chat(
     int id,
+    long botId,
     long telegramId,
     int installedById,
     @NotNull Instant installedAt,
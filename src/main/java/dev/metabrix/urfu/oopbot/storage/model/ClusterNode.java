@@ -0,0 +1,17 @@
+package dev.metabrix.urfu.oopbot.storage.model;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Узел кластера.
+ *
+ * @param id идентификатор узла
+ * @param address адрес, по которому другие узлы пересылают узлу события
+ * @since 1.2.0
+ * @author metabrix
+ */
+public record ClusterNode(
+    @NotNull String id,
+    @NotNull String address
+) {
+}
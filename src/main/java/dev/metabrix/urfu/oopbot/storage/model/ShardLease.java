@@ -0,0 +1,17 @@
+package dev.metabrix.urfu.oopbot.storage.model;
+
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Аренда шарда чатов.
+ *
+ * @param shard номер шарда
+ * @param nodeId идентификатор узла, которому принадлежит шард, или {@code null}, если шард свободен или его аренда истекла
+ * @since 1.2.0
+ * @author metabrix
+ */
+public record ShardLease(
+    int shard,
+    @Nullable String nodeId
+) {
+}
@@ -1,5 +1,6 @@
 package dev.metabrix.urfu.oopbot.storage.model;
 
+import dev.metabrix.urfu.oopbot.util.markdown.MarkdownWriter;
 import java.time.Instant;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -23,8 +24,23 @@ public record User(
     @Nullable Instant updatedAt
 ) {
     public @NotNull String markdownMention() {
-        return this.telegramUsername != null
-            ? "@" + this.telegramUsername
-            : "[<no username>](tg://user?id=" + this.telegramId + ")";
+        MarkdownWriter writer = new MarkdownWriter();
+        this.writeMarkdownMention(writer);
+        return writer.toString();
+    }
+
+    /**
+     * Записывает упоминание пользователя в формате MarkdownV2.
+     *
+     * @param writer буфер
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void writeMarkdownMention(@NotNull MarkdownWriter writer) {
+        if (this.telegramUsername != null) {
+            writer.raw('@').text(this.telegramUsername);
+        } else {
+            writer.raw('[').text("<no username>").raw("](tg://user?id=").text(this.telegramId).raw(')');
+        }
     }
 }
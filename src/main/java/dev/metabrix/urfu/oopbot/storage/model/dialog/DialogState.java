@@ -1,9 +1,9 @@
 package dev.metabrix.urfu.oopbot.storage.model.dialog;
 
 import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
+import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 /**
  * Состояние диалога.
@@ -16,10 +16,11 @@ public interface DialogState {
      * Обрабатывает сообщение для этого состояния диалога.
      *
      * @param interaction взаимодействие с ботом
+     * @return future, которое завершается, когда сообщение полностью обработано
      * @since 1.1.0
      * @author metabrix
      */
-    void handleMessage(@NotNull MessageInteraction interaction) throws TelegramApiException;
+    @NotNull CompletableFuture<Void> handleMessage(@NotNull MessageInteraction interaction);
 
     /**
      * Возвращает тип состояния диалога.
@@ -6,13 +6,13 @@ import dev.metabrix.urfu.oopbot.storage.model.Task;
 import dev.metabrix.urfu.oopbot.storage.model.User;
 import dev.metabrix.urfu.oopbot.util.Emoji;
 import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
 import org.telegram.telegrambots.meta.api.methods.ParseMode;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Message;
 import org.telegram.telegrambots.meta.api.objects.Update;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
 
@@ -37,39 +37,38 @@ public record ReadingNewTaskDescription(
     }
 
     @Override
-    public void handleMessage(@NotNull MessageInteraction interaction) throws TelegramApiException {
-        String taskDescription = interaction.getMessage().getText();
-        if (taskDescription.isBlank() || taskDescription.length() == 1 && NO_DESCRIPTION_CHARS.contains(taskDescription.charAt(0))) {
-            taskDescription = null;
-        }
+    public @NotNull CompletableFuture<Void> handleMessage(@NotNull MessageInteraction interaction) {
+        String text = interaction.getMessage().getText();
+        String taskDescription = text.isBlank() || text.length() == 1 && NO_DESCRIPTION_CHARS.contains(text.charAt(0))
+            ? null
+            : text;
         if (taskDescription != null && taskDescription.length() > Task.DESCRIPTION_MAX_LENGTH) {
-            interaction.execute(SendMessage.builder()
+            return interaction.executeAsync(SendMessage.builder()
                 .chatId(interaction.getTelegramChat().getId())
                 .parseMode(ParseMode.MARKDOWNV2)
                 .text(Emoji.X + " *Описание задачи не может быть длиннее " + Task.DESCRIPTION_MAX_LENGTH + " символов*")
-                .build());
-            return;
+                .build()).thenAccept(ignored -> {});
         }
 
-        User user = interaction.getUser();
-        Chat chat = interaction.getChat();
-
-        interaction.getStorage().dialogStates().delete(user.id(), chat.id());
-        Task task = interaction.getStorage().tasks().create(chat.id(), this.taskName, taskDescription, user.id());
-
-        interaction.execute(SendMessage.builder()
-            .chatId(interaction.getTelegramChat().getId())
-            .parseMode(ParseMode.MARKDOWNV2)
-            .text(Emoji.PARTY_POPPER + " *Задача создана\\!*")
-            .build());
+        return interaction.getStorage().supplyAsync(storage -> {
+            User user = interaction.getUser();
+            Chat chat = interaction.getChat();
 
-        Update update = interaction.getUpdate();
-        Message message = update.getMessage();
-        message.setFrom(interaction.getTelegramUser());
-        message.setChat(interaction.getTelegramChat());
-        message.setText("/tasks show " + task.id());
-        update.setMessage(message);
-        interaction.getApplication().getBot().onUpdateReceived(update);
+            storage.dialogStates().delete(user.id(), chat.id());
+            return storage.tasks().create(chat.id(), this.taskName, taskDescription, user.id());
+        }).thenCompose(task -> interaction.executeAsync(SendMessage.builder()
+                .chatId(interaction.getTelegramChat().getId())
+                .parseMode(ParseMode.MARKDOWNV2)
+                .text(Emoji.PARTY_POPPER + " *Задача создана\\!*")
+                .build()).thenCompose(ignored -> {
+            Update update = interaction.getUpdate();
+            Message message = update.getMessage();
+            message.setFrom(interaction.getTelegramUser());
+            message.setChat(interaction.getTelegramChat());
+            message.setText("/tasks show " + task.id());
+            update.setMessage(message);
+            return interaction.getBot().handleUpdate(update);
+        }));
     }
 
     @Override
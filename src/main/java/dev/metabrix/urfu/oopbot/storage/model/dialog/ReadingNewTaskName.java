@@ -3,45 +3,45 @@ package dev.metabrix.urfu.oopbot.storage.model.dialog;
 import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
 import dev.metabrix.urfu.oopbot.storage.model.Task;
 import dev.metabrix.urfu.oopbot.util.Emoji;
+import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.NotNull;
 import org.json.JSONObject;
 import org.telegram.telegrambots.meta.api.methods.ParseMode;
 import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
-import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 public class ReadingNewTaskName implements DialogState {
     public static final @NotNull ReadingNewTaskName INSTANCE = new ReadingNewTaskName();
 
     @Override
-    public void handleMessage(@NotNull MessageInteraction interaction) throws TelegramApiException {
+    public @NotNull CompletableFuture<Void> handleMessage(@NotNull MessageInteraction interaction) {
         String taskName = interaction.getMessage().getText();
         if (taskName.isBlank()) {
-            interaction.execute(SendMessage.builder()
+            return interaction.executeAsync(SendMessage.builder()
                 .chatId(interaction.getTelegramChat().getId())
                 .text(Emoji.X + " *Название задачи не может быть пустым*")
-                .build());
-            return;
+                .build()).thenAccept(ignored -> {});
         }
         if (taskName.trim().length() > Task.NAME_MAX_LENGTH) {
-            interaction.execute(SendMessage.builder()
+            return interaction.executeAsync(SendMessage.builder()
                 .chatId(interaction.getTelegramChat().getId())
                 .parseMode(ParseMode.MARKDOWNV2)
                 .text(Emoji.X + " *Название задачи не может быть длиннее " + Task.NAME_MAX_LENGTH + " символов*")
-                .build());
-            return;
+                .build()).thenAccept(ignored -> {});
         }
 
-        interaction.getStorage().dialogStates().set(
-            interaction.getUser().id(),
-            interaction.getChat().id(),
-            new ReadingNewTaskDescription(taskName)
-        );
-        interaction.execute(SendMessage.builder()
+        return interaction.getStorage().supplyAsync(storage -> {
+            storage.dialogStates().set(
+                interaction.getUser().id(),
+                interaction.getChat().id(),
+                new ReadingNewTaskDescription(taskName)
+            );
+            return null;
+        }).thenCompose(ignored -> interaction.executeAsync(SendMessage.builder()
             .chatId(interaction.getTelegramChat().getId())
             .parseMode(ParseMode.MARKDOWNV2)
             .text(Emoji.WRITING_HAND + " Хорошо, теперь напишите описание задачи\\. " +
                 "Если описание не нужно, напишите `-` — тогда задача будет создана без него")
-            .build());
+            .build())).thenAccept(sent -> {});
     }
 
     @Override
@@ -0,0 +1,108 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.io.IOException;
+import java.io.Serializable;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import org.apache.http.HttpEntity;
+import org.apache.http.client.config.RequestConfig;
+import org.apache.http.client.methods.CloseableHttpResponse;
+import org.apache.http.client.methods.HttpPost;
+import org.apache.http.entity.ContentType;
+import org.apache.http.entity.StringEntity;
+import org.apache.http.impl.client.CloseableHttpClient;
+import org.apache.http.impl.client.HttpClients;
+import org.apache.http.impl.conn.PoolingHttpClientConnectionManager;
+import org.apache.http.util.EntityUtils;
+import org.jetbrains.annotations.NotNull;
+import org.slf4j.Logger;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * HTTP-клиент Telegram API для {@link OutboundScheduler планировщика}.
+ * <p>
+ * Клиент telegrambots держит не больше двух соединений с Telegram API, и запросы сверх этого ждут свободное
+ * соединение под монитором, занимая поток-носитель виртуальных потоков. У этого клиента свой пул соединений
+ * размером {@link dev.metabrix.urfu.oopbot.BotConfiguration.Outbound#maxConnections()}, поэтому одновременно
+ * отправляемые запросы ограничены только лимитами планировщика.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+final class BotApiClient implements OutboundScheduler.Sender, AutoCloseable {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+    private static final int DEFAULT_TIMEOUT_MILLIS = 75_000;
+    private static final long IDLE_CONNECTION_SECONDS = 70;
+
+    private final @NotNull ObjectMapper objectMapper;
+    private final @NotNull String baseUrl;
+    private final @NotNull RequestConfig requestConfig;
+    private final @NotNull CloseableHttpClient httpClient;
+
+    /**
+     * Создаёт клиент.
+     *
+     * @param objectMapper сериализатор запросов
+     * @param options настройки клиента Telegram API
+     * @param baseUrl адрес Telegram API с токеном бота, к которому дописывается название метода
+     * @param maxConnections максимальное количество соединений с Telegram API
+     * @since 1.2.0
+     * @author metabrix
+     */
+    BotApiClient(@NotNull ObjectMapper objectMapper, @NotNull DefaultBotOptions options, @NotNull String baseUrl, int maxConnections) {
+        checkArgument(maxConnections > 0, "Max connections must be positive");
+        this.objectMapper = objectMapper;
+        this.baseUrl = baseUrl;
+
+        RequestConfig requestConfig = options.getRequestConfig();
+        this.requestConfig = requestConfig != null ? requestConfig : RequestConfig.custom()
+            .setSocketTimeout(DEFAULT_TIMEOUT_MILLIS)
+            .setConnectTimeout(DEFAULT_TIMEOUT_MILLIS)
+            .setConnectionRequestTimeout(DEFAULT_TIMEOUT_MILLIS)
+            .build();
+
+        // все запросы идут на один хост, поэтому весь пул доступен одному маршруту
+        PoolingHttpClientConnectionManager connectionManager = new PoolingHttpClientConnectionManager(IDLE_CONNECTION_SECONDS, TimeUnit.SECONDS);
+        connectionManager.setMaxTotal(maxConnections);
+        connectionManager.setDefaultMaxPerRoute(maxConnections);
+        this.httpClient = HttpClients.custom()
+            .setConnectionManager(connectionManager)
+            .evictIdleConnections(IDLE_CONNECTION_SECONDS, TimeUnit.SECONDS)
+            .useSystemProperties()
+            .build();
+    }
+
+    @Override
+    public <T extends Serializable> T send(@NotNull BotApiMethod<T> method) throws TelegramApiException {
+        method.validate();
+
+        String response;
+        try {
+            HttpPost post = new HttpPost(this.baseUrl + method.getMethod());
+            post.setConfig(this.requestConfig);
+            post.setEntity(new StringEntity(this.objectMapper.writeValueAsString(method), ContentType.APPLICATION_JSON));
+            try (CloseableHttpResponse httpResponse = this.httpClient.execute(post)) {
+                HttpEntity entity = httpResponse.getEntity();
+                response = EntityUtils.toString(entity, StandardCharsets.UTF_8);
+            }
+        } catch (IOException ex) {
+            throw new TelegramApiException("Unable to execute " + method.getMethod() + " method", ex);
+        }
+        return method.deserializeResponse(response);
+    }
+
+    @Override
+    public void close() {
+        try {
+            this.httpClient.close();
+        } catch (IOException ex) {
+            LOGGER.warn("Failed to close Telegram API HTTP client", ex);
+        }
+    }
+}
@@ -0,0 +1,243 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Защита от флуда: ограничение частоты действий каждого пользователя и каждого чата.
+ * <p>
+ * Действия считаются в скользящем окне, которое приближается двумя соседними интервалами длиной в окно:
+ * действия предыдущего интервала учитываются с весом, равным доле окна, которая ещё приходится на него.
+ * Так для пользователя или чата хранятся два счётчика, а не время каждого действия. Отклонённые действия
+ * не учитываются, поэтому пользователь, который продолжает флудить, всё равно проходит с частотой лимита.
+ * <p>
+ * Счётчики хранятся в таблицах с открытой адресацией по идентификатору, без упаковки чисел в объекты.
+ * Каждая запись помечена поколением таблицы, поэтому при переходе к следующему интервалу таблица
+ * не очищается: записи старого поколения просто считаются пустыми.
+ * <p>
+ * Если за интервал действия совершили больше разных пользователей или чатов, чем
+ * {@link BotConfiguration.Throttle#maxTracked()}, действия новых пользователей и чатов не ограничиваются.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class FloodLimiter {
+    private final long windowNanos;
+    private final int userLimit;
+    private final int chatLimit;
+    private final @NotNull Counters users;
+    private final @NotNull Counters chats;
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+
+    private final @NotNull LongAdder allowedActions = new LongAdder();
+    private final @NotNull LongAdder userThrottledActions = new LongAdder();
+    private final @NotNull LongAdder chatThrottledActions = new LongAdder();
+    private final @NotNull LongAdder untrackedActions = new LongAdder();
+
+    /**
+     * Создаёт ограничитель.
+     *
+     * @param configuration лимиты
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public FloodLimiter(@NotNull BotConfiguration.Throttle configuration) {
+        this.windowNanos = configuration.window().toNanos();
+        this.userLimit = configuration.userLimit();
+        this.chatLimit = configuration.chatLimit();
+        this.users = new Counters(configuration.maxTracked());
+        this.chats = new Counters(configuration.maxTracked());
+    }
+
+    /**
+     * Учитывает действие пользователя в чате, если оно укладывается в лимиты.
+     *
+     * @param userId ID пользователя в Telegram
+     * @param chatId ID чата в Telegram
+     * @return {@code true}, если действие можно выполнить, или {@code false}, если лимит пользователя или чата исчерпан
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public boolean tryAcquire(long userId, long chatId) {
+        return this.tryAcquire(userId, chatId, System.nanoTime());
+    }
+
+    boolean tryAcquire(long userId, long chatId, long nowNanos) {
+        long interval = Math.floorDiv(nowNanos, this.windowNanos);
+        double previousWeight = 1 - (double) Math.floorMod(nowNanos, this.windowNanos) / this.windowNanos;
+
+        this.lock.lock();
+        try {
+            this.users.advanceTo(interval);
+            this.chats.advanceTo(interval);
+
+            if (this.users.estimate(userId, previousWeight) >= this.userLimit) {
+                this.userThrottledActions.increment();
+                return false;
+            }
+            if (this.chats.estimate(chatId, previousWeight) >= this.chatLimit) {
+                this.chatThrottledActions.increment();
+                return false;
+            }
+
+            boolean tracked = this.users.increment(userId);
+            tracked &= this.chats.increment(chatId);
+            if (!tracked) this.untrackedActions.increment();
+            this.allowedActions.increment();
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество разрешённых действий.
+     *
+     * @return количество действий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getAllowedActions() {
+        return this.allowedActions.sum();
+    }
+
+    /**
+     * Возвращает количество действий, отклонённых из-за лимита пользователя.
+     *
+     * @return количество действий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getUserThrottledActions() {
+        return this.userThrottledActions.sum();
+    }
+
+    /**
+     * Возвращает количество действий, отклонённых из-за лимита чата.
+     *
+     * @return количество действий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getChatThrottledActions() {
+        return this.chatThrottledActions.sum();
+    }
+
+    /**
+     * Возвращает количество разрешённых действий, которые не удалось учесть, потому что таблица
+     * пользователей или чатов заполнена.
+     *
+     * @return количество действий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getUntrackedActions() {
+        return this.untrackedActions.sum();
+    }
+
+    /**
+     * Счётчики действий текущего и предыдущего интервала.
+     */
+    private static final class Counters {
+        private @NotNull Table current;
+        private @NotNull Table previous;
+        private long interval = Long.MIN_VALUE;
+
+        private Counters(int maxTracked) {
+            this.current = new Table(maxTracked);
+            this.previous = new Table(maxTracked);
+        }
+
+        private void advanceTo(long interval) {
+            // System.nanoTime() монотонно, но время могло быть взято до того, как другой поток продвинул интервал
+            if (interval <= this.interval) return;
+
+            Table expired = this.previous;
+            if (interval == this.interval + 1) {
+                this.previous = this.current;
+            } else {
+                this.current.clear();
+                this.previous = this.current;
+            }
+            this.current = expired;
+            this.current.clear();
+            this.interval = interval;
+        }
+
+        private double estimate(long key, double previousWeight) {
+            return this.current.get(key) + this.previous.get(key) * previousWeight;
+        }
+
+        private boolean increment(long key) {
+            return this.current.increment(key);
+        }
+    }
+
+    /**
+     * Таблица счётчиков с открытой адресацией и линейным пробированием, заполненная не больше чем наполовину.
+     */
+    private static final class Table {
+        private final long @NotNull [] keys;
+        private final int @NotNull [] counts;
+        private final int @NotNull [] generations;
+        private final int maxSize;
+        private final int shift;
+
+        // поколение 0 у пустых ячеек нового массива, поэтому поколения таблицы начинаются с 1
+        private int generation = 1;
+        private int size = 0;
+
+        private Table(int maxSize) {
+            int capacity = Integer.highestOneBit(maxSize * 2 - 1) << 1;
+            this.keys = new long[capacity];
+            this.counts = new int[capacity];
+            this.generations = new int[capacity];
+            this.maxSize = maxSize;
+            this.shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        }
+
+        private void clear() {
+            this.generation++;
+            this.size = 0;
+        }
+
+        private int get(long key) {
+            int slot = this.find(key);
+            return slot >= 0 ? this.counts[slot] : 0;
+        }
+
+        private boolean increment(long key) {
+            int slot = this.find(key);
+            if (slot >= 0) {
+                this.counts[slot]++;
+                return true;
+            }
+            if (this.size >= this.maxSize) return false;
+
+            slot = ~slot;
+            this.keys[slot] = key;
+            this.counts[slot] = 1;
+            this.generations[slot] = this.generation;
+            this.size++;
+            return true;
+        }
+
+        /**
+         * Ищет ячейку ключа.
+         *
+         * @return номер ячейки или, если ключа нет, {@code ~}номер пустой ячейки, в которую его можно записать
+         */
+        private int find(long key) {
+            int mask = this.keys.length - 1;
+            // хеширование Фибоначчи: идентификаторы Telegram идут подряд, а старшие биты произведения перемешаны
+            int slot = (int) ((key * 0x9E3779B97F4A7C15L) >>> this.shift);
+            while (this.generations[slot] == this.generation) {
+                if (this.keys[slot] == key) return slot;
+                slot = (slot + 1) & mask;
+            }
+            return ~slot;
+        }
+    }
+}
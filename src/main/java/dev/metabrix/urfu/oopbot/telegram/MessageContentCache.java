@@ -0,0 +1,185 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Содержимое последних сообщений, отправленных или изменённых ботом.
+ * <p>
+ * Нужно, чтобы не отправлять в Telegram правки, которые ничего не меняют, и менять только кнопки,
+ * если текст сообщения остался прежним. Хранит ограниченное количество сообщений, давно не
+ * использованные вытесняются. Про вытесненные и неизвестные сообщения считается, что изменилось всё.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+final class MessageContentCache {
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+    private final @NotNull Map<@NotNull Key, @NotNull Content> entries;
+
+    /**
+     * Создаёт пустой кэш.
+     *
+     * @param capacity максимальное количество сообщений в кэше
+     * @since 1.2.0
+     * @author metabrix
+     */
+    MessageContentCache(int capacity) {
+        checkArgument(capacity > 0, "Capacity must be positive");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Content> eldest) {
+                return this.size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Сравнивает новое содержимое сообщения с известным.
+     *
+     * @param chatId идентификатор чата
+     * @param messageId идентификатор сообщения
+     * @param content новое содержимое
+     * @return что изменилось в сообщении
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull Change compare(@NotNull String chatId, int messageId, @NotNull Content content) {
+        Content known;
+        this.lock.lock();
+        try {
+            known = this.entries.get(new Key(chatId, messageId));
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (known == null || !known.hasSameText(content)) return Change.TEXT;
+        if (!Objects.equals(known.replyMarkup(), content.replyMarkup())) return Change.REPLY_MARKUP;
+        return Change.NONE;
+    }
+
+    /**
+     * Сравнивает новые кнопки сообщения с известными.
+     *
+     * @param chatId идентификатор чата
+     * @param messageId идентификатор сообщения
+     * @param replyMarkup новые кнопки
+     * @return {@link Change#NONE}, если кнопки не изменились, иначе {@link Change#REPLY_MARKUP}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull Change compareReplyMarkup(@NotNull String chatId, int messageId, @Nullable InlineKeyboardMarkup replyMarkup) {
+        Content known;
+        this.lock.lock();
+        try {
+            known = this.entries.get(new Key(chatId, messageId));
+        } finally {
+            this.lock.unlock();
+        }
+
+        if (known == null || !Objects.equals(known.replyMarkup(), replyMarkup)) return Change.REPLY_MARKUP;
+        return Change.NONE;
+    }
+
+    /**
+     * Запоминает содержимое сообщения.
+     *
+     * @param chatId идентификатор чата
+     * @param messageId идентификатор сообщения
+     * @param content содержимое сообщения
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void put(@NotNull String chatId, int messageId, @NotNull Content content) {
+        this.lock.lock();
+        try {
+            this.entries.put(new Key(chatId, messageId), content);
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Заменяет кнопки известного сообщения. Если сообщение неизвестно, ничего не делает.
+     *
+     * @param chatId идентификатор чата
+     * @param messageId идентификатор сообщения
+     * @param replyMarkup новые кнопки
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void putReplyMarkup(@NotNull String chatId, int messageId, @Nullable InlineKeyboardMarkup replyMarkup) {
+        this.lock.lock();
+        try {
+            this.entries.computeIfPresent(
+                new Key(chatId, messageId),
+                (key, content) -> new Content(content.text(), content.parseMode(), replyMarkup)
+            );
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Забывает сообщение, например, если оно было удалено или его содержимое неизвестно.
+     *
+     * @param chatId идентификатор чата
+     * @param messageId идентификатор сообщения
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void remove(@NotNull String chatId, int messageId) {
+        this.lock.lock();
+        try {
+            this.entries.remove(new Key(chatId, messageId));
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Изменение содержимого сообщения.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    enum Change {
+        /**
+         * Содержимое не изменилось.
+         */
+        NONE,
+        /**
+         * Изменились только кнопки.
+         */
+        REPLY_MARKUP,
+        /**
+         * Изменился текст или содержимое сообщения неизвестно.
+         */
+        TEXT,
+    }
+
+    private record Key(@NotNull String chatId, int messageId) {
+    }
+
+    /**
+     * Содержимое сообщения.
+     *
+     * @param text исходный текст сообщения
+     * @param parseMode режим разметки текста
+     * @param replyMarkup кнопки под сообщением
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record Content(@NotNull String text, @Nullable String parseMode, @Nullable InlineKeyboardMarkup replyMarkup) {
+        private boolean hasSameText(@NotNull Content other) {
+            return this.text.equals(other.text) && Objects.equals(this.parseMode, other.parseMode);
+        }
+    }
+}
@@ -2,6 +2,7 @@ package dev.metabrix.urfu.oopbot.telegram;
 
 import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
 import dev.metabrix.urfu.oopbot.storage.ChatStorage;
+import dev.metabrix.urfu.oopbot.storage.DialogStateStorage;
 import dev.metabrix.urfu.oopbot.storage.UserStorage;
 import dev.metabrix.urfu.oopbot.storage.model.Chat;
 import dev.metabrix.urfu.oopbot.storage.model.User;
@@ -167,12 +168,12 @@ public final class MessageUpdateContext {
         org.telegram.telegrambots.meta.api.objects.Chat telegramChat = this.interaction.getTelegramChat();
         ChatStorage chats = this.interaction.getStorage().chats();
         try {
-            chat = chats.create(telegramChat.getId(), this.createOrUpdateUser().id());
+            chat = chats.create(this.interaction.getBot().getBotId(), telegramChat.getId(), this.createOrUpdateUser().id());
             this.cachedChat = chat;
             return chat;
         } catch (DuplicateObjectException ex) {
             // got a race condition: the chat was created on our way here
-            chat = chats.getByTelegramId(telegramChat.getId());
+            chat = chats.getByTelegramId(this.interaction.getBot().getBotId(), telegramChat.getId());
             if (chat != null) {
                 this.cachedChat = chat;
                 return chat;
@@ -196,13 +197,19 @@ public final class MessageUpdateContext {
     public @Nullable DialogState getDialogState() {
         if (this.cachedDialogState != null) return this.cachedDialogState;
 
+        // обычные сообщения в группах почти никогда не продолжают диалог, поэтому сначала проверяем без запросов к базе
+        DialogStateStorage dialogStates = this.interaction.getStorage().dialogStates();
+        if (!dialogStates.mightExist(this.interaction.getTelegramUser().getId(), this.interaction.getTelegramChat().getId())) {
+            return null;
+        }
+
         User user = this.getAndUpdateUserIfExists();
         if (user == null) return null;
 
         Chat chat = this.getChatIfExists();
         if (chat == null) return null;
 
-        DialogState dialogState = this.interaction.getStorage().dialogStates().get(user.id(), chat.id());
+        DialogState dialogState = dialogStates.get(user.id(), chat.id());
         this.cachedDialogState = dialogState;
         return dialogState;
     }
@@ -0,0 +1,654 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.CopyMessage;
+import org.telegram.telegrambots.meta.api.methods.ForwardMessage;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.DeleteMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageReplyMarkup;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+/**
+ * Планировщик исходящих запросов в Telegram API с учётом лимитов Telegram.
+ * <p>
+ * Запросы, относящиеся к чату, ставятся в очередь этого чата и отправляются строго по одному и по порядку.
+ * Сообщения и их правки дополнительно ограничены общей корзиной токенов на весь бот и корзиной
+ * токенов каждого чата: в личные чаты — {@link BotConfiguration.Outbound#chatPerSecond()} в секунду,
+ * в группы и каналы — {@link BotConfiguration.Outbound#groupPerMinute()} в минуту. Если Telegram всё же
+ * ответил ошибкой 429, запрос возвращается в начало очереди чата, и чат не получает запросов
+ * в течение указанного в ответе <code>retry_after</code>.
+ * <p>
+ * Запросы без чата, например ответы на нажатия кнопок, не ограничиваются и отправляются сразу.
+ * <p>
+ * Планировщик помнит содержимое последних отправленных и изменённых сообщений. Правка, которая ничего
+ * не меняет, не отправляется в Telegram вовсе, а правка текста, при которой текст не изменился,
+ * заменяется правкой только кнопок.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class OutboundScheduler implements AutoCloseable {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+    private static final int BAD_REQUEST = 400;
+    private static final int TOO_MANY_REQUESTS = 429;
+    private static final @NotNull String MESSAGE_NOT_MODIFIED = "message is not modified";
+    private static final int MESSAGE_CONTENT_CACHE_CAPACITY = 4096;
+
+    private final @NotNull Sender sender;
+    private final @NotNull BotConfiguration.Outbound configuration;
+
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+    private final @NotNull Condition changed = this.lock.newCondition();
+    private final @NotNull Map<@NotNull String, @NotNull ChatQueue> chats = new HashMap<>();
+    private final @NotNull PriorityQueue<@NotNull ChatQueue> readyChats = new PriorityQueue<>(
+        Comparator.comparingLong(chat -> chat.readyAtNanos)
+    );
+    // неактивные чаты, которые можно забыть, когда их корзины наполнятся
+    private final @NotNull PriorityQueue<@NotNull IdleChat> idleChats = new PriorityQueue<>(
+        Comparator.comparingLong(IdleChat::evictAtNanos)
+    );
+    private final @NotNull TokenBucket globalBucket;
+    private final @NotNull ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final @NotNull Thread dispatcher;
+    private final @NotNull MessageContentCache messageContents = new MessageContentCache(MESSAGE_CONTENT_CACHE_CAPACITY);
+
+    private final @NotNull LongAdder sentRequests = new LongAdder();
+    private final @NotNull LongAdder skippedRequests = new LongAdder();
+    private final @NotNull LongAdder rateLimitedRequests = new LongAdder();
+    private final @NotNull LongAdder failedRequests = new LongAdder();
+
+    private int queuedRequests = 0;
+    private int inFlightChats = 0;
+    private boolean closed = false;
+    private volatile boolean abandoned = false;
+
+    /**
+     * Создаёт и запускает планировщик.
+     *
+     * @param sender отправитель запросов в Telegram API
+     * @param configuration лимиты отправки
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public OutboundScheduler(@NotNull Sender sender, @NotNull BotConfiguration.Outbound configuration) {
+        this.sender = sender;
+        this.configuration = configuration;
+        this.globalBucket = new TokenBucket(configuration.globalPerSecond(), configuration.globalPerSecond(), System.nanoTime());
+
+        this.dispatcher = new Thread(this::dispatch, "Outbound Scheduler");
+        this.dispatcher.setDaemon(true);
+        this.dispatcher.start();
+    }
+
+    /**
+     * Ставит запрос в очередь на отправку.
+     *
+     * @param method запрос
+     * @param <T> тип ответа
+     * @return будущий ответ; завершается с {@link TelegramApiException}, если запрос не удалось отправить
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public <T extends Serializable> @NotNull CompletableFuture<T> submit(@NotNull BotApiMethod<T> method) {
+        Request<T> request = new Request<>(method);
+        String chatId = chatIdOf(method);
+
+        this.lock.lock();
+        try {
+            if (this.closed) {
+                request.future.completeExceptionally(new TelegramApiException("Outbound scheduler is closed"));
+                return request.future;
+            }
+            if (chatId == null) {
+                this.senders.execute(() -> this.sendUnordered(request));
+                return request.future;
+            }
+
+            ChatQueue chat = this.chats.computeIfAbsent(chatId, this::createChatQueue);
+            chat.requests.addLast(request);
+            this.queuedRequests++;
+            if (!chat.inFlight && !chat.scheduled) this.schedule(chat, System.nanoTime());
+        } finally {
+            this.lock.unlock();
+        }
+        return request.future;
+    }
+
+    /**
+     * Возвращает количество запросов, ожидающих отправки.
+     *
+     * @return количество запросов в очередях чатов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getQueuedRequests() {
+        this.lock.lock();
+        try {
+            return this.queuedRequests;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество чатов, для которых планировщик хранит очередь и корзину токенов.
+     *
+     * @return количество отслеживаемых чатов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getTrackedChats() {
+        this.lock.lock();
+        try {
+            return this.chats.size();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество успешно отправленных запросов.
+     *
+     * @return количество отправленных запросов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getSentRequests() {
+        return this.sentRequests.sum();
+    }
+
+    /**
+     * Возвращает количество правок сообщений, которые не были отправлены, потому что ничего не меняли.
+     *
+     * @return количество пропущенных правок
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getSkippedRequests() {
+        return this.skippedRequests.sum();
+    }
+
+    /**
+     * Возвращает количество ответов 429, полученных от Telegram.
+     *
+     * @return количество ответов 429
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getRateLimitedRequests() {
+        return this.rateLimitedRequests.sum();
+    }
+
+    /**
+     * Возвращает количество запросов, завершившихся ошибкой.
+     *
+     * @return количество неудачных запросов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getFailedRequests() {
+        return this.failedRequests.sum();
+    }
+
+    /**
+     * Перестаёт принимать новые запросы и дожидается отправки уже поставленных в очередь.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    public void close() {
+        this.lock.lock();
+        try {
+            if (this.closed) return;
+            this.closed = true;
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+
+        try {
+            this.dispatcher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.senders.close();
+    }
+
+    /**
+     * Перестаёт принимать новые запросы и ждёт отправки уже поставленных в очередь, но не дольше
+     * указанного времени. Запросы, которые не успели отправить, завершаются с ошибкой, а уже
+     * отправляемые дожидаются ответа Telegram без повторов.
+     *
+     * @param timeout сколько ждать отправки запросов
+     * @return количество запросов, которые так и не были отправлены
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int close(@NotNull Duration timeout) {
+        this.lock.lock();
+        try {
+            if (this.closed) return 0;
+            this.closed = true;
+            this.changed.signalAll();
+        } finally {
+            this.lock.unlock();
+        }
+
+        int dropped = 0;
+        try {
+            if (!this.dispatcher.join(timeout)) dropped = this.abandonQueuedRequests();
+            this.dispatcher.join();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+        this.senders.close();
+        return dropped;
+    }
+
+    private int abandonQueuedRequests() {
+        this.lock.lock();
+        try {
+            this.abandoned = true;
+            int dropped = this.queuedRequests;
+            TelegramApiException exception = new TelegramApiException("Outbound scheduler is closed");
+            for (ChatQueue chat : this.chats.values()) {
+                for (Request<?> request : chat.requests) {
+                    this.fail(request, exception);
+                }
+                chat.requests.clear();
+                chat.scheduled = false;
+            }
+            this.readyChats.clear();
+            this.queuedRequests = 0;
+            this.changed.signalAll();
+            return dropped;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private @NotNull ChatQueue createChatQueue(@NotNull String chatId) {
+        long now = System.nanoTime();
+        // у групп и каналов отрицательные идентификаторы, у публичных можно указать @username
+        boolean group = chatId.startsWith("-") || chatId.startsWith("@");
+        TokenBucket bucket = group
+            ? new TokenBucket(this.configuration.groupPerMinute() / TimeUnit.MINUTES.toSeconds(1), this.configuration.chatBurst(), now)
+            : new TokenBucket(this.configuration.chatPerSecond(), this.configuration.chatBurst(), now);
+        return new ChatQueue(chatId, bucket);
+    }
+
+    private void schedule(@NotNull ChatQueue chat, long nowNanos) {
+        Request<?> next = chat.requests.peekFirst();
+        assert next != null : "Only chats with queued requests can be scheduled";
+        // предыдущий запрос чата уже выполнен, поэтому известное содержимое сообщений актуально
+        this.prepare(next);
+
+        long readyAtNanos = Math.max(nowNanos, chat.blockedUntilNanos);
+        if (isRateLimited(next)) readyAtNanos = Math.max(readyAtNanos, nowNanos + chat.bucket.nanosUntilAvailable(nowNanos));
+        chat.readyAtNanos = readyAtNanos;
+        chat.scheduled = true;
+        this.readyChats.add(chat);
+        this.changed.signal();
+    }
+
+    private void dispatch() {
+        this.lock.lock();
+        try {
+            while (!this.closed || this.queuedRequests > 0 || this.inFlightChats > 0) {
+                long now = System.nanoTime();
+                this.evictIdleChats(now);
+                // запрос сверх пула соединений ждал бы соединение под монитором, занимая поток-носитель,
+                // поэтому следующий чат выбирается, только когда освободится соединение
+                ChatQueue chat = this.inFlightChats < this.configuration.maxConnections() ? this.readyChats.peek() : null;
+                if (chat == null) {
+                    IdleChat nextIdle = this.idleChats.peek();
+                    if (nextIdle == null) {
+                        this.changed.awaitUninterruptibly();
+                    } else {
+                        this.changed.awaitNanos(nextIdle.evictAtNanos() - now);
+                    }
+                    continue;
+                }
+
+                Request<?> request = chat.requests.peekFirst();
+                assert request != null : "Scheduled chat must have queued requests";
+                boolean rateLimited = isRateLimited(request);
+
+                long waitNanos = chat.readyAtNanos - now;
+                if (rateLimited) waitNanos = Math.max(waitNanos, this.globalBucket.nanosUntilAvailable(now));
+                if (waitNanos > 0) {
+                    // ждём, пока не подойдёт время, или пока не появится чат, готовый раньше
+                    IdleChat nextIdle = this.idleChats.peek();
+                    if (nextIdle != null) waitNanos = Math.min(waitNanos, nextIdle.evictAtNanos() - now);
+                    this.changed.awaitNanos(waitNanos);
+                    continue;
+                }
+
+                this.readyChats.poll();
+                chat.scheduled = false;
+                if (rateLimited) {
+                    chat.bucket.consume(now);
+                    this.globalBucket.consume(now);
+                }
+                chat.requests.pollFirst();
+                chat.inFlight = true;
+                this.queuedRequests--;
+                this.inFlightChats++;
+                this.senders.execute(() -> this.send(chat, request));
+            }
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private <T extends Serializable> void send(@NotNull ChatQueue chat, @NotNull Request<T> request) {
+        long retryAfterNanos = -1;
+        try {
+            if (request.unchanged) {
+                this.skippedRequests.increment();
+                request.complete(Boolean.TRUE);
+            } else {
+                Serializable result = this.sender.send(request.effectiveMethod);
+                this.remember(request.effectiveMethod, result);
+                this.sentRequests.increment();
+                request.complete(result);
+            }
+        } catch (TelegramApiException ex) {
+            if (isMessageNotModified(ex)) {
+                // содержимое сообщения совпало с уже известным Telegram, это не ошибка
+                this.remember(request.effectiveMethod, null);
+                this.skippedRequests.increment();
+                request.complete(Boolean.TRUE);
+            } else {
+                retryAfterNanos = this.retryAfterNanos(request, ex);
+                if (retryAfterNanos < 0) {
+                    this.forget(request.effectiveMethod);
+                    this.fail(request, ex);
+                }
+            }
+        } catch (RuntimeException ex) {
+            this.forget(request.effectiveMethod);
+            this.fail(request, ex);
+        }
+
+        this.lock.lock();
+        try {
+            long now = System.nanoTime();
+            chat.inFlight = false;
+            this.inFlightChats--;
+            if (retryAfterNanos >= 0 && this.abandoned) {
+                this.fail(request, new TelegramApiException("Outbound scheduler is closed"));
+            } else if (retryAfterNanos >= 0) {
+                chat.requests.addFirst(request);
+                chat.blockedUntilNanos = now + retryAfterNanos;
+                this.queuedRequests++;
+            }
+
+            if (!chat.requests.isEmpty()) {
+                this.schedule(chat, now);
+            } else {
+                // полная корзина ничем не отличается от новой, поэтому неактивный чат можно забыть,
+                // когда корзина наполнится и закончится ожидание после ошибки 429
+                chat.evictAtNanos = Math.max(chat.blockedUntilNanos, now + chat.bucket.nanosUntilFull(now));
+                this.idleChats.add(new IdleChat(chat, chat.evictAtNanos));
+            }
+            this.changed.signal();
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    private void evictIdleChats(long nowNanos) {
+        IdleChat idle;
+        while ((idle = this.idleChats.peek()) != null && idle.evictAtNanos() - nowNanos <= 0) {
+            this.idleChats.poll();
+            ChatQueue chat = idle.chat();
+            // чат мог снова получить запросы и стать неактивным позже, тогда в очереди есть запись новее
+            boolean stillIdle = chat.requests.isEmpty() && !chat.inFlight && !chat.scheduled && chat.evictAtNanos == idle.evictAtNanos();
+            if (stillIdle) this.chats.remove(chat.chatId, chat);
+        }
+    }
+
+    private <T extends Serializable> void sendUnordered(@NotNull Request<T> request) {
+        while (true) {
+            try {
+                T result = this.sender.send(request.method);
+                this.sentRequests.increment();
+                request.future.complete(result);
+                return;
+            } catch (TelegramApiException ex) {
+                long retryAfterNanos = this.retryAfterNanos(request, ex);
+                if (retryAfterNanos < 0 || this.abandoned) {
+                    this.fail(request, ex);
+                    return;
+                }
+                try {
+                    TimeUnit.NANOSECONDS.sleep(retryAfterNanos);
+                } catch (InterruptedException interrupted) {
+                    this.fail(request, ex);
+                    return;
+                }
+            } catch (RuntimeException ex) {
+                this.fail(request, ex);
+                return;
+            }
+        }
+    }
+
+    /**
+     * Проверяет, нужно ли повторить запрос, и считает, через сколько.
+     *
+     * @return время до повтора или {@code -1}, если запрос повторять не нужно
+     */
+    private long retryAfterNanos(@NotNull Request<?> request, @NotNull TelegramApiException ex) {
+        if (!(ex instanceof TelegramApiRequestException requestException)) return -1;
+        Integer errorCode = requestException.getErrorCode();
+        if (errorCode == null || errorCode != TOO_MANY_REQUESTS) return -1;
+
+        this.rateLimitedRequests.increment();
+        if (request.attempts++ >= this.configuration.maxRetries()) return -1;
+
+        Integer retryAfter = requestException.getParameters() != null ? requestException.getParameters().getRetryAfter() : null;
+        long retryAfterSeconds = retryAfter != null && retryAfter > 0 ? retryAfter : 1;
+        LOGGER.warn("Telegram API rate limit hit on {}, retrying in {}s", request.method.getMethod(), retryAfterSeconds);
+        return TimeUnit.SECONDS.toNanos(retryAfterSeconds);
+    }
+
+    /**
+     * Проверяет, изменяет ли запрос что-нибудь, и, если изменяются только кнопки сообщения,
+     * заменяет правку текста правкой кнопок. Вызывается, когда предыдущий запрос чата уже выполнен.
+     */
+    private void prepare(@NotNull Request<?> request) {
+        if (request.prepared) return;
+        request.prepared = true;
+
+        switch (request.method) {
+            case EditMessageText edit when edit.getChatId() != null && edit.getMessageId() != null -> {
+                MessageContentCache.Change change = this.messageContents.compare(
+                    edit.getChatId(), edit.getMessageId(), contentOf(edit)
+                );
+                switch (change) {
+                    case NONE -> request.unchanged = true;
+                    case REPLY_MARKUP -> request.effectiveMethod = EditMessageReplyMarkup.builder()
+                        .chatId(edit.getChatId())
+                        .messageId(edit.getMessageId())
+                        .replyMarkup(edit.getReplyMarkup())
+                        .build();
+                    case TEXT -> {
+                    }
+                }
+            }
+            case EditMessageReplyMarkup edit when edit.getChatId() != null && edit.getMessageId() != null -> {
+                MessageContentCache.Change change = this.messageContents.compareReplyMarkup(
+                    edit.getChatId(), edit.getMessageId(), edit.getReplyMarkup()
+                );
+                request.unchanged = change == MessageContentCache.Change.NONE;
+            }
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Запоминает содержимое сообщения после успешного запроса.
+     */
+    private void remember(@NotNull BotApiMethod<?> method, @Nullable Serializable result) {
+        switch (method) {
+            case SendMessage send when result instanceof Message message -> this.messageContents.put(
+                send.getChatId(),
+                message.getMessageId(),
+                new MessageContentCache.Content(
+                    send.getText(),
+                    send.getParseMode(),
+                    send.getReplyMarkup() instanceof InlineKeyboardMarkup replyMarkup ? replyMarkup : null
+                )
+            );
+            case EditMessageText edit when edit.getChatId() != null && edit.getMessageId() != null ->
+                this.messageContents.put(edit.getChatId(), edit.getMessageId(), contentOf(edit));
+            case EditMessageReplyMarkup edit when edit.getChatId() != null && edit.getMessageId() != null ->
+                this.messageContents.putReplyMarkup(edit.getChatId(), edit.getMessageId(), edit.getReplyMarkup());
+            case DeleteMessage delete -> this.messageContents.remove(delete.getChatId(), delete.getMessageId());
+            default -> {
+            }
+        }
+    }
+
+    /**
+     * Забывает содержимое сообщения после неудачной правки, так как неизвестно, что с ним стало.
+     */
+    private void forget(@NotNull BotApiMethod<?> method) {
+        switch (method) {
+            case EditMessageText edit when edit.getChatId() != null && edit.getMessageId() != null ->
+                this.messageContents.remove(edit.getChatId(), edit.getMessageId());
+            case EditMessageReplyMarkup edit when edit.getChatId() != null && edit.getMessageId() != null ->
+                this.messageContents.remove(edit.getChatId(), edit.getMessageId());
+            default -> {
+            }
+        }
+    }
+
+    private void fail(@NotNull Request<?> request, @NotNull Throwable throwable) {
+        this.failedRequests.increment();
+        request.future.completeExceptionally(throwable);
+    }
+
+    private static @Nullable String chatIdOf(@NotNull BotApiMethod<?> method) {
+        return switch (method) {
+            case SendMessage sendMessage -> sendMessage.getChatId();
+            case EditMessageText editMessageText -> editMessageText.getChatId();
+            case EditMessageReplyMarkup editMessageReplyMarkup -> editMessageReplyMarkup.getChatId();
+            case DeleteMessage deleteMessage -> deleteMessage.getChatId();
+            case ForwardMessage forwardMessage -> forwardMessage.getChatId();
+            case CopyMessage copyMessage -> copyMessage.getChatId();
+            default -> null;
+        };
+    }
+
+    private static boolean isRateLimited(@NotNull Request<?> request) {
+        // пропускаемые правки в Telegram не отправляются, поэтому лимит не расходуют
+        if (request.unchanged) return false;
+        // удаление сообщений идёт через очередь чата ради порядка, но в лимит сообщений не входит
+        return !(request.effectiveMethod instanceof DeleteMessage);
+    }
+
+    private static boolean isMessageNotModified(@NotNull TelegramApiException ex) {
+        if (!(ex instanceof TelegramApiRequestException requestException)) return false;
+        Integer errorCode = requestException.getErrorCode();
+        String description = requestException.getApiResponse();
+        return errorCode != null && errorCode == BAD_REQUEST && description != null && description.contains(MESSAGE_NOT_MODIFIED);
+    }
+
+    private static @NotNull MessageContentCache.Content contentOf(@NotNull EditMessageText edit) {
+        return new MessageContentCache.Content(edit.getText(), edit.getParseMode(), edit.getReplyMarkup());
+    }
+
+    /**
+     * Отправитель запросов в Telegram API в обход планировщика.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public interface Sender {
+        /**
+         * Синхронно отправляет запрос в Telegram API.
+         *
+         * @param method запрос
+         * @param <T> тип ответа
+         * @return ответ
+         * @throws TelegramApiException в случае ошибки Telegram API
+         * @since 1.2.0
+         * @author metabrix
+         */
+        <T extends Serializable> T send(@NotNull BotApiMethod<T> method) throws TelegramApiException;
+    }
+
+    private static final class Request<T extends Serializable> {
+        private final @NotNull BotApiMethod<T> method;
+        private final @NotNull CompletableFuture<T> future = new CompletableFuture<>();
+        private int attempts = 0;
+
+        /**
+         * Запрос, который будет отправлен вместо исходного, например, правка только кнопок вместо правки текста.
+         */
+        private @NotNull BotApiMethod<?> effectiveMethod;
+        private boolean prepared = false;
+        private boolean unchanged = false;
+
+        private Request(@NotNull BotApiMethod<T> method) {
+            this.method = method;
+            this.effectiveMethod = method;
+        }
+
+        @SuppressWarnings("unchecked")
+        private void complete(@Nullable Serializable result) {
+            // подменяются только правки сообщений, а их ответ и так либо сообщение, либо true
+            this.future.complete((T) result);
+        }
+    }
+
+    private static final class ChatQueue {
+        private final @NotNull String chatId;
+        private final @NotNull TokenBucket bucket;
+        private final @NotNull ArrayDeque<@NotNull Request<?>> requests = new ArrayDeque<>();
+
+        private boolean inFlight = false;
+        private boolean scheduled = false;
+        private long readyAtNanos;
+        private long blockedUntilNanos = Long.MIN_VALUE;
+        private long evictAtNanos;
+
+        private ChatQueue(@NotNull String chatId, @NotNull TokenBucket bucket) {
+            this.chatId = chatId;
+            this.bucket = bucket;
+        }
+    }
+
+    private record IdleChat(@NotNull ChatQueue chat, long evictAtNanos) {
+    }
+}
@@ -0,0 +1,293 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+import static dev.metabrix.urfu.oopbot.util.Checks.checkState;
+
+/**
+ * Исполнитель обработчиков событий, распределяющий события по шардам по ключу упорядочивания.
+ * <p>
+ * У каждого шарда своя очередь и свой поток. События с одинаковым ключом всегда попадают в один
+ * шард и обрабатываются строго в порядке поступления, а события разных чатов обрабатываются
+ * параллельно.
+ * <p>
+ * Поток шарда не ждёт асинхронные задачи: пока задача чата не завершилась, следующие задачи этого
+ * чата откладываются, а поток выполняет задачи других чатов. Когда задача завершается, в очередь
+ * шарда добавляется отметка, по которой поток продолжает отложенные задачи чата.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class ShardedUpdateExecutor implements UpdateExecutor {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+
+    private final @NotNull Shard @NotNull [] shards;
+    // проверка closed и добавление в очередь идут под блокировкой чтения, чтобы задача не попала в очередь после POISON
+    private final @NotNull ReadWriteLock stateLock = new ReentrantReadWriteLock();
+    private boolean closed = false;
+
+    /**
+     * Создаёт исполнитель и запускает потоки шардов.
+     *
+     * @param shardCount количество шардов (потоков)
+     * @throws IllegalArgumentException если количество шардов не положительное
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public ShardedUpdateExecutor(int shardCount) {
+        checkArgument(shardCount > 0, "Shard count must be positive");
+
+        this.shards = new Shard[shardCount];
+        for (int i = 0; i < shardCount; i++) {
+            this.shards[i] = new Shard(i);
+        }
+        for (Shard shard : this.shards) {
+            shard.thread.start();
+        }
+    }
+
+    /**
+     * Ставит асинхронную задачу в очередь шарда, которому принадлежит указанный ключ упорядочивания.
+     *
+     * @param orderingKey ключ упорядочивания
+     * @param task задача
+     * @throws IllegalStateException если исполнитель закрыт
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    public void executeAsync(long orderingKey, @NotNull Supplier<? extends @NotNull CompletionStage<?>> task) {
+        QueuedTask queuedTask = new QueuedTask(orderingKey, task, System.nanoTime());
+        this.stateLock.readLock().lock();
+        try {
+            checkState(!this.closed, "Executor is closed");
+            this.shards[shardIndex(orderingKey, this.shards.length)].queue.add(queuedTask);
+        } finally {
+            this.stateLock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество шардов.
+     *
+     * @return количество шардов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getShardCount() {
+        return this.shards.length;
+    }
+
+    /**
+     * Возвращает статистику всех шардов.
+     *
+     * @return статистика шардов в порядке их номеров
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    public @NotNull List<@NotNull QueueStats> getStats() {
+        List<QueueStats> stats = new ArrayList<>(this.shards.length);
+        for (Shard shard : this.shards) {
+            stats.add(shard.waitStats.snapshot("Shard #" + shard.index, shard.queue.size() + shard.deferredTasks.get()));
+        }
+        return stats;
+    }
+
+    /**
+     * Перестаёт принимать новые задачи, дожидается выполнения уже поставленных в очередь
+     * и останавливает потоки шардов.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    public void close() {
+        if (!this.markClosed()) return;
+
+        for (Shard shard : this.shards) {
+            try {
+                shard.thread.join();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                LOGGER.warn("Interrupted while waiting for update shard {} to finish", shard.index);
+                return;
+            }
+        }
+    }
+
+    @Override
+    public int close(@NotNull Duration timeout) {
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        if (!this.markClosed()) return 0;
+
+        int dropped = 0;
+        for (Shard shard : this.shards) {
+            try {
+                if (shard.thread.join(Duration.ofNanos(Math.max(deadlineNanos - System.nanoTime(), 0)))) continue;
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+
+            // задачи, которые не успели начаться, отбрасываем, а поток завершится после текущих задач
+            shard.abandoned = true;
+            List<QueuedTask> abandoned = new ArrayList<>();
+            shard.queue.drainTo(abandoned);
+            for (QueuedTask queuedTask : abandoned) {
+                if (queuedTask.task() != null) {
+                    dropped++;
+                } else if (queuedTask != QueuedTask.POISON) {
+                    // отметки о завершении нужны потоку, чтобы дождаться текущих задач чатов
+                    shard.queue.add(queuedTask);
+                }
+            }
+            dropped += shard.deferredTasks.get();
+            shard.queue.add(QueuedTask.POISON);
+        }
+        return dropped;
+    }
+
+    /**
+     * Запрещает новые задачи и ставит в очередь каждого шарда отметку остановки после всех уже поставленных задач.
+     *
+     * @return {@code false}, если исполнитель уже был закрыт
+     */
+    private boolean markClosed() {
+        this.stateLock.writeLock().lock();
+        try {
+            if (this.closed) return false;
+            this.closed = true;
+            for (Shard shard : this.shards) {
+                shard.queue.add(QueuedTask.POISON);
+            }
+            return true;
+        } finally {
+            this.stateLock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Возвращает номер шарда для ключа упорядочивания.
+     *
+     * @param orderingKey ключ упорядочивания
+     * @param shardCount количество шардов
+     * @return номер шарда от {@code 0} до {@code shardCount - 1}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    static int shardIndex(long orderingKey, int shardCount) {
+        // ID чатов идут подряд, поэтому перемешиваем биты, чтобы соседние чаты попадали в разные шарды
+        long hash = orderingKey * 0x9E3779B97F4A7C15L;
+        return Math.floorMod((int) (hash ^ (hash >>> 32)), shardCount);
+    }
+
+    /**
+     * Задача в очереди шарда. Задача без {@code task} — отметка о завершении асинхронной задачи чата.
+     */
+    private record QueuedTask(long key, @Nullable Supplier<? extends @NotNull CompletionStage<?>> task, long enqueuedNanos) {
+        private static final @NotNull QueuedTask POISON = new QueuedTask(0, null, 0);
+    }
+
+    private static final class Shard implements Runnable {
+        private final int index;
+        private final @NotNull BlockingQueue<@NotNull QueuedTask> queue = new LinkedBlockingQueue<>();
+        private final @NotNull Thread thread;
+
+        private final @NotNull WaitStats waitStats = new WaitStats();
+        // только для потока шарда: чаты с незавершённой асинхронной задачей и их отложенные задачи
+        private final @NotNull Map<@NotNull Long, @NotNull ArrayDeque<@NotNull QueuedTask>> busyChats = new HashMap<>();
+        private final @NotNull AtomicInteger deferredTasks = new AtomicInteger();
+        private volatile boolean abandoned = false;
+
+        private Shard(int index) {
+            this.index = index;
+            this.thread = new Thread(this, "Update Worker #" + index);
+        }
+
+        @Override
+        public void run() {
+            boolean stopping = false;
+            while (!stopping || !this.busyChats.isEmpty()) {
+                QueuedTask queuedTask;
+                try {
+                    queuedTask = this.queue.take();
+                } catch (InterruptedException ex) {
+                    LOGGER.warn("Update shard {} was interrupted, {} updates were not handled", this.index, this.queue.size());
+                    return;
+                }
+                if (queuedTask == QueuedTask.POISON) {
+                    // дорабатываем асинхронные задачи, начатые до закрытия
+                    stopping = true;
+                    continue;
+                }
+                if (queuedTask.task() == null) {
+                    this.resume(queuedTask.key());
+                    continue;
+                }
+
+                ArrayDeque<QueuedTask> deferred = this.busyChats.get(queuedTask.key());
+                if (deferred != null) {
+                    deferred.add(queuedTask);
+                    this.deferredTasks.incrementAndGet();
+                } else if (this.runTask(queuedTask)) {
+                    this.busyChats.put(queuedTask.key(), new ArrayDeque<>());
+                }
+            }
+        }
+
+        private void resume(long key) {
+            ArrayDeque<QueuedTask> deferred = this.busyChats.remove(key);
+            if (deferred == null) return;
+
+            QueuedTask queuedTask;
+            while ((queuedTask = deferred.poll()) != null) {
+                this.deferredTasks.decrementAndGet();
+                if (this.abandoned) continue;
+                if (this.runTask(queuedTask)) {
+                    this.busyChats.put(key, deferred);
+                    return;
+                }
+            }
+        }
+
+        /**
+         * Выполняет задачу.
+         *
+         * @return {@code true}, если задача продолжает выполняться асинхронно
+         */
+        private boolean runTask(@NotNull QueuedTask queuedTask) {
+            this.waitStats.record(queuedTask.enqueuedNanos());
+            CompletableFuture<?> future;
+            try {
+                future = Objects.requireNonNull(queuedTask.task()).get().toCompletableFuture();
+            } catch (Throwable t) {
+                LOGGER.error("Unhandled exception in update shard {}", this.index, t);
+                return false;
+            }
+            if (future.isDone()) return false;
+
+            long key = queuedTask.key();
+            future.whenComplete((result, throwable) -> this.queue.add(new QueuedTask(key, null, 0)));
+            return true;
+        }
+    }
+}
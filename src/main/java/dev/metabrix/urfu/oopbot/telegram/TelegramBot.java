@@ -1,110 +1,468 @@
 package dev.metabrix.urfu.oopbot.telegram;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import dev.metabrix.urfu.oopbot.BotApplication;
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import dev.metabrix.urfu.oopbot.cluster.ClusterCoordinator;
 import dev.metabrix.urfu.oopbot.interaction.impl.CallbackQueryInteractionImpl;
 import dev.metabrix.urfu.oopbot.interaction.impl.MessageInteractionImpl;
 import dev.metabrix.urfu.oopbot.interaction.impl.SimpleInteraction;
 import dev.metabrix.urfu.oopbot.interaction.impl.UserInteractionImpl;
+import dev.metabrix.urfu.oopbot.journal.UpdateJournal;
+import dev.metabrix.urfu.oopbot.util.Emoji;
 import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.io.IOException;
+import java.io.Serializable;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 import org.slf4j.Logger;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
 import org.telegram.telegrambots.bots.TelegramLongPollingBot;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
 import org.telegram.telegrambots.meta.api.objects.Update;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
+import static dev.metabrix.urfu.oopbot.util.Checks.checkState;
+
 /**
  * Класс-слушатель события Telegram.
  *
  * @since 1.0.0
  * @author metabrix
  */
-public class TelegramBot extends TelegramLongPollingBot {
+public class TelegramBot extends TelegramLongPollingBot implements OutboundScheduler.Sender {
     private static final @NotNull Logger LOGGER = LogUtils.getLogger();
     private static final @NotNull ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int DEDUPLICATION_WINDOW = 1 << 16;
+    private static final @NotNull String BUSY_TEXT = Emoji.HOURGLASS + " Бот сейчас перегружен, попробуйте ещё раз чуть позже.";
 
     private final @NotNull BotApplication application;
-    private final @NotNull String username;
+    private final @NotNull BotConfiguration.BotInfo botInfo;
     private final @NotNull UpdateListener updateListener;
+    private final @NotNull UpdateDeduplicator deduplicator = new UpdateDeduplicator(DEDUPLICATION_WINDOW);
+
+    private @Nullable BotApiClient apiClient;
+    private @Nullable OutboundScheduler outboundScheduler;
+    private @Nullable UpdateJournal updateJournal;
+    private @Nullable UpdateErrorReporter errorReporter;
 
     /**
      * Создаёт бота.
      *
-     * @param username юзернейм бота
-     * @param token API-токен бота
+     * @param application приложение, в котором работает бот
+     * @param botInfo юзернейм и API-токен бота
+     * @param options настройки клиента Telegram API
      * @param updateListener обработчик событий API
      * @since 1.0.0
      * @author metabrix
      */
     public TelegramBot(
         @NotNull BotApplication application,
-        @NotNull String username, @NotNull String token,
+        @NotNull BotConfiguration.BotInfo botInfo,
+        @NotNull DefaultBotOptions options,
         @NotNull UpdateListener updateListener
     ) {
-        super(token);
+        super(options, botInfo.token());
 
         this.application = application;
-        this.username = username;
+        this.botInfo = botInfo;
         this.updateListener = updateListener;
     }
 
     @Override
     public String getBotUsername() {
-        return this.username;
+        return this.botInfo.username();
+    }
+
+    /**
+     * Возвращает ID бота в Telegram.
+     *
+     * @return ID бота в Telegram
+     * @throws IllegalStateException если токен бота не содержит ID
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getBotId() {
+        return this.botInfo.botId();
     }
 
+    /**
+     * Возвращает приложение, в котором работает бот.
+     *
+     * @return приложение
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull BotApplication getApplication() {
+        return this.application;
+    }
+
+    /**
+     * Запускает отправку запросов бота и обрабатывает события, восстановленные из журнала.
+     * Вызывается приложением до начала получения событий.
+     *
+     * @param outbound лимиты отправки запросов этого бота
+     * @param journal журнал событий этого бота или {@code null}, если журнал выключен
+     * @param errors настройки отчётов об ошибках обработки событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void start(
+        @NotNull BotConfiguration.Outbound outbound,
+        @Nullable UpdateJournal journal,
+        @NotNull BotConfiguration.Updates.Errors errors
+    ) {
+        checkState(this.outboundScheduler == null, "Bot @" + this.getBotUsername() + " is already running");
+        this.apiClient = new BotApiClient(OBJECT_MAPPER, this.getOptions(), this.getBaseUrl(), outbound.maxConnections());
+        this.outboundScheduler = new OutboundScheduler(this, outbound);
+        this.errorReporter = new UpdateErrorReporter(this.getBotUsername(), errors);
+        this.updateJournal = journal;
+        if (journal != null) {
+            // события до отметки уже обработаны или восстановлены из журнала, Telegram может прислать их снова
+            UpdateJournal.Watermark watermark = journal.getWatermark();
+            if (watermark != null) {
+                Duration sinceSeen = Duration.between(watermark.recordedAt(), Instant.now());
+                this.deduplicator.seed(watermark.updateId(), sinceSeen.isNegative() ? Duration.ZERO : sinceSeen);
+            }
+            // события, не обработанные до падения, обрабатываются раньше новых
+            this.replayJournal(journal);
+        }
+    }
+
+    /**
+     * Отправляет запросы, уже поставленные в очередь, и закрывает журнал. Вызывается приложением
+     * после того, как все полученные события обработаны.
+     *
+     * @param timeout сколько ждать отправки запросов
+     * @return количество запросов, которые так и не были отправлены
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int stop(@NotNull Duration timeout) {
+        int dropped = 0;
+        if (this.outboundScheduler != null) {
+            dropped = this.outboundScheduler.close(timeout);
+            this.outboundScheduler = null;
+        }
+        if (this.apiClient != null) {
+            this.apiClient.close();
+            this.apiClient = null;
+        }
+        if (this.updateJournal != null) {
+            this.updateJournal.close();
+            this.updateJournal = null;
+        }
+        if (this.errorReporter != null) {
+            this.errorReporter.close();
+            this.errorReporter = null;
+        }
+        return dropped;
+    }
+
+    /**
+     * Возвращает планировщик исходящих запросов бота, если бот запущен, в противном случае выбрасывает {@link IllegalStateException}.
+     *
+     * @return планировщик исходящих запросов
+     * @throws IllegalStateException если бот не запущен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull OutboundScheduler getOutboundScheduler() {
+        OutboundScheduler outboundScheduler = this.outboundScheduler;
+        checkState(outboundScheduler != null, "Bot @" + this.getBotUsername() + " is not running");
+        return outboundScheduler;
+    }
+
+    /**
+     * Возвращает журнал событий бота, если бот запущен и журнал включён в конфигурации.
+     *
+     * @return журнал событий или {@code null}, если бот не запущен или журнал выключен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @Nullable UpdateJournal getUpdateJournal() {
+        return this.updateJournal;
+    }
+
+    /**
+     * Возвращает отчёты об ошибках обработки событий, если бот запущен.
+     *
+     * @return отчёты об ошибках или {@code null}, если бот не запущен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @Nullable UpdateErrorReporter getErrorReporter() {
+        return this.errorReporter;
+    }
+
+    /**
+     * Возвращает фильтр повторно полученных событий.
+     *
+     * @return фильтр повторов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull UpdateDeduplicator getDeduplicator() {
+        return this.deduplicator;
+    }
+
+    /**
+     * Ставит событие в очередь на обработку (см. {@link #accept(Update, Runnable)}). В кластерном
+     * режиме событие сначала передаётся узлу, которому принадлежит чат (см. {@link ClusterCoordinator}).
+     *
+     * @param update событие
+     * @since 1.0.0
+     * @author metabrix
+     */
     @Override
     public void onUpdateReceived(@NotNull Update update) {
+        ClusterCoordinator cluster = this.application.getClusterCoordinator();
+        if (cluster != null) {
+            cluster.route(this, update);
+        } else {
+            this.accept(update, null);
+        }
+    }
+
+    /**
+     * Ставит событие в очередь на обработку в этом процессе. События одного чата обрабатываются
+     * по порядку, события разных чатов — параллельно (см. {@link UpdateExecutor}).
+     * <p>
+     * Повторно полученные события (см. {@link UpdateDeduplicator}), а также события,
+     * пришедшие, когда бот перегружен (см. {@link UpdateIngress}), отбрасываются. Если включён
+     * {@link UpdateJournal журнал}, принятое событие записывается в него до возврата из метода.
+     *
+     * @param update событие
+     * @param onComplete вызывается, когда событие обработано или отброшено, или {@code null}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void accept(@NotNull Update update, @Nullable Runnable onComplete) {
+        Integer updateId = update.getUpdateId();
+        if (updateId != null && !this.deduplicator.markSeen(updateId)) {
+            LOGGER.debug("Dropped duplicate update {}", updateId);
+            if (onComplete != null) onComplete.run();
+            return;
+        }
+
+        UpdateIngress ingress = this.application.getUpdateIngress();
+        if (!ingress.tryAccept(UpdateType.of(update))) {
+            if (ingress.getConfiguration().busyReply()) this.replyBusy(update);
+            if (onComplete != null) onComplete.run();
+            return;
+        }
+
+        UpdateJournal.Entry journalEntry;
+        try {
+            journalEntry = this.appendToJournal(update);
+        } catch (RuntimeException ex) {
+            ingress.release();
+            if (onComplete != null) onComplete.run();
+            throw ex;
+        }
+        this.submit(update, journalEntry, ingress, onComplete);
+    }
+
+    /**
+     * Ставит в очередь на обработку события, восстановленные из журнала после падения
+     * предыдущего процесса. Восстановленные события не ограничиваются {@link UpdateIngress}.
+     *
+     * @param journal журнал событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    private void replayJournal(@NotNull UpdateJournal journal) {
+        for (UpdateJournal.RecoveredEntry recoveredEntry : journal.getRecoveredEntries()) {
+            Update update;
+            try {
+                update = OBJECT_MAPPER.readValue(recoveredEntry.payload(), Update.class);
+            } catch (IOException ex) {
+                LOGGER.error("Failed to decode journaled update, skipping it", ex);
+                journal.complete(recoveredEntry.entry());
+                continue;
+            }
+
+            // если Telegram пришлёт это событие ещё раз, оно будет отброшено как повтор
+            Integer updateId = update.getUpdateId();
+            if (updateId != null) this.deduplicator.markSeen(updateId);
+            this.submit(update, recoveredEntry.entry(), null, null);
+        }
+    }
+
+    private @Nullable UpdateJournal.Entry appendToJournal(@NotNull Update update) {
+        UpdateJournal journal = this.updateJournal;
+        if (journal == null) return null;
+
+        try {
+            UpdateJournal.Entry entry = journal.append(OBJECT_MAPPER.writeValueAsBytes(update));
+            if (update.getUpdateId() != null) journal.advanceWatermark(update.getUpdateId());
+            return entry;
+        } catch (IOException | IllegalArgumentException ex) {
+            // событие всё равно обрабатываем, но без гарантии повторной обработки после падения
+            LOGGER.error("Failed to append update {} to the journal", update.getUpdateId(), ex);
+            return null;
+        }
+    }
+
+    private void submit(
+        @NotNull Update update,
+        @Nullable UpdateJournal.Entry journalEntry,
+        @Nullable UpdateIngress ingress,
+        @Nullable Runnable onProcessed
+    ) {
+        UpdateJournal journal = this.updateJournal;
+        Runnable onComplete = () -> {
+            if (ingress != null) ingress.release();
+            if (journal != null && journalEntry != null) journal.complete(journalEntry);
+            if (onProcessed != null) onProcessed.run();
+        };
+
+        try {
+            // следующее событие чата начнёт обрабатываться, когда это будет полностью обработано
+            this.application.getUpdateExecutor().executeAsync(Updates.getOrderingKey(update), () -> {
+                CompletableFuture<Void> future;
+                try {
+                    future = this.handleUpdate(update);
+                } catch (Throwable t) {
+                    future = CompletableFuture.failedFuture(t);
+                }
+                // ошибки учитываются только здесь: обработчики вызывают handleUpdate повторно внутри
+                // обработки события, и та же ошибка иначе была бы учтена на каждом уровне
+                return future.whenComplete((result, throwable) -> {
+                    if (throwable != null) this.reportFailure(update, throwable);
+                    onComplete.run();
+                });
+            });
+        } catch (RuntimeException ex) {
+            onComplete.run();
+            throw ex;
+        }
+    }
+
+    /**
+     * Обрабатывает событие в текущем потоке, передавая его в {@link UpdateListener}.
+     * <p>
+     * Используется для повторной обработки события изнутри обработчика, когда событие
+     * уже выполняется в потоке своего чата. Ошибку обработки учитывает в отчётах тот,
+     * кто передал событие в обработку изначально, поэтому она учитывается один раз.
+     *
+     * @param update событие
+     * @return future, которое завершается, когда событие полностью обработано
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull CompletableFuture<Void> handleUpdate(@NotNull Update update) {
+        CompletableFuture<Void> future;
         try {
             if (update.hasMessage()) {
-                this.updateListener.handleMessage(new MessageInteractionImpl(this.application, update, Update::getMessage));
+                future = this.updateListener.handleMessage(new MessageInteractionImpl(this, update, Update::getMessage));
             } else if (update.hasInlineQuery()) {
-                this.updateListener.handleInlineQuery(new UserInteractionImpl(this.application, update, u -> u.getInlineQuery().getFrom()));
+                future = this.updateListener.handleInlineQuery(new UserInteractionImpl(this, update, u -> u.getInlineQuery().getFrom()));
             } else if (update.hasChosenInlineQuery()) {
-                this.updateListener.handleChosenInlineQuery(new UserInteractionImpl(this.application, update, u -> u.getChosenInlineQuery().getFrom()));
+                future = this.updateListener.handleChosenInlineQuery(new UserInteractionImpl(this, update, u -> u.getChosenInlineQuery().getFrom()));
             } else if (update.hasCallbackQuery()) {
-                this.updateListener.handleCallbackQuery(new CallbackQueryInteractionImpl(this.application, update));
+                future = this.updateListener.handleCallbackQuery(new CallbackQueryInteractionImpl(this, update));
             } else if (update.hasEditedMessage()) {
-                this.updateListener.handleEditedMessage(new MessageInteractionImpl(this.application, update, Update::getEditedMessage));
+                future = this.updateListener.handleEditedMessage(new MessageInteractionImpl(this, update, Update::getEditedMessage));
             } else if (update.hasChannelPost()) {
-                this.updateListener.handleChannelPost(new MessageInteractionImpl(this.application, update, Update::getChannelPost));
+                future = this.updateListener.handleChannelPost(new MessageInteractionImpl(this, update, Update::getChannelPost));
             } else if (update.hasEditedChannelPost()) {
-                this.updateListener.handleEditedChannelPost(new MessageInteractionImpl(this.application, update, Update::getEditedChannelPost));
+                future = this.updateListener.handleEditedChannelPost(new MessageInteractionImpl(this, update, Update::getEditedChannelPost));
             } else if (update.hasShippingQuery()) {
-                this.updateListener.handleShippingQuery(new UserInteractionImpl(this.application, update, u -> u.getShippingQuery().getFrom()));
+                future = this.updateListener.handleShippingQuery(new UserInteractionImpl(this, update, u -> u.getShippingQuery().getFrom()));
             } else if (update.hasPreCheckoutQuery()) {
-                this.updateListener.handlePreCheckoutQuery(new UserInteractionImpl(this.application, update, u -> u.getPreCheckoutQuery().getFrom()));
+                future = this.updateListener.handlePreCheckoutQuery(new UserInteractionImpl(this, update, u -> u.getPreCheckoutQuery().getFrom()));
             } else if (update.hasPoll()) {
-                this.updateListener.handlePoll(new SimpleInteraction(this.application, update));
+                future = this.updateListener.handlePoll(new SimpleInteraction(this, update));
             } else if (update.hasPollAnswer()) {
-                this.updateListener.handlePollAnswer(new UserInteractionImpl(this.application, update, u -> u.getPollAnswer().getUser()));
+                future = this.updateListener.handlePollAnswer(new UserInteractionImpl(this, update, u -> u.getPollAnswer().getUser()));
             } else if (update.hasMyChatMember()) {
-                this.updateListener.handleMyChatMember(new UserInteractionImpl(this.application, update, u -> u.getMyChatMember().getFrom()));
+                future = this.updateListener.handleMyChatMember(new UserInteractionImpl(this, update, u -> u.getMyChatMember().getFrom()));
             } else if (update.hasChatMember()) {
-                this.updateListener.handleChatMember(new UserInteractionImpl(this.application, update, u -> u.getChatMember().getFrom()));
+                future = this.updateListener.handleChatMember(new UserInteractionImpl(this, update, u -> u.getChatMember().getFrom()));
             } else if (update.hasChatJoinRequest()) {
-                this.updateListener.handleChatJoinRequest(new UserInteractionImpl(this.application, update, u -> u.getChatJoinRequest().getUser()));
+                future = this.updateListener.handleChatJoinRequest(new UserInteractionImpl(this, update, u -> u.getChatJoinRequest().getUser()));
             }
             // на момент версии org.telegram:telegrambots:6.9.7.1 нет публичного доступа к методам этих апдейтов
 //            else if (update.hasMessageReaction()) {
-//                this.updateListener.handleMessageReaction(new UserInteractionImpl(this.application, update, u -> u.getMessageReaction().getUser()));
+//                future = this.updateListener.handleMessageReaction(new UserInteractionImpl(this, update, u -> u.getMessageReaction().getUser()));
 //            } else if (update.hasMessageReactionCount()) {
-//                this.updateListener.handleMessageReactionCount(new SimpleInteraction(this.application, update));
+//                future = this.updateListener.handleMessageReactionCount(new SimpleInteraction(this, update));
 //            } else if (update.hasChatBoost()) {
-//                this.updateListener.handleChatBoost(new SimpleInteraction(this.application, update));
+//                future = this.updateListener.handleChatBoost(new SimpleInteraction(this, update));
 //            } else if (update.hasRemovedChatBoost()) {
-//                this.updateListener.handleRemovedChatBoost(new SimpleInteraction(this.application, update));
+//                future = this.updateListener.handleRemovedChatBoost(new SimpleInteraction(this, update));
 //            }
-            else LOGGER.warn("Received unknown update: {}", update);
-        } catch (TelegramApiException telegramException) {
-            try {
-                LOGGER.error("Failed to handle update: {}", OBJECT_MAPPER.writeValueAsString(update), telegramException);
-            } catch (JsonProcessingException jsonException) {
-                RuntimeException exception = new RuntimeException("Failed to handle update: " + update, telegramException);
-                exception.addSuppressed(jsonException);
-                throw exception;
+            else {
+                LOGGER.warn("Received unknown update: {}", update);
+                future = CompletableFuture.completedFuture(null);
             }
+        } catch (TelegramApiException telegramException) {
+            future = CompletableFuture.failedFuture(telegramException);
+        }
+        return future;
+    }
+
+    private void reportFailure(@NotNull Update update, @NotNull Throwable throwable) {
+        UpdateErrorReporter reporter = this.errorReporter;
+        if (reporter != null) {
+            reporter.report(update, throwable);
+        } else {
+            LOGGER.error("Failed to handle update {}", update.getUpdateId(), throwable);
+        }
+    }
+
+    /**
+     * Отвечает на отброшенную команду или нажатие кнопки сообщением о том, что бот перегружен.
+     * Остальные отброшенные события остаются без ответа.
+     *
+     * @param update отброшенное событие
+     * @since 1.2.0
+     * @author metabrix
+     */
+    private void replyBusy(@NotNull Update update) {
+        OutboundScheduler outbound = this.getOutboundScheduler();
+        CompletableFuture<?> future;
+        if (update.hasCallbackQuery()) {
+            future = outbound.submit(AnswerCallbackQuery.builder()
+                .callbackQueryId(update.getCallbackQuery().getId())
+                .text(BUSY_TEXT)
+                .build());
+        } else if (update.hasMessage() && update.getMessage().hasText() && update.getMessage().getText().startsWith("/")) {
+            future = outbound.submit(SendMessage.builder()
+                .chatId(update.getMessage().getChatId())
+                .replyToMessageId(update.getMessage().getMessageId())
+                .text(BUSY_TEXT)
+                .build());
+        } else {
+            return;
         }
+        future.exceptionally(ex -> {
+            LOGGER.debug("Failed to send busy reply for update {}", update.getUpdateId(), ex);
+            return null;
+        });
+    }
+
+    /**
+     * Синхронно отправляет запрос в Telegram API в обход {@link OutboundScheduler планировщика}.
+     * Пока бот запущен, запрос отправляется через собственный пул соединений бота.
+     * Обработчики событий должны отправлять запросы через {@link dev.metabrix.urfu.oopbot.interaction.Interaction}.
+     *
+     * @param method запрос
+     * @param <T> тип ответа
+     * @return ответ
+     * @throws TelegramApiException в случае ошибки Telegram API
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    public <T extends Serializable> T send(@NotNull BotApiMethod<T> method) throws TelegramApiException {
+        BotApiClient apiClient = this.apiClient;
+        return apiClient != null ? apiClient.send(method) : this.execute(method);
     }
 }
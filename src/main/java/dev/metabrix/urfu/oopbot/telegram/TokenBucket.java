@@ -0,0 +1,87 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import java.util.concurrent.TimeUnit;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Корзина токенов для ограничения частоты запросов. Корзина пополняется с постоянной скоростью
+ * до своей вместимости, каждый запрос забирает один токен.
+ * <p>
+ * Класс не потокобезопасен, вызывающий код должен синхронизировать вызовы.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+final class TokenBucket {
+    private final double tokensPerNano;
+    private final double capacity;
+
+    private double tokens;
+    private long refilledAtNanos;
+
+    /**
+     * Создаёт полную корзину.
+     *
+     * @param tokensPerSecond скорость пополнения
+     * @param capacity вместимость корзины, то есть сколько запросов можно сделать подряд без ожидания
+     * @param nowNanos текущее время по {@link System#nanoTime()}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    TokenBucket(double tokensPerSecond, double capacity, long nowNanos) {
+        checkArgument(tokensPerSecond > 0, "Rate must be positive");
+        checkArgument(capacity >= 1, "Capacity must be at least 1");
+        this.tokensPerNano = tokensPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.capacity = capacity;
+        this.tokens = capacity;
+        this.refilledAtNanos = nowNanos;
+    }
+
+    /**
+     * Возвращает, через сколько наносекунд в корзине появится токен.
+     *
+     * @param nowNanos текущее время по {@link System#nanoTime()}
+     * @return время ожидания токена, {@code 0}, если токен есть сейчас
+     * @since 1.2.0
+     * @author metabrix
+     */
+    long nanosUntilAvailable(long nowNanos) {
+        this.refill(nowNanos);
+        if (this.tokens >= 1) return 0;
+        return (long) Math.ceil((1 - this.tokens) / this.tokensPerNano);
+    }
+
+    /**
+     * Забирает токен из корзины. Вызывать можно только если {@link #nanosUntilAvailable} вернул {@code 0}.
+     *
+     * @param nowNanos текущее время по {@link System#nanoTime()}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void consume(long nowNanos) {
+        this.refill(nowNanos);
+        this.tokens -= 1;
+    }
+
+    /**
+     * Возвращает, через сколько наносекунд корзина наполнится, то есть её можно будет забыть без потери ограничения.
+     *
+     * @param nowNanos текущее время по {@link System#nanoTime()}
+     * @return время до наполнения корзины, {@code 0}, если корзина полна сейчас
+     * @since 1.2.0
+     * @author metabrix
+     */
+    long nanosUntilFull(long nowNanos) {
+        this.refill(nowNanos);
+        if (this.tokens >= this.capacity) return 0;
+        return (long) Math.ceil((this.capacity - this.tokens) / this.tokensPerNano);
+    }
+
+    private void refill(long nowNanos) {
+        long elapsedNanos = nowNanos - this.refilledAtNanos;
+        if (elapsedNanos <= 0) return;
+        this.tokens = Math.min(this.capacity, this.tokens + elapsedNanos * this.tokensPerNano);
+        this.refilledAtNanos = nowNanos;
+    }
+}
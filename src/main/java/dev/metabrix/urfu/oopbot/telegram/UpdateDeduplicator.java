@@ -0,0 +1,150 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import org.jetbrains.annotations.NotNull;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Фильтр повторно полученных событий по <code>update_id</code>.
+ * <p>
+ * Telegram выдаёт <code>update_id</code> по возрастанию, поэтому фильтр хранит битовую карту
+ * последних {@code windowSize} идентификаторов, отсчитанных от наибольшего полученного: один бит
+ * на событие, без упаковки чисел в объекты. Событие с идентификатором из окна, бит которого
+ * уже установлен, считается повтором.
+ * <p>
+ * Событие с идентификатором старше окна считается повтором: фильтр не помнит, получал ли его,
+ * а сбросить окно ради одного запоздавшего события значит забыть все последние. Исключение — если
+ * событий не было дольше {@link #SEQUENCE_RESTART_IDLE}: тогда Telegram начинает новую
+ * последовательность со случайного идентификатора, и окно сбрасывается.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class UpdateDeduplicator {
+    /**
+     * Сколько времени без событий должно пройти, чтобы Telegram начал новую последовательность <code>update_id</code>.
+     */
+    static final @NotNull Duration SEQUENCE_RESTART_IDLE = Duration.ofDays(7);
+
+    private final int windowSize;
+    private final long @NotNull [] bits;
+    private final @NotNull ReentrantLock lock = new ReentrantLock();
+    private final @NotNull LongAdder duplicates = new LongAdder();
+
+    private boolean empty = true;
+    private long highestId;
+    private long lastSeenNanos;
+
+    /**
+     * Создаёт фильтр.
+     *
+     * @param windowSize количество последних идентификаторов, которые помнит фильтр;
+     *                   должно быть положительной степенью двойки, не меньше 64
+     * @throws IllegalArgumentException если размер окна некорректен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public UpdateDeduplicator(int windowSize) {
+        checkArgument(windowSize >= Long.SIZE && Integer.bitCount(windowSize) == 1, "Window size must be a power of two >= 64");
+        this.windowSize = windowSize;
+        this.bits = new long[windowSize / Long.SIZE];
+    }
+
+    /**
+     * Отмечает событие как полученное.
+     *
+     * @param updateId <code>update_id</code> события
+     * @return {@code true}, если событие получено впервые, или {@code false}, если это повтор
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public boolean markSeen(long updateId) {
+        return this.markSeen(updateId, System.nanoTime());
+    }
+
+    boolean markSeen(long updateId, long nowNanos) {
+        this.lock.lock();
+        try {
+            boolean olderThanWindow = !this.empty && updateId <= this.highestId - this.windowSize;
+            if (olderThanWindow && nowNanos - this.lastSeenNanos < SEQUENCE_RESTART_IDLE.toNanos()) {
+                this.duplicates.increment();
+                return false;
+            }
+
+            if (this.empty || olderThanWindow) {
+                Arrays.fill(this.bits, 0);
+                this.empty = false;
+                this.highestId = updateId;
+            } else if (updateId > this.highestId) {
+                this.advanceTo(updateId);
+            }
+
+            int bit = (int) (updateId & (this.windowSize - 1));
+            long mask = 1L << bit;
+            int word = bit >>> 6;
+            if ((this.bits[word] & mask) != 0) {
+                this.duplicates.increment();
+                return false;
+            }
+            this.bits[word] |= mask;
+            this.lastSeenNanos = nowNanos;
+            return true;
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Считает полученными все события с идентификатором не больше указанного, например, после
+     * перезапуска, когда Telegram присылает заново события, получение которых не успели подтвердить.
+     *
+     * @param highestSeenId наибольший <code>update_id</code>, полученный до перезапуска
+     * @param sinceSeen сколько времени прошло с его получения
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void seed(long highestSeenId, @NotNull Duration sinceSeen) {
+        this.seed(highestSeenId, sinceSeen, System.nanoTime());
+    }
+
+    void seed(long highestSeenId, @NotNull Duration sinceSeen, long nowNanos) {
+        this.lock.lock();
+        try {
+            Arrays.fill(this.bits, -1L);
+            this.empty = false;
+            this.highestId = highestSeenId;
+            // если событий не было неделю, Telegram начнёт новую последовательность, и отметку нужно будет забыть
+            this.lastSeenNanos = nowNanos - Math.min(sinceSeen.toNanos(), SEQUENCE_RESTART_IDLE.toNanos());
+        } finally {
+            this.lock.unlock();
+        }
+    }
+
+    /**
+     * Возвращает количество отброшенных повторов.
+     *
+     * @return количество повторов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getDuplicates() {
+        return this.duplicates.sum();
+    }
+
+    private void advanceTo(long updateId) {
+        // биты идентификаторов, выпадающих из окна, переиспользуются новыми идентификаторами
+        if (updateId - this.highestId >= this.windowSize) {
+            Arrays.fill(this.bits, 0);
+        } else {
+            for (long id = this.highestId + 1; id <= updateId; id++) {
+                int bit = (int) (id & (this.windowSize - 1));
+                this.bits[bit >>> 6] &= ~(1L << bit);
+            }
+        }
+        this.highestId = updateId;
+    }
+}
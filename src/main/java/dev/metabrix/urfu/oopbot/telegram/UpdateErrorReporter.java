@@ -0,0 +1,227 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+/**
+ * Отчёты об ошибках обработки событий.
+ * <p>
+ * Ошибки группируются по причине (классу исключения и коду ошибки Telegram API) и чату, в каждой
+ * группе только увеличивается счётчик. Событие целиком сериализуется и выводится в лог только
+ * для первой ошибки каждой причины за интервал и не больше {@link BotConfiguration.Updates.Errors#samplesPerInterval()}
+ * раз, а раз в интервал выводится сводка по группам. Поэтому, даже если падает каждое событие,
+ * например, когда недоступен Telegram API, на каждую ошибку тратится только обновление счётчика.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class UpdateErrorReporter implements AutoCloseable {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+    private static final @NotNull ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final int SUMMARY_GROUPS = 10;
+
+    /**
+     * Чат группы, в которую попадают ошибки сверх {@link BotConfiguration.Updates.Errors#maxGroups()}.
+     */
+    static final long OTHER_CHATS = Long.MIN_VALUE;
+
+    private final @NotNull String botUsername;
+    private final @NotNull BotConfiguration.Updates.Errors configuration;
+    private final @NotNull Map<@NotNull Group, @NotNull LongAdder> counts = new ConcurrentHashMap<>();
+    private final @NotNull Set<@NotNull Cause> sampledCauses = ConcurrentHashMap.newKeySet();
+    private final @NotNull AtomicInteger samplesLeft;
+    private final @NotNull LongAdder failedUpdates = new LongAdder();
+    private final @NotNull ScheduledExecutorService summarizer;
+
+    /**
+     * Создаёт отчёты об ошибках и запускает периодический вывод сводки.
+     *
+     * @param botUsername юзернейм бота, события которого обрабатываются
+     * @param configuration настройки отчётов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public UpdateErrorReporter(@NotNull String botUsername, @NotNull BotConfiguration.Updates.Errors configuration) {
+        this.botUsername = botUsername;
+        this.configuration = configuration;
+        this.samplesLeft = new AtomicInteger(configuration.samplesPerInterval());
+
+        long intervalMillis = configuration.summaryInterval().toMillis();
+        this.summarizer = Executors.newSingleThreadScheduledExecutor(
+            Thread.ofPlatform().name("Update Error Reporter @" + botUsername).daemon().factory()
+        );
+        this.summarizer.scheduleAtFixedRate(this::logSummary, intervalMillis, intervalMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * Учитывает ошибку обработки события.
+     *
+     * @param update событие
+     * @param throwable ошибка
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void report(@NotNull Update update, @NotNull Throwable throwable) {
+        Throwable cause = throwable instanceof CompletionException && throwable.getCause() != null ? throwable.getCause() : throwable;
+        Cause causeKey = Cause.of(cause);
+        long chatId = Updates.getOrderingKey(update);
+
+        this.failedUpdates.increment();
+        LongAdder counter = this.counts.get(new Group(causeKey, chatId));
+        if (counter == null) {
+            // размер считается приблизительно, но групп всё равно будет не намного больше лимита
+            Group group = this.counts.size() < this.configuration.maxGroups() ? new Group(causeKey, chatId) : new Group(causeKey, OTHER_CHATS);
+            counter = this.counts.computeIfAbsent(group, key -> new LongAdder());
+        }
+        counter.increment();
+
+        if (this.samplesLeft.get() > 0 && this.sampledCauses.add(causeKey) && this.samplesLeft.getAndDecrement() > 0) {
+            this.logSample(update, chatId, cause);
+        }
+    }
+
+    /**
+     * Возвращает количество ошибок с момента создания.
+     *
+     * @return количество ошибок
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getFailedUpdates() {
+        return this.failedUpdates.sum();
+    }
+
+    /**
+     * Останавливает периодический вывод и выводит сводку за последний неполный интервал.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    public void close() {
+        this.summarizer.shutdownNow();
+        this.logSummary();
+    }
+
+    /**
+     * Подводит итоги интервала: собирает счётчики групп, обнуляя их, и разрешает снова выводить события целиком.
+     *
+     * @return группы с ошибками за интервал, по убыванию количества ошибок
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull List<@NotNull GroupCount> summarize() {
+        List<GroupCount> summary = new ArrayList<>();
+        for (Map.Entry<Group, LongAdder> entry : this.counts.entrySet()) {
+            long count = entry.getValue().sumThenReset();
+            if (count > 0) {
+                summary.add(new GroupCount(entry.getKey(), count));
+            } else {
+                // группа без ошибок за целый интервал освобождает место для других
+                this.counts.remove(entry.getKey(), entry.getValue());
+            }
+        }
+        this.sampledCauses.clear();
+        this.samplesLeft.set(this.configuration.samplesPerInterval());
+
+        summary.sort(Comparator.comparingLong(GroupCount::count).reversed());
+        return summary;
+    }
+
+    private void logSummary() {
+        try {
+            List<GroupCount> summary = this.summarize();
+            if (summary.isEmpty()) return;
+
+            long total = summary.stream().mapToLong(GroupCount::count).sum();
+            String groups = summary.stream()
+                .limit(SUMMARY_GROUPS)
+                .map(GroupCount::toString)
+                .collect(Collectors.joining(", "));
+            if (summary.size() > SUMMARY_GROUPS) groups += " and " + (summary.size() - SUMMARY_GROUPS) + " more groups";
+            LOGGER.warn("@{}: {} updates failed since the last summary: {}", this.botUsername, total, groups);
+        } catch (RuntimeException ex) {
+            // исключение остановило бы периодический вывод
+            LOGGER.error("Failed to summarize update errors", ex);
+        }
+    }
+
+    private void logSample(@NotNull Update update, long chatId, @NotNull Throwable cause) {
+        String payload;
+        try {
+            payload = OBJECT_MAPPER.writeValueAsString(update);
+        } catch (JsonProcessingException ex) {
+            cause.addSuppressed(ex);
+            payload = String.valueOf(update);
+        }
+        LOGGER.error("@{}: failed to handle update in chat {}, further failures with the same cause are summarized: {}",
+            this.botUsername, chatId, payload, cause);
+    }
+
+    /**
+     * Причина ошибки.
+     *
+     * @param type класс исключения
+     * @param errorCode код ошибки Telegram API или {@code null}, если это не ошибка запроса к Telegram API
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record Cause(@NotNull Class<? extends Throwable> type, @Nullable Integer errorCode) {
+        static @NotNull Cause of(@NotNull Throwable throwable) {
+            Integer errorCode = throwable instanceof TelegramApiRequestException requestException ? requestException.getErrorCode() : null;
+            return new Cause(throwable.getClass(), errorCode);
+        }
+
+        @Override
+        public @NotNull String toString() {
+            return this.errorCode != null ? this.type.getSimpleName() + "[" + this.errorCode + "]" : this.type.getSimpleName();
+        }
+    }
+
+    /**
+     * Группа ошибок.
+     *
+     * @param cause причина ошибок
+     * @param chatId чат, в котором произошли ошибки, или {@link #OTHER_CHATS}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record Group(@NotNull Cause cause, long chatId) {
+    }
+
+    /**
+     * Количество ошибок в группе за интервал.
+     *
+     * @param group группа
+     * @param count количество ошибок
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record GroupCount(@NotNull Group group, long count) {
+        @Override
+        public @NotNull String toString() {
+            String chat = this.group.chatId() == OTHER_CHATS ? "other chats" : "chat " + this.group.chatId();
+            return this.group.cause() + " in " + chat + " x" + this.count;
+        }
+    }
+}
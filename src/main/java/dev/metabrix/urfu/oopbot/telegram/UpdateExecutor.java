@@ -0,0 +1,101 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Исполнитель обработчиков событий.
+ * <p>
+ * Реализации обязаны выполнять задачи с одинаковым ключом упорядочивания (см.
+ * {@link Updates#getOrderingKey(org.telegram.telegrambots.meta.api.objects.Update)}) строго
+ * по одной и в порядке поступления. Задачи с разными ключами могут выполняться параллельно.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public interface UpdateExecutor extends AutoCloseable {
+    /**
+     * Ставит задачу в очередь на выполнение.
+     *
+     * @param orderingKey ключ упорядочивания
+     * @param task задача
+     * @throws IllegalStateException если исполнитель закрыт
+     * @since 1.2.0
+     * @author metabrix
+     */
+    default void execute(long orderingKey, @NotNull Runnable task) {
+        this.executeAsync(orderingKey, () -> {
+            task.run();
+            return CompletableFuture.completedFuture(null);
+        });
+    }
+
+    /**
+     * Ставит асинхронную задачу в очередь на выполнение.
+     * <p>
+     * Задача считается выполненной, когда завершится возвращённый ею результат: до этого задачи
+     * с тем же ключом упорядочивания не начинаются. Поток исполнителя при этом не ждёт результат,
+     * а выполняет задачи других ключей.
+     *
+     * @param orderingKey ключ упорядочивания
+     * @param task задача, возвращающая результат своего выполнения
+     * @throws IllegalStateException если исполнитель закрыт
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void executeAsync(long orderingKey, @NotNull Supplier<? extends @NotNull CompletionStage<?>> task);
+
+    /**
+     * Возвращает статистику очередей исполнителя.
+     *
+     * @return статистика очередей
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull List<@NotNull QueueStats> getStats();
+
+    /**
+     * Перестаёт принимать новые задачи и дожидается выполнения уже поставленных в очередь.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    void close();
+
+    /**
+     * Перестаёт принимать новые задачи и ждёт выполнения уже поставленных в очередь не дольше
+     * указанного времени. Задачи, которые за это время не начали выполняться, отбрасываются,
+     * а уже выполняющиеся продолжают работу в фоне.
+     *
+     * @param timeout сколько ждать выполнения задач
+     * @return количество отброшенных задач
+     * @since 1.2.0
+     * @author metabrix
+     */
+    int close(@NotNull Duration timeout);
+
+    /**
+     * Статистика очереди исполнителя.
+     *
+     * @param name название очереди
+     * @param queueDepth количество событий, ожидающих обработки
+     * @param processedUpdates количество событий, взятых в обработку
+     * @param averageWaitMillis среднее время ожидания события в очереди в миллисекундах
+     * @param maxWaitMillis максимальное время ожидания события в очереди в миллисекундах
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record QueueStats(
+        @NotNull String name,
+        int queueDepth,
+        long processedUpdates,
+        double averageWaitMillis,
+        double maxWaitMillis
+    ) {
+    }
+}
@@ -0,0 +1,159 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Входной ограничитель событий: следит за количеством событий, принятых в обработку,
+ * но ещё не обработанных, и отбрасывает новые события при перегрузке согласно
+ * {@link BotConfiguration.Updates.Ingress.DropPolicy политике} их типа.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class UpdateIngress {
+    private static final long DRAIN_POLL_MILLIS = 10;
+
+    private final @NotNull BotConfiguration.Updates.Ingress configuration;
+
+    private final @NotNull AtomicInteger queuedUpdates = new AtomicInteger();
+    private final @NotNull LongAdder @NotNull [] acceptedUpdates = newCounters();
+    private final @NotNull LongAdder @NotNull [] shedUpdates = newCounters();
+
+    /**
+     * Создаёт ограничитель.
+     *
+     * @param configuration конфигурация ограничителя
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public UpdateIngress(@NotNull BotConfiguration.Updates.Ingress configuration) {
+        this.configuration = configuration;
+    }
+
+    /**
+     * Возвращает конфигурацию ограничителя.
+     *
+     * @return конфигурация ограничителя
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull BotConfiguration.Updates.Ingress getConfiguration() {
+        return this.configuration;
+    }
+
+    /**
+     * Пытается принять событие в обработку. Если событие принято, после его обработки
+     * обязательно нужно вызвать {@link #release()}.
+     *
+     * @param type тип события или {@code null}, если тип не поддерживается
+     * @return {@code true}, если событие принято, или {@code false}, если его нужно отбросить
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public boolean tryAccept(@Nullable UpdateType type) {
+        int limit = this.configuration.policy(type).limit(this.configuration.capacity());
+
+        int queued;
+        do {
+            queued = this.queuedUpdates.get();
+            if (queued >= limit) {
+                this.shedUpdates[counterIndex(type)].increment();
+                return false;
+            }
+        } while (!this.queuedUpdates.compareAndSet(queued, queued + 1));
+
+        this.acceptedUpdates[counterIndex(type)].increment();
+        return true;
+    }
+
+    /**
+     * Сообщает, что принятое событие обработано.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void release() {
+        this.queuedUpdates.decrementAndGet();
+    }
+
+    /**
+     * Возвращает количество принятых, но ещё не обработанных событий.
+     *
+     * @return количество событий в очереди
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getQueuedUpdates() {
+        return this.queuedUpdates.get();
+    }
+
+    /**
+     * Ждёт, пока все принятые события не будут обработаны, но не дольше указанного времени.
+     *
+     * @param timeout сколько ждать
+     * @return количество событий, которые так и не были обработаны
+     * @throws InterruptedException если поток был прерван во время ожидания
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int awaitDrained(@NotNull Duration timeout) throws InterruptedException {
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        int queued;
+        while ((queued = this.queuedUpdates.get()) > 0 && System.nanoTime() - deadlineNanos < 0) {
+            Thread.sleep(DRAIN_POLL_MILLIS);
+        }
+        return queued;
+    }
+
+    /**
+     * Возвращает статистику по типам событий. Типы, для которых не было ни одного события, пропускаются.
+     *
+     * @return статистика по типам событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull List<@NotNull TypeStats> getStats() {
+        List<TypeStats> stats = new ArrayList<>();
+        for (int i = 0; i < this.acceptedUpdates.length; i++) {
+            long accepted = this.acceptedUpdates[i].sum();
+            long shed = this.shedUpdates[i].sum();
+            if (accepted == 0 && shed == 0) continue;
+
+            UpdateType type = i < UpdateType.values().length ? UpdateType.values()[i] : null;
+            stats.add(new TypeStats(type, accepted, shed));
+        }
+        return stats;
+    }
+
+    private static int counterIndex(@Nullable UpdateType type) {
+        // последний счётчик — для неподдерживаемых типов событий
+        return type == null ? UpdateType.values().length : type.ordinal();
+    }
+
+    private static @NotNull LongAdder @NotNull [] newCounters() {
+        LongAdder[] counters = new LongAdder[UpdateType.values().length + 1];
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] = new LongAdder();
+        }
+        return counters;
+    }
+
+    /**
+     * Статистика ограничителя по типу событий.
+     *
+     * @param type тип событий или {@code null} для неподдерживаемых типов
+     * @param acceptedUpdates количество принятых событий
+     * @param shedUpdates количество отброшенных событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record TypeStats(@Nullable UpdateType type, long acceptedUpdates, long shedUpdates) {
+    }
+}
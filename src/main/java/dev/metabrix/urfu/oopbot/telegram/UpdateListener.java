@@ -3,54 +3,110 @@ package dev.metabrix.urfu.oopbot.telegram;
 import dev.metabrix.urfu.oopbot.interaction.CallbackQueryInteraction;
 import dev.metabrix.urfu.oopbot.interaction.Interaction;
 import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
 import org.jetbrains.annotations.ApiStatus;
 import org.jetbrains.annotations.NotNull;
 import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
 
 /**
  * Обработчик событий бота.
+ * <p>
+ * Каждый метод возвращает future, которое завершается, когда событие полностью обработано,
+ * включая асинхронную часть обработки. По умолчанию события игнорируются.
  *
  * @since 1.0.0
  * @author metabrix
  */
 public interface UpdateListener {
-    default void handleMessage(@NotNull MessageInteraction interaction) throws TelegramApiException {}
-
-    default void handleInlineQuery(@NotNull Interaction interaction) throws TelegramApiException {}
-
-    default void handleChosenInlineQuery(@NotNull Interaction interaction) throws TelegramApiException {}
-
-    default void handleCallbackQuery(@NotNull CallbackQueryInteraction interaction) throws TelegramApiException {}
-
-    default void handleEditedMessage(@NotNull MessageInteraction interaction) throws TelegramApiException {}
-
-    default void handleChannelPost(@NotNull MessageInteraction interaction) throws TelegramApiException {}
-
-    default void handleEditedChannelPost(@NotNull MessageInteraction interaction) throws TelegramApiException {}
-
-    default void handleShippingQuery(@NotNull Interaction interaction) throws TelegramApiException {}
-
-    default void handlePreCheckoutQuery(@NotNull Interaction interaction) throws TelegramApiException {}
-
-    default void handlePoll(@NotNull Interaction interaction) throws TelegramApiException {}
-
-    default void handlePollAnswer(@NotNull Interaction interaction) throws TelegramApiException {}
-
-    default void handleMyChatMember(@NotNull Interaction interaction) throws TelegramApiException {}
-
-    default void handleChatMember(@NotNull Interaction interaction) throws TelegramApiException {}
-
-    default void handleChatJoinRequest(@NotNull Interaction interaction) throws TelegramApiException {}
+    /**
+     * Возвращает типы событий, которые нужно получать из Telegram API (параметр <code>allowed_updates</code>).
+     * События остальных типов Telegram не присылает вовсе.
+     * <p>
+     * По умолчанию это типы, для которых обработчик переопределяет соответствующий метод. Обработчик,
+     * который обрабатывает события иначе, должен явно перечислить нужные ему типы.
+     *
+     * @return типы событий, которые обрабатывает обработчик
+     * @since 1.2.0
+     * @author metabrix
+     */
+    default @NotNull Set<@NotNull UpdateType> getHandledUpdateTypes() {
+        return UpdateType.handledBy(this);
+    }
+
+    default @NotNull CompletableFuture<Void> handleMessage(@NotNull MessageInteraction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleInlineQuery(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleChosenInlineQuery(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleCallbackQuery(@NotNull CallbackQueryInteraction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleEditedMessage(@NotNull MessageInteraction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleChannelPost(@NotNull MessageInteraction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleEditedChannelPost(@NotNull MessageInteraction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleShippingQuery(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handlePreCheckoutQuery(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handlePoll(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handlePollAnswer(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleMyChatMember(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleChatMember(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
+
+    default @NotNull CompletableFuture<Void> handleChatJoinRequest(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
 
     @ApiStatus.Experimental
-    default void handleMessageReaction(@NotNull Interaction interaction) throws TelegramApiException {}
+    default @NotNull CompletableFuture<Void> handleMessageReaction(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
 
     @ApiStatus.Experimental
-    default void handleMessageReactionCount(@NotNull Interaction interaction) throws TelegramApiException {}
+    default @NotNull CompletableFuture<Void> handleMessageReactionCount(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
 
     @ApiStatus.Experimental
-    default void handleChatBoost(@NotNull Interaction interaction) throws TelegramApiException {}
+    default @NotNull CompletableFuture<Void> handleChatBoost(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
 
     @ApiStatus.Experimental
-    default void handleRemovedChatBoost(@NotNull Interaction interaction) throws TelegramApiException {}
+    default @NotNull CompletableFuture<Void> handleRemovedChatBoost(@NotNull Interaction interaction) throws TelegramApiException {
+        return CompletableFuture.completedFuture(null);
+    }
 }
@@ -0,0 +1,117 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import java.lang.reflect.Method;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Тип события Telegram API.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public enum UpdateType {
+    MESSAGE("message", "handleMessage", Update::hasMessage),
+    EDITED_MESSAGE("edited_message", "handleEditedMessage", Update::hasEditedMessage),
+    CHANNEL_POST("channel_post", "handleChannelPost", Update::hasChannelPost),
+    EDITED_CHANNEL_POST("edited_channel_post", "handleEditedChannelPost", Update::hasEditedChannelPost),
+    INLINE_QUERY("inline_query", "handleInlineQuery", Update::hasInlineQuery),
+    CHOSEN_INLINE_QUERY("chosen_inline_result", "handleChosenInlineQuery", Update::hasChosenInlineQuery),
+    CALLBACK_QUERY("callback_query", "handleCallbackQuery", Update::hasCallbackQuery),
+    SHIPPING_QUERY("shipping_query", "handleShippingQuery", Update::hasShippingQuery),
+    PRE_CHECKOUT_QUERY("pre_checkout_query", "handlePreCheckoutQuery", Update::hasPreCheckoutQuery),
+    POLL("poll", "handlePoll", Update::hasPoll),
+    POLL_ANSWER("poll_answer", "handlePollAnswer", Update::hasPollAnswer),
+    MY_CHAT_MEMBER("my_chat_member", "handleMyChatMember", Update::hasMyChatMember),
+    CHAT_MEMBER("chat_member", "handleChatMember", Update::hasChatMember),
+    CHAT_JOIN_REQUEST("chat_join_request", "handleChatJoinRequest", Update::hasChatJoinRequest),
+    ;
+
+    private static final @NotNull UpdateType @NotNull [] VALUES = values();
+
+    private final @NotNull String apiName;
+    private final @NotNull String handlerName;
+    private final @NotNull Predicate<@NotNull Update> matcher;
+
+    UpdateType(@NotNull String apiName, @NotNull String handlerName, @NotNull Predicate<@NotNull Update> matcher) {
+        this.apiName = apiName;
+        this.handlerName = handlerName;
+        this.matcher = matcher;
+    }
+
+    /**
+     * Возвращает название типа в Telegram API, например, для параметра <code>allowed_updates</code>.
+     *
+     * @return название типа в Telegram API
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull String getApiName() {
+        return this.apiName;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return this.apiName;
+    }
+
+    /**
+     * Возвращает тип события.
+     *
+     * @param update событие
+     * @return тип события или {@code null}, если тип не поддерживается
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @Nullable UpdateType of(@NotNull Update update) {
+        for (UpdateType type : VALUES) {
+            if (type.matcher.test(update)) return type;
+        }
+        return null;
+    }
+
+    /**
+     * Возвращает типы событий, для которых обработчик переопределяет метод {@link UpdateListener}.
+     * События остальных типов обработчик игнорирует, поэтому получать их из Telegram API незачем.
+     *
+     * @param listener обработчик событий
+     * @return типы событий, которые обрабатывает обработчик, хотя бы один
+     * @throws IllegalArgumentException если обработчик не переопределяет ни одного метода: пустой
+     *                                  <code>allowed_updates</code> Telegram понимает как «все типы событий»
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull Set<@NotNull UpdateType> handledBy(@NotNull UpdateListener listener) {
+        EnumSet<UpdateType> types = EnumSet.noneOf(UpdateType.class);
+        for (Method method : listener.getClass().getMethods()) {
+            // у непереопределённых методов объявляющий класс — сам интерфейс с пустой реализацией
+            if (method.getDeclaringClass() == UpdateListener.class) continue;
+            for (UpdateType type : VALUES) {
+                if (type.handlerName.equals(method.getName())) types.add(type);
+            }
+        }
+        checkArgument(!types.isEmpty(), listener.getClass().getName() + " does not override any update handler");
+        return types;
+    }
+
+    /**
+     * Возвращает тип события по его названию в Telegram API.
+     *
+     * @param apiName название типа в Telegram API
+     * @return тип события или {@code null}, если типа с таким названием нет
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @Nullable UpdateType byApiName(@NotNull String apiName) {
+        for (UpdateType type : VALUES) {
+            if (type.apiName.equals(apiName)) return type;
+        }
+        return null;
+    }
+}
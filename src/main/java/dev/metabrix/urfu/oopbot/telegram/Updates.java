@@ -0,0 +1,50 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import org.jetbrains.annotations.NotNull;
+import org.telegram.telegrambots.meta.api.objects.MaybeInaccessibleMessage;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+/**
+ * Утилита для работы с событиями Telegram API.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class Updates {
+    private Updates() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Возвращает ключ упорядочивания события: ID чата, в котором произошло событие, либо
+     * ID пользователя для событий без чата (например, inline-запросов). События с одинаковым
+     * ключом должны обрабатываться строго по порядку.
+     * <p>
+     * ID личного чата с пользователем совпадает с ID пользователя, поэтому события пользователя
+     * без чата упорядочиваются вместе с его личным чатом.
+     *
+     * @param update событие
+     * @return ключ упорядочивания или {@code 0}, если событие не относится ни к чату, ни к пользователю
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static long getOrderingKey(@NotNull Update update) {
+        if (update.hasMessage()) return update.getMessage().getChatId();
+        if (update.hasCallbackQuery()) {
+            MaybeInaccessibleMessage message = update.getCallbackQuery().getMessage();
+            return message != null ? message.getChatId() : update.getCallbackQuery().getFrom().getId();
+        }
+        if (update.hasEditedMessage()) return update.getEditedMessage().getChatId();
+        if (update.hasChannelPost()) return update.getChannelPost().getChatId();
+        if (update.hasEditedChannelPost()) return update.getEditedChannelPost().getChatId();
+        if (update.hasInlineQuery()) return update.getInlineQuery().getFrom().getId();
+        if (update.hasChosenInlineQuery()) return update.getChosenInlineQuery().getFrom().getId();
+        if (update.hasShippingQuery()) return update.getShippingQuery().getFrom().getId();
+        if (update.hasPreCheckoutQuery()) return update.getPreCheckoutQuery().getFrom().getId();
+        if (update.hasPollAnswer() && update.getPollAnswer().getUser() != null) return update.getPollAnswer().getUser().getId();
+        if (update.hasMyChatMember()) return update.getMyChatMember().getChat().getId();
+        if (update.hasChatMember()) return update.getChatMember().getChat().getId();
+        if (update.hasChatJoinRequest()) return update.getChatJoinRequest().getChat().getId();
+        return 0;
+    }
+}
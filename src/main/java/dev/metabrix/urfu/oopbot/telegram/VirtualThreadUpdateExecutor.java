@@ -0,0 +1,171 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkState;
+
+/**
+ * Исполнитель обработчиков событий, обрабатывающий каждый чат в отдельном виртуальном потоке.
+ * <p>
+ * Для чата, в котором есть необработанные события, запускается виртуальный поток, который
+ * обрабатывает очередь чата по порядку и завершается, когда очередь опустела. Блокирующие
+ * вызовы (JDBC, Telegram API) не занимают потоки платформы, поэтому тысячи медленных чатов
+ * обрабатываются одновременно. Пока асинхронная задача не завершилась, поток чата не ждёт её:
+ * он завершается, а обработку очереди продолжает новый поток после завершения задачи.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class VirtualThreadUpdateExecutor implements UpdateExecutor {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+    private static final long CLOSE_POLL_MILLIS = 10;
+
+    private final @NotNull ExecutorService executor = Executors.newThreadPerTaskExecutor(
+        Thread.ofVirtual().name("Update Worker #", 0).factory()
+    );
+    private final @NotNull ConcurrentHashMap<@NotNull Long, @NotNull ChatQueue> chats = new ConcurrentHashMap<>();
+    private final @NotNull AtomicInteger queuedUpdates = new AtomicInteger();
+    private final @NotNull WaitStats waitStats = new WaitStats();
+    private volatile boolean closed = false;
+
+    @Override
+    public void executeAsync(long orderingKey, @NotNull Supplier<? extends @NotNull CompletionStage<?>> task) {
+        checkState(!this.closed, "Executor is closed");
+
+        QueuedTask queuedTask = new QueuedTask(task, System.nanoTime());
+        this.queuedUpdates.incrementAndGet();
+
+        // очередь чата создаётся и удаляется только внутри compute, поэтому у чата всегда не больше одного потока
+        boolean[] created = new boolean[1];
+        ChatQueue queue = this.chats.compute(orderingKey, (key, existing) -> {
+            ChatQueue chatQueue = existing;
+            if (chatQueue == null) {
+                chatQueue = new ChatQueue(key);
+                created[0] = true;
+            }
+            chatQueue.tasks.add(queuedTask);
+            return chatQueue;
+        });
+        if (created[0]) this.executor.execute(() -> this.drain(queue));
+    }
+
+    @Override
+    public @NotNull List<@NotNull QueueStats> getStats() {
+        return List.of(this.waitStats.snapshot(
+            "Virtual threads (" + this.chats.size() + " active chats)",
+            this.queuedUpdates.get()
+        ));
+    }
+
+    @Override
+    public void close() {
+        if (this.closed) return;
+        this.closed = true;
+
+        // очередь чата удаляется, только когда все её задачи, в том числе асинхронные, завершились
+        this.awaitChats(Long.MAX_VALUE);
+        this.executor.close();
+    }
+
+    @Override
+    public int close(@NotNull Duration timeout) {
+        if (this.closed) return 0;
+        this.closed = true;
+
+        long deadlineNanos = System.nanoTime() + timeout.toNanos();
+        boolean drained = this.awaitChats(deadlineNanos);
+        this.executor.shutdown();
+        if (drained) return 0;
+
+        // задачи, которые не успели начаться, отбрасываем, а потоки чатов завершатся после текущих задач
+        int dropped = 0;
+        for (Long key : this.chats.keySet()) {
+            int[] abandoned = new int[1];
+            this.chats.computeIfPresent(key, (k, chatQueue) -> {
+                abandoned[0] = chatQueue.tasks.size();
+                chatQueue.tasks.clear();
+                return chatQueue;
+            });
+            this.queuedUpdates.addAndGet(-abandoned[0]);
+            dropped += abandoned[0];
+        }
+        return dropped;
+    }
+
+    private boolean awaitChats(long deadlineNanos) {
+        while (!this.chats.isEmpty()) {
+            if (deadlineNanos - System.nanoTime() <= 0) return false;
+            try {
+                Thread.sleep(CLOSE_POLL_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void drain(@NotNull ChatQueue queue) {
+        QueuedTask queuedTask;
+        while ((queuedTask = this.poll(queue)) != null) {
+            this.queuedUpdates.decrementAndGet();
+            this.waitStats.record(queuedTask.enqueuedNanos());
+            CompletableFuture<?> future;
+            try {
+                future = queuedTask.task().get().toCompletableFuture();
+            } catch (Throwable t) {
+                LOGGER.error("Unhandled exception while handling an update of chat {}", queue.key, t);
+                continue;
+            }
+            if (!future.isDone()) {
+                // очередь чата остаётся в chats, поэтому новые задачи чата не запустят второй поток
+                future.whenComplete((result, throwable) -> this.resume(queue));
+                return;
+            }
+        }
+    }
+
+    private void resume(@NotNull ChatQueue queue) {
+        try {
+            this.executor.execute(() -> this.drain(queue));
+        } catch (RejectedExecutionException ex) {
+            // исполнитель закрыт по таймауту, оставшиеся задачи чата уже отброшены
+        }
+    }
+
+    private @Nullable QueuedTask poll(@NotNull ChatQueue queue) {
+        QueuedTask[] next = new QueuedTask[1];
+        this.chats.computeIfPresent(queue.key, (key, chatQueue) -> {
+            next[0] = chatQueue.tasks.poll();
+            return next[0] == null ? null : chatQueue;
+        });
+        return next[0];
+    }
+
+    private record QueuedTask(@NotNull Supplier<? extends @NotNull CompletionStage<?>> task, long enqueuedNanos) {
+    }
+
+    private static final class ChatQueue {
+        private final long key;
+        private final @NotNull Queue<@NotNull QueuedTask> tasks = new ArrayDeque<>();
+
+        private ChatQueue(long key) {
+            this.key = key;
+        }
+    }
+}
@@ -0,0 +1,53 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Счётчики времени ожидания событий в очереди исполнителя.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+final class WaitStats {
+    private final @NotNull LongAdder processedUpdates = new LongAdder();
+    private final @NotNull LongAdder totalWaitNanos = new LongAdder();
+    private final @NotNull AtomicLong maxWaitNanos = new AtomicLong();
+
+    /**
+     * Учитывает событие, взятое из очереди на обработку.
+     *
+     * @param enqueuedNanos значение {@link System#nanoTime()} на момент постановки события в очередь
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void record(long enqueuedNanos) {
+        long waitNanos = System.nanoTime() - enqueuedNanos;
+        this.totalWaitNanos.add(waitNanos);
+        this.maxWaitNanos.accumulateAndGet(waitNanos, Math::max);
+        this.processedUpdates.increment();
+    }
+
+    /**
+     * Возвращает снимок счётчиков.
+     *
+     * @param name название очереди
+     * @param queueDepth текущее количество событий в очереди
+     * @return статистика очереди
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull UpdateExecutor.QueueStats snapshot(@NotNull String name, int queueDepth) {
+        long processed = this.processedUpdates.sum();
+        double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+        return new UpdateExecutor.QueueStats(
+            name,
+            queueDepth,
+            processed,
+            processed == 0 ? 0 : this.totalWaitNanos.sum() / nanosPerMilli / processed,
+            this.maxWaitNanos.get() / nanosPerMilli
+        );
+    }
+}
@@ -0,0 +1,174 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.metabrix.urfu.oopbot.util.LogUtils;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.slf4j.Logger;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.generics.BotOptions;
+import org.telegram.telegrambots.meta.generics.BotSession;
+import org.telegram.telegrambots.meta.generics.LongPollingBot;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkState;
+
+/**
+ * Сессия бота, получающая события Telegram API через вебхук.
+ * <p>
+ * Сессия запускает встроенный HTTP-сервер, который принимает POST-запросы с событиями,
+ * декодирует их и передаёт в {@link LongPollingBot#onUpdateReceived(Update)} того же бота,
+ * что и при long polling. Каждый запрос обрабатывается в отдельном виртуальном потоке.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class WebhookBotSession implements BotSession {
+    private static final @NotNull Logger LOGGER = LogUtils.getLogger();
+    private static final @NotNull ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    /**
+     * Заголовок, в котором Telegram передаёт секретный токен вебхука.
+     *
+     * @since 1.2.0
+     */
+    public static final @NotNull String SECRET_TOKEN_HEADER = "X-Telegram-Bot-Api-Secret-Token";
+
+    private final @NotNull InetSocketAddress address;
+    private final @NotNull String path;
+    private final byte @Nullable [] secretToken;
+
+    private @Nullable LongPollingBot callback;
+    private @Nullable HttpServer server;
+    private @Nullable ExecutorService executor;
+
+    /**
+     * Создаёт сессию.
+     *
+     * @param address адрес, на котором HTTP-сервер будет принимать подключения
+     * @param path путь, по которому HTTP-сервер будет принимать события
+     * @param secretToken секретный токен, который должен быть в каждом запросе, или {@code null},
+     *                    если проверять запросы не нужно
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public WebhookBotSession(@NotNull InetSocketAddress address, @NotNull String path, @Nullable String secretToken) {
+        this.address = address;
+        this.path = path;
+        this.secretToken = secretToken == null ? null : secretToken.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void setOptions(BotOptions options) {
+        // настройки long polling к вебхуку не применимы
+    }
+
+    @Override
+    public void setToken(String token) {
+        // токен нужен только для запросов к Telegram API, а вебхук их не делает
+    }
+
+    @Override
+    public void setCallback(@NotNull LongPollingBot callback) {
+        this.callback = callback;
+    }
+
+    @Override
+    public synchronized void start() {
+        checkState(this.server == null, "Session is already running");
+        checkState(this.callback != null, "Callback is not set");
+
+        HttpServer server;
+        try {
+            server = HttpServer.create(this.address, 0);
+        } catch (IOException ex) {
+            throw new IllegalStateException("Failed to start the webhook server on " + this.address, ex);
+        }
+        ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+        server.setExecutor(executor);
+        server.createContext(this.path, this::handleExchange);
+        server.start();
+
+        this.server = server;
+        this.executor = executor;
+        LOGGER.info("Listening for webhook updates on {}{}", server.getAddress(), this.path);
+    }
+
+    @Override
+    public synchronized void stop() {
+        if (this.server == null) return;
+
+        this.server.stop(0);
+        this.server = null;
+        if (this.executor != null) {
+            this.executor.close();
+            this.executor = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning() {
+        return this.server != null;
+    }
+
+    /**
+     * Возвращает адрес, на котором HTTP-сервер фактически принимает подключения. Полезно,
+     * если сессия запущена на порту {@code 0}.
+     *
+     * @return адрес HTTP-сервера
+     * @throws IllegalStateException если сессия не запущена
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public synchronized @NotNull InetSocketAddress getBoundAddress() {
+        checkState(this.server != null, "Session is not running");
+        return this.server.getAddress();
+    }
+
+    private void handleExchange(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            if (!"POST".equals(exchange.getRequestMethod())) {
+                exchange.sendResponseHeaders(405, -1);
+                return;
+            }
+            if (!this.isAuthorized(exchange)) {
+                exchange.sendResponseHeaders(401, -1);
+                return;
+            }
+
+            Update update;
+            try (InputStream is = exchange.getRequestBody()) {
+                update = OBJECT_MAPPER.readValue(is, Update.class);
+            } catch (IOException ex) {
+                LOGGER.warn("Received malformed webhook update from {}", exchange.getRemoteAddress(), ex);
+                exchange.sendResponseHeaders(400, -1);
+                return;
+            }
+
+            LongPollingBot callback = this.callback;
+            assert callback != null : "Callback must be set before the session is started";
+            try {
+                callback.onUpdateReceived(update);
+            } catch (Exception ex) {
+                // отвечаем 200 в любом случае: иначе Telegram будет повторно присылать то же событие
+                LOGGER.error("Failed to handle webhook update {}", update.getUpdateId(), ex);
+            }
+            exchange.sendResponseHeaders(200, -1);
+        }
+    }
+
+    private boolean isAuthorized(@NotNull HttpExchange exchange) {
+        if (this.secretToken == null) return true;
+
+        String header = exchange.getRequestHeaders().getFirst(SECRET_TOKEN_HEADER);
+        return header != null && MessageDigest.isEqual(this.secretToken, header.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -19,6 +19,7 @@ public enum Emoji {
     KEYCAP_SUFFIX("\ufe0f\u20e3"),
     EXCLAMATION_MARK("\u2757"),
     TRASH_BIN("\ud83d\uddd1"),
+    HOURGLASS("\u23f3"),
     ;
 
     private final @NotNull String unicode;
@@ -1,5 +1,6 @@
 package dev.metabrix.urfu.oopbot.util;
 
+import dev.metabrix.urfu.oopbot.util.markdown.MarkdownWriter;
 import org.jetbrains.annotations.NotNull;
 
 /**
@@ -26,10 +27,11 @@ public class Util {
      *
      * @param string строка
      * @return экранированная строка
+     * @see MarkdownWriter#escape(String)
      * @since 1.1.0
      * @author metabrix
      */
     public static @NotNull String sanitizeString(@NotNull String string) {
-        return string.replaceAll("([_*\\[\\]()~`>#+\\-=|{}.!])", "\\\\$1");
+        return MarkdownWriter.escape(string);
     }
 }
@@ -0,0 +1,150 @@
+package dev.metabrix.urfu.oopbot.util.callback;
+
+import dev.metabrix.urfu.oopbot.util.command.CommandContext;
+import dev.metabrix.urfu.oopbot.util.command.CommandExecutionResult;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+import static dev.metabrix.urfu.oopbot.util.Checks.checkState;
+
+/**
+ * Кодек данных кнопок.
+ * <p>
+ * Данные кнопки кодируются так: байт версии формата, номер действия и поля данных (см. {@link CallbackWriter}),
+ * всё вместе — в base64url без выравнивания. Telegram ограничивает данные кнопки 64 байтами, поэтому
+ * в двоичном виде помещается {@value #MAX_PAYLOAD_SIZE} байт.
+ * <p>
+ * Каждый тип данных регистрируется под постоянным номером действия вместе с функцией чтения и
+ * обработчиком. Номера действий нельзя менять и переиспользовать: кнопки в старых сообщениях
+ * продолжают присылать их, пока сообщения не удалены.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class CallbackCodec {
+    /**
+     * Наибольший размер данных кнопки в двоичном виде, который помещается в 64 символа base64url.
+     */
+    public static final int MAX_PAYLOAD_SIZE = 48;
+
+    private static final int VERSION = 1;
+    private static final @NotNull Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final @NotNull Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final @NotNull Map<@NotNull Integer, @NotNull Registration<?>> byAction = new HashMap<>();
+    private final @NotNull Map<@NotNull Class<?>, @NotNull Registration<?>> byType = new HashMap<>();
+
+    /**
+     * Регистрирует тип данных кнопки.
+     *
+     * @param action номер действия, неотрицательный и уникальный в этом кодеке
+     * @param type тип данных
+     * @param reader функция, читающая данные
+     * @param handler обработчик нажатия кнопки
+     * @param <T> тип данных
+     * @return {@code this}
+     * @throws IllegalArgumentException если номер действия или тип уже зарегистрированы
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public <T extends CallbackData> @NotNull CallbackCodec register(
+        int action,
+        @NotNull Class<T> type,
+        @NotNull Function<@NotNull CallbackReader, @NotNull T> reader,
+        @NotNull CallbackHandler<? super T> handler
+    ) {
+        checkArgument(action >= 0, "Callback action must not be negative");
+        checkArgument(!this.byAction.containsKey(action), "Callback action " + action + " is already registered");
+        checkArgument(!this.byType.containsKey(type), "Callback data type " + type.getName() + " is already registered");
+
+        Registration<T> registration = new Registration<>(action, reader, handler);
+        this.byAction.put(action, registration);
+        this.byType.put(type, registration);
+        return this;
+    }
+
+    /**
+     * Кодирует данные кнопки.
+     *
+     * @param data данные
+     * @return строка для <code>callback_data</code>
+     * @throws IllegalStateException если тип данных не зарегистрирован
+     * @throws IllegalArgumentException если данные не помещаются в кнопку
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull String encode(@NotNull CallbackData data) {
+        Registration<?> registration = this.byType.get(data.getClass());
+        checkState(registration != null, "Callback data type " + data.getClass().getName() + " is not registered");
+
+        CallbackWriter writer = new CallbackWriter();
+        writer.writeUnsigned(VERSION);
+        writer.writeUnsigned(registration.action());
+        data.write(writer);
+        return ENCODER.encodeToString(writer.toByteArray());
+    }
+
+    /**
+     * Декодирует данные кнопки.
+     *
+     * @param callbackData строка из <code>callback_data</code>
+     * @return данные вместе с обработчиком или {@code null}, если строка не является данными
+     *         этого кодека, например, если это кнопка, отправленная до появления кодека
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @Nullable Decoded<?> decode(@NotNull String callbackData) {
+        try {
+            byte[] bytes = DECODER.decode(callbackData);
+            CallbackReader reader = new CallbackReader(bytes, 0);
+            if (reader.readUnsigned() != VERSION) return null;
+
+            Registration<?> registration = this.byAction.get((int) Math.min(reader.readUnsigned(), Integer.MAX_VALUE));
+            if (registration == null) return null;
+            return registration.read(reader);
+        } catch (IllegalArgumentException ex) {
+            return null;
+        }
+    }
+
+    /**
+     * Декодированные данные кнопки.
+     *
+     * @param data данные
+     * @param handler обработчик данных
+     * @param <T> тип данных
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record Decoded<T extends CallbackData>(@NotNull T data, @NotNull CallbackHandler<? super T> handler) {
+        /**
+         * Передаёт данные обработчику.
+         *
+         * @param ctx контекст, в котором была нажата кнопка
+         * @return результат
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public @NotNull CompletableFuture<@NotNull CommandExecutionResult> handle(@NotNull CommandContext ctx) {
+            return this.handler.handleCallback(ctx, this.data);
+        }
+    }
+
+    private record Registration<T extends CallbackData>(
+        int action,
+        @NotNull Function<@NotNull CallbackReader, @NotNull T> reader,
+        @NotNull CallbackHandler<? super T> handler
+    ) {
+        private @NotNull Decoded<T> read(@NotNull CallbackReader input) {
+            T data = this.reader.apply(input);
+            checkArgument(!input.hasRemaining(), "Callback data has trailing bytes");
+            return new Decoded<>(data, this.handler);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package dev.metabrix.urfu.oopbot.util.callback;
+
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Данные кнопки, которые передаются в обработчик при её нажатии.
+ * <p>
+ * Данные кодируются {@link CallbackCodec} в компактный двоичный вид. Чтобы данные можно было
+ * декодировать, их тип должен быть зарегистрирован в кодеке вместе с функцией чтения,
+ * которая читает поля в том же порядке, в котором их записывает {@link #write(CallbackWriter)}.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public interface CallbackData {
+    /**
+     * Записывает поля данных.
+     *
+     * @param writer куда записать поля
+     * @since 1.2.0
+     * @author metabrix
+     */
+    void write(@NotNull CallbackWriter writer);
+}
@@ -0,0 +1,27 @@
+package dev.metabrix.urfu.oopbot.util.callback;
+
+import dev.metabrix.urfu.oopbot.util.command.CommandContext;
+import dev.metabrix.urfu.oopbot.util.command.CommandExecutionResult;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Обработчик нажатия кнопки с данными определённого типа.
+ *
+ * @param <T> тип данных кнопки
+ * @since 1.2.0
+ * @author metabrix
+ */
+@FunctionalInterface
+public interface CallbackHandler<T extends CallbackData> {
+    /**
+     * Обрабатывает нажатие кнопки.
+     *
+     * @param ctx контекст, в котором была нажата кнопка
+     * @param data данные кнопки
+     * @return результат
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull CompletableFuture<@NotNull CommandExecutionResult> handleCallback(@NotNull CommandContext ctx, @NotNull T data);
+}
@@ -0,0 +1,98 @@
+package dev.metabrix.urfu.oopbot.util.callback;
+
+import java.nio.charset.StandardCharsets;
+import org.jetbrains.annotations.NotNull;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Чтение полей {@link CallbackData}, записанных {@link CallbackWriter}.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class CallbackReader {
+    private final byte @NotNull [] bytes;
+    private int position;
+
+    CallbackReader(byte @NotNull [] bytes, int position) {
+        this.bytes = bytes;
+        this.position = position;
+    }
+
+    /**
+     * Читает целое число.
+     *
+     * @return число
+     * @throws IllegalArgumentException если данные повреждены
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int readInt() {
+        long value = this.readLong();
+        checkArgument(value == (int) value, "Callback data integer is out of range");
+        return (int) value;
+    }
+
+    /**
+     * Читает целое число.
+     *
+     * @return число
+     * @throws IllegalArgumentException если данные повреждены
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long readLong() {
+        long value = this.readUnsigned();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Читает логическое значение.
+     *
+     * @return значение
+     * @throws IllegalArgumentException если данные повреждены
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public boolean readBoolean() {
+        int value = this.readByte();
+        checkArgument(value == 0 || value == 1, "Callback data boolean is malformed");
+        return value == 1;
+    }
+
+    /**
+     * Читает строку.
+     *
+     * @return строка
+     * @throws IllegalArgumentException если данные повреждены
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull String readString() {
+        long length = this.readUnsigned();
+        checkArgument(length <= this.bytes.length - this.position, "Callback data is truncated");
+        String value = new String(this.bytes, this.position, (int) length, StandardCharsets.UTF_8);
+        this.position += (int) length;
+        return value;
+    }
+
+    long readUnsigned() {
+        long value = 0;
+        for (int shift = 0; shift < Long.SIZE; shift += 7) {
+            int b = this.readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) return value;
+        }
+        throw new IllegalArgumentException("Callback data varint is too long");
+    }
+
+    boolean hasRemaining() {
+        return this.position < this.bytes.length;
+    }
+
+    private int readByte() {
+        checkArgument(this.position < this.bytes.length, "Callback data is truncated");
+        return this.bytes[this.position++] & 0xFF;
+    }
+}
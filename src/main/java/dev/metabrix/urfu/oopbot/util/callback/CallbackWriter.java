@@ -0,0 +1,106 @@
+package dev.metabrix.urfu.oopbot.util.callback;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.jetbrains.annotations.NotNull;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Запись полей {@link CallbackData} в двоичном виде.
+ * <p>
+ * Целые числа записываются в формате varint с zigzag-кодированием, поэтому маленькие числа,
+ * в том числе отрицательные, занимают один байт. Строки записываются в UTF-8 с длиной перед ними.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class CallbackWriter {
+    private final byte @NotNull [] buffer = new byte[CallbackCodec.MAX_PAYLOAD_SIZE];
+    private int size = 0;
+
+    CallbackWriter() {
+    }
+
+    /**
+     * Записывает целое число.
+     *
+     * @param value число
+     * @return {@code this}
+     * @throws IllegalArgumentException если данные не помещаются в кнопку
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull CallbackWriter writeInt(int value) {
+        return this.writeLong(value);
+    }
+
+    /**
+     * Записывает целое число.
+     *
+     * @param value число
+     * @return {@code this}
+     * @throws IllegalArgumentException если данные не помещаются в кнопку
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull CallbackWriter writeLong(long value) {
+        return this.writeUnsigned((value << 1) ^ (value >> 63));
+    }
+
+    /**
+     * Записывает логическое значение.
+     *
+     * @param value значение
+     * @return {@code this}
+     * @throws IllegalArgumentException если данные не помещаются в кнопку
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull CallbackWriter writeBoolean(boolean value) {
+        return this.writeByte(value ? 1 : 0);
+    }
+
+    /**
+     * Записывает строку.
+     *
+     * @param value строка
+     * @return {@code this}
+     * @throws IllegalArgumentException если данные не помещаются в кнопку
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull CallbackWriter writeString(@NotNull String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        this.writeUnsigned(bytes.length);
+        this.ensureCapacity(bytes.length);
+        System.arraycopy(bytes, 0, this.buffer, this.size, bytes.length);
+        this.size += bytes.length;
+        return this;
+    }
+
+    @NotNull CallbackWriter writeUnsigned(long value) {
+        while ((value & ~0x7FL) != 0) {
+            this.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        return this.writeByte((int) value);
+    }
+
+    private @NotNull CallbackWriter writeByte(int value) {
+        this.ensureCapacity(1);
+        this.buffer[this.size++] = (byte) value;
+        return this;
+    }
+
+    private void ensureCapacity(int bytes) {
+        checkArgument(
+            this.size + bytes <= this.buffer.length,
+            "Callback data does not fit into " + CallbackCodec.MAX_PAYLOAD_SIZE + " bytes"
+        );
+    }
+
+    byte @NotNull [] toByteArray() {
+        return Arrays.copyOf(this.buffer, this.size);
+    }
+}
@@ -0,0 +1,54 @@
+package dev.metabrix.urfu.oopbot.util.command;
+
+import dev.metabrix.urfu.oopbot.util.command.arguments.CommandArguments;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Результат разбора аргументов команды по схеме {@link CommandArguments}.
+ *
+ * @param <T> тип аргументов
+ * @since 1.2.0
+ * @author metabrix
+ */
+public sealed interface ArgumentParseResult<T> {
+    /**
+     * Аргументы успешно разобраны.
+     *
+     * @param arguments аргументы
+     * @param <T> тип аргументов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record Success<T>(@NotNull T arguments) implements ArgumentParseResult<T> {
+    }
+
+    /**
+     * Аргумент не удалось разобрать.
+     *
+     * @param argument название аргумента в схеме
+     * @param reason причина
+     * @param cursor позиция курсора ввода, на которой находится аргумент
+     * @param <T> тип аргументов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    record Failure<T>(@NotNull String argument, @NotNull Reason reason, int cursor) implements ArgumentParseResult<T> {
+    }
+
+    /**
+     * Причина ошибки разбора аргумента.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    enum Reason {
+        /**
+         * Ввод закончился раньше обязательного аргумента.
+         */
+        MISSING,
+        /**
+         * Токен нельзя прочитать как значение аргумента, например, это не число.
+         */
+        INVALID,
+    }
+}
@@ -0,0 +1,45 @@
+package dev.metabrix.urfu.oopbot.util.command;
+
+import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
+import dev.metabrix.urfu.oopbot.telegram.MessageUpdateContext;
+import dev.metabrix.urfu.oopbot.util.callback.CallbackData;
+import org.jetbrains.annotations.NotNull;
+import org.telegram.telegrambots.meta.api.objects.Message;
+
+public class CallbackContextImpl implements CommandContext {
+    private final @NotNull MessageInteraction interaction;
+    private final @NotNull MessageUpdateContext updateContext;
+    private final @NotNull CallbackData data;
+    private final @NotNull CommandInput input = CommandInput.of("");
+
+    public CallbackContextImpl(@NotNull MessageInteraction interaction, @NotNull CallbackData data) {
+        this.interaction = interaction;
+        this.updateContext = new MessageUpdateContext(interaction);
+        this.data = data;
+    }
+
+    @Override
+    public @NotNull MessageInteraction getInteraction() {
+        return this.interaction;
+    }
+
+    @Override
+    public @NotNull MessageUpdateContext getUpdateContext() {
+        return this.updateContext;
+    }
+
+    @Override
+    public @NotNull Message getCallbackMessage() {
+        return this.interaction.getMessage();
+    }
+
+    @Override
+    public @NotNull CommandInput getCommandInput() {
+        return this.input;
+    }
+
+    @Override
+    public String toString() {
+        return "CallbackContextImpl{interaction=%s, data=%s}".formatted(this.interaction, this.data);
+    }
+}
@@ -4,9 +4,11 @@ import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
 import dev.metabrix.urfu.oopbot.storage.DataStorage;
 import dev.metabrix.urfu.oopbot.storage.model.Chat;
 import dev.metabrix.urfu.oopbot.storage.model.User;
+import dev.metabrix.urfu.oopbot.telegram.MessageUpdateContext;
 import java.util.NoSuchElementException;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
+import org.telegram.telegrambots.meta.api.objects.CallbackQuery;
 import org.telegram.telegrambots.meta.api.objects.Message;
 
 /**
@@ -46,6 +48,20 @@ public interface CommandContext {
         return this.getInteraction().getMessage();
     }
 
+    /**
+     * Возвращает сообщение с кнопкой, нажатие которой вызвало исполнение команды.
+     *
+     * @return сообщение с кнопкой или {@code null}, если команда вызвана не кнопкой,
+     *         или сообщение с кнопкой недоступно боту
+     * @since 1.2.0
+     * @author metabrix
+     */
+    default @Nullable Message getCallbackMessage() {
+        CallbackQuery query = this.getInteraction().getUpdate().getCallbackQuery();
+        if (query == null) return null;
+        return query.getMessage() instanceof Message message ? message : null;
+    }
+
     /**
      * Возвращает чат, в котором была вызвана команда, в виде объекта Telegram API.
      *
@@ -65,7 +81,7 @@ public interface CommandContext {
      * @author metabrix
      */
     default @NotNull org.telegram.telegrambots.meta.api.objects.User getTelegramSender() {
-        return this.getMessage().getFrom();
+        return this.getInteraction().getTelegramUser();
     }
 
     /**
@@ -76,7 +92,7 @@ public interface CommandContext {
      * @author metabrix
      */
     default @Nullable Chat getChatIfExists() {
-        return this.getInteraction().getChatIfExists();
+        return this.getUpdateContext().getChatIfExists();
     }
 
     /**
@@ -90,7 +106,9 @@ public interface CommandContext {
      * @author metabrix
      */
     default @NotNull Chat getChat() {
-        return this.getInteraction().getChat();
+        Chat chat = this.getChatIfExists();
+        if (chat == null) throw new NoSuchElementException("Chat " + this.getTelegramChat() + " not found in data storage");
+        return chat;
     }
 
     /**
@@ -101,7 +119,7 @@ public interface CommandContext {
      * @author metabrix
      */
     default @Nullable User getSenderIfExists() {
-        return this.getInteraction().getUserIfExists();
+        return this.getUpdateContext().getAndUpdateUserIfExists();
     }
 
     /**
@@ -116,9 +134,22 @@ public interface CommandContext {
      * @author metabrix
      */
     default @NotNull User getSender() {
-        return this.getInteraction().getUser();
+        User user = this.getSenderIfExists();
+        if (user == null) throw new NoSuchElementException("User " + this.getTelegramSender() + " not found in data storage");
+        return user;
     }
 
+    /**
+     * Возвращает контекст события, в котором была вызвана команда. Контекст запоминает пользователя
+     * и чат из хранилища данных, так что этапы {@link CommandPipeline конвейера} и обработчик команды
+     * получают их из хранилища только один раз.
+     *
+     * @return контекст события
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull MessageUpdateContext getUpdateContext();
+
     /**
      * Возвращает командную строку.
      *
@@ -1,18 +1,20 @@
 package dev.metabrix.urfu.oopbot.util.command;
 
 import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
+import dev.metabrix.urfu.oopbot.telegram.MessageUpdateContext;
 import org.jetbrains.annotations.NotNull;
 
 public class CommandContextImpl implements CommandContext {
     private final @NotNull MessageInteraction interaction;
+    private final @NotNull MessageUpdateContext updateContext;
     private final @NotNull CommandInput input;
 
     public CommandContextImpl(@NotNull MessageInteraction interaction) {
         this.interaction = interaction;
+        this.updateContext = new MessageUpdateContext(interaction);
 
-        String rawInput = this.getMessage().getText();
-        if (rawInput.startsWith("/")) rawInput = rawInput.substring(1);
-        this.input = CommandInput.of(rawInput);
+        String text = this.getMessage().getText();
+        this.input = CommandInput.of(text, text.startsWith("/") ? 1 : 0);
     }
 
     @Override
@@ -20,6 +22,11 @@ public class CommandContextImpl implements CommandContext {
         return this.interaction;
     }
 
+    @Override
+    public @NotNull MessageUpdateContext getUpdateContext() {
+        return this.updateContext;
+    }
+
     @Override
     public @NotNull CommandInput getCommandInput() {
         return this.input;
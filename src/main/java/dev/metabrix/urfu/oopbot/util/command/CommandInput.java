@@ -3,6 +3,8 @@ package dev.metabrix.urfu.oopbot.util.command;
 import java.util.StringTokenizer;
 import org.jetbrains.annotations.NotNull;
 
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
 /**
  * Введённая командная строка.
  */
@@ -19,6 +21,20 @@ public interface CommandInput {
         return new CommandInputImpl(input);
     }
 
+    /**
+     * Возвращает {@link CommandInput} для части строки, начинающейся с указанного символа, не копируя её.
+     *
+     * @param input строка
+     * @param offset индекс первого символа командной строки
+     * @return обёртка над частью строки
+     * @since 1.2.0
+     * @author metabrix
+     */
+    static @NotNull CommandInput of(@NotNull String input, int offset) {
+        checkArgument(0 <= offset && offset <= input.length(), "Offset must be between 0 and the input length");
+        return new CommandInputImpl(input, offset, 0);
+    }
+
     /**
      * Возвращает новый пустой {@link CommandInput}.
      *
@@ -381,6 +397,32 @@ public interface CommandInput {
         return Float.parseFloat(this.peekToken());
     }
 
+    /**
+     * Проверяет, можно ли прочитать следующий токен через {@link #readInt()}, не перемещая курсор
+     * и не выбрасывая исключений.
+     *
+     * @return {@code true}, если токен — целое число в пределах {@link Integer}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    default boolean canReadInt() {
+        String token = this.copy().readToken();
+        return CommandInputImpl.isInteger(token, 0, token.length(), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Проверяет, можно ли прочитать следующий токен через {@link #readLong()}, не перемещая курсор
+     * и не выбрасывая исключений.
+     *
+     * @return {@code true}, если токен — целое число в пределах {@link Long}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    default boolean canReadLong() {
+        String token = this.copy().readToken();
+        return CommandInputImpl.isInteger(token, 0, token.length(), Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
     /**
      * Читает токен в {@link Byte}, перемещая курсор.
      *
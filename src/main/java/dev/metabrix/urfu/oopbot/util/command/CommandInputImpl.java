@@ -1,28 +1,39 @@
 package dev.metabrix.urfu.oopbot.util.command;
 
 import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
 
 public class CommandInputImpl implements CommandInput {
-    private final String rawInput;
+    private final @NotNull String source;
+    private final int offset;
+    private @Nullable String rawInput;
     private int cursor;
 
     CommandInputImpl(final @NotNull String rawInput) {
-        this(rawInput, 0);
+        this(rawInput, 0, 0);
     }
 
-    CommandInputImpl(final @NotNull String rawInput, final int cursor) {
-        this.rawInput = rawInput;
+    CommandInputImpl(final @NotNull String source, final int offset, final int cursor) {
+        this.source = source;
+        this.offset = offset;
+        this.rawInput = offset == 0 ? source : null;
         this.cursor = cursor;
     }
 
     @Override
     public @NotNull String getRawInput() {
+        if (this.rawInput == null) this.rawInput = this.source.substring(this.offset);
         return this.rawInput;
     }
 
+    @Override
+    public int getRawLength() {
+        return this.source.length() - this.offset;
+    }
+
     @Override
     public @NotNull CommandInput appendString(@NotNull String string) {
-        return new CommandInputImpl(this.rawInput + string, this.cursor);
+        return new CommandInputImpl(this.getRawInput() + string, 0, this.cursor);
     }
 
     @Override
@@ -47,13 +58,214 @@ public class CommandInputImpl implements CommandInput {
         return this;
     }
 
+    @Override
+    public int countRemainingTokens() {
+        int tokens = 0;
+        boolean inToken = false;
+        for (int i = this.position(); i < this.source.length(); i++) {
+            boolean space = this.source.charAt(i) == ' ';
+            if (!space && !inToken) tokens++;
+            inToken = !space;
+        }
+        return tokens;
+    }
+
+    @Override
+    public @NotNull String getRemainingInput() {
+        return this.source.substring(this.position());
+    }
+
+    @Override
+    public @NotNull String getReadInput() {
+        return this.source.substring(this.offset, this.position());
+    }
+
+    @Override
+    public @NotNull String peekString(int chars) {
+        if (chars > this.getRemainingLength()) throw new CursorOutOfBoundsException(this.getCursor() + chars, this.getRawLength());
+        return this.source.substring(this.position(), this.position() + chars);
+    }
+
+    @Override
+    public char peekChar() {
+        if (!this.hasRemainingInput()) throw new CursorOutOfBoundsException(this.getCursor(), this.getRawLength());
+        return this.source.charAt(this.position());
+    }
+
+    @Override
+    public @NotNull String peekToken() {
+        if (!this.hasRemainingInput()) return "";
+
+        int start = this.peekTokenStart();
+        return this.source.substring(start, this.peekTokenEnd(start));
+    }
+
+    @Override
+    public @NotNull String readTokenUntil(char endChar) {
+        if (!this.hasRemainingInput()) return "";
+
+        int start = this.position();
+        int end = this.indexOfOrEnd(endChar, start);
+        this.cursor += end - start;
+        return this.source.substring(start, end);
+    }
+
+    @Override
+    public @NotNull CommandInput skipWhitespace(int maxSpaces) {
+        int limit = this.source.length();
+        for (int i = 0; i < maxSpaces && this.position() < limit && Character.isWhitespace(this.source.charAt(this.position())); i++) {
+            this.cursor++;
+        }
+        return this;
+    }
+
+    @Override
+    public byte peekByte() {
+        return toByte(this.peekInt());
+    }
+
+    @Override
+    public short peekShort() {
+        return toShort(this.peekInt());
+    }
+
+    @Override
+    public int peekInt() {
+        int start = this.peekTokenStart();
+        return Integer.parseInt(this.source, start, this.peekTokenEnd(start), 10);
+    }
+
+    @Override
+    public long peekLong() {
+        int start = this.peekTokenStart();
+        return Long.parseLong(this.source, start, this.peekTokenEnd(start), 10);
+    }
+
+    @Override
+    public boolean canReadInt() {
+        int start = this.readTokenStart();
+        return isInteger(this.source, start, this.indexOfOrEnd(' ', start), Integer.MIN_VALUE, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public boolean canReadLong() {
+        int start = this.readTokenStart();
+        return isInteger(this.source, start, this.indexOfOrEnd(' ', start), Long.MIN_VALUE, Long.MAX_VALUE);
+    }
+
+    @Override
+    public byte readByte() {
+        return toByte(this.readInt());
+    }
+
+    @Override
+    public short readShort() {
+        return toShort(this.readInt());
+    }
+
+    @Override
+    public int readInt() {
+        this.skipWhitespace();
+        int start = this.position();
+        int end = this.indexOfOrEnd(' ', start);
+        this.cursor += end - start;
+        return Integer.parseInt(this.source, start, end, 10);
+    }
+
+    @Override
+    public long readLong() {
+        this.skipWhitespace();
+        int start = this.position();
+        int end = this.indexOfOrEnd(' ', start);
+        this.cursor += end - start;
+        return Long.parseLong(this.source, start, end, 10);
+    }
+
     @Override
     public @NotNull CommandInput copy() {
-        return new CommandInputImpl(this.rawInput, this.cursor);
+        return new CommandInputImpl(this.source, this.offset, this.cursor);
     }
 
     @Override
     public @NotNull String toString() {
         return "CommandInputImpl{rawInput='%s', cursor=%d}".formatted(this.getRawInput(), this.getCursor());
     }
+
+    /**
+     * Возвращает позицию курсора в исходной строке.
+     */
+    private int position() {
+        return this.offset + this.cursor;
+    }
+
+    private int indexOfOrEnd(char ch, int fromIndex) {
+        int index = this.source.indexOf(ch, fromIndex);
+        return index == -1 ? this.source.length() : index;
+    }
+
+    /**
+     * Возвращает начало токена для {@link #peekToken()}: если в оставшемся вводе нет пробелов,
+     * токеном считается весь оставшийся ввод, иначе пробелы перед токеном пропускаются.
+     */
+    private int peekTokenStart() {
+        int start = this.position();
+        if (this.source.indexOf(' ', start) == -1) return start;
+
+        while (start < this.source.length() && Character.isWhitespace(this.source.charAt(start))) start++;
+        return start;
+    }
+
+    private int peekTokenEnd(int start) {
+        if (this.source.indexOf(' ', this.position()) == -1) return this.source.length();
+
+        int end = start;
+        while (end < this.source.length() && !Character.isWhitespace(this.source.charAt(end))) end++;
+        return end;
+    }
+
+    /**
+     * Возвращает начало токена для {@link #readToken()}, не перемещая курсор.
+     */
+    private int readTokenStart() {
+        int start = this.position();
+        while (start < this.source.length() && Character.isWhitespace(this.source.charAt(start))) start++;
+        return start;
+    }
+
+    /**
+     * Проверяет, что часть строки — целое число в указанных пределах, которое примет {@link Long#parseLong(CharSequence, int, int, int)}.
+     */
+    static boolean isInteger(@NotNull CharSequence s, int start, int end, long min, long max) {
+        if (start >= end) return false;
+
+        int i = start;
+        char first = s.charAt(i);
+        boolean negative = first == '-';
+        if (negative || first == '+') {
+            if (++i == end) return false;
+        }
+
+        // как в Long.parseLong, число накапливается отрицательным, чтобы поместился Long.MIN_VALUE
+        long limit = negative ? min : -max;
+        long limitBeforeMultiply = limit / 10;
+        long result = 0;
+        for (; i < end; i++) {
+            int digit = Character.digit(s.charAt(i), 10);
+            if (digit < 0 || result < limitBeforeMultiply) return false;
+            result *= 10;
+            if (result < limit + digit) return false;
+            result -= digit;
+        }
+        return true;
+    }
+
+    private static byte toByte(int value) {
+        if (value < Byte.MIN_VALUE || value > Byte.MAX_VALUE) throw new NumberFormatException("Value out of range: " + value);
+        return (byte) value;
+    }
+
+    private static short toShort(int value) {
+        if (value < Short.MIN_VALUE || value > Short.MAX_VALUE) throw new NumberFormatException("Value out of range: " + value);
+        return (short) value;
+    }
 }
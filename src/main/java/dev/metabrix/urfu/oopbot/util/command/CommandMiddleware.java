@@ -0,0 +1,47 @@
+package dev.metabrix.urfu.oopbot.util.command;
+
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Промежуточный обработчик команды в {@link CommandPipeline конвейере}.
+ * <p>
+ * Обработчик может выполнить действия до и после следующих этапов конвейера или не вызывать их вовсе,
+ * сразу вернув результат.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+@FunctionalInterface
+public interface CommandMiddleware {
+    /**
+     * Обрабатывает команду.
+     *
+     * @param ctx контекст выполнения команды
+     * @param next следующие этапы конвейера
+     * @return результат
+     * @throws Exception если обработка завершилась ошибкой
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @NotNull CompletableFuture<@NotNull CommandExecutionResult> handle(@NotNull CommandContext ctx, @NotNull Next next) throws Exception;
+
+    /**
+     * Следующие этапы конвейера.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @FunctionalInterface
+    interface Next {
+        /**
+         * Передаёт команду следующему этапу конвейера.
+         *
+         * @param ctx контекст выполнения команды
+         * @return результат следующих этапов
+         * @since 1.2.0
+         * @author metabrix
+         */
+        @NotNull CompletableFuture<@NotNull CommandExecutionResult> proceed(@NotNull CommandContext ctx);
+    }
+}
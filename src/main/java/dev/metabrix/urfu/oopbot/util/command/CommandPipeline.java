@@ -0,0 +1,227 @@
+package dev.metabrix.urfu.oopbot.util.command;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Конвейер выполнения команд: упорядоченные {@link CommandMiddleware промежуточные обработчики}
+ * вокруг обработчика команды.
+ * <p>
+ * Для каждого этапа учитывается собственное время выполнения, без учёта времени следующих этапов,
+ * так что по статистике видно, какой этап занимает больше всего времени. Обработчик команды
+ * учитывается как последний этап {@value #HANDLER_STAGE}.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class CommandPipeline {
+    /**
+     * Название этапа обработчика команды.
+     */
+    public static final @NotNull String HANDLER_STAGE = "handler";
+
+    private final @NotNull Stage @NotNull [] stages;
+    private final @NotNull Stage handlerStage = new Stage(HANDLER_STAGE, null);
+
+    private CommandPipeline(@NotNull List<@NotNull Stage> stages) {
+        this.stages = stages.toArray(Stage[]::new);
+    }
+
+    /**
+     * Создаёт построитель конвейера.
+     *
+     * @return построитель
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull Builder builder() {
+        return new Builder();
+    }
+
+    /**
+     * Выполняет команду, пропуская её через все этапы конвейера.
+     *
+     * @param ctx контекст выполнения команды
+     * @param handler обработчик команды
+     * @return результат; ошибки этапов и обработчика возвращаются в виде исключительно завершённого результата
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull CompletableFuture<@NotNull CommandExecutionResult> execute(
+        @NotNull CommandContext ctx,
+        @NotNull Function<@NotNull CommandContext, @NotNull CompletableFuture<@NotNull CommandExecutionResult>> handler
+    ) {
+        return this.execute(0, ctx, handler);
+    }
+
+    private @NotNull CompletableFuture<@NotNull CommandExecutionResult> execute(
+        int index,
+        @NotNull CommandContext ctx,
+        @NotNull Function<@NotNull CommandContext, @NotNull CompletableFuture<@NotNull CommandExecutionResult>> handler
+    ) {
+        long startNanos = System.nanoTime();
+        if (index == this.stages.length) {
+            return invoke(() -> handler.apply(ctx))
+                .whenComplete((result, throwable) -> this.handlerStage.record(System.nanoTime() - startNanos, false));
+        }
+
+        Stage stage = this.stages[index];
+        CommandMiddleware middleware = Objects.requireNonNull(stage.middleware);
+        Invocation invocation = new Invocation();
+        CommandMiddleware.Next next = nextCtx -> {
+            invocation.proceeded = true;
+            long nextStartNanos = System.nanoTime();
+            return this.execute(index + 1, nextCtx, handler)
+                .whenComplete((result, throwable) -> invocation.downstreamNanos += System.nanoTime() - nextStartNanos);
+        };
+        return invoke(() -> middleware.handle(ctx, next))
+            .whenComplete((result, throwable) -> stage.record(
+                System.nanoTime() - startNanos - invocation.downstreamNanos,
+                !invocation.proceeded
+            ));
+    }
+
+    private static @NotNull CompletableFuture<@NotNull CommandExecutionResult> invoke(
+        @NotNull Invoker invoker
+    ) {
+        try {
+            return invoker.invoke();
+        } catch (Exception ex) {
+            return CompletableFuture.failedFuture(ex);
+        }
+    }
+
+    /**
+     * Возвращает статистику этапов конвейера.
+     *
+     * @return статистика этапов в порядке их выполнения, последним идёт обработчик команды
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull List<@NotNull StageStats> getStats() {
+        List<StageStats> stats = new ArrayList<>(this.stages.length + 1);
+        for (Stage stage : this.stages) stats.add(stage.snapshot());
+        stats.add(this.handlerStage.snapshot());
+        return stats;
+    }
+
+    /**
+     * Статистика этапа конвейера.
+     *
+     * @param name название этапа
+     * @param invocations количество выполнений этапа
+     * @param shortCircuits количество выполнений, в которых этап вернул результат, не вызывая следующие этапы
+     * @param averageMillis среднее собственное время выполнения этапа в миллисекундах
+     * @param maxMillis максимальное собственное время выполнения этапа в миллисекундах
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record StageStats(
+        @NotNull String name,
+        long invocations,
+        long shortCircuits,
+        double averageMillis,
+        double maxMillis
+    ) {
+    }
+
+    /**
+     * Построитель {@link CommandPipeline}.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static final class Builder {
+        private final @NotNull List<@NotNull Stage> stages = new ArrayList<>();
+        private final @NotNull Set<@NotNull String> names = new HashSet<>();
+
+        private Builder() {
+            this.names.add(HANDLER_STAGE);
+        }
+
+        /**
+         * Добавляет этап в конец конвейера, перед обработчиком команды.
+         *
+         * @param name уникальное название этапа
+         * @param middleware промежуточный обработчик
+         * @return {@code this}
+         * @throws IllegalArgumentException если этап с таким названием уже есть
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public @NotNull Builder stage(@NotNull String name, @NotNull CommandMiddleware middleware) {
+            checkArgument(this.names.add(name), "Duplicate pipeline stage: " + name);
+            this.stages.add(new Stage(name, middleware));
+            return this;
+        }
+
+        /**
+         * Создаёт конвейер.
+         *
+         * @return конвейер
+         * @since 1.2.0
+         * @author metabrix
+         */
+        public @NotNull CommandPipeline build() {
+            return new CommandPipeline(this.stages);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Invoker {
+        @NotNull CompletableFuture<@NotNull CommandExecutionResult> invoke() throws Exception;
+    }
+
+    private static final class Invocation {
+        // written by the stage before its future completes, read in the completion callback
+        private volatile boolean proceeded;
+        private volatile long downstreamNanos;
+    }
+
+    private static final class Stage {
+        private final @NotNull String name;
+        private final @Nullable CommandMiddleware middleware;
+        private final @NotNull LongAdder invocations = new LongAdder();
+        private final @NotNull LongAdder shortCircuits = new LongAdder();
+        private final @NotNull LongAdder totalNanos = new LongAdder();
+        private final @NotNull AtomicLong maxNanos = new AtomicLong();
+
+        private Stage(@NotNull String name, @Nullable CommandMiddleware middleware) {
+            this.name = name;
+            this.middleware = middleware;
+        }
+
+        private void record(long nanos, boolean shortCircuit) {
+            // a stage that doesn't wait for the next ones may finish before them
+            nanos = Math.max(nanos, 0);
+            this.totalNanos.add(nanos);
+            this.maxNanos.accumulateAndGet(nanos, Math::max);
+            this.invocations.increment();
+            if (shortCircuit) this.shortCircuits.increment();
+        }
+
+        private @NotNull StageStats snapshot() {
+            long invocations = this.invocations.sum();
+            double nanosPerMilli = TimeUnit.MILLISECONDS.toNanos(1);
+            return new StageStats(
+                this.name,
+                invocations,
+                this.shortCircuits.sum(),
+                invocations == 0 ? 0 : this.totalNanos.sum() / nanosPerMilli / invocations,
+                this.maxNanos.get() / nanosPerMilli
+            );
+        }
+    }
+}
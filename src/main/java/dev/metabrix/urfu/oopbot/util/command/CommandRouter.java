@@ -0,0 +1,175 @@
+package dev.metabrix.urfu.oopbot.util.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import org.jetbrains.annotations.NotNull;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Маршрутизатор команд: за один проход по тексту сообщения определяет, является ли оно командой,
+ * адресована ли команда этому боту, и какая команда вызвана.
+ * <p>
+ * Имена команд заранее собираются в префиксное дерево, переходы которого хранятся в плоском
+ * массиве по кодам ASCII-символов, поэтому разбор не создаёт ни строк, ни других объектов.
+ * Результат разбора — индекс команды (см. {@link #get(int)}) или один из отрицательных кодов.
+ * <p>
+ * Текст считается командой, если он начинается с <code>/</code>, а за ним до первого пробела идёт
+ * непустое имя команды без <code>/</code>, за которым может следовать <code>@юзернейм_бота</code>.
+ *
+ * @param <C> тип команды
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class CommandRouter<C> {
+    /**
+     * Текст не является командой.
+     */
+    public static final int NOT_COMMAND = -1;
+    /**
+     * Команда адресована другому боту.
+     */
+    public static final int OTHER_BOT = -2;
+    /**
+     * Команды с таким именем нет.
+     */
+    public static final int UNKNOWN_COMMAND = -3;
+
+    private static final int ALPHABET = 128;
+    private static final int ROOT = 0;
+    private static final int NO_NODE = -1;
+    private static final int NO_COMMAND = -1;
+
+    private final @NotNull List<@NotNull C> commands;
+    private final int @NotNull [] transitions;
+    private final int @NotNull [] nodeCommands;
+
+    /**
+     * Строит маршрутизатор.
+     *
+     * @param commands команды по их именам и алиасам; имена должны быть непустыми, из ASCII-символов,
+     *                 без пробелов, <code>/</code> и <code>@</code>
+     * @throws IllegalArgumentException если имя команды некорректно
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public CommandRouter(@NotNull Map<@NotNull String, @NotNull C> commands) {
+        List<C> commandList = new ArrayList<>();
+        List<int[]> nodes = new ArrayList<>();
+        List<Integer> values = new ArrayList<>();
+        nodes.add(new int[ALPHABET]); // ROOT
+        values.add(NO_COMMAND);
+
+        for (Map.Entry<String, C> entry : commands.entrySet()) {
+            String name = entry.getKey();
+            checkArgument(!name.isEmpty(), "Command name cannot be empty");
+
+            int node = ROOT;
+            for (int i = 0; i < name.length(); i++) {
+                char c = name.charAt(i);
+                checkArgument(
+                    c < ALPHABET && c != '/' && c != '@' && !Character.isWhitespace(c),
+                    "Invalid character in command name: " + name
+                );
+                // в корень не ведёт ни один переход, поэтому при построении его номер означает отсутствие перехода
+                if (nodes.get(node)[c] == ROOT) {
+                    nodes.get(node)[c] = nodes.size();
+                    nodes.add(new int[ALPHABET]);
+                    values.add(NO_COMMAND);
+                }
+                node = nodes.get(node)[c];
+            }
+
+            int index = commandList.indexOf(entry.getValue());
+            if (index == -1) {
+                index = commandList.size();
+                commandList.add(entry.getValue());
+            }
+            values.set(node, index);
+        }
+
+        this.commands = List.copyOf(commandList);
+        this.transitions = new int[nodes.size() * ALPHABET];
+        this.nodeCommands = new int[nodes.size()];
+        for (int node = 0; node < nodes.size(); node++) {
+            int[] children = nodes.get(node);
+            for (int c = 0; c < ALPHABET; c++) {
+                this.transitions[node * ALPHABET + c] = children[c] == ROOT ? NO_NODE : children[c];
+            }
+            this.nodeCommands[node] = values.get(node);
+        }
+    }
+
+    /**
+     * Разбирает текст сообщения.
+     *
+     * @param text текст сообщения
+     * @param botUsername юзернейм бота, которому адресованы команды без юзернейма
+     * @return индекс команды для {@link #get(int)} или {@link #NOT_COMMAND}, {@link #OTHER_BOT}, {@link #UNKNOWN_COMMAND}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int route(@NotNull String text, @NotNull String botUsername) {
+        int length = text.length();
+        if (length < 2 || text.charAt(0) != '/') return NOT_COMMAND;
+
+        int node = ROOT;
+        int i = 1;
+        for (; i < length; i++) {
+            char c = text.charAt(i);
+            if (c == ' ' || c == '@') break;
+            if (c == '/') return NOT_COMMAND;
+            // если такого имени уже точно нет, текст всё равно нужно проверить до конца имени
+            if (node != NO_NODE) node = c < ALPHABET ? this.transitions[node * ALPHABET + c] : NO_NODE;
+        }
+        if (i == 1) return NOT_COMMAND;
+
+        if (i < length && text.charAt(i) == '@') {
+            int tagStart = i + 1;
+            for (i = tagStart; i < length; i++) {
+                char c = text.charAt(i);
+                if (c == ' ') break;
+                if (c == '/') return NOT_COMMAND;
+            }
+            int tagLength = i - tagStart;
+            if (tagLength == 0) return UNKNOWN_COMMAND;
+            if (tagLength != botUsername.length() || !text.regionMatches(true, tagStart, botUsername, 0, tagLength)) {
+                return OTHER_BOT;
+            }
+        }
+
+        return node != NO_NODE && this.nodeCommands[node] != NO_COMMAND ? this.nodeCommands[node] : UNKNOWN_COMMAND;
+    }
+
+    /**
+     * Возвращает команду по индексу, полученному из {@link #route(String, String)}.
+     *
+     * @param index индекс команды
+     * @return команда
+     * @throws IndexOutOfBoundsException если индекс некорректен
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull C get(int index) {
+        return this.commands.get(index);
+    }
+
+    /**
+     * Возвращает позицию конца имени команды (вместе с юзернеймом бота) в тексте сообщения.
+     *
+     * @param text текст сообщения, который {@link #route(String, String)} признал командой
+     * @return индекс первого пробела после имени команды или длина текста
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static int labelEnd(@NotNull String text) {
+        int end = text.indexOf(' ');
+        return end == -1 ? text.length() : end;
+    }
+
+    @Override
+    public @NotNull String toString() {
+        return "CommandRouter{commands=%s, nodes=%d}".formatted(this.commands, this.nodeCommands.length);
+    }
+}
@@ -14,6 +14,15 @@ public interface FutureCommandHandler extends CommandHandler {
     @Override
     @NotNull CompletableFuture<@NotNull CommandExecutionResult> executeFuture(@NotNull CommandContext ctx);
 
+    /**
+     * Выполняет команду и ждёт результата. Бот так не делает: при обработке событий вызывается только
+     * {@link #executeFuture(CommandContext)}, а этот метод нужен там, где ждать можно, например, в тестах.
+     *
+     * @param ctx контекст выполнения команды
+     * @return результат
+     * @since 1.0.0
+     * @author metabrix
+     */
     @Override
     default @NotNull CommandExecutionResult execute(@NotNull CommandContext ctx) {
         return this.executeFuture(ctx).join();
@@ -0,0 +1,130 @@
+package dev.metabrix.urfu.oopbot.util.markdown;
+
+import java.util.ArrayList;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Шаблон сообщения в формате Telegram MarkdownV2, разобранный один раз при создании.
+ * <p>
+ * Текст шаблона — готовая разметка MarkdownV2, в которой <code>{}</code> обозначает место для значения, как в SLF4J.
+ * В разметке MarkdownV2 символы <code>{</code> и <code>}</code> всегда экранируются, поэтому неэкранированные
+ * фигурные скобки не могут быть частью текста. Значения подставляются по порядку:
+ * <ul>
+ *     <li>{@link Fragment} записывает разметку сам;</li>
+ *     <li>{@link Integer} и {@link Long} записываются как числа;</li>
+ *     <li>остальные значения записываются как текст и экранируются.</li>
+ * </ul>
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class MarkdownTemplate {
+    private final @NotNull String @NotNull [] literals;
+
+    private MarkdownTemplate(@NotNull String @NotNull [] literals) {
+        this.literals = literals;
+    }
+
+    /**
+     * Разбирает шаблон.
+     *
+     * @param template текст шаблона
+     * @return разобранный шаблон
+     * @throws IllegalArgumentException если в шаблоне есть фигурная скобка, которая не экранирована и не входит в <code>{}</code>,
+     *                                  или текст заканчивается незавершённым экранированием
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull MarkdownTemplate compile(@NotNull String template) {
+        List<String> literals = new ArrayList<>();
+        int literalStart = 0;
+        for (int i = 0; i < template.length(); i++) {
+            char ch = template.charAt(i);
+            if (ch == '\\') {
+                checkArgument(i + 1 < template.length(), "Template ends with an unfinished escape: " + template);
+                i++;
+            } else if (ch == '{') {
+                checkArgument(i + 1 < template.length() && template.charAt(i + 1) == '}', "Unescaped '{' at " + i + ": " + template);
+                literals.add(template.substring(literalStart, i));
+                literalStart = i + 2;
+                i++;
+            } else {
+                checkArgument(ch != '}', "Unescaped '}' at " + i + ": " + template);
+            }
+        }
+        literals.add(template.substring(literalStart));
+        return new MarkdownTemplate(literals.toArray(String[]::new));
+    }
+
+    /**
+     * Возвращает количество мест для значений в шаблоне.
+     *
+     * @return количество значений, которое принимает шаблон
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getPlaceholders() {
+        return this.literals.length - 1;
+    }
+
+    /**
+     * Записывает шаблон с указанными значениями.
+     *
+     * @param writer буфер
+     * @param values значения для подстановки, по одному на каждое <code>{}</code>
+     * @throws IllegalArgumentException если количество значений не совпадает с количеством мест в шаблоне
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void render(@NotNull MarkdownWriter writer, @NotNull Object @NotNull ... values) {
+        checkArgument(values.length == this.getPlaceholders(), "Expected " + this.getPlaceholders() + " values, got " + values.length);
+
+        writer.raw(this.literals[0]);
+        for (int i = 0; i < values.length; i++) {
+            switch (values[i]) {
+                case Fragment fragment -> fragment.writeTo(writer);
+                case Integer value -> writer.text(value);
+                case Long value -> writer.text(value);
+                case CharSequence text -> writer.text(text);
+                case Object value -> writer.text(value.toString());
+            }
+            writer.raw(this.literals[i + 1]);
+        }
+    }
+
+    /**
+     * Записывает шаблон с указанными значениями в буфер текущего потока и возвращает текст.
+     *
+     * @param values значения для подстановки, по одному на каждое <code>{}</code>
+     * @return текст сообщения
+     * @throws IllegalArgumentException если количество значений не совпадает с количеством мест в шаблоне
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull String format(@NotNull Object @NotNull ... values) {
+        MarkdownWriter writer = MarkdownWriter.get();
+        this.render(writer, values);
+        return writer.toString();
+    }
+
+    /**
+     * Значение, которое записывает в буфер готовую разметку, например, упоминание пользователя.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @FunctionalInterface
+    public interface Fragment {
+        /**
+         * Записывает разметку в буфер.
+         *
+         * @param writer буфер
+         * @since 1.2.0
+         * @author metabrix
+         */
+        void writeTo(@NotNull MarkdownWriter writer);
+    }
+}
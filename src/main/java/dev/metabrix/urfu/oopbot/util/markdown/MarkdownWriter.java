@@ -0,0 +1,246 @@
+package dev.metabrix.urfu.oopbot.util.markdown;
+
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.TemporalAccessor;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Буфер для сборки текста сообщения в формате Telegram MarkdownV2.
+ * <p>
+ * Разметка записывается как есть методами <code>raw</code>, а пользовательский текст — методами <code>text</code>,
+ * которые экранируют специальные символы за один проход по таблице. Буфер можно переиспользовать: {@link #get()}
+ * возвращает очищенный буфер текущего потока.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class MarkdownWriter {
+    /**
+     * Максимальная ёмкость, которую сохраняет буфер потока между сообщениями; Telegram всё равно не принимает
+     * сообщения длиннее 4096 символов.
+     */
+    private static final int MAX_RETAINED_CAPACITY = 16 * 1024;
+    private static final boolean @NotNull [] SPECIAL = new boolean[128];
+    private static final @NotNull ThreadLocal<MarkdownWriter> THREAD_WRITER = ThreadLocal.withInitial(MarkdownWriter::new);
+
+    static {
+        for (char ch : "_*[]()~`>#+-=|{}.!\\".toCharArray()) SPECIAL[ch] = true;
+    }
+
+    private @NotNull StringBuilder buffer = new StringBuilder(1024);
+    private final @NotNull StringBuilder scratch = new StringBuilder(32);
+
+    /**
+     * Создаёт пустой буфер.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public MarkdownWriter() {
+    }
+
+    /**
+     * Возвращает очищенный буфер текущего потока. Текст из него нужно забрать через {@link #toString()}
+     * до следующего вызова в этом потоке.
+     *
+     * @return буфер текущего потока
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull MarkdownWriter get() {
+        MarkdownWriter writer = THREAD_WRITER.get();
+        writer.reset();
+        return writer;
+    }
+
+    /**
+     * Экранирует все специальные для MarkdownV2 символы в строке.
+     *
+     * @param string строка
+     * @return экранированная строка или та же строка, если экранировать нечего
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull String escape(@NotNull String string) {
+        int first = firstSpecial(string, 0, string.length());
+        if (first == -1) return string;
+
+        MarkdownWriter writer = new MarkdownWriter();
+        writer.buffer.ensureCapacity(string.length() + 8);
+        writer.text(string);
+        return writer.toString();
+    }
+
+    /**
+     * Записывает разметку без экранирования.
+     *
+     * @param markdown разметка
+     * @return {@code this}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull MarkdownWriter raw(@NotNull CharSequence markdown) {
+        this.buffer.append(markdown);
+        return this;
+    }
+
+    /**
+     * Записывает символ разметки без экранирования.
+     *
+     * @param markdown символ разметки
+     * @return {@code this}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull MarkdownWriter raw(char markdown) {
+        this.buffer.append(markdown);
+        return this;
+    }
+
+    /**
+     * Записывает текст, экранируя специальные символы.
+     *
+     * @param text текст
+     * @return {@code this}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull MarkdownWriter text(@NotNull CharSequence text) {
+        return this.text(text, 0, text.length());
+    }
+
+    /**
+     * Записывает часть текста, экранируя специальные символы.
+     *
+     * @param text текст
+     * @param start начало части, включительно
+     * @param end конец части, не включительно
+     * @return {@code this}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull MarkdownWriter text(@NotNull CharSequence text, int start, int end) {
+        // участки без специальных символов копируются целиком
+        int from = start;
+        for (int i = firstSpecial(text, start, end); i != -1; i = firstSpecial(text, i + 1, end)) {
+            this.buffer.append(text, from, i).append('\\');
+            from = i;
+        }
+        this.buffer.append(text, from, end);
+        return this;
+    }
+
+    /**
+     * Записывает целое число.
+     *
+     * @param value число
+     * @return {@code this}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull MarkdownWriter text(long value) {
+        if (value < 0) this.buffer.append('\\');
+        this.buffer.append(value);
+        return this;
+    }
+
+    /**
+     * Записывает отформатированные дату и время, экранируя специальные символы.
+     *
+     * @param formatter формат
+     * @param temporal дата и время
+     * @return {@code this}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull MarkdownWriter text(@NotNull DateTimeFormatter formatter, @NotNull TemporalAccessor temporal) {
+        this.scratch.setLength(0);
+        formatter.formatTo(temporal, this.scratch);
+        return this.text(this.scratch);
+    }
+
+    /**
+     * Записывает текст цитатой: каждая строка текста начинается с <code>&gt;</code> и заканчивается переводом строки.
+     * Пустые строки в конце текста не записываются.
+     *
+     * @param text текст
+     * @return {@code this}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull MarkdownWriter quote(@NotNull CharSequence text) {
+        int end = text.length();
+        while (end > 0 && text.charAt(end - 1) == '\n') end--;
+        if (end == 0 && !text.isEmpty()) return this;
+
+        int lineStart = 0;
+        while (true) {
+            int lineEnd = lineStart;
+            while (lineEnd < end && text.charAt(lineEnd) != '\n') lineEnd++;
+            this.buffer.append('>');
+            this.text(text, lineStart, lineEnd).buffer.append('\n');
+            if (lineEnd >= end) return this;
+            lineStart = lineEnd + 1;
+        }
+    }
+
+    /**
+     * Записывает шаблон с указанными значениями.
+     *
+     * @param template шаблон
+     * @param values значения для подстановки
+     * @return {@code this}
+     * @see MarkdownTemplate#render(MarkdownWriter, Object...)
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull MarkdownWriter template(@NotNull MarkdownTemplate template, @NotNull Object @NotNull ... values) {
+        template.render(this, values);
+        return this;
+    }
+
+    /**
+     * Возвращает длину записанного текста.
+     *
+     * @return длина текста
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int length() {
+        return this.buffer.length();
+    }
+
+    /**
+     * Очищает буфер.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void reset() {
+        if (this.buffer.capacity() > MAX_RETAINED_CAPACITY) {
+            this.buffer = new StringBuilder(1024);
+        } else {
+            this.buffer.setLength(0);
+        }
+    }
+
+    /**
+     * Возвращает записанный текст.
+     *
+     * @return текст сообщения
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @Override
+    public @NotNull String toString() {
+        return this.buffer.toString();
+    }
+
+    private static int firstSpecial(@NotNull CharSequence text, int start, int end) {
+        for (int i = start; i < end; i++) {
+            char ch = text.charAt(i);
+            if (ch < SPECIAL.length && SPECIAL[ch]) return i;
+        }
+        return -1;
+    }
+}
@@ -1,11 +1,14 @@
 package dev.metabrix.urfu.oopbot;
 
+import com.typesafe.config.Config;
 import com.typesafe.config.ConfigException;
 import com.typesafe.config.ConfigFactory;
+import dev.metabrix.urfu.oopbot.telegram.UpdateType;
+import java.time.Duration;
+import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
-import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class BotConfigurationTest {
     @Test
@@ -34,6 +37,93 @@ public class BotConfigurationTest {
             token = "potato"
             """
         ), ""));
+        assertEquals(
+            BotConfiguration.BotInfo.DEFAULT_API_URL,
+            BotConfiguration.BotInfo.fromConfig(ConfigFactory.parseString(
+                """
+                username = "potato"
+                token = "potato"
+                """
+            ), "").apiUrl()
+        );
+        assertEquals(
+            "http://127.0.0.1:8081/bot",
+            BotConfiguration.BotInfo.fromConfig(ConfigFactory.parseString(
+                """
+                username = "potato"
+                token = "potato"
+                api-url = "http://127.0.0.1:8081/bot"
+                """
+            ), "").apiUrl()
+        );
+    }
+
+    @Test
+    public void testBots() {
+        // test a single bot from bot-info
+        BotConfiguration single = BotConfiguration.fromConfig(withDefaults(
+            """
+            bot-info { username = "potato_bot", token = "123:potato" }
+            """
+        ));
+        assertEquals(1, single.bots().size());
+        assertEquals(123, single.bots().getFirst().botId());
+        // test several bots from the bots list, which takes priority over bot-info
+        BotConfiguration several = BotConfiguration.fromConfig(withDefaults(
+            """
+            bot-info { username = "ignored_bot", token = "1:ignored" }
+            bots = [
+                { username = "potato_bot", token = "123:potato" }
+                { username = "tomato_bot", token = "456:tomato" }
+            ]
+            """
+        ));
+        assertEquals(2, several.bots().size());
+        assertEquals("potato_bot", several.bots().get(0).username());
+        assertEquals(456, several.bots().get(1).botId());
+        // test empty bots list
+        assertThrows(IllegalArgumentException.class, () -> BotConfiguration.fromConfig(withDefaults(
+            """
+            bots = []
+            """
+        )));
+        // test duplicate username
+        assertThrows(IllegalArgumentException.class, () -> BotConfiguration.fromConfig(withDefaults(
+            """
+            bots = [
+                { username = "potato_bot", token = "123:potato" }
+                { username = "Potato_Bot", token = "456:tomato" }
+            ]
+            """
+        )));
+        // test duplicate token
+        assertThrows(IllegalArgumentException.class, () -> BotConfiguration.fromConfig(withDefaults(
+            """
+            bots = [
+                { username = "potato_bot", token = "123:potato" }
+                { username = "tomato_bot", token = "123:potato" }
+            ]
+            """
+        )));
+        // test several bots in webhook mode
+        assertThrows(IllegalArgumentException.class, () -> BotConfiguration.fromConfig(withDefaults(
+            """
+            bots = [
+                { username = "potato_bot", token = "123:potato" }
+                { username = "tomato_bot", token = "456:tomato" }
+            ]
+            updates { mode = "webhook", webhook.url = "https://example.com/telegram" }
+            """
+        )));
+        // test token without a bot id
+        assertThrows(
+            IllegalStateException.class,
+            () -> new BotConfiguration.BotInfo("potato_bot", "potato", BotConfiguration.BotInfo.DEFAULT_API_URL).botId()
+        );
+    }
+
+    private static @NotNull Config withDefaults(@NotNull String config) {
+        return ConfigFactory.parseString(config).withFallback(ConfigFactory.parseResources("application.conf"));
     }
 
     @Test
@@ -323,4 +413,358 @@ public class BotConfigurationTest {
             ), "")
         );
     }
+
+    @Test
+    public void testUpdates() {
+        // test no mode (defaults to long-polling)
+        assertEquals(
+            BotConfiguration.Updates.Mode.LONG_POLLING,
+            BotConfiguration.Updates.fromConfig(ConfigFactory.empty(), "").mode()
+        );
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.fromConfig(ConfigFactory.parseString(
+                """
+                mode = "potato"
+                """
+            ), "")
+        );
+        // test webhook mode without webhook section
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.fromConfig(ConfigFactory.parseString(
+                """
+                mode = "webhook"
+                """
+            ), "")
+        );
+        assertDoesNotThrow(() -> BotConfiguration.Updates.fromConfig(ConfigFactory.parseString(
+            """
+            mode = "webhook"
+            webhook {
+                url = "https://example.com/telegram"
+            }
+            """
+        ), ""));
+        // test workers (0 defaults to the number of processors)
+        assertEquals(
+            Runtime.getRuntime().availableProcessors(),
+            BotConfiguration.Updates.fromConfig(ConfigFactory.empty(), "").workers()
+        );
+        assertEquals(
+            4,
+            BotConfiguration.Updates.fromConfig(ConfigFactory.parseString(
+                """
+                workers = 4
+                """
+            ), "").workers()
+        );
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.fromConfig(ConfigFactory.parseString(
+                """
+                workers = -1
+                """
+            ), "")
+        );
+        // test drain timeout
+        assertEquals(
+            Duration.ofSeconds(30),
+            BotConfiguration.Updates.fromConfig(ConfigFactory.empty(), "").drainTimeout()
+        );
+        assertEquals(
+            Duration.ofSeconds(5),
+            BotConfiguration.Updates.fromConfig(ConfigFactory.parseString(
+                """
+                drain-timeout = 5s
+                """
+            ), "").drainTimeout()
+        );
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.fromConfig(ConfigFactory.parseString(
+                """
+                drain-timeout = -1s
+                """
+            ), "")
+        );
+        // test error reporting
+        BotConfiguration.Updates.Errors errors = BotConfiguration.Updates.fromConfig(ConfigFactory.empty(), "").errors();
+        assertEquals(Duration.ofMinutes(1), errors.summaryInterval());
+        assertEquals(5, errors.samplesPerInterval());
+        assertEquals(1000, errors.maxGroups());
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.fromConfig(ConfigFactory.parseString(
+                """
+                errors.summary-interval = 0s
+                """
+            ), "")
+        );
+    }
+
+    @Test
+    public void testUpdatesIngress() {
+        // test defaults
+        BotConfiguration.Updates.Ingress ingress = BotConfiguration.Updates.Ingress.fromConfig(ConfigFactory.empty(), "");
+        assertEquals(10000, ingress.capacity());
+        assertTrue(ingress.busyReply());
+        assertEquals(BotConfiguration.Updates.Ingress.DropPolicy.WHEN_FULL, ingress.policy(UpdateType.MESSAGE));
+        assertEquals(BotConfiguration.Updates.Ingress.DropPolicy.WHEN_BUSY, ingress.policy(UpdateType.EDITED_MESSAGE));
+        assertEquals(BotConfiguration.Updates.Ingress.DropPolicy.WHEN_FULL, ingress.policy(null));
+        // test overridden policy
+        assertEquals(
+            BotConfiguration.Updates.Ingress.DropPolicy.NEVER,
+            BotConfiguration.Updates.Ingress.fromConfig(ConfigFactory.parseString(
+                """
+                policies {
+                    edited_message = "never"
+                }
+                """
+            ), "").policy(UpdateType.EDITED_MESSAGE)
+        );
+        // test invalid capacity
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.Ingress.fromConfig(ConfigFactory.parseString(
+                """
+                capacity = 0
+                """
+            ), "")
+        );
+        // test unknown update type
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.Ingress.fromConfig(ConfigFactory.parseString(
+                """
+                policies {
+                    potato = "never"
+                }
+                """
+            ), "")
+        );
+        // test unknown policy
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.Ingress.fromConfig(ConfigFactory.parseString(
+                """
+                policies {
+                    message = "potato"
+                }
+                """
+            ), "")
+        );
+    }
+
+    @Test
+    public void testUpdatesJournal() {
+        // test defaults (disabled)
+        BotConfiguration.Updates.Journal journal = BotConfiguration.Updates.Journal.fromConfig(ConfigFactory.empty(), "");
+        assertFalse(journal.enabled());
+        assertEquals(16 * 1024 * 1024, journal.segmentSize());
+        // test size units
+        assertEquals(
+            4 * 1024 * 1024,
+            BotConfiguration.Updates.Journal.fromConfig(ConfigFactory.parseString(
+                """
+                segment-size = 4 MiB
+                """
+            ), "").segmentSize()
+        );
+        // test too small segment size
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.Journal.fromConfig(ConfigFactory.parseString(
+                """
+                segment-size = 1 KiB
+                """
+            ), "")
+        );
+    }
+
+    @Test
+    public void testOutbound() {
+        // test defaults
+        BotConfiguration.Outbound outbound = BotConfiguration.Outbound.fromConfig(ConfigFactory.empty(), "");
+        assertEquals(30, outbound.globalPerSecond());
+        assertEquals(1, outbound.chatPerSecond());
+        assertEquals(3, outbound.chatBurst());
+        assertEquals(20, outbound.groupPerMinute());
+        assertEquals(5, outbound.maxRetries());
+        assertEquals(32, outbound.maxConnections());
+        // test custom values
+        outbound = BotConfiguration.Outbound.fromConfig(ConfigFactory.parseString(
+            """
+            global-per-second = 1000
+            chat-per-second = 0.5
+            max-retries = 0
+            max-connections = 100
+            """
+        ), "");
+        assertEquals(1000, outbound.globalPerSecond());
+        assertEquals(0.5, outbound.chatPerSecond());
+        assertEquals(0, outbound.maxRetries());
+        assertEquals(100, outbound.maxConnections());
+        // test invalid values
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Outbound.fromConfig(ConfigFactory.parseString(
+                """
+                global-per-second = 0
+                """
+            ), "")
+        );
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Outbound.fromConfig(ConfigFactory.parseString(
+                """
+                max-retries = -1
+                """
+            ), "")
+        );
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Outbound.fromConfig(ConfigFactory.parseString(
+                """
+                max-connections = 0
+                """
+            ), "")
+        );
+    }
+
+    @Test
+    public void testUpdatesWebhook() {
+        // test non-HTTPS url
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.Webhook.fromConfig(ConfigFactory.parseString(
+                """
+                url = "http://example.com/telegram"
+                """
+            ), "")
+        );
+        // test invalid path
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.Webhook.fromConfig(ConfigFactory.parseString(
+                """
+                url = "https://example.com/telegram"
+                path = "telegram"
+                """
+            ), "")
+        );
+        // test invalid secret token
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.Webhook.fromConfig(ConfigFactory.parseString(
+                """
+                url = "https://example.com/telegram"
+                secret-token = "potato!"
+                """
+            ), "")
+        );
+        // test invalid max connections
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Updates.Webhook.fromConfig(ConfigFactory.parseString(
+                """
+                url = "https://example.com/telegram"
+                max-connections = 101
+                """
+            ), "")
+        );
+        // test empty secret token (disables the check)
+        assertNull(BotConfiguration.Updates.Webhook.fromConfig(ConfigFactory.parseString(
+            """
+            url = "https://example.com/telegram"
+            secret-token = ""
+            """
+        ), "").secretToken());
+    }
+
+    @Test
+    public void testCluster() {
+        String mysqlStorage = """
+            bot-info { username = "potato_bot", token = "123:potato" }
+            data-storage {
+                type = "mysql"
+                mysql { host = "localhost", database = "potato", username = "potato", password = "potato" }
+            }
+            """;
+        String clusterNode = """
+            cluster { enabled = true, node-id = "node-1", advertised-url = "http://10.0.0.1:8090" }
+            """;
+
+        // test disabled by default
+        assertFalse(BotConfiguration.Cluster.fromConfig(ConfigFactory.empty(), "").enabled());
+        // test valid cluster node
+        BotConfiguration configuration = BotConfiguration.fromConfig(withDefaults(mysqlStorage + clusterNode));
+        assertTrue(configuration.cluster().enabled());
+        assertEquals("node-1", configuration.cluster().nodeId());
+        assertEquals(64, configuration.cluster().shards());
+        // test cluster with SQLite
+        assertThrows(IllegalArgumentException.class, () -> BotConfiguration.fromConfig(withDefaults(
+            """
+            bot-info { username = "potato_bot", token = "123:potato" }
+            """ + clusterNode
+        )));
+        // test cluster with the journal
+        assertThrows(IllegalArgumentException.class, () -> BotConfiguration.fromConfig(withDefaults(
+            mysqlStorage + clusterNode + """
+            updates.journal.enabled = true
+            """
+        )));
+        // test cluster with the dialog state filter
+        assertThrows(IllegalArgumentException.class, () -> BotConfiguration.fromConfig(withDefaults(
+            mysqlStorage + clusterNode + """
+            data-storage.mysql.dialog-state-filter = true
+            """
+        )));
+        // test cluster with the task name index
+        assertThrows(IllegalArgumentException.class, () -> BotConfiguration.fromConfig(withDefaults(
+            mysqlStorage + clusterNode + """
+            data-storage.mysql.task-name-index = true
+            """
+        )));
+        // test invalid node id
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Cluster.fromConfig(ConfigFactory.parseString(
+                """
+                enabled = true
+                node-id = "node 1"
+                advertised-url = "http://10.0.0.1:8090"
+                """
+            ), "")
+        );
+        // test missing advertised url
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Cluster.fromConfig(ConfigFactory.parseString(
+                """
+                enabled = true
+                node-id = "node-1"
+                """
+            ), "")
+        );
+        // test lease shorter than two heartbeats
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Cluster.fromConfig(ConfigFactory.parseString(
+                """
+                lease-duration = 5s
+                heartbeat-interval = 3s
+                """
+            ), "")
+        );
+        // test invalid shard count
+        assertThrows(
+            IllegalArgumentException.class,
+            () -> BotConfiguration.Cluster.fromConfig(ConfigFactory.parseString(
+                """
+                shards = 0
+                """
+            ), "")
+        );
+    }
 }
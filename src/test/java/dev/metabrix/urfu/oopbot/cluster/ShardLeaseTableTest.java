@@ -0,0 +1,176 @@
+package dev.metabrix.urfu.oopbot.cluster;
+
+import dev.metabrix.urfu.oopbot.storage.ClusterStorage;
+import dev.metabrix.urfu.oopbot.storage.model.ClusterNode;
+import dev.metabrix.urfu.oopbot.storage.model.ShardLease;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardLeaseTableTest {
+    private static final int SHARDS = 8;
+    private static final @NotNull Duration LEASE_DURATION = Duration.ofSeconds(15);
+
+    @Test
+    public void testSingleNodeOwnsAllShards() {
+        // Arrange
+        InMemoryClusterStorage storage = new InMemoryClusterStorage();
+        ShardLeaseTable node = createNode(storage, "node-1");
+        node.createShards();
+
+        // Act
+        ShardLeaseTable.RoutingTable table = node.heartbeat(shard -> true);
+
+        // Assert
+        assertEquals(SHARDS, table.countOwned("node-1"));
+        assertEquals(1, table.liveNodes());
+        assertEquals("http://node-1", table.addresses().get("node-1"));
+    }
+
+    @Test
+    public void testNodesSplitShards() {
+        // Arrange
+        InMemoryClusterStorage storage = new InMemoryClusterStorage();
+        ShardLeaseTable first = createNode(storage, "node-1");
+        ShardLeaseTable second = createNode(storage, "node-2");
+        first.createShards();
+        first.heartbeat(shard -> true);
+
+        // Act
+        second.heartbeat(shard -> true);
+        first.heartbeat(shard -> true);
+        ShardLeaseTable.RoutingTable table = second.heartbeat(shard -> true);
+
+        // Assert
+        assertEquals(SHARDS / 2, table.countOwned("node-1"));
+        assertEquals(SHARDS / 2, table.countOwned("node-2"));
+        for (int shard = 0; shard < SHARDS; shard++) {
+            assertNotNull(table.owner(shard), "shard " + shard + " has no owner");
+        }
+    }
+
+    @Test
+    public void testBusyShardsAreNotReleased() {
+        // Arrange
+        InMemoryClusterStorage storage = new InMemoryClusterStorage();
+        ShardLeaseTable first = createNode(storage, "node-1");
+        ShardLeaseTable second = createNode(storage, "node-2");
+        first.createShards();
+        first.heartbeat(shard -> true);
+        second.heartbeat(shard -> true);
+
+        // Act
+        ShardLeaseTable.RoutingTable table = first.heartbeat(shard -> false);
+
+        // Assert
+        assertEquals(SHARDS, table.countOwned("node-1"));
+    }
+
+    @Test
+    public void testLeftNodeShardsAreTakenOver() {
+        // Arrange
+        InMemoryClusterStorage storage = new InMemoryClusterStorage();
+        ShardLeaseTable first = createNode(storage, "node-1");
+        ShardLeaseTable second = createNode(storage, "node-2");
+        first.createShards();
+        first.heartbeat(shard -> true);
+        second.heartbeat(shard -> true);
+        first.heartbeat(shard -> true);
+        second.heartbeat(shard -> true);
+
+        // Act
+        second.leave();
+        ShardLeaseTable.RoutingTable table = first.heartbeat(shard -> true);
+
+        // Assert
+        assertEquals(SHARDS, table.countOwned("node-1"));
+        assertEquals(1, table.liveNodes());
+    }
+
+    @Test
+    public void testShardOf() {
+        // Arrange
+        Set<Integer> seenShards = new HashSet<>();
+
+        // Act
+        for (long chatId = -1000; chatId < 1000; chatId++) {
+            int shard = ShardLeaseTable.shardOf(chatId, SHARDS);
+            assertTrue(0 <= shard && shard < SHARDS);
+            assertEquals(shard, ShardLeaseTable.shardOf(chatId, SHARDS));
+            seenShards.add(shard);
+        }
+
+        // Assert
+        assertEquals(SHARDS, seenShards.size());
+    }
+
+    private static @NotNull ShardLeaseTable createNode(@NotNull ClusterStorage storage, @NotNull String nodeId) {
+        return new ShardLeaseTable(storage, nodeId, "http://" + nodeId, SHARDS, LEASE_DURATION);
+    }
+
+    /**
+     * Хранилище аренды в памяти, в котором аренда никогда не истекает сама.
+     */
+    private static final class InMemoryClusterStorage implements ClusterStorage {
+        private final @NotNull Map<String, String> nodes = new TreeMap<>();
+        private final @NotNull Map<Integer, String> leases = new TreeMap<>();
+
+        @Override
+        public void createShards(int shards) {
+            for (int shard = 0; shard < shards; shard++) {
+                this.leases.putIfAbsent(shard, null);
+            }
+        }
+
+        @Override
+        public void heartbeat(@NotNull String nodeId, @NotNull String address, @NotNull Duration leaseDuration) {
+            this.nodes.put(nodeId, address);
+        }
+
+        @Override
+        public @NotNull List<@NotNull ClusterNode> getLiveNodes() {
+            List<ClusterNode> nodes = new ArrayList<>();
+            this.nodes.forEach((id, address) -> nodes.add(new ClusterNode(id, address)));
+            return nodes;
+        }
+
+        @Override
+        public @NotNull List<@NotNull ShardLease> getShardLeases() {
+            List<ShardLease> leases = new ArrayList<>();
+            this.leases.forEach((shard, nodeId) -> leases.add(new ShardLease(shard, nodeId)));
+            return leases;
+        }
+
+        @Override
+        public boolean acquireShard(int shard, @NotNull String nodeId, @NotNull Duration leaseDuration) {
+            String owner = this.leases.get(shard);
+            if (owner != null && !owner.equals(nodeId)) return false;
+            this.leases.put(shard, nodeId);
+            return true;
+        }
+
+        @Override
+        public int renewShards(@NotNull String nodeId, @NotNull Duration leaseDuration) {
+            return (int) this.leases.values().stream().filter(nodeId::equals).count();
+        }
+
+        @Override
+        public void releaseShard(int shard, @NotNull String nodeId) {
+            this.leases.replace(shard, nodeId, null);
+        }
+
+        @Override
+        public void leave(@NotNull String nodeId) {
+            this.leases.replaceAll((shard, owner) -> nodeId.equals(owner) ? null : owner);
+            this.nodes.remove(nodeId);
+        }
+    }
+}
@@ -0,0 +1,67 @@
+package dev.metabrix.urfu.oopbot.commands;
+
+import dev.metabrix.urfu.oopbot.util.command.ArgumentParseResult;
+import dev.metabrix.urfu.oopbot.util.command.CommandInput;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TasksCommandArgumentsTest {
+    @Test
+    public void testTaskIdArguments() {
+        // Arrange
+        CommandInput input = CommandInput.of("tasks show  42 extra");
+        input.setCursor(10);
+
+        // Act
+        ArgumentParseResult<TasksCommand.TaskIdArguments> result = TaskIdArgumentsParser.parse(input);
+
+        // Assert
+        assertEquals(new ArgumentParseResult.Success<>(new TasksCommand.TaskIdArguments(42)), result);
+        assertEquals(" extra", input.getRemainingInput());
+    }
+
+    @Test
+    public void testMissingTaskId() {
+        // Arrange
+        CommandInput input = CommandInput.of("show ");
+        input.setCursor(4);
+
+        // Act
+        ArgumentParseResult<TasksCommand.TaskIdArguments> result = TaskIdArgumentsParser.parse(input);
+
+        // Assert
+        assertEquals(new ArgumentParseResult.Failure<>("taskId", ArgumentParseResult.Reason.MISSING, 5), result);
+    }
+
+    @Test
+    public void testInvalidTaskIdDoesNotMoveCursorPastToken() {
+        // Arrange
+        CommandInput input = CommandInput.of("show 4x2");
+        input.setCursor(4);
+
+        // Act
+        ArgumentParseResult<TasksCommand.TaskIdArguments> result = TaskIdArgumentsParser.parse(input);
+
+        // Assert
+        assertEquals(new ArgumentParseResult.Failure<>("taskId", ArgumentParseResult.Reason.INVALID, 5), result);
+        assertEquals("4x2", input.getRemainingInput());
+    }
+
+    @Test
+    public void testOptionalPage() {
+        // Arrange
+        CommandInput withPage = CommandInput.of("list 3");
+        withPage.setCursor(4);
+        CommandInput withoutPage = CommandInput.of("list");
+        withoutPage.setCursor(4);
+
+        // Act
+        ArgumentParseResult<TasksCommand.PageArguments> withPageResult = PageArgumentsParser.parse(withPage);
+        ArgumentParseResult<TasksCommand.PageArguments> withoutPageResult = PageArgumentsParser.parse(withoutPage);
+
+        // Assert
+        assertEquals(new ArgumentParseResult.Success<>(new TasksCommand.PageArguments(3)), withPageResult);
+        assertEquals(new ArgumentParseResult.Success<>(new TasksCommand.PageArguments(0)), withoutPageResult);
+    }
+}
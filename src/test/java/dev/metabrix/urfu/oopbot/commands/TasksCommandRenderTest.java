@@ -0,0 +1,50 @@
+package dev.metabrix.urfu.oopbot.commands;
+
+import dev.metabrix.urfu.oopbot.storage.model.Task;
+import dev.metabrix.urfu.oopbot.storage.model.User;
+import dev.metabrix.urfu.oopbot.util.Emoji;
+import dev.metabrix.urfu.oopbot.util.markdown.MarkdownWriter;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TasksCommandRenderTest {
+    private static final DateTimeFormatter DATE_FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy 'в' HH:mm:ss")
+        .withZone(ZoneId.systemDefault());
+
+    @Test
+    public void testWriteTasksPage() {
+        // Arrange
+        Instant createdAt = Instant.parse("2024-03-01T10:15:30Z");
+        Instant updatedAt = Instant.parse("2024-03-02T11:00:00Z");
+        User author = new User(1, 100, "author_name", createdAt, null);
+        User editor = new User(2, 200, null, createdAt, null);
+        List<Task> tasks = List.of(
+            new Task(10, 1, "Сдать лабу (№2).", "Строка 1\nСтрока 2!", 1, createdAt, 2, updatedAt),
+            new Task(11, 1, "Без описания", null, 3, createdAt, null, null)
+        );
+        MarkdownWriter writer = new MarkdownWriter();
+
+        // Act
+        TasksCommand.writeTasksPage(writer, tasks, id -> id == 1 ? author : id == 2 ? editor : null, 0, 2);
+
+        // Assert
+        String created = DATE_FORMAT.format(createdAt).replace(".", "\\.");
+        String updated = DATE_FORMAT.format(updatedAt).replace(".", "\\.");
+        assertEquals(
+            Emoji.NOTEBOOK + " *Задачи:* страница 1 из 2\n"
+                + "\n"
+                + "*Сдать лабу \\(№2\\)\\.* _\\(создана @author\\_name " + created + "\\)_\n"
+                + "_Последнее изменение " + updated + " от [<no username\\>](tg://user?id=200)_\n"
+                + ">Строка 1\n"
+                + ">Строка 2\\!\n"
+                + "\n"
+                + "*Без описания* _\\(создана <null\\> " + created + "\\)_\n",
+            writer.toString()
+        );
+    }
+}
@@ -0,0 +1,194 @@
+package dev.metabrix.urfu.oopbot.harness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Локальная заглушка Telegram Bot API для нагрузочного тестирования.
+ * <p>
+ * Принимает запросы вида <code>/bot&lt;токен&gt;/&lt;метод&gt;</code>, отвечает так же, как ответил бы Telegram
+ * на успешный запрос, и сообщает о каждом вызове {@link CallListener слушателю}. Методы, отправляющие сообщения,
+ * возвращают сообщение с новым идентификатором, остальные — <code>true</code>. <code>getUpdates</code>
+ * ничего не возвращает: события в бота передаёт сам {@link LoadHarness}.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class FakeBotApi implements AutoCloseable {
+    private static final @NotNull ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+    private static final long GET_UPDATES_DELAY_MILLIS = 500;
+
+    static {
+        // без TCP_NODELAY заголовки и тело ответа уходят разными пакетами, и каждый ответ ждёт отложенного ACK
+        System.setProperty("sun.net.httpserver.nodelay", "true");
+    }
+
+    private final @NotNull HttpServer server;
+    private final @NotNull ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    private final @NotNull CallListener listener;
+    private final long latencyMillis;
+    private final @NotNull AtomicInteger nextMessageId = new AtomicInteger(1);
+    private final @NotNull Map<@NotNull String, @NotNull LongAdder> calls = new ConcurrentHashMap<>();
+
+    /**
+     * Запускает заглушку на свободном порту локального интерфейса.
+     *
+     * @param latencyMillis искусственная задержка перед каждым ответом в миллисекундах
+     * @param listener слушатель вызовов
+     * @throws IOException если не удалось запустить HTTP-сервер
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public FakeBotApi(long latencyMillis, @NotNull CallListener listener) throws IOException {
+        this.latencyMillis = latencyMillis;
+        this.listener = listener;
+        this.server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+        this.server.createContext("/", this::handle);
+        this.server.setExecutor(this.executor);
+        this.server.start();
+    }
+
+    /**
+     * Возвращает базовый адрес API для <code>bot-info.api-url</code>.
+     *
+     * @return базовый адрес API
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull String getApiUrl() {
+        return "http://127.0.0.1:" + this.server.getAddress().getPort() + "/bot";
+    }
+
+    /**
+     * Возвращает количество вызовов каждого метода API.
+     *
+     * @return количество вызовов по названиям методов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull Map<@NotNull String, @NotNull Long> getCalls() {
+        Map<String, Long> calls = new TreeMap<>();
+        this.calls.forEach((method, count) -> calls.put(method, count.sum()));
+        return calls;
+    }
+
+    /**
+     * Возвращает идентификатор чата, к которому относится вызов, если он указан в параметрах.
+     *
+     * @param request параметры запроса
+     * @return идентификатор чата или {@code null}
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @Nullable Long getChatId(@NotNull JsonNode request) {
+        JsonNode chatId = request.get("chat_id");
+        if (chatId == null || chatId.isNull()) return null;
+        try {
+            return Long.parseLong(chatId.asText());
+        } catch (NumberFormatException ex) {
+            return null;
+        }
+    }
+
+    @Override
+    public void close() {
+        this.server.stop(0);
+        this.executor.shutdownNow();
+        try {
+            this.executor.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void handle(@NotNull HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getPath();
+            // telegrambots отправляет названия методов в нижнем регистре
+            String method = path.substring(path.lastIndexOf('/') + 1).toLowerCase(Locale.ROOT);
+
+            JsonNode request;
+            try (InputStream is = exchange.getRequestBody()) {
+                byte[] body = is.readAllBytes();
+                request = body.length == 0 ? OBJECT_MAPPER.createObjectNode() : OBJECT_MAPPER.readTree(body);
+            }
+
+            if (!method.equals("getupdates")) {
+                this.calls.computeIfAbsent(method, ignored -> new LongAdder()).increment();
+                this.listener.onCall(method, request);
+            }
+
+            try {
+                Thread.sleep(method.equals("getupdates") ? GET_UPDATES_DELAY_MILLIS : this.latencyMillis);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+
+            ObjectNode response = OBJECT_MAPPER.createObjectNode().put("ok", true);
+            switch (method) {
+                case "getupdates" -> response.putArray("result");
+                case "sendmessage", "editmessagetext", "editmessagereplymarkup" -> response.set("result", this.createMessage(request));
+                default -> response.put("result", true);
+            }
+
+            byte[] responseBody = OBJECT_MAPPER.writeValueAsBytes(response);
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, responseBody.length);
+            try (OutputStream os = exchange.getResponseBody()) {
+                os.write(responseBody);
+            }
+        }
+    }
+
+    private @NotNull ObjectNode createMessage(@NotNull JsonNode request) {
+        ObjectNode message = OBJECT_MAPPER.createObjectNode();
+        JsonNode messageId = request.get("message_id");
+        message.put("message_id", messageId != null ? messageId.asInt() : this.nextMessageId.getAndIncrement());
+        message.put("date", System.currentTimeMillis() / 1000);
+        message.putObject("chat")
+            .put("id", request.path("chat_id").asLong())
+            .put("type", "private");
+        JsonNode text = request.get("text");
+        if (text != null) message.set("text", text);
+        return message;
+    }
+
+    /**
+     * Слушатель вызовов заглушки. Вызывается из потоков HTTP-сервера сразу после получения запроса,
+ * до искусственной задержки.
+     *
+     * @since 1.2.0
+     * @author metabrix
+     */
+    @FunctionalInterface
+    public interface CallListener {
+        /**
+         * Вызывается при каждом вызове метода API, кроме <code>getUpdates</code>.
+         *
+         * @param method название метода API в нижнем регистре
+         * @param request параметры запроса
+         * @since 1.2.0
+         * @author metabrix
+         */
+        void onCall(@NotNull String method, @NotNull JsonNode request);
+    }
+}
@@ -0,0 +1,181 @@
+package dev.metabrix.urfu.oopbot.harness;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Счётчик задержек ответов бота.
+ * <p>
+ * Задержка события — время от передачи события в бота до первого вызова Telegram API в том же чате.
+ * В каждом чате одновременно ожидается ответ только на одно событие: если новое событие отправлено раньше,
+ * чем пришёл ответ на предыдущее, предыдущее считается потерянным.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public class LatencyRecorder {
+    private final @NotNull Map<@NotNull Long, @NotNull Pending> pending = new ConcurrentHashMap<>();
+    private final @NotNull Map<@NotNull String, @NotNull Samples> samples = new ConcurrentHashMap<>();
+    private final @NotNull LongAdder overlapped = new LongAdder();
+
+    private volatile boolean measuring = false;
+    private volatile long firstSentNanos;
+    private volatile long lastRepliedNanos;
+
+    /**
+     * Включает или выключает учёт задержек, например, чтобы не учитывать прогрев.
+     *
+     * @param measuring учитывать ли задержки отправляемых событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void setMeasuring(boolean measuring) {
+        this.measuring = measuring;
+    }
+
+    /**
+     * Отмечает, что событие передано в бота.
+     *
+     * @param chatId идентификатор чата
+     * @param label название шага сценария
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void onSent(long chatId, @NotNull String label) {
+        long now = System.nanoTime();
+        boolean measured = this.measuring;
+        Samples samples = measured ? this.samples.computeIfAbsent(label, ignored -> new Samples()) : null;
+        if (samples != null) {
+            samples.sent.increment();
+            if (this.firstSentNanos == 0) this.firstSentNanos = now;
+        }
+
+        Pending previous = this.pending.put(chatId, new Pending(samples, now));
+        if (previous != null && previous.samples() != null) this.overlapped.increment();
+    }
+
+    /**
+     * Отмечает вызов Telegram API в чате.
+     *
+     * @param chatId идентификатор чата
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public void onReply(long chatId) {
+        long now = System.nanoTime();
+        Pending pending = this.pending.remove(chatId);
+        if (pending == null || pending.samples() == null) return;
+
+        pending.samples().add(now - pending.sentNanos());
+        this.lastRepliedNanos = now;
+    }
+
+    /**
+     * Возвращает количество событий, ответ на которые ещё не получен.
+     *
+     * @return количество ожидающих ответа событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public int getPendingCount() {
+        return this.pending.size();
+    }
+
+    /**
+     * Возвращает количество событий, потерянных из-за того, что следующее событие в чате
+     * было отправлено раньше ответа.
+     *
+     * @return количество перекрывшихся событий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getOverlapped() {
+        return this.overlapped.sum();
+    }
+
+    /**
+     * Возвращает время от первого учтённого события до последнего ответа.
+     *
+     * @return время измерения в наносекундах
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public long getElapsedNanos() {
+        return Math.max(0, this.lastRepliedNanos - this.firstSentNanos);
+    }
+
+    /**
+     * Подсчитывает статистику по шагам сценария.
+     *
+     * @return статистика по названиям шагов
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull Map<@NotNull String, @NotNull Summary> summarize() {
+        Map<String, Summary> summaries = new TreeMap<>();
+        this.samples.forEach((label, samples) -> summaries.put(label, samples.summarize()));
+        return summaries;
+    }
+
+    private record Pending(Samples samples, long sentNanos) {
+    }
+
+    private static final class Samples {
+        private final @NotNull LongAdder sent = new LongAdder();
+        private final @NotNull List<long @NotNull []> chunks = new ArrayList<>();
+        private long @NotNull [] current = new long[4096];
+        private int size = 0;
+
+        private synchronized void add(long latencyNanos) {
+            if (this.size == this.current.length) {
+                this.chunks.add(this.current);
+                this.current = new long[this.current.length];
+                this.size = 0;
+            }
+            this.current[this.size++] = latencyNanos;
+        }
+
+        private synchronized @NotNull Summary summarize() {
+            int count = this.chunks.size() * this.current.length + this.size;
+            long[] all = new long[count];
+            int position = 0;
+            for (long[] chunk : this.chunks) {
+                System.arraycopy(chunk, 0, all, position, chunk.length);
+                position += chunk.length;
+            }
+            System.arraycopy(this.current, 0, all, position, this.size);
+            Arrays.sort(all);
+            return new Summary(
+                this.sent.sum(), count,
+                percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99),
+                count == 0 ? 0 : all[count - 1]
+            );
+        }
+
+        private static long percentile(long @NotNull [] sorted, double quantile) {
+            if (sorted.length == 0) return 0;
+            return sorted[(int) Math.min(sorted.length - 1, Math.ceil(quantile * sorted.length) - 1)];
+        }
+    }
+
+    /**
+     * Статистика задержек одного шага сценария.
+     *
+     * @param sent количество отправленных событий
+     * @param replied количество событий, на которые пришёл ответ
+     * @param p50Nanos медиана задержки
+     * @param p90Nanos 90-й перцентиль задержки
+     * @param p99Nanos 99-й перцентиль задержки
+     * @param maxNanos максимальная задержка
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record Summary(long sent, long replied, long p50Nanos, long p90Nanos, long p99Nanos, long maxNanos) {
+    }
+}
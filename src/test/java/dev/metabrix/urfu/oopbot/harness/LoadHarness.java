@@ -0,0 +1,259 @@
+package dev.metabrix.urfu.oopbot.harness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+import dev.metabrix.urfu.oopbot.BotApplication;
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import dev.metabrix.urfu.oopbot.telegram.TelegramBot;
+import dev.metabrix.urfu.oopbot.telegram.UpdateIngress;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Нагрузочный стенд: запускает бота против {@link FakeBotApi локальной заглушки Telegram API}
+ * и с заданной частотой передаёт ему события через {@link TelegramBot#onUpdateReceived}, как это
+ * делает сессия long polling. После прогона печатает пропускную способность и перцентили задержек
+ * по каждой команде для каждого из выбранных хранилищ данных.
+ * <p>
+ * Запуск: <code>gradle loadHarness -PharnessArgs="--rate 500 --duration 60 --storage sqlite --storage mysql"</code>.
+ * <pre>
+ * --rate &lt;событий/с&gt;        частота событий, по умолчанию, 200
+ * --duration &lt;секунды&gt;      длительность измерения, по умолчанию, 30
+ * --warmup &lt;секунды&gt;        длительность прогрева, не входящего в отчёт, по умолчанию, 5
+ * --chats &lt;количество&gt;      количество чатов, по умолчанию, 2000
+ * --storage &lt;sqlite|mysql&gt;  хранилище данных, можно указать несколько раз, по умолчанию, sqlite
+ * --config &lt;файл&gt;           конфигурация бота, из которой берутся настройки хранилищ и обработки событий
+ * --updates &lt;директория&gt;    записанные события (по одному в .json-файле) вместо синтетического сценария
+ * --api-latency &lt;мс&gt;        задержка ответов заглушки Telegram API, по умолчанию, 0
+ * </pre>
+ * Каждый чат проходит сценарий по порядку, события одного чата разнесены на <code>chats / rate</code> секунд.
+ * Лимиты секции <code>outbound</code> действуют и при отправке в заглушку, поэтому чтобы измерить
+ * обработку событий без них, поднимите лимиты в файле из <code>--config</code>.
+ *
+ * @since 1.2.0
+ * @author metabrix
+ */
+public final class LoadHarness {
+    private static final long CHAT_ID_BASE = 1_000_000_000L;
+    private static final long DRAIN_TIMEOUT_MILLIS = 30_000;
+    private static final @NotNull PrintStream OUT = System.out;
+
+    private LoadHarness() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        Workload workload = options.updates() != null ? Workload.recorded(options.updates()) : Workload.synthetic();
+
+        for (BotConfiguration.DataStorage.Type<?, ?> storageType : options.storages()) {
+            run(options, workload, storageType);
+        }
+        System.exit(0);
+    }
+
+    private static void run(
+        @NotNull Options options,
+        @NotNull Workload workload,
+        @NotNull BotConfiguration.DataStorage.Type<?, ?> storageType
+    ) throws Exception {
+        LatencyRecorder recorder = new LatencyRecorder();
+        Path temporaryDirectory = Files.createTempDirectory("oopbot-harness");
+
+        try (FakeBotApi api = new FakeBotApi(options.apiLatencyMillis(), (method, request) -> onApiCall(recorder, method, request))) {
+            BotApplication application = new BotApplication(BotConfiguration.fromConfig(
+                createConfig(options, storageType, api.getApiUrl(), temporaryDirectory)
+            ));
+            application.start();
+
+            try {
+                TelegramBot bot = application.getBots().getFirst();
+                int updateId = 1;
+                updateId = drive(bot, workload, recorder, options, options.warmupSeconds(), updateId);
+                recorder.setMeasuring(true);
+                drive(bot, workload, recorder, options, options.durationSeconds(), updateId);
+
+                long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DRAIN_TIMEOUT_MILLIS);
+                while (recorder.getPendingCount() > 0 && System.nanoTime() < deadline) {
+                    Thread.sleep(50);
+                }
+
+                printReport(options, storageType, recorder, application.getUpdateIngress(), api.getCalls());
+            } finally {
+                application.stop();
+            }
+        } finally {
+            deleteRecursively(temporaryDirectory);
+        }
+    }
+
+    private static void deleteRecursively(@NotNull Path directory) throws IOException {
+        try (Stream<Path> paths = Files.walk(directory)) {
+            // сначала файлы, потом содержащие их директории
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    private static int drive(
+        @NotNull TelegramBot bot,
+        @NotNull Workload workload,
+        @NotNull LatencyRecorder recorder,
+        @NotNull Options options,
+        int seconds,
+        int firstUpdateId
+    ) {
+        List<Workload.Step> steps = workload.steps();
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / options.rate();
+        long total = (long) options.rate() * seconds;
+        long startNanos = System.nanoTime();
+
+        for (long i = 0; i < total; i++) {
+            long targetNanos = startNanos + i * intervalNanos;
+            for (long now = System.nanoTime(); now < targetNanos; now = System.nanoTime()) {
+                LockSupport.parkNanos(targetNanos - now);
+            }
+
+            int updateId = firstUpdateId + (int) i;
+            long chatId = CHAT_ID_BASE + updateId % options.chats();
+            Workload.Step step = steps.get((updateId / options.chats()) % steps.size());
+
+            recorder.onSent(chatId, step.label());
+            bot.onUpdateReceived(workload.materialize(step, chatId, updateId));
+        }
+        return firstUpdateId + (int) total;
+    }
+
+    private static void onApiCall(@NotNull LatencyRecorder recorder, @NotNull String method, @NotNull JsonNode request) {
+        Long chatId = FakeBotApi.getChatId(request);
+        if (chatId == null && request.hasNonNull("callback_query_id")) {
+            try {
+                chatId = Workload.parseCallbackQueryChatId(request.get("callback_query_id").asText());
+            } catch (NumberFormatException ignored) {
+            }
+        }
+        if (chatId != null) recorder.onReply(chatId);
+    }
+
+    private static @NotNull Config createConfig(
+        @NotNull Options options,
+        @NotNull BotConfiguration.DataStorage.Type<?, ?> storageType,
+        @NotNull String apiUrl,
+        @NotNull Path temporaryDirectory
+    ) {
+        Config base = options.config() != null
+            ? ConfigFactory.parseFile(options.config().toFile()).withFallback(ConfigFactory.parseResources("application.conf"))
+            : ConfigFactory.parseResources("application.conf");
+        return base
+            .withValue("bot-info.username", ConfigValueFactory.fromAnyRef("load_harness_bot"))
+            .withValue("bot-info.token", ConfigValueFactory.fromAnyRef("0:load-harness"))
+            .withValue("bot-info.api-url", ConfigValueFactory.fromAnyRef(apiUrl))
+            .withValue("console.enabled", ConfigValueFactory.fromAnyRef(false))
+            .withValue("updates.mode", ConfigValueFactory.fromAnyRef("long-polling"))
+            .withValue("updates.journal.directory", ConfigValueFactory.fromAnyRef(temporaryDirectory.resolve("journal").toString()))
+            .withValue("data-storage.type", ConfigValueFactory.fromAnyRef(storageType.getSerializedName()))
+            .withValue("data-storage.sqlite.database-file-path", ConfigValueFactory.fromAnyRef(temporaryDirectory.resolve("harness.db").toString()))
+            // отдельные таблицы на каждый прогон, чтобы данные прошлых прогонов не влияли на результат
+            .withValue("data-storage.mysql.table-prefix", ConfigValueFactory.fromAnyRef("lh" + System.currentTimeMillis() / 1000 + "_"));
+    }
+
+    private static void printReport(
+        @NotNull Options options,
+        @NotNull BotConfiguration.DataStorage.Type<?, ?> storageType,
+        @NotNull LatencyRecorder recorder,
+        @NotNull UpdateIngress ingress,
+        @NotNull Map<@NotNull String, @NotNull Long> apiCalls
+    ) {
+        double elapsedSeconds = recorder.getElapsedNanos() / 1e9;
+
+        OUT.println();
+        OUT.printf(Locale.ROOT, "=== storage: %s, rate: %d/s, duration: %ds, chats: %d, api latency: %dms ===%n",
+            storageType.getSerializedName(), options.rate(), options.durationSeconds(), options.chats(), options.apiLatencyMillis());
+        OUT.printf(Locale.ROOT, "%-28s %8s %8s %10s %9s %9s %9s %9s%n",
+            "step", "sent", "replied", "replies/s", "p50 ms", "p90 ms", "p99 ms", "max ms");
+
+        long totalSent = 0, totalReplied = 0;
+        for (Map.Entry<String, LatencyRecorder.Summary> entry : recorder.summarize().entrySet()) {
+            LatencyRecorder.Summary summary = entry.getValue();
+            totalSent += summary.sent();
+            totalReplied += summary.replied();
+            OUT.printf(Locale.ROOT, "%-28s %8d %8d %10.1f %9.2f %9.2f %9.2f %9.2f%n",
+                entry.getKey(), summary.sent(), summary.replied(),
+                elapsedSeconds == 0 ? 0 : summary.replied() / elapsedSeconds,
+                millis(summary.p50Nanos()), millis(summary.p90Nanos()), millis(summary.p99Nanos()), millis(summary.maxNanos()));
+        }
+        OUT.printf(Locale.ROOT, "%-28s %8d %8d %10.1f%n",
+            "total", totalSent, totalReplied, elapsedSeconds == 0 ? 0 : totalReplied / elapsedSeconds);
+
+        OUT.printf(Locale.ROOT, "no reply: %d, overlapped in chat: %d%n",
+            totalSent - totalReplied, recorder.getOverlapped());
+        for (UpdateIngress.TypeStats stats : ingress.getStats()) {
+            if (stats.shedUpdates() > 0) OUT.printf(Locale.ROOT, "shed %s: %d%n", stats.type(), stats.shedUpdates());
+        }
+        OUT.println("api calls: " + apiCalls);
+    }
+
+    private static double millis(long nanos) {
+        return nanos / 1e6;
+    }
+
+    private record Options(
+        int rate,
+        int durationSeconds,
+        int warmupSeconds,
+        int chats,
+        @NotNull List<BotConfiguration.DataStorage.@NotNull Type<?, ?>> storages,
+        @Nullable Path config,
+        @Nullable Path updates,
+        long apiLatencyMillis
+    ) {
+        private static @NotNull Options parse(String @NotNull [] args) throws IOException {
+            int rate = 200, durationSeconds = 30, warmupSeconds = 5, chats = 2000;
+            List<BotConfiguration.DataStorage.Type<?, ?>> storages = new ArrayList<>();
+            Path config = null, updates = null;
+            long apiLatencyMillis = 0;
+
+            for (int i = 0; i < args.length; i++) {
+                String name = args[i];
+                if (i + 1 >= args.length) throw new IllegalArgumentException("Missing value for " + name);
+                String value = args[++i];
+                switch (name) {
+                    case "--rate" -> rate = Integer.parseInt(value);
+                    case "--duration" -> durationSeconds = Integer.parseInt(value);
+                    case "--warmup" -> warmupSeconds = Integer.parseInt(value);
+                    case "--chats" -> chats = Integer.parseInt(value);
+                    case "--storage" -> {
+                        BotConfiguration.DataStorage.Type<?, ?> type = BotConfiguration.DataStorage.Type.bySerializedName(value);
+                        if (type == null) throw new IllegalArgumentException("Unknown storage type: " + value);
+                        storages.add(type);
+                    }
+                    case "--config" -> config = Path.of(value);
+                    case "--updates" -> updates = Path.of(value);
+                    case "--api-latency" -> apiLatencyMillis = Long.parseLong(value);
+                    default -> throw new IllegalArgumentException("Unknown option: " + name);
+                }
+            }
+
+            if (rate <= 0 || durationSeconds <= 0 || warmupSeconds < 0 || chats <= 0 || apiLatencyMillis < 0) {
+                throw new IllegalArgumentException("rate, duration and chats must be positive, warmup and api-latency non-negative");
+            }
+            if (config != null && !Files.isRegularFile(config)) throw new IOException("Config file not found: " + config);
+            if (storages.isEmpty()) storages.add(BotConfiguration.DataStorage.Type.SQLITE);
+            return new Options(rate, durationSeconds, warmupSeconds, chats, List.copyOf(storages), config, updates, apiLatencyMillis);
+        }
+    }
+}
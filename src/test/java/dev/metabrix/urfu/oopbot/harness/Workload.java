@@ -0,0 +1,196 @@
+package dev.metabrix.urfu.oopbot.harness;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static dev.metabrix.urfu.oopbot.util.Checks.checkArgument;
+
+/**
+ * Сценарий нагрузки — последовательность событий, которую получает каждый чат.
+ * <p>
+ * События хранятся как JSON-шаблоны. Перед отправкой в бота идентификаторы события, чата,
+ * пользователя и нажатия кнопки в шаблоне заменяются, поэтому один сценарий можно проигрывать
+ * параллельно в любом количестве чатов.
+ *
+ * @param steps шаги сценария
+ * @since 1.2.0
+ * @author metabrix
+ */
+public record Workload(@NotNull List<@NotNull Step> steps) {
+    private static final @NotNull ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    public Workload {
+        checkArgument(!steps.isEmpty(), "Workload must have at least one step");
+        steps = List.copyOf(steps);
+    }
+
+    /**
+     * Создаёт синтетический сценарий: приветствие, создание задачи через диалог, список задач
+     * и нажатие кнопки страницы списка.
+     *
+     * @return синтетический сценарий
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull Workload synthetic() {
+        return new Workload(List.of(
+            new Step("/start", message("/start")),
+            new Step("/tasks new", message("/tasks new")),
+            new Step("dialog: task name", message("Нагрузочная задача")),
+            new Step("dialog: task description", message("-")),
+            new Step("/tasks list", message("/tasks list")),
+            new Step("callback: tasks list", callbackQuery("command:tasks list 1"))
+        ));
+    }
+
+    /**
+     * Загружает записанные события из директории, по одному событию в <code>.json</code>-файле.
+     * События проигрываются в порядке имён файлов.
+     *
+     * @param directory директория с записанными событиями
+     * @return сценарий из записанных событий
+     * @throws IOException если произойдёт ошибка ввода/вывода
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static @NotNull Workload recorded(@NotNull Path directory) throws IOException {
+        List<Path> files;
+        try (Stream<Path> stream = Files.list(directory)) {
+            files = stream.filter(path -> path.getFileName().toString().endsWith(".json")).sorted().toList();
+        }
+
+        List<Step> steps = new ArrayList<>(files.size());
+        for (Path file : files) {
+            JsonNode update = OBJECT_MAPPER.readTree(file.toFile());
+            checkArgument(update instanceof ObjectNode, file + " does not contain a JSON object");
+            steps.add(new Step(label((ObjectNode) update), (ObjectNode) update));
+        }
+        return new Workload(steps);
+    }
+
+    /**
+     * Создаёт событие по шаблону шага для указанного чата.
+     *
+     * @param step шаг сценария
+     * @param chatId идентификатор чата, он же идентификатор пользователя
+     * @param updateId <code>update_id</code> события
+     * @return событие
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public @NotNull Update materialize(@NotNull Step step, long chatId, int updateId) {
+        ObjectNode update = step.template().deepCopy();
+        update.put("update_id", updateId);
+        long date = System.currentTimeMillis() / 1000;
+
+        if (update.get("message") instanceof ObjectNode message) {
+            message.put("message_id", updateId);
+            message.put("date", date);
+            object(message, "chat").put("id", chatId);
+            object(message, "from").put("id", chatId);
+        }
+        if (update.get("callback_query") instanceof ObjectNode query) {
+            query.put("id", callbackQueryId(chatId, updateId));
+            object(query, "from").put("id", chatId);
+            if (query.get("message") instanceof ObjectNode message) {
+                message.put("date", date);
+                object(message, "chat").put("id", chatId);
+            }
+        }
+        return OBJECT_MAPPER.convertValue(update, Update.class);
+    }
+
+    /**
+     * Извлекает идентификатор чата из идентификатора нажатия кнопки, созданного {@link #materialize}.
+     *
+     * @param callbackQueryId идентификатор нажатия кнопки
+     * @return идентификатор чата
+     * @throws NumberFormatException если идентификатор создан не этим классом
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public static long parseCallbackQueryChatId(@NotNull String callbackQueryId) {
+        int separator = callbackQueryId.indexOf(':');
+        return Long.parseLong(separator == -1 ? callbackQueryId : callbackQueryId.substring(0, separator));
+    }
+
+    private static @NotNull String callbackQueryId(long chatId, int updateId) {
+        return chatId + ":" + updateId;
+    }
+
+    private static @NotNull String label(@NotNull ObjectNode update) {
+        String text = update.path("message").path("text").asText(null);
+        if (text != null) {
+            if (!text.startsWith("/")) return "dialog: text";
+            String[] tokens = text.split("\\s+");
+            return tokens.length > 1 ? tokens[0] + " " + tokens[1] : tokens[0];
+        }
+        String data = update.path("callback_query").path("data").asText(null);
+        if (data != null) return "callback: " + data.replaceAll("\\s+\\d+$", "").replace("command:", "");
+        for (Iterator<String> names = update.fieldNames(); names.hasNext(); ) {
+            String name = names.next();
+            if (!name.equals("update_id")) return name;
+        }
+        return "unknown";
+    }
+
+    private static @NotNull ObjectNode object(@NotNull ObjectNode parent, @NotNull String name) {
+        return parent.get(name) instanceof ObjectNode child ? child : parent.putObject(name);
+    }
+
+    private static @NotNull ObjectNode message(@NotNull String text) {
+        ObjectNode update = OBJECT_MAPPER.createObjectNode();
+        ObjectNode message = update.putObject("message");
+        message.set("chat", privateChat());
+        message.set("from", user());
+        message.put("text", text);
+        return update;
+    }
+
+    private static @NotNull ObjectNode callbackQuery(@NotNull String data) {
+        ObjectNode update = OBJECT_MAPPER.createObjectNode();
+        ObjectNode query = update.putObject("callback_query");
+        query.set("from", user());
+        ObjectNode message = query.putObject("message");
+        message.put("message_id", 1);
+        message.set("chat", privateChat());
+        message.put("text", "Используйте кнопки для создания и просмотра задач");
+        query.put("chat_instance", "load-harness");
+        query.put("data", data);
+        return update;
+    }
+
+    private static @NotNull ObjectNode privateChat() {
+        return OBJECT_MAPPER.createObjectNode()
+            .put("type", "private")
+            .put("first_name", "Load");
+    }
+
+    private static @NotNull ObjectNode user() {
+        return OBJECT_MAPPER.createObjectNode()
+            .put("is_bot", false)
+            .put("first_name", "Load")
+            .put("username", "load_harness_user");
+    }
+
+    /**
+     * Шаг сценария.
+     *
+     * @param label название шага в отчёте
+     * @param template JSON-шаблон события
+     * @since 1.2.0
+     * @author metabrix
+     */
+    public record Step(@NotNull String label, @NotNull ObjectNode template) {
+    }
+}
@@ -0,0 +1,181 @@
+package dev.metabrix.urfu.oopbot.journal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.stream.Stream;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateJournalTest {
+    private static final int SEGMENT_SIZE = 1024;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testUnfinishedEntriesAreRecovered() throws IOException {
+        // Arrange
+        UpdateJournal journal = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+        UpdateJournal.Entry first = journal.append(bytes("first"));
+        journal.append(bytes("second"));
+        UpdateJournal.Entry third = journal.append(bytes("third"));
+        journal.complete(first);
+        journal.complete(third);
+        journal.close();
+
+        // Act
+        UpdateJournal reopened = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+
+        // Assert
+        assertEquals(List.of("second"), payloads(reopened));
+        assertEquals(1, reopened.getPendingEntries());
+        reopened.close();
+    }
+
+    @Test
+    public void testRecoveredEntriesCanBeCompleted() throws IOException {
+        // Arrange
+        UpdateJournal journal = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+        journal.append(bytes("potato"));
+        journal.close();
+
+        // Act
+        UpdateJournal reopened = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+        reopened.complete(reopened.getRecoveredEntries().getFirst().entry());
+        reopened.close();
+        UpdateJournal reopenedAgain = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+
+        // Assert
+        assertTrue(reopenedAgain.getRecoveredEntries().isEmpty());
+        reopenedAgain.close();
+    }
+
+    @Test
+    public void testCompletedSegmentsAreDeletedOnRotation() throws IOException {
+        // Arrange
+        UpdateJournal journal = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+        byte[] payload = new byte[200];
+
+        // Act
+        for (int i = 0; i < 50; i++) {
+            journal.complete(journal.append(payload));
+        }
+        UpdateJournal.Entry pending = journal.append(payload);
+        for (int i = 0; i < 10; i++) {
+            journal.complete(journal.append(payload));
+        }
+
+        // Assert
+        assertEquals(1, journal.getPendingEntries());
+        // the segment with the pending entry and the active segment
+        assertEquals(2, journal.getSegmentCount());
+        assertEquals(2, countSegmentFiles());
+
+        journal.complete(pending);
+        assertEquals(1, journal.getSegmentCount());
+        assertEquals(1, countSegmentFiles());
+        journal.close();
+    }
+
+    @Test
+    public void testWatermarkSurvivesReopen() throws IOException {
+        // Arrange
+        UpdateJournal journal = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+        Instant before = Instant.now().truncatedTo(ChronoUnit.MILLIS);
+        journal.advanceWatermark(120);
+        journal.advanceWatermark(110);
+        journal.close();
+
+        // Act
+        UpdateJournal reopened = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+        UpdateJournal.Watermark watermark = reopened.getWatermark();
+
+        // Assert
+        assertNotNull(watermark);
+        assertEquals(120, watermark.updateId());
+        assertFalse(watermark.recordedAt().isBefore(before));
+        assertTrue(reopened.getRecoveredEntries().isEmpty());
+        reopened.close();
+    }
+
+    @Test
+    public void testNoWatermarkInNewJournal() throws IOException {
+        // Arrange & Act
+        UpdateJournal journal = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+
+        // Assert
+        assertNull(journal.getWatermark());
+        journal.close();
+    }
+
+    @Test
+    public void testTornEntryIsIgnored() throws IOException {
+        // Arrange
+        UpdateJournal journal = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+        journal.append(bytes("complete entry"));
+        journal.append(bytes("torn entry"));
+        journal.close();
+        corruptLastByteOf("torn entry");
+
+        // Act
+        UpdateJournal reopened = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+
+        // Assert
+        assertEquals(List.of("complete entry"), payloads(reopened));
+        reopened.close();
+    }
+
+    @Test
+    public void testTooLargeEntry() throws IOException {
+        // Arrange
+        UpdateJournal journal = UpdateJournal.open(this.directory, SEGMENT_SIZE);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> journal.append(new byte[SEGMENT_SIZE]));
+        journal.close();
+    }
+
+    private void corruptLastByteOf(@NotNull String payload) throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            Path segment = files.filter(JournalSegment::isSegmentFile).findFirst().orElseThrow();
+            byte[] content = Files.readAllBytes(segment);
+            byte[] needle = bytes(payload);
+            for (int i = 0; i <= content.length - needle.length; i++) {
+                if (ByteBuffer.wrap(content, i, needle.length).equals(ByteBuffer.wrap(needle))) {
+                    try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE)) {
+                        channel.write(ByteBuffer.wrap(new byte[] { 0 }), i + needle.length - 1);
+                    }
+                    return;
+                }
+            }
+            fail("Payload " + payload + " not found in the journal");
+        }
+    }
+
+    private long countSegmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(this.directory)) {
+            return files.filter(JournalSegment::isSegmentFile).count();
+        }
+    }
+
+    private static byte @NotNull [] bytes(@NotNull String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static @NotNull List<@NotNull String> payloads(@NotNull UpdateJournal journal) {
+        return journal.getRecoveredEntries().stream()
+            .map(entry -> new String(entry.payload(), StandardCharsets.UTF_8))
+            .toList();
+    }
+}
@@ -0,0 +1,65 @@
+package dev.metabrix.urfu.oopbot.storage.impl.sql;
+
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import dev.metabrix.urfu.oopbot.storage.ChatStorage;
+import dev.metabrix.urfu.oopbot.storage.DataStorage;
+import dev.metabrix.urfu.oopbot.storage.impl.sqlite.SQLiteDataStorage;
+import dev.metabrix.urfu.oopbot.storage.model.Chat;
+import dev.metabrix.urfu.oopbot.storage.model.User;
+import java.nio.file.Path;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CachedChatStorageTest {
+    private static final long BOT_ID = 1;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testDeletedChatIsNotReturnedFromCache() throws Exception {
+        try (DataStorage storage = this.openStorage()) {
+            // Arrange
+            ChatStorage chats = storage.chats();
+            User user = storage.users().create(10, "user");
+            Chat chat = chats.create(BOT_ID, 10, user.id());
+            assertEquals(chat.id(), chats.getByTelegramId(BOT_ID, 10).id());
+
+            // Act
+            boolean deleted = chats.delete(chat.id());
+            Chat afterDelete = chats.getByTelegramId(BOT_ID, 10);
+            Chat recreated = chats.create(BOT_ID, 10, user.id());
+
+            // Assert
+            assertTrue(deleted);
+            assertNull(afterDelete);
+            assertEquals(recreated.id(), chats.getByTelegramId(BOT_ID, 10).id());
+            assertNotEquals(chat.id(), recreated.id());
+        }
+    }
+
+    @Test
+    public void testCacheIsBounded() throws Exception {
+        try (DataStorage storage = this.openStorage()) {
+            // Arrange
+            CachedChatStorage chats = new CachedChatStorage(storage.chats(), 10);
+            User user = storage.users().create(10, "user");
+            for (int i = 0; i < 100; i++) chats.create(BOT_ID, -1000 - i, user.id());
+
+            // Act
+            for (int i = 0; i < 100; i++) assertNotNull(chats.getByTelegramId(BOT_ID, -1000 - i));
+
+            // Assert
+            assertEquals(10, chats.size());
+        }
+    }
+
+    private @NotNull DataStorage openStorage() throws Exception {
+        return new SQLiteDataStorage(new BotConfiguration.DataStorage.SQLiteConfiguration(
+            this.directory.resolve("bot.db"), "tt_", 1
+        ));
+    }
+}
@@ -0,0 +1,168 @@
+package dev.metabrix.urfu.oopbot.storage.impl.sql;
+
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import dev.metabrix.urfu.oopbot.storage.DataStorage;
+import dev.metabrix.urfu.oopbot.storage.DialogStateStorage;
+import dev.metabrix.urfu.oopbot.storage.impl.sqlite.SQLiteDataStorage;
+import dev.metabrix.urfu.oopbot.storage.model.Chat;
+import dev.metabrix.urfu.oopbot.storage.model.User;
+import dev.metabrix.urfu.oopbot.storage.model.dialog.DialogState;
+import dev.metabrix.urfu.oopbot.storage.model.dialog.ReadingNewTaskName;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FilteredDialogStateStorageTest {
+    private static final long BOT_ID = 1;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testSetAndDelete() throws Exception {
+        try (DataStorage storage = this.openStorage()) {
+            // Arrange
+            User user = storage.users().create(10, "user");
+            Chat chat = storage.chats().create(BOT_ID, -100, user.id());
+            DialogStateStorage dialogStates = storage.dialogStates();
+            boolean beforeSet = dialogStates.mightExist(10, -100);
+
+            // Act
+            dialogStates.set(user.id(), chat.id(), ReadingNewTaskName.INSTANCE);
+            boolean afterSet = dialogStates.mightExist(10, -100);
+            boolean otherChat = dialogStates.mightExist(10, -200);
+            boolean deleted = dialogStates.delete(user.id(), chat.id());
+            boolean afterDelete = dialogStates.mightExist(10, -100);
+            boolean deletedAgain = dialogStates.delete(user.id(), chat.id());
+
+            // Assert
+            assertFalse(beforeSet);
+            assertTrue(afterSet);
+            assertFalse(otherChat);
+            assertTrue(deleted);
+            assertFalse(afterDelete);
+            assertFalse(deletedAgain);
+            assertNull(dialogStates.get(user.id(), chat.id()));
+        }
+    }
+
+    @Test
+    public void testFilterIsRebuiltOnStartup() throws Exception {
+        // Arrange
+        int userId;
+        int chatId;
+        try (DataStorage storage = this.openStorage()) {
+            User user = storage.users().create(10, "user");
+            Chat chat = storage.chats().create(BOT_ID, -100, user.id());
+            storage.dialogStates().set(user.id(), chat.id(), ReadingNewTaskName.INSTANCE);
+            userId = user.id();
+            chatId = chat.id();
+        }
+
+        // Act
+        try (DataStorage storage = this.openStorage()) {
+            DialogStateStorage dialogStates = storage.dialogStates();
+
+            // Assert
+            assertTrue(dialogStates.mightExist(10, -100));
+            assertEquals(ReadingNewTaskName.INSTANCE, dialogStates.get(userId, chatId));
+            assertEquals(1, ((FilteredDialogStateStorage) dialogStates).size());
+        }
+    }
+
+    @Test
+    public void testManyDialogStates() throws Exception {
+        try (DataStorage storage = this.openStorage()) {
+            // Arrange
+            DialogStateStorage dialogStates = storage.dialogStates();
+            User user = storage.users().create(10, "user");
+            int[] chatIds = new int[100];
+            for (int i = 0; i < chatIds.length; i++) {
+                chatIds[i] = storage.chats().create(BOT_ID, -1000 - i, user.id()).id();
+                dialogStates.set(user.id(), chatIds[i], ReadingNewTaskName.INSTANCE);
+            }
+
+            // Act
+            for (int i = 0; i < chatIds.length; i += 2) {
+                assertTrue(dialogStates.delete(user.id(), chatIds[i]));
+            }
+
+            // Assert
+            for (int i = 0; i < chatIds.length; i++) {
+                assertEquals(i % 2 == 1, dialogStates.mightExist(10, -1000 - i), "chat " + i);
+            }
+            assertEquals(chatIds.length / 2, ((FilteredDialogStateStorage) dialogStates).size());
+        }
+    }
+
+    @Test
+    public void testSetDuringDeleteKeepsFilterConsistent() throws Exception {
+        try (DataStorage storage = this.openStorage()) {
+            // Arrange
+            User user = storage.users().create(10, "user");
+            Chat chat = storage.chats().create(BOT_ID, -100, user.id());
+            storage.dialogStates().set(user.id(), chat.id(), ReadingNewTaskName.INSTANCE);
+            CountDownLatch deleting = new CountDownLatch(1);
+            DialogStateStorage dialogStates = new FilteredDialogStateStorage(
+                new SlowDeleteStorage(storage.dialogStates(), deleting),
+                storage.users(),
+                storage.chats()
+            );
+
+            // Act
+            // set попадает между удалением строки из базы данных и удалением ключа из фильтра
+            Thread deleter = Thread.ofPlatform().start(() -> dialogStates.delete(user.id(), chat.id()));
+            deleting.await();
+            dialogStates.set(user.id(), chat.id(), ReadingNewTaskName.INSTANCE);
+            deleter.join();
+
+            // Assert
+            assertEquals(ReadingNewTaskName.INSTANCE, storage.dialogStates().get(user.id(), chat.id()));
+            assertTrue(dialogStates.mightExist(10, -100));
+            assertEquals(ReadingNewTaskName.INSTANCE, dialogStates.get(user.id(), chat.id()));
+        }
+    }
+
+    private @NotNull DataStorage openStorage() throws Exception {
+        return new SQLiteDataStorage(new BotConfiguration.DataStorage.SQLiteConfiguration(
+            this.directory.resolve("bot.db"), "tt_", 1
+        ));
+    }
+
+    private record SlowDeleteStorage(@NotNull DialogStateStorage delegate, @NotNull CountDownLatch deleting) implements DialogStateStorage {
+        private static final long DELETE_DELAY_MILLIS = 200;
+
+        @Override
+        public @Nullable DialogState get(int userId, int chatId) {
+            return this.delegate.get(userId, chatId);
+        }
+
+        @Override
+        public void set(int userId, int chatId, @NotNull DialogState dialogState) {
+            this.delegate.set(userId, chatId, dialogState);
+        }
+
+        @Override
+        public boolean delete(int userId, int chatId) {
+            boolean deleted = this.delegate.delete(userId, chatId);
+            this.deleting.countDown();
+            try {
+                Thread.sleep(DELETE_DELAY_MILLIS);
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            return deleted;
+        }
+
+        @Override
+        public @NotNull List<@NotNull Key> getAllKeys() {
+            return this.delegate.getAllKeys();
+        }
+    }
+}
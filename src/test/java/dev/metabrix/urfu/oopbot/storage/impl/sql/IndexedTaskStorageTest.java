@@ -0,0 +1,103 @@
+package dev.metabrix.urfu.oopbot.storage.impl.sql;
+
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import dev.metabrix.urfu.oopbot.storage.DataStorage;
+import dev.metabrix.urfu.oopbot.storage.TaskStorage;
+import dev.metabrix.urfu.oopbot.storage.impl.sqlite.SQLiteDataStorage;
+import dev.metabrix.urfu.oopbot.storage.model.Chat;
+import dev.metabrix.urfu.oopbot.storage.model.Task;
+import dev.metabrix.urfu.oopbot.storage.model.User;
+import java.nio.file.Path;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedTaskStorageTest {
+    private static final long BOT_ID = 1;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testSearchByName() throws Exception {
+        try (DataStorage storage = this.openStorage()) {
+            // Arrange
+            User user = storage.users().create(10, "user");
+            Chat chat = storage.chats().create(BOT_ID, 10, user.id());
+            Chat otherChat = storage.chats().create(BOT_ID, -100, user.id());
+            TaskStorage tasks = storage.tasks();
+            Task report = tasks.create(chat.id(), "Отчёт по лабораторной", null, user.id());
+            Task submit = tasks.create(chat.id(), "Сдать отчёт", null, user.id());
+            tasks.create(chat.id(), "Потчевать гостей", null, user.id());
+            tasks.create(otherChat.id(), "Отчёт в другом чате", null, user.id());
+
+            // Act
+            List<TaskStorage.NameMatch> matches = tasks.searchByName(chat.id(), "  ОТЧ ", 10);
+            List<TaskStorage.NameMatch> limited = tasks.searchByName(chat.id(), "отч", 1);
+
+            // Assert
+            assertEquals(List.of(
+                new TaskStorage.NameMatch(submit.id(), "Сдать отчёт"),
+                new TaskStorage.NameMatch(report.id(), "Отчёт по лабораторной")
+            ), matches);
+            assertEquals(List.of(new TaskStorage.NameMatch(submit.id(), "Сдать отчёт")), limited);
+            assertEquals(3, tasks.searchByName(chat.id(), "", 10).size());
+            assertTrue(tasks.searchByName(chat.id(), "лаба", 10).isEmpty());
+        }
+    }
+
+    @Test
+    public void testIndexFollowsChanges() throws Exception {
+        try (DataStorage storage = this.openStorage()) {
+            // Arrange
+            User user = storage.users().create(10, "user");
+            Chat chat = storage.chats().create(BOT_ID, 10, user.id());
+            TaskStorage tasks = storage.tasks();
+            Task renamed = tasks.create(chat.id(), "Купить молоко", null, user.id());
+            Task deleted = tasks.create(chat.id(), "Купить хлеб", null, user.id());
+
+            // Act
+            tasks.updateName(renamed.id(), "Продать молоко", user.id());
+            tasks.updateDescription(renamed.id(), "Купить не получилось", user.id());
+            tasks.delete(deleted.id());
+
+            // Assert
+            assertTrue(tasks.searchByName(chat.id(), "куп", 10).isEmpty());
+            assertEquals(List.of(new TaskStorage.NameMatch(renamed.id(), "Продать молоко")), tasks.searchByName(chat.id(), "прод", 10));
+            assertEquals(1, ((IndexedTaskStorage) tasks).getIndexedTasks());
+        }
+    }
+
+    @Test
+    public void testIndexIsRebuiltOnStartup() throws Exception {
+        // Arrange
+        int chatId;
+        int taskId;
+        try (DataStorage storage = this.openStorage()) {
+            User user = storage.users().create(10, "user");
+            Chat chat = storage.chats().create(BOT_ID, 10, user.id());
+            chatId = chat.id();
+            taskId = storage.tasks().create(chatId, "Прочитать главу", null, user.id()).id();
+        }
+
+        // Act
+        try (DataStorage storage = this.openStorage()) {
+            IndexedTaskStorage tasks = (IndexedTaskStorage) storage.tasks();
+
+            // Assert
+            assertEquals(List.of(new TaskStorage.NameMatch(taskId, "Прочитать главу")), tasks.searchByName(chatId, "гл", 10));
+            assertEquals(1, tasks.getIndexedTasks());
+            assertEquals(1, tasks.getIndexedChats());
+            assertTrue(tasks.getEstimatedIndexBytes() > 0);
+        }
+    }
+
+    private @NotNull DataStorage openStorage() throws Exception {
+        return new SQLiteDataStorage(new BotConfiguration.DataStorage.SQLiteConfiguration(
+            this.directory.resolve("bot.db"), "tt_", 1
+        ));
+    }
+}
@@ -0,0 +1,79 @@
+package dev.metabrix.urfu.oopbot.storage.impl.sql;
+
+import dev.metabrix.urfu.oopbot.storage.TaskStorage;
+import dev.metabrix.urfu.oopbot.storage.model.Task;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TaskNameIndexTest {
+    @Test
+    public void testLongQueryIsCheckedAgainstWholeName() {
+        // Arrange
+        TaskNameIndex index = new TaskNameIndex();
+        String common = "a".repeat(TaskNameIndex.MAX_TERM_LENGTH);
+        index.put(1, 1, common + "bc");
+        index.put(2, 1, common + "bd");
+
+        // Act
+        List<TaskStorage.NameMatch> matches = index.search(1, common + "bc", 10);
+
+        // Assert
+        assertEquals(List.of(new TaskStorage.NameMatch(1, common + "bc")), matches);
+        assertEquals(2, index.search(1, common, 10).size());
+    }
+
+    @Test
+    public void testOnlySpaceSeparatesWords() {
+        // Arrange
+        TaskNameIndex index = new TaskNameIndex();
+        index.put(1, 1, "Сдать отчёт");
+        index.put(2, 1, "Сдать\tотчёт");
+        index.put(3, 1, "Сдать\nотчёт");
+
+        // Act
+        List<TaskStorage.NameMatch> matches = index.search(1, "отч", 10);
+
+        // Assert
+        assertEquals(List.of(new TaskStorage.NameMatch(1, "Сдать отчёт")), matches);
+    }
+
+    @Test
+    public void testTermsPerTaskAreBounded() {
+        // Arrange
+        TaskNameIndex index = new TaskNameIndex();
+        List<String> words = new ArrayList<>();
+        for (int i = 0; i < TaskNameIndex.MAX_TERMS_PER_TASK + 1; i++) words.add("w" + (char) ('a' + i));
+
+        // Act
+        index.put(1, 1, String.join(" ", words));
+
+        // Assert
+        assertEquals(1, index.search(1, words.get(TaskNameIndex.MAX_TERMS_PER_TASK - 1), 10).size());
+        assertTrue(index.search(1, words.get(TaskNameIndex.MAX_TERMS_PER_TASK), 10).isEmpty());
+    }
+
+    @Test
+    public void testEstimatedBytesAreBounded() {
+        // Arrange
+        TaskNameIndex index = new TaskNameIndex();
+        int tasks = 1000;
+        String name = "Задача ".repeat(Task.NAME_MAX_LENGTH / 7).toUpperCase(Locale.ROOT);
+
+        // Act
+        for (int i = 1; i <= tasks; i++) index.put(i, i % 10, name);
+        long bytes = index.getEstimatedBytes();
+        for (int i = 1; i <= tasks; i++) index.remove(i);
+
+        // Assert
+        // две строки названия по 2 байта на символ и не больше MAX_TERMS_PER_TASK терминов по 8 байт
+        long maxBytesPerTask = 2 * (64 + 2L * Task.NAME_MAX_LENGTH) + 8L * TaskNameIndex.MAX_TERMS_PER_TASK + 128;
+        assertTrue(bytes <= tasks * maxBytesPerTask, bytes + " bytes");
+        assertEquals(0, index.getEstimatedBytes());
+        assertEquals(0, index.getTaskCount());
+        assertEquals(0, index.getChatCount());
+    }
+}
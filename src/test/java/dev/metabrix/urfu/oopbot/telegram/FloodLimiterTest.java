@@ -0,0 +1,108 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import java.time.Duration;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class FloodLimiterTest {
+    private static final long WINDOW_NANOS = Duration.ofSeconds(10).toNanos();
+
+    @Test
+    public void testUserLimit() {
+        // Arrange
+        FloodLimiter limiter = new FloodLimiter(new BotConfiguration.Throttle(true, Duration.ofSeconds(10), 3, 100, 16));
+
+        // Act
+        boolean first = limiter.tryAcquire(1, 1, 0);
+        boolean second = limiter.tryAcquire(1, 2, 1);
+        boolean third = limiter.tryAcquire(1, 3, 2);
+        boolean fourth = limiter.tryAcquire(1, 4, 3);
+        boolean otherUser = limiter.tryAcquire(2, 4, 4);
+
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        assertTrue(third);
+        assertFalse(fourth);
+        assertTrue(otherUser);
+        assertEquals(4, limiter.getAllowedActions());
+        assertEquals(1, limiter.getUserThrottledActions());
+        assertEquals(0, limiter.getChatThrottledActions());
+    }
+
+    @Test
+    public void testChatLimit() {
+        // Arrange
+        FloodLimiter limiter = new FloodLimiter(new BotConfiguration.Throttle(true, Duration.ofSeconds(10), 100, 2, 16));
+
+        // Act
+        boolean first = limiter.tryAcquire(1, -100, 0);
+        boolean second = limiter.tryAcquire(2, -100, 0);
+        boolean third = limiter.tryAcquire(3, -100, 0);
+
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertEquals(1, limiter.getChatThrottledActions());
+    }
+
+    @Test
+    public void testSlidingWindow() {
+        // Arrange
+        FloodLimiter limiter = new FloodLimiter(new BotConfiguration.Throttle(true, Duration.ofSeconds(10), 4, 100, 16));
+        for (int i = 0; i < 4; i++) {
+            assertTrue(limiter.tryAcquire(1, 1, WINDOW_NANOS - 1));
+        }
+
+        // Act
+        // половина окна приходится на предыдущий интервал: 4 действия из него весят как 2
+        boolean halfWindowLater1 = limiter.tryAcquire(1, 1, WINDOW_NANOS + WINDOW_NANOS / 2);
+        boolean halfWindowLater2 = limiter.tryAcquire(1, 1, WINDOW_NANOS + WINDOW_NANOS / 2);
+        boolean halfWindowLater3 = limiter.tryAcquire(1, 1, WINDOW_NANOS + WINDOW_NANOS / 2);
+
+        // Assert
+        assertTrue(halfWindowLater1);
+        assertTrue(halfWindowLater2);
+        assertFalse(halfWindowLater3);
+    }
+
+    @Test
+    public void testExpiry() {
+        // Arrange
+        FloodLimiter limiter = new FloodLimiter(new BotConfiguration.Throttle(true, Duration.ofSeconds(10), 2, 100, 16));
+        assertTrue(limiter.tryAcquire(1, 1, 0));
+        assertTrue(limiter.tryAcquire(1, 1, 0));
+        assertFalse(limiter.tryAcquire(1, 1, 0));
+
+        // Act
+        boolean afterTwoWindows = limiter.tryAcquire(1, 1, 2 * WINDOW_NANOS);
+        boolean afterManyWindows = limiter.tryAcquire(1, 1, 100 * WINDOW_NANOS);
+
+        // Assert
+        assertTrue(afterTwoWindows);
+        assertTrue(afterManyWindows);
+    }
+
+    @Test
+    public void testTooManyKeysAreNotLimited() {
+        // Arrange
+        FloodLimiter limiter = new FloodLimiter(new BotConfiguration.Throttle(true, Duration.ofSeconds(10), 1, 100, 4));
+        for (long userId = 0; userId < 4; userId++) {
+            assertTrue(limiter.tryAcquire(userId, userId, 0));
+        }
+
+        // Act
+        boolean untracked1 = limiter.tryAcquire(100, 100, 0);
+        boolean untracked2 = limiter.tryAcquire(100, 100, 0);
+        boolean tracked = limiter.tryAcquire(0, 0, 0);
+
+        // Assert
+        assertTrue(untracked1);
+        assertTrue(untracked2);
+        assertFalse(tracked);
+        assertEquals(2, limiter.getUntrackedActions());
+    }
+}
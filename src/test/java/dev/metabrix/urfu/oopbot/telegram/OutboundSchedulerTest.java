@@ -0,0 +1,360 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import java.io.Serializable;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.methods.AnswerCallbackQuery;
+import org.telegram.telegrambots.meta.api.methods.BotApiMethod;
+import org.telegram.telegrambots.meta.api.methods.send.SendMessage;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageReplyMarkup;
+import org.telegram.telegrambots.meta.api.methods.updatingmessages.EditMessageText;
+import org.telegram.telegrambots.meta.api.objects.ApiResponse;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.InlineKeyboardMarkup;
+import org.telegram.telegrambots.meta.api.objects.replykeyboard.buttons.InlineKeyboardButton;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiException;
+import org.telegram.telegrambots.meta.exceptions.TelegramApiRequestException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class OutboundSchedulerTest {
+    private static final @NotNull ObjectMapper OBJECT_MAPPER = new ObjectMapper();
+
+    @Test
+    public void testChatOrderIsPreserved() throws Exception {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(1000, 1000, 1000));
+
+        // Act
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            futures.add(scheduler.submit(message(1, "message " + i)));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        scheduler.close();
+
+        // Assert
+        List<String> expected = new ArrayList<>();
+        for (int i = 0; i < 50; i++) expected.add("message " + i);
+        assertEquals(expected, sender.texts);
+    }
+
+    @Test
+    public void testIdleChatsAreForgotten() throws Exception {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        // корзина чата наполняется через 10 мс после отправки
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(10000, 100, 1));
+
+        // Act
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 500; i++) {
+            futures.add(scheduler.submit(message(i, "potato")));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        int trackedAfterSending = scheduler.getTrackedChats();
+        long deadlineNanos = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (scheduler.getTrackedChats() > 0 && System.nanoTime() - deadlineNanos < 0) {
+            Thread.sleep(10);
+        }
+        int trackedAfterIdle = scheduler.getTrackedChats();
+        scheduler.close();
+
+        // Assert
+        assertTrue(trackedAfterSending > 0, "Chats were forgotten before their buckets refilled");
+        assertEquals(0, trackedAfterIdle);
+    }
+
+    @Test
+    public void testGlobalRateLimit() throws Exception {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(20, 1000, 1000));
+
+        // Act
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            futures.add(scheduler.submit(message(i, "potato")));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        scheduler.close();
+
+        // Assert
+        // 20 сообщений уходят сразу, остальные 10 — по одному в 50 мс
+        assertTrue(elapsedMillis >= 400, "30 messages at 20/s were sent in " + elapsedMillis + " ms");
+        assertEquals(30, scheduler.getSentRequests());
+    }
+
+    @Test
+    public void testInFlightRequestsAreLimitedByMaxConnections() throws Exception {
+        // Arrange
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        OutboundScheduler.Sender sender = new OutboundScheduler.Sender() {
+            @Override
+            @SuppressWarnings("unchecked")
+            public <T extends Serializable> T send(@NotNull BotApiMethod<T> method) {
+                maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+                try {
+                    Thread.sleep(20);
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+                inFlight.decrementAndGet();
+                return (T) Boolean.TRUE;
+            }
+        };
+        OutboundScheduler scheduler = new OutboundScheduler(sender, new BotConfiguration.Outbound(1000, 1000, 1000, 60000, 5, 2));
+
+        // Act
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            futures.add(scheduler.submit(message(i, "potato")));
+        }
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        scheduler.close();
+
+        // Assert
+        assertEquals(2, maxInFlight.get());
+        assertEquals(20, scheduler.getSentRequests());
+    }
+
+    @Test
+    public void testChatRateLimit() throws Exception {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(1000, 10, 2));
+
+        // Act
+        long startNanos = System.nanoTime();
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(scheduler.submit(message(1, "potato")));
+        }
+        CompletableFuture<?> otherChat = scheduler.submit(message(2, "tomato"));
+        otherChat.get(5, TimeUnit.SECONDS);
+        long otherChatMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        CompletableFuture.allOf(futures.toArray(CompletableFuture[]::new)).get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        scheduler.close();
+
+        // Assert
+        // 2 сообщения уходят сразу, остальные 3 — по одному в 100 мс
+        assertTrue(elapsedMillis >= 250, "5 messages at 10/s were sent in " + elapsedMillis + " ms");
+        // лимит одного чата не задерживает другие чаты
+        assertTrue(otherChatMillis < 250, "Other chat waited for " + otherChatMillis + " ms");
+    }
+
+    @Test
+    public void testRetryAfterIsHonored() throws Exception {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        sender.rateLimitedResponses.set(1);
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(1000, 1000, 1000));
+
+        // Act
+        long startNanos = System.nanoTime();
+        CompletableFuture<?> future = scheduler.submit(message(1, "potato"));
+        Object result = future.get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        scheduler.close();
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(2, sender.attempts.get());
+        assertEquals(1, scheduler.getRateLimitedRequests());
+        assertTrue(elapsedMillis >= 1000, "Retried after " + elapsedMillis + " ms instead of retry_after = 1s");
+    }
+
+    @Test
+    public void testRetriesAreLimited() {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        sender.rateLimitedResponses.set(Integer.MAX_VALUE);
+        OutboundScheduler scheduler = new OutboundScheduler(sender, new BotConfiguration.Outbound(1000, 1000, 1000, 1000, 0, 32));
+
+        // Act
+        CompletableFuture<?> future = scheduler.submit(message(1, "potato"));
+
+        // Assert
+        Exception ex = assertThrows(Exception.class, () -> future.get(5, TimeUnit.SECONDS));
+        assertInstanceOf(TelegramApiRequestException.class, ex.getCause());
+        assertEquals(1, sender.attempts.get());
+        assertEquals(1, scheduler.getFailedRequests());
+        scheduler.close();
+    }
+
+    @Test
+    public void testRequestsWithoutChatAreNotQueued() throws Exception {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(1, 1, 1));
+        scheduler.submit(message(1, "potato")).get(5, TimeUnit.SECONDS);
+
+        // Act
+        long startNanos = System.nanoTime();
+        scheduler.submit(AnswerCallbackQuery.builder().callbackQueryId("42").build()).get(5, TimeUnit.SECONDS);
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - startNanos);
+        scheduler.close();
+
+        // Assert
+        assertTrue(elapsedMillis < 500, "Callback query answer waited for " + elapsedMillis + " ms");
+    }
+
+    @Test
+    public void testCloseSendsQueuedRequests() {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(1000, 20, 1));
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(scheduler.submit(message(1, "potato")));
+        }
+
+        // Act
+        scheduler.close();
+
+        // Assert
+        assertTrue(futures.stream().allMatch(future -> future.isDone() && !future.isCompletedExceptionally()));
+        assertTrue(scheduler.submit(message(1, "potato")).isCompletedExceptionally());
+    }
+
+    @Test
+    public void testCloseWithTimeoutDropsQueuedRequests() {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(1000, 1, 1));
+        List<CompletableFuture<?>> futures = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            futures.add(scheduler.submit(message(1, "potato " + i)));
+        }
+
+        // Act
+        int dropped = scheduler.close(Duration.ofMillis(200));
+
+        // Assert
+        assertEquals(4, dropped);
+        assertEquals(List.of("potato 0"), sender.texts);
+        assertFalse(futures.getFirst().isCompletedExceptionally());
+        assertTrue(futures.stream().skip(1).allMatch(CompletableFuture::isCompletedExceptionally));
+        assertEquals(0, scheduler.getQueuedRequests());
+    }
+
+    @Test
+    public void testUnchangedEditIsSkipped() throws Exception {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(1000, 1000, 1000));
+        scheduler.submit(edit(1, 42, "page 1", "command:tasks list 2")).get(5, TimeUnit.SECONDS);
+
+        // Act
+        Object result = scheduler.submit(edit(1, 42, "page 1", "command:tasks list 2")).get(5, TimeUnit.SECONDS);
+        scheduler.close();
+
+        // Assert
+        assertEquals(Boolean.TRUE, result);
+        assertEquals(1, sender.methods.size());
+        assertEquals(1, scheduler.getSentRequests());
+        assertEquals(1, scheduler.getSkippedRequests());
+    }
+
+    @Test
+    public void testReplyMarkupOnlyChangeEditsReplyMarkup() throws Exception {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(1000, 1000, 1000));
+        scheduler.submit(edit(1, 42, "page 1", "command:tasks list 2")).get(5, TimeUnit.SECONDS);
+
+        // Act
+        scheduler.submit(edit(1, 42, "page 1", "command:tasks list 3")).get(5, TimeUnit.SECONDS);
+        scheduler.submit(edit(1, 42, "page 2", "command:tasks list 3")).get(5, TimeUnit.SECONDS);
+        scheduler.close();
+
+        // Assert
+        assertEquals(3, sender.methods.size());
+        assertInstanceOf(EditMessageReplyMarkup.class, sender.methods.get(1));
+        assertInstanceOf(EditMessageText.class, sender.methods.get(2));
+        assertEquals(0, scheduler.getSkippedRequests());
+    }
+
+    @Test
+    public void testEditOfUnknownMessageIsSent() throws Exception {
+        // Arrange
+        RecordingSender sender = new RecordingSender();
+        OutboundScheduler scheduler = new OutboundScheduler(sender, limits(1000, 1000, 1000));
+        scheduler.submit(edit(1, 42, "page 1", "command:tasks list 2")).get(5, TimeUnit.SECONDS);
+
+        // Act
+        scheduler.submit(edit(1, 43, "page 1", "command:tasks list 2")).get(5, TimeUnit.SECONDS);
+        scheduler.submit(edit(2, 42, "page 1", "command:tasks list 2")).get(5, TimeUnit.SECONDS);
+        scheduler.close();
+
+        // Assert
+        assertEquals(3, sender.methods.size());
+        assertEquals(0, scheduler.getSkippedRequests());
+    }
+
+    private static @NotNull BotConfiguration.Outbound limits(double globalPerSecond, double chatPerSecond, int chatBurst) {
+        return new BotConfiguration.Outbound(globalPerSecond, chatPerSecond, chatBurst, chatPerSecond * 60, 5, 32);
+    }
+
+    private static @NotNull SendMessage message(long chatId, @NotNull String text) {
+        return SendMessage.builder().chatId(chatId).text(text).build();
+    }
+
+    private static @NotNull EditMessageText edit(long chatId, int messageId, @NotNull String text, @NotNull String callbackData) {
+        return EditMessageText.builder()
+            .chatId(chatId)
+            .messageId(messageId)
+            .text(text)
+            .replyMarkup(InlineKeyboardMarkup.builder().keyboardRow(List.of(
+                InlineKeyboardButton.builder().text("→").callbackData(callbackData).build()
+            )).build())
+            .build();
+    }
+
+    private static final class RecordingSender implements OutboundScheduler.Sender {
+        private final @NotNull List<@NotNull String> texts = Collections.synchronizedList(new ArrayList<>());
+        private final @NotNull List<@NotNull BotApiMethod<?>> methods = Collections.synchronizedList(new ArrayList<>());
+        private final @NotNull AtomicInteger attempts = new AtomicInteger();
+        private final @NotNull AtomicInteger rateLimitedResponses = new AtomicInteger();
+
+        @Override
+        @SuppressWarnings("unchecked")
+        public <T extends Serializable> T send(@NotNull BotApiMethod<T> method) throws TelegramApiException {
+            this.attempts.incrementAndGet();
+            if (this.rateLimitedResponses.getAndUpdate(left -> Math.max(0, left - 1)) > 0) {
+                throw tooManyRequests();
+            }
+            this.methods.add(method);
+            if (method instanceof SendMessage sendMessage) this.texts.add(sendMessage.getText());
+            return (T) Boolean.TRUE;
+        }
+
+        private static @NotNull TelegramApiRequestException tooManyRequests() {
+            try {
+                ApiResponse<Boolean> response = OBJECT_MAPPER.readValue(
+                    """
+                    {"ok": false, "error_code": 429, "description": "Too Many Requests: retry after 1", "parameters": {"retry_after": 1}}
+                    """,
+                    new TypeReference<>() {}
+                );
+                return new TelegramApiRequestException("Error sending message", response);
+            } catch (Exception ex) {
+                throw new AssertionError(ex);
+            }
+        }
+    }
+}
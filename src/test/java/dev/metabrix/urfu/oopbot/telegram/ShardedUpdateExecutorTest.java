@@ -0,0 +1,218 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ShardedUpdateExecutorTest {
+    @Test
+    public void testSameChatOrdering() {
+        // Arrange
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        ShardedUpdateExecutor executor = new ShardedUpdateExecutor(4);
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            int updateIndex = i;
+            executor.execute(123456789L, () -> handled.add(updateIndex));
+        }
+        executor.close();
+
+        // Assert
+        assertEquals(1000, handled.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, handled.get(i));
+        }
+    }
+
+    @Test
+    public void testSlowChatDoesNotBlockOtherChats() throws InterruptedException {
+        // Arrange
+        long slowChatId = 1;
+        long fastChatId = findChatInOtherShard(slowChatId, 2);
+        CountDownLatch slowChatReleased = new CountDownLatch(1);
+        CountDownLatch fastChatHandled = new CountDownLatch(1);
+        ShardedUpdateExecutor executor = new ShardedUpdateExecutor(2);
+
+        try {
+            // Act
+            executor.execute(slowChatId, () -> {
+                try {
+                    slowChatReleased.await();
+                } catch (InterruptedException ex) {
+                    Thread.currentThread().interrupt();
+                }
+            });
+            executor.execute(fastChatId, fastChatHandled::countDown);
+
+            // Assert
+            assertTrue(fastChatHandled.await(5, TimeUnit.SECONDS));
+        } finally {
+            slowChatReleased.countDown();
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testStats() {
+        // Arrange
+        ShardedUpdateExecutor executor = new ShardedUpdateExecutor(3);
+
+        // Act
+        for (long chatId = 0; chatId < 30; chatId++) {
+            executor.execute(chatId, () -> {});
+        }
+        executor.close();
+        List<UpdateExecutor.QueueStats> stats = executor.getStats();
+
+        // Assert
+        assertEquals(3, stats.size());
+        assertEquals(30, stats.stream().mapToLong(UpdateExecutor.QueueStats::processedUpdates).sum());
+        for (UpdateExecutor.QueueStats shardStats : stats) {
+            assertEquals(0, shardStats.queueDepth());
+            assertTrue(shardStats.maxWaitMillis() >= shardStats.averageWaitMillis());
+        }
+    }
+
+    @Test
+    public void testExecuteAfterClose() {
+        // Arrange
+        ShardedUpdateExecutor executor = new ShardedUpdateExecutor(1);
+        executor.close();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> executor.execute(1, () -> {}));
+    }
+
+    @Test
+    public void testShardIndex() {
+        for (long chatId : new long[] { 0, 1, -1, 123456789L, -1001234567890L, Long.MIN_VALUE, Long.MAX_VALUE }) {
+            int index = ShardedUpdateExecutor.shardIndex(chatId, 7);
+            assertTrue(index >= 0 && index < 7);
+            assertEquals(index, ShardedUpdateExecutor.shardIndex(chatId, 7));
+        }
+    }
+
+    @Test
+    public void testAsyncUpdateHoldsChatUntilCompleted() throws InterruptedException {
+        // Arrange
+        CompletableFuture<Void> firstHandled = new CompletableFuture<>();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        CountDownLatch secondHandled = new CountDownLatch(1);
+        CountDownLatch otherChatHandled = new CountDownLatch(1);
+        ShardedUpdateExecutor executor = new ShardedUpdateExecutor(1);
+
+        try {
+            // Act
+            executor.executeAsync(1, () -> firstHandled);
+            executor.execute(1, () -> {
+                secondStarted.set(true);
+                secondHandled.countDown();
+            });
+            executor.execute(2, otherChatHandled::countDown);
+
+            // Assert
+            assertTrue(otherChatHandled.await(5, TimeUnit.SECONDS));
+            assertFalse(secondStarted.get());
+            firstHandled.complete(null);
+            assertTrue(secondHandled.await(5, TimeUnit.SECONDS));
+        } finally {
+            firstHandled.complete(null);
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testCloseWaitsForAsyncUpdates() {
+        // Arrange
+        CompletableFuture<Void> handled = new CompletableFuture<>();
+        ShardedUpdateExecutor executor = new ShardedUpdateExecutor(1);
+        executor.executeAsync(1, () -> handled);
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(() -> handled.complete(null));
+
+        // Act
+        executor.close();
+
+        // Assert
+        assertTrue(handled.isDone());
+    }
+
+    @Test
+    public void testCloseWithTimeoutDropsQueuedUpdates() throws InterruptedException {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        ShardedUpdateExecutor executor = new ShardedUpdateExecutor(1);
+        executor.execute(1, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            handled.incrementAndGet();
+        });
+        executor.execute(1, handled::incrementAndGet);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            // Act
+            int dropped = executor.close(Duration.ofMillis(100));
+
+            // Assert
+            assertEquals(1, dropped);
+        } finally {
+            release.countDown();
+        }
+        Thread.sleep(100);
+        assertEquals(1, handled.get());
+    }
+
+    @Test
+    public void testUpdatesAcceptedDuringCloseAreHandled() throws InterruptedException {
+        // Arrange
+        AtomicInteger accepted = new AtomicInteger();
+        AtomicInteger handled = new AtomicInteger();
+        ShardedUpdateExecutor executor = new ShardedUpdateExecutor(4);
+        List<Thread> submitters = new ArrayList<>();
+        for (int i = 0; i < 4; i++) {
+            long chatId = i;
+            submitters.add(Thread.ofPlatform().start(() -> {
+                while (true) {
+                    try {
+                        executor.execute(chatId, handled::incrementAndGet);
+                    } catch (IllegalStateException ex) {
+                        return;
+                    }
+                    accepted.incrementAndGet();
+                }
+            }));
+        }
+        Thread.sleep(50);
+
+        // Act
+        executor.close();
+        for (Thread submitter : submitters) submitter.join();
+
+        // Assert
+        // каждое событие либо обработано до остановки, либо отклонено
+        assertEquals(accepted.get(), handled.get());
+    }
+
+    private static long findChatInOtherShard(long chatId, int shardCount) {
+        int shard = ShardedUpdateExecutor.shardIndex(chatId, shardCount);
+        for (long otherChatId = chatId + 1; ; otherChatId++) {
+            if (ShardedUpdateExecutor.shardIndex(otherChatId, shardCount) != shard) return otherChatId;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import com.typesafe.config.Config;
+import com.typesafe.config.ConfigFactory;
+import com.typesafe.config.ConfigValueFactory;
+import dev.metabrix.urfu.oopbot.BotApplication;
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import dev.metabrix.urfu.oopbot.harness.FakeBotApi;
+import dev.metabrix.urfu.oopbot.harness.Workload;
+import java.nio.file.Path;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TelegramBotRestartTest {
+    private static final long CHAT_ID = 42;
+
+    @TempDir
+    private Path directory;
+
+    @Test
+    public void testResentUpdateIsDroppedAfterRestart() throws Exception {
+        try (FakeBotApi api = new FakeBotApi(0, (method, request) -> {})) {
+            // Arrange
+            Workload workload = Workload.synthetic();
+            Workload.Step step = workload.steps().getFirst();
+            BotApplication application = new BotApplication(BotConfiguration.fromConfig(this.createConfig(api.getApiUrl())));
+            application.start();
+            application.getBots().getFirst().onUpdateReceived(workload.materialize(step, CHAT_ID, 100));
+            application.stop();
+
+            // Act
+            // Telegram повторно отправляет событие, получение которого не было подтверждено до остановки
+            BotApplication restarted = new BotApplication(BotConfiguration.fromConfig(this.createConfig(api.getApiUrl())));
+            restarted.start();
+            TelegramBot bot = restarted.getBots().getFirst();
+            bot.onUpdateReceived(workload.materialize(step, CHAT_ID, 100));
+            bot.onUpdateReceived(workload.materialize(step, CHAT_ID, 101));
+            long duplicates = bot.getDeduplicator().getDuplicates();
+            restarted.stop();
+
+            // Assert
+            assertEquals(1, duplicates);
+        }
+    }
+
+    private @NotNull Config createConfig(@NotNull String apiUrl) {
+        return ConfigFactory.parseResources("application.conf")
+            .withValue("bot-info.username", ConfigValueFactory.fromAnyRef("restart_test_bot"))
+            .withValue("bot-info.token", ConfigValueFactory.fromAnyRef("0:restart-test"))
+            .withValue("bot-info.api-url", ConfigValueFactory.fromAnyRef(apiUrl))
+            .withValue("console.enabled", ConfigValueFactory.fromAnyRef(false))
+            .withValue("updates.mode", ConfigValueFactory.fromAnyRef("long-polling"))
+            .withValue("updates.journal.enabled", ConfigValueFactory.fromAnyRef(true))
+            .withValue("updates.journal.directory", ConfigValueFactory.fromAnyRef(this.directory.resolve("journal").toString()))
+            .withValue("data-storage.type", ConfigValueFactory.fromAnyRef("sqlite"))
+            .withValue("data-storage.sqlite.database-file-path", ConfigValueFactory.fromAnyRef(this.directory.resolve("bot.db").toString()));
+    }
+}
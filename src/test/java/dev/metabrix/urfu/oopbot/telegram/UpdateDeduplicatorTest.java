@@ -0,0 +1,101 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateDeduplicatorTest {
+    @Test
+    public void testReplayIsDropped() {
+        // Arrange
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+
+        // Act
+        boolean first = deduplicator.markSeen(100000001);
+        boolean second = deduplicator.markSeen(100000002);
+        boolean replay = deduplicator.markSeen(100000001);
+
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(replay);
+        assertEquals(1, deduplicator.getDuplicates());
+    }
+
+    @Test
+    public void testOutOfOrderUpdatesInWindow() {
+        // Arrange
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+        deduplicator.markSeen(110);
+
+        // Act
+        boolean older = deduplicator.markSeen(100);
+        boolean olderReplay = deduplicator.markSeen(100);
+        boolean newer = deduplicator.markSeen(120);
+
+        // Assert
+        assertTrue(older);
+        assertFalse(olderReplay);
+        assertTrue(newer);
+    }
+
+    @Test
+    public void testSlotsAreReusedWhenWindowAdvances() {
+        // Arrange
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+        for (int updateId = 0; updateId < 64; updateId++) {
+            deduplicator.markSeen(updateId);
+        }
+
+        // Act
+        // 64 and 128 share the bit with 0, which has left the window
+        boolean advanced = deduplicator.markSeen(64);
+        boolean farAdvanced = deduplicator.markSeen(128);
+        boolean stillInWindow = deduplicator.markSeen(127);
+
+        // Assert
+        assertTrue(advanced);
+        assertTrue(farAdvanced);
+        assertTrue(stillInWindow);
+        assertEquals(0, deduplicator.getDuplicates());
+    }
+
+    @Test
+    public void testUpdateOlderThanWindowIsDropped() {
+        // Arrange
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+        deduplicator.markSeen(1000, 0);
+        deduplicator.markSeen(1001, 0);
+
+        // Act
+        boolean stale = deduplicator.markSeen(900, 1_000_000);
+        boolean recentReplay = deduplicator.markSeen(1000, 2_000_000);
+
+        // Assert
+        assertFalse(stale);
+        assertFalse(recentReplay);
+        assertEquals(2, deduplicator.getDuplicates());
+    }
+
+    @Test
+    public void testSequenceRestart() {
+        // Arrange
+        UpdateDeduplicator deduplicator = new UpdateDeduplicator(64);
+        deduplicator.markSeen(900000000, 0);
+        long idleNanos = UpdateDeduplicator.SEQUENCE_RESTART_IDLE.toNanos();
+
+        // Act
+        boolean restarted = deduplicator.markSeen(12345, idleNanos);
+        boolean replay = deduplicator.markSeen(12345, idleNanos + 1);
+
+        // Assert
+        assertTrue(restarted);
+        assertFalse(replay);
+    }
+
+    @Test
+    public void testInvalidWindowSize() {
+        assertThrows(IllegalArgumentException.class, () -> new UpdateDeduplicator(100));
+        assertThrows(IllegalArgumentException.class, () -> new UpdateDeduplicator(32));
+    }
+}
@@ -0,0 +1,86 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.meta.api.objects.Chat;
+import org.telegram.telegrambots.meta.api.objects.Message;
+import org.telegram.telegrambots.meta.api.objects.Update;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateErrorReporterTest {
+    @Test
+    public void testFailuresAreGroupedByCauseAndChat() {
+        // Arrange
+        try (UpdateErrorReporter reporter = new UpdateErrorReporter("potato_bot", errors(1, 100))) {
+            // Act
+            for (int i = 0; i < 1000; i++) {
+                reporter.report(update(i % 2), new IllegalStateException("potato " + i));
+            }
+            reporter.report(update(0), new IOException("potato"));
+            List<UpdateErrorReporter.GroupCount> summary = reporter.summarize();
+
+            // Assert
+            assertEquals(1001, reporter.getFailedUpdates());
+            assertEquals(3, summary.size());
+            assertEquals(500, summary.get(0).count());
+            assertEquals(500, summary.get(1).count());
+            assertEquals(new UpdateErrorReporter.Group(new UpdateErrorReporter.Cause(IOException.class, null), 0), summary.get(2).group());
+            assertEquals(1, summary.get(2).count());
+        }
+    }
+
+    @Test
+    public void testSummaryResetsCounts() {
+        // Arrange
+        try (UpdateErrorReporter reporter = new UpdateErrorReporter("potato_bot", errors(1, 100))) {
+            reporter.report(update(1), new IllegalStateException());
+            reporter.summarize();
+
+            // Act
+            List<UpdateErrorReporter.GroupCount> summary = reporter.summarize();
+
+            // Assert
+            assertTrue(summary.isEmpty());
+            assertEquals(1, reporter.getFailedUpdates());
+        }
+    }
+
+    @Test
+    public void testGroupsAreLimited() {
+        // Arrange
+        try (UpdateErrorReporter reporter = new UpdateErrorReporter("potato_bot", errors(0, 10))) {
+            // Act
+            for (int chatId = 0; chatId < 100; chatId++) {
+                reporter.report(update(chatId), new IllegalStateException());
+            }
+            List<UpdateErrorReporter.GroupCount> summary = reporter.summarize();
+
+            // Assert
+            assertEquals(11, summary.size());
+            UpdateErrorReporter.GroupCount other = summary.getFirst();
+            assertEquals(UpdateErrorReporter.OTHER_CHATS, other.group().chatId());
+            assertEquals(90, other.count());
+        }
+    }
+
+    private static @NotNull BotConfiguration.Updates.Errors errors(int samplesPerInterval, int maxGroups) {
+        return new BotConfiguration.Updates.Errors(Duration.ofHours(1), samplesPerInterval, maxGroups);
+    }
+
+    private static @NotNull Update update(long chatId) {
+        Chat chat = new Chat();
+        chat.setId(chatId);
+        chat.setType("private");
+        Message message = new Message();
+        message.setChat(chat);
+        message.setText("/potato");
+        Update update = new Update();
+        update.setMessage(message);
+        return update;
+    }
+}
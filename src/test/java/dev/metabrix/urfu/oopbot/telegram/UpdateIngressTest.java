@@ -0,0 +1,91 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import com.typesafe.config.ConfigFactory;
+import dev.metabrix.urfu.oopbot.BotConfiguration;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateIngressTest {
+    @Test
+    public void testShedWhenFull() {
+        // Arrange
+        UpdateIngress ingress = createIngress("""
+            capacity = 2
+            """);
+
+        // Act
+        boolean first = ingress.tryAccept(UpdateType.MESSAGE);
+        boolean second = ingress.tryAccept(UpdateType.MESSAGE);
+        boolean third = ingress.tryAccept(UpdateType.MESSAGE);
+        ingress.release();
+        boolean fourth = ingress.tryAccept(UpdateType.MESSAGE);
+
+        // Assert
+        assertTrue(first);
+        assertTrue(second);
+        assertFalse(third);
+        assertTrue(fourth);
+        assertEquals(2, ingress.getQueuedUpdates());
+    }
+
+    @Test
+    public void testPolicies() {
+        // Arrange
+        UpdateIngress ingress = createIngress("""
+            capacity = 4
+            policies {
+                message = "when-busy"
+                callback_query = "never"
+            }
+            """);
+
+        // Act
+        boolean firstMessage = ingress.tryAccept(UpdateType.MESSAGE);
+        boolean secondMessage = ingress.tryAccept(UpdateType.MESSAGE);
+        boolean thirdMessage = ingress.tryAccept(UpdateType.MESSAGE);
+        boolean channelPost = ingress.tryAccept(UpdateType.CHANNEL_POST);
+        boolean secondChannelPost = ingress.tryAccept(UpdateType.CHANNEL_POST);
+        boolean thirdChannelPost = ingress.tryAccept(UpdateType.CHANNEL_POST);
+        boolean callbackQuery = ingress.tryAccept(UpdateType.CALLBACK_QUERY);
+
+        // Assert
+        assertTrue(firstMessage);
+        assertTrue(secondMessage);
+        assertFalse(thirdMessage); // half of the capacity is used
+        assertTrue(channelPost);
+        assertTrue(secondChannelPost);
+        assertFalse(thirdChannelPost); // capacity is used
+        assertTrue(callbackQuery); // never shed
+        assertEquals(5, ingress.getQueuedUpdates());
+    }
+
+    @Test
+    public void testStats() {
+        // Arrange
+        UpdateIngress ingress = createIngress("""
+            capacity = 1
+            """);
+
+        // Act
+        ingress.tryAccept(UpdateType.MESSAGE);
+        ingress.tryAccept(UpdateType.MESSAGE);
+        ingress.tryAccept(null);
+        List<UpdateIngress.TypeStats> stats = ingress.getStats();
+
+        // Assert
+        assertEquals(
+            List.of(
+                new UpdateIngress.TypeStats(UpdateType.MESSAGE, 1, 1),
+                new UpdateIngress.TypeStats(null, 0, 1)
+            ),
+            stats
+        );
+    }
+
+    private static @NotNull UpdateIngress createIngress(@NotNull String config) {
+        return new UpdateIngress(BotConfiguration.Updates.Ingress.fromConfig(ConfigFactory.parseString(config), ""));
+    }
+}
@@ -0,0 +1,78 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import dev.metabrix.urfu.oopbot.interaction.CallbackQueryInteraction;
+import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class UpdateTypeTest {
+    @Test
+    public void testHandledByOverriddenMethods() {
+        // Arrange
+        UpdateListener listener = new UpdateListener() {
+            @Override
+            public @NotNull CompletableFuture<Void> handleMessage(@NotNull MessageInteraction interaction) {
+                return CompletableFuture.completedFuture(null);
+            }
+
+            @Override
+            public @NotNull CompletableFuture<Void> handleCallbackQuery(@NotNull CallbackQueryInteraction interaction) {
+                return CompletableFuture.completedFuture(null);
+            }
+        };
+
+        // Act
+        Set<UpdateType> types = listener.getHandledUpdateTypes();
+
+        // Assert
+        assertEquals(EnumSet.of(UpdateType.MESSAGE, UpdateType.CALLBACK_QUERY), types);
+    }
+
+    @Test
+    public void testHandledByInheritedOverrides() {
+        // Arrange
+        class EditedMessageListener implements UpdateListener {
+            @Override
+            public @NotNull CompletableFuture<Void> handleEditedMessage(@NotNull MessageInteraction interaction) {
+                return CompletableFuture.completedFuture(null);
+            }
+        }
+        UpdateListener listener = new EditedMessageListener() {
+        };
+
+        // Act
+        Set<UpdateType> types = UpdateType.handledBy(listener);
+
+        // Assert
+        assertEquals(EnumSet.of(UpdateType.EDITED_MESSAGE), types);
+    }
+
+    @Test
+    public void testHandledByNothing() {
+        // an empty allowed_updates would subscribe the bot to every update type
+        assertThrows(IllegalArgumentException.class, () -> UpdateType.handledBy(new UpdateListener() {
+        }));
+    }
+
+    @Test
+    public void testExplicitHandledUpdateTypes() {
+        // Arrange
+        UpdateListener listener = new UpdateListener() {
+            @Override
+            public @NotNull Set<@NotNull UpdateType> getHandledUpdateTypes() {
+                return EnumSet.of(UpdateType.INLINE_QUERY);
+            }
+        };
+
+        // Act
+        Set<UpdateType> types = listener.getHandledUpdateTypes();
+
+        // Assert
+        assertEquals(EnumSet.of(UpdateType.INLINE_QUERY), types);
+    }
+}
@@ -0,0 +1,165 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class VirtualThreadUpdateExecutorTest {
+    @Test
+    public void testSameChatOrdering() {
+        // Arrange
+        List<Integer> handled = Collections.synchronizedList(new ArrayList<>());
+        VirtualThreadUpdateExecutor executor = new VirtualThreadUpdateExecutor();
+
+        // Act
+        for (int i = 0; i < 1000; i++) {
+            int updateIndex = i;
+            executor.execute(123456789L, () -> handled.add(updateIndex));
+        }
+        executor.close();
+
+        // Assert
+        assertEquals(1000, handled.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals(i, handled.get(i));
+        }
+    }
+
+    @Test
+    public void testManyBlockedChatsRunConcurrently() throws InterruptedException {
+        // Arrange
+        int chatCount = 2000;
+        CountDownLatch allChatsStarted = new CountDownLatch(chatCount);
+        CountDownLatch release = new CountDownLatch(1);
+        VirtualThreadUpdateExecutor executor = new VirtualThreadUpdateExecutor();
+
+        try {
+            // Act
+            for (long chatId = 0; chatId < chatCount; chatId++) {
+                executor.execute(chatId, () -> {
+                    allChatsStarted.countDown();
+                    try {
+                        release.await();
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                    }
+                });
+            }
+
+            // Assert
+            assertTrue(allChatsStarted.await(10, TimeUnit.SECONDS));
+        } finally {
+            release.countDown();
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testChatIsNeverHandledConcurrently() {
+        // Arrange
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        VirtualThreadUpdateExecutor executor = new VirtualThreadUpdateExecutor();
+
+        // Act
+        for (int i = 0; i < 500; i++) {
+            executor.execute(42, () -> {
+                maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                Thread.yield();
+                running.decrementAndGet();
+            });
+        }
+        executor.close();
+
+        // Assert
+        assertEquals(1, maxRunning.get());
+        List<UpdateExecutor.QueueStats> stats = executor.getStats();
+        assertEquals(500, stats.getFirst().processedUpdates());
+        assertEquals(0, stats.getFirst().queueDepth());
+    }
+
+    @Test
+    public void testAsyncUpdateHoldsChatUntilCompleted() throws InterruptedException {
+        // Arrange
+        CompletableFuture<Void> firstHandled = new CompletableFuture<>();
+        AtomicBoolean secondStarted = new AtomicBoolean();
+        CountDownLatch secondHandled = new CountDownLatch(1);
+        CountDownLatch otherChatHandled = new CountDownLatch(1);
+        VirtualThreadUpdateExecutor executor = new VirtualThreadUpdateExecutor();
+
+        try {
+            // Act
+            executor.executeAsync(1, () -> firstHandled);
+            executor.execute(1, () -> {
+                secondStarted.set(true);
+                secondHandled.countDown();
+            });
+            executor.execute(2, otherChatHandled::countDown);
+
+            // Assert
+            assertTrue(otherChatHandled.await(5, TimeUnit.SECONDS));
+            assertFalse(secondStarted.get());
+            firstHandled.complete(null);
+            assertTrue(secondHandled.await(5, TimeUnit.SECONDS));
+        } finally {
+            firstHandled.complete(null);
+            executor.close();
+        }
+    }
+
+    @Test
+    public void testCloseWaitsForAsyncUpdates() {
+        // Arrange
+        CompletableFuture<Void> handled = new CompletableFuture<>();
+        VirtualThreadUpdateExecutor executor = new VirtualThreadUpdateExecutor();
+        executor.executeAsync(1, () -> handled);
+        CompletableFuture.delayedExecutor(100, TimeUnit.MILLISECONDS).execute(() -> handled.complete(null));
+
+        // Act
+        executor.close();
+
+        // Assert
+        assertTrue(handled.isDone());
+    }
+
+    @Test
+    public void testCloseWithTimeoutDropsQueuedUpdates() throws InterruptedException {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger handled = new AtomicInteger();
+        VirtualThreadUpdateExecutor executor = new VirtualThreadUpdateExecutor();
+        executor.execute(1, () -> {
+            started.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException ex) {
+                Thread.currentThread().interrupt();
+            }
+            handled.incrementAndGet();
+        });
+        executor.execute(1, handled::incrementAndGet);
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        try {
+            // Act
+            int dropped = executor.close(Duration.ofMillis(100));
+
+            // Assert
+            assertEquals(1, dropped);
+        } finally {
+            release.countDown();
+        }
+        Thread.sleep(100);
+        assertEquals(1, handled.get());
+    }
+}
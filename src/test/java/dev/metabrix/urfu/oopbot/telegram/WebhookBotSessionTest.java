@@ -0,0 +1,151 @@
+package dev.metabrix.urfu.oopbot.telegram;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.telegram.telegrambots.bots.DefaultBotOptions;
+import org.telegram.telegrambots.meta.api.objects.Update;
+import org.telegram.telegrambots.meta.generics.BotOptions;
+import org.telegram.telegrambots.meta.generics.LongPollingBot;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class WebhookBotSessionTest {
+    private static final @NotNull String PATH = "/telegram";
+    private static final @NotNull String SECRET_TOKEN = "spaghetti_monster";
+
+    private final @NotNull HttpClient client = HttpClient.newHttpClient();
+    private final @NotNull BlockingQueue<@NotNull Update> receivedUpdates = new LinkedBlockingQueue<>();
+    private @Nullable WebhookBotSession session;
+
+    @AfterEach
+    public void stopSession() {
+        if (this.session != null) this.session.stop();
+    }
+
+    @Test
+    public void testRecordedMessageUpdate() throws Exception {
+        // Arrange
+        WebhookBotSession session = this.startSession(SECRET_TOKEN);
+
+        // Act
+        int status = this.post(session, PATH, SECRET_TOKEN, readRecordedUpdate("message.json"));
+        Update update = this.receivedUpdates.poll(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(200, status);
+        assertNotNull(update);
+        assertEquals(100000001, update.getUpdateId());
+        assertEquals("/tasks list", update.getMessage().getText());
+        assertEquals(123456789L, update.getMessage().getChatId());
+    }
+
+    @Test
+    public void testRecordedCallbackQueryUpdate() throws Exception {
+        // Arrange
+        WebhookBotSession session = this.startSession(SECRET_TOKEN);
+
+        // Act
+        int status = this.post(session, PATH, SECRET_TOKEN, readRecordedUpdate("callback_query.json"));
+        Update update = this.receivedUpdates.poll(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(200, status);
+        assertNotNull(update);
+        assertEquals(100000002, update.getUpdateId());
+        assertEquals("command:tasks list 2", update.getCallbackQuery().getData());
+    }
+
+    @Test
+    public void testWrongSecretToken() throws Exception {
+        // Arrange
+        WebhookBotSession session = this.startSession(SECRET_TOKEN);
+
+        // Act
+        int status = this.post(session, PATH, "potato", readRecordedUpdate("message.json"));
+
+        // Assert
+        assertEquals(401, status);
+        assertTrue(this.receivedUpdates.isEmpty());
+    }
+
+    @Test
+    public void testMalformedUpdate() throws Exception {
+        // Arrange
+        WebhookBotSession session = this.startSession(null);
+
+        // Act
+        int status = this.post(session, PATH, null, "{\"update_id\":");
+
+        // Assert
+        assertEquals(400, status);
+        assertTrue(this.receivedUpdates.isEmpty());
+    }
+
+    private @NotNull WebhookBotSession startSession(@Nullable String secretToken) {
+        WebhookBotSession session = new WebhookBotSession(new InetSocketAddress("127.0.0.1", 0), PATH, secretToken);
+        session.setCallback(new RecordingBot(this.receivedUpdates));
+        session.start();
+        this.session = session;
+        return session;
+    }
+
+    private int post(
+        @NotNull WebhookBotSession session,
+        @NotNull String path,
+        @Nullable String secretToken,
+        @NotNull String body
+    ) throws IOException, InterruptedException {
+        InetSocketAddress address = session.getBoundAddress();
+        HttpRequest.Builder request = HttpRequest.newBuilder()
+            .uri(URI.create("http://127.0.0.1:" + address.getPort() + path))
+            .header("Content-Type", "application/json")
+            .POST(HttpRequest.BodyPublishers.ofString(body));
+        if (secretToken != null) request.header(WebhookBotSession.SECRET_TOKEN_HEADER, secretToken);
+        return this.client.send(request.build(), HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static @NotNull String readRecordedUpdate(@NotNull String name) throws IOException {
+        try (InputStream is = WebhookBotSessionTest.class.getClassLoader().getResourceAsStream("updates/" + name)) {
+            assertNotNull(is, "Recorded update " + name + " not found");
+            return new String(is.readAllBytes());
+        }
+    }
+
+    private record RecordingBot(@NotNull BlockingQueue<@NotNull Update> updates) implements LongPollingBot {
+        @Override
+        public void onUpdateReceived(@NotNull Update update) {
+            this.updates.add(update);
+        }
+
+        @Override
+        public @NotNull BotOptions getOptions() {
+            return new DefaultBotOptions();
+        }
+
+        @Override
+        public void clearWebhook() {
+        }
+
+        @Override
+        public @NotNull String getBotUsername() {
+            return "example_bot";
+        }
+
+        @Override
+        public @NotNull String getBotToken() {
+            return "token";
+        }
+    }
+}
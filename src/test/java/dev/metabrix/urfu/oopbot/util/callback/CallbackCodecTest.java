@@ -0,0 +1,91 @@
+package dev.metabrix.urfu.oopbot.util.callback;
+
+import dev.metabrix.urfu.oopbot.util.command.CommandExecutionResult;
+import java.util.concurrent.CompletableFuture;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CallbackCodecTest {
+    private record Page(int taskId, long offset, boolean done, String query) implements CallbackData {
+        @Override
+        public void write(CallbackWriter writer) {
+            writer.writeInt(this.taskId).writeLong(this.offset).writeBoolean(this.done).writeString(this.query);
+        }
+    }
+
+    private record Empty() implements CallbackData {
+        @Override
+        public void write(CallbackWriter writer) {
+        }
+    }
+
+    private static final CallbackHandler<CallbackData> HANDLER =
+        (ctx, data) -> CompletableFuture.completedFuture(CommandExecutionResult.SUCCESS);
+
+    private static CallbackCodec codec() {
+        return new CallbackCodec()
+            .register(1, Empty.class, reader -> new Empty(), HANDLER)
+            .register(300, Page.class, reader -> new Page(reader.readInt(), reader.readLong(), reader.readBoolean(), reader.readString()), HANDLER);
+    }
+
+    @Test
+    public void testRoundtrip() {
+        CallbackCodec codec = codec();
+        Page[] pages = {
+            new Page(0, 0, false, ""),
+            new Page(-1, Long.MIN_VALUE, true, "картошка"),
+            new Page(Integer.MAX_VALUE, Long.MAX_VALUE, false, "potato"),
+            new Page(Integer.MIN_VALUE, -123456789, true, ""),
+        };
+
+        for (Page page : pages) {
+            String encoded = codec.encode(page);
+            CallbackCodec.Decoded<?> decoded = codec.decode(encoded);
+
+            assertTrue(encoded.length() <= 64, encoded);
+            assertNotNull(decoded, encoded);
+            assertEquals(page, decoded.data());
+            assertSame(HANDLER, decoded.handler());
+        }
+        assertEquals(new Empty(), codec.decode(codec.encode(new Empty())).data());
+    }
+
+    @Test
+    public void testOverflow() {
+        CallbackCodec codec = codec();
+
+        assertDoesNotThrow(() -> codec.encode(new Page(0, 0, false, "a".repeat(40))));
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(new Page(0, 0, false, "a".repeat(48))));
+        assertThrows(IllegalArgumentException.class, () -> codec.encode(new Page(0, 0, false, "я".repeat(24))));
+    }
+
+    @Test
+    public void testUnknownData() {
+        CallbackCodec codec = codec();
+        String encoded = codec.encode(new Page(42, 7, true, "potato"));
+
+        assertNull(codec.decode("command:tasks new"));
+        assertNull(codec.decode("delete-message:123"));
+        assertNull(codec.decode("delete-message"));
+        assertNull(codec.decode(""));
+        assertNull(codec.decode(encoded.substring(0, encoded.length() - 4)));
+        assertNull(codec.decode(encoded + "AA"));
+        assertNull(codec.decode("AQI")); // action 2 is unknown
+        assertNull(codec.decode("AgE")); // version 2
+    }
+
+    @Test
+    public void testUnregisteredType() {
+        assertThrows(IllegalStateException.class, () -> new CallbackCodec().encode(new Empty()));
+    }
+
+    @Test
+    public void testDuplicateRegistration() {
+        CallbackCodec codec = codec();
+
+        assertThrows(IllegalArgumentException.class, () -> codec.register(1, Page.class, reader -> new Page(0, 0, false, ""), HANDLER));
+        assertThrows(IllegalArgumentException.class, () -> codec.register(2, Empty.class, reader -> new Empty(), HANDLER));
+        assertThrows(IllegalArgumentException.class, () -> codec.register(-1, Page.class, reader -> new Page(0, 0, false, ""), HANDLER));
+    }
+}
@@ -1,10 +1,13 @@
 package dev.metabrix.urfu.oopbot.util.command;
 
+import com.typesafe.config.ConfigFactory;
 import dev.metabrix.urfu.oopbot.BotApplication;
 import dev.metabrix.urfu.oopbot.BotConfiguration;
 import dev.metabrix.urfu.oopbot.interaction.MessageInteraction;
 import dev.metabrix.urfu.oopbot.interaction.impl.MessageInteractionImpl;
+import dev.metabrix.urfu.oopbot.telegram.TelegramBot;
 import java.util.HashMap;
+import java.util.List;
 import java.util.stream.Stream;
 import org.jetbrains.annotations.NotNull;
 import org.junit.jupiter.api.Test;
@@ -39,7 +42,7 @@ public class CommandContextTest {
         Message message = new Message();
         message.setText(messageText);
         update.setMessage(message);
-        CommandContext commandContext = new CommandContextImpl(new MessageInteractionImpl(buildMockApplication(), update, Update::getMessage));
+        CommandContext commandContext = new CommandContextImpl(new MessageInteractionImpl(buildMockBot(), update, Update::getMessage));
 
         // Act
         String result = commandContext.getCommandInput().getRawInput();
@@ -57,14 +60,22 @@ public class CommandContextTest {
     }
 
     private static @NotNull MessageInteraction buildMockMessageInteraction() {
-        return new MessageInteractionImpl(buildMockApplication(), buildMessageMockUpdate(), Update::getMessage);
+        return new MessageInteractionImpl(buildMockBot(), buildMessageMockUpdate(), Update::getMessage);
+    }
+
+    private static @NotNull TelegramBot buildMockBot() {
+        return buildMockApplication().getBots().getFirst();
     }
 
     private static @NotNull BotApplication buildMockApplication() {
         return new BotApplication(new BotConfiguration(
-            new BotConfiguration.BotInfo("username", "token"),
+            List.of(new BotConfiguration.BotInfo("username", "123:token", BotConfiguration.BotInfo.DEFAULT_API_URL)),
             new BotConfiguration.Console(false),
-            new BotConfiguration.DataStorage(BotConfiguration.DataStorage.Type.MYSQL, new HashMap<>())
+            new BotConfiguration.DataStorage(BotConfiguration.DataStorage.Type.MYSQL, new HashMap<>()),
+            BotConfiguration.Updates.fromConfig(ConfigFactory.empty(), "updates."),
+            BotConfiguration.Outbound.fromConfig(ConfigFactory.empty(), "outbound."),
+            BotConfiguration.Throttle.fromConfig(ConfigFactory.empty(), "throttle."),
+            BotConfiguration.Cluster.fromConfig(ConfigFactory.empty(), "cluster.")
         ));
     }
 
@@ -353,4 +353,94 @@ public class CommandInputTest {
         // Assert
         assertEquals(commandInput.getRemainingInput(), "  spaghetti");
     }
+
+    @Test
+    public void testOffsetInput() {
+        // Arrange
+        CommandInput commandInput = CommandInput.of("/tasks show 42", 1);
+
+        // Act
+        String token = commandInput.readToken();
+
+        // Assert
+        assertEquals("tasks", token);
+        assertEquals("tasks show 42", commandInput.getRawInput());
+        assertEquals(13, commandInput.getRawLength());
+        assertEquals(5, commandInput.getCursor());
+        assertEquals("tasks", commandInput.getReadInput());
+        assertEquals(" show 42", commandInput.getRemainingInput());
+        assertEquals(2, commandInput.countRemainingTokens());
+    }
+
+    @Test
+    public void testReadNumbers() {
+        // Arrange
+        CommandInput commandInput = CommandInput.of("  42 -7 100000 9000000000 300");
+
+        // Act
+        int peekedInt = commandInput.peekInt();
+        int readInt = commandInput.readInt();
+        byte readByte = commandInput.readByte();
+        int readShortOverflow = commandInput.peekInt();
+        NumberFormatException shortException = assertThrows(NumberFormatException.class, commandInput::peekShort);
+        commandInput.readInt();
+        long readLong = commandInput.readLong();
+
+        // Assert
+        assertEquals(42, peekedInt);
+        assertEquals(42, readInt);
+        assertEquals(-7, readByte);
+        assertEquals(100000, readShortOverflow);
+        assertNotNull(shortException);
+        assertEquals(9000000000L, readLong);
+        assertThrows(NumberFormatException.class, commandInput::peekByte);
+        assertEquals(300, commandInput.peekShort());
+        assertEquals(" 300", commandInput.getRemainingInput());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", " ", "abc", "4x", "2147483648"})
+    public void testReadIntRejectsInvalidInput(@NotNull String rawInput) {
+        // Arrange
+        CommandInput commandInput = CommandInput.of(rawInput);
+
+        // Act
+        NumberFormatException exception = assertThrows(NumberFormatException.class, commandInput::readInt);
+
+        // Assert
+        assertNotNull(exception);
+    }
+
+    @ParameterizedTest
+    @MethodSource("sourceTestCanReadInt")
+    public void testCanReadInt(@NotNull String rawInput, boolean expectedInt, boolean expectedLong) {
+        // Arrange
+        CommandInput commandInput = CommandInput.of(rawInput);
+
+        // Act
+        boolean canReadInt = commandInput.canReadInt();
+        boolean canReadLong = commandInput.canReadLong();
+
+        // Assert
+        assertEquals(expectedInt, canReadInt);
+        assertEquals(expectedLong, canReadLong);
+        assertEquals(0, commandInput.getCursor());
+    }
+
+    private static @NotNull Stream<@NotNull Arguments> sourceTestCanReadInt() {
+        return Stream.of(
+            arguments("42", true, true),
+            arguments("  -42 rest", true, true),
+            arguments("+7", true, true),
+            arguments("2147483647", true, true),
+            arguments("-2147483648", true, true),
+            arguments("2147483648", false, true),
+            arguments("-9223372036854775808", false, true),
+            arguments("9223372036854775808", false, false),
+            arguments("", false, false),
+            arguments("-", false, false),
+            arguments("4x", false, false),
+            arguments("abc", false, false)
+        );
+    }
 }
@@ -0,0 +1,119 @@
+package dev.metabrix.urfu.oopbot.util.command;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandPipelineTest {
+    private static CommandMiddleware recording(List<String> calls, String name) {
+        return (ctx, next) -> {
+            calls.add(name + " before");
+            return next.proceed(ctx).thenApply(result -> {
+                calls.add(name + " after");
+                return result;
+            });
+        };
+    }
+
+    @Test
+    public void testStageOrder() {
+        // Arrange
+        List<String> calls = new ArrayList<>();
+        CommandPipeline pipeline = CommandPipeline.builder()
+            .stage("first", recording(calls, "first"))
+            .stage("second", recording(calls, "second"))
+            .build();
+
+        // Act
+        CommandExecutionResult result = pipeline.execute(null, ctx -> {
+            calls.add("handler");
+            return CompletableFuture.completedFuture(CommandExecutionResult.INVALID_SYNTAX);
+        }).join();
+
+        // Assert
+        assertEquals(CommandExecutionResult.INVALID_SYNTAX, result);
+        assertEquals(List.of("first before", "second before", "handler", "second after", "first after"), calls);
+    }
+
+    @Test
+    public void testShortCircuit() {
+        // Arrange
+        List<String> calls = new ArrayList<>();
+        CommandPipeline pipeline = CommandPipeline.builder()
+            .stage("first", recording(calls, "first"))
+            .stage("guard", (ctx, next) -> CompletableFuture.completedFuture(CommandExecutionResult.SUCCESS))
+            .stage("third", recording(calls, "third"))
+            .build();
+
+        // Act
+        CommandExecutionResult result = pipeline.execute(null, ctx -> {
+            calls.add("handler");
+            return CompletableFuture.completedFuture(CommandExecutionResult.INTERNAL_ERROR);
+        }).join();
+        List<CommandPipeline.StageStats> stats = pipeline.getStats();
+
+        // Assert
+        assertEquals(CommandExecutionResult.SUCCESS, result);
+        assertEquals(List.of("first before", "first after"), calls);
+        assertEquals(List.of("first", "guard", "third", CommandPipeline.HANDLER_STAGE), stats.stream().map(CommandPipeline.StageStats::name).toList());
+        assertEquals(List.of(1L, 1L, 0L, 0L), stats.stream().map(CommandPipeline.StageStats::invocations).toList());
+        assertEquals(List.of(0L, 1L, 0L, 0L), stats.stream().map(CommandPipeline.StageStats::shortCircuits).toList());
+    }
+
+    @Test
+    public void testFailures() {
+        // Arrange
+        CommandPipeline pipeline = CommandPipeline.builder()
+            .stage("throwing", (ctx, next) -> {
+                throw new IllegalStateException("potato");
+            })
+            .build();
+        CommandPipeline handlerOnly = CommandPipeline.builder().build();
+
+        // Act
+        CompletableFuture<CommandExecutionResult> stageFailure = pipeline.execute(null, ctx -> CompletableFuture.completedFuture(CommandExecutionResult.SUCCESS));
+        CompletableFuture<CommandExecutionResult> handlerFailure = handlerOnly.execute(null, ctx -> {
+            throw new IllegalStateException("tomato");
+        });
+
+        // Assert
+        assertEquals("potato", assertThrows(CompletionException.class, stageFailure::join).getCause().getMessage());
+        assertEquals("tomato", assertThrows(CompletionException.class, handlerFailure::join).getCause().getMessage());
+        assertEquals(1, handlerOnly.getStats().getFirst().invocations());
+    }
+
+    @Test
+    public void testSelfTime() {
+        // Arrange
+        CommandPipeline pipeline = CommandPipeline.builder()
+            .stage("outer", (ctx, next) -> next.proceed(ctx))
+            .build();
+
+        // Act
+        pipeline.execute(null, ctx -> CompletableFuture.supplyAsync(() -> {
+            try {
+                Thread.sleep(50);
+            } catch (InterruptedException ex) {
+                throw new RuntimeException(ex);
+            }
+            return CommandExecutionResult.SUCCESS;
+        })).join();
+        List<CommandPipeline.StageStats> stats = pipeline.getStats();
+
+        // Assert
+        assertTrue(stats.get(0).maxMillis() < 40, "outer stage includes handler time: " + stats.get(0));
+        assertTrue(stats.get(1).maxMillis() >= 45, "handler time is too small: " + stats.get(1));
+    }
+
+    @Test
+    public void testDuplicateStage() {
+        CommandPipeline.Builder builder = CommandPipeline.builder().stage("first", (ctx, next) -> next.proceed(ctx));
+
+        assertThrows(IllegalArgumentException.class, () -> builder.stage("first", (ctx, next) -> next.proceed(ctx)));
+        assertThrows(IllegalArgumentException.class, () -> builder.stage(CommandPipeline.HANDLER_STAGE, (ctx, next) -> next.proceed(ctx)));
+    }
+}
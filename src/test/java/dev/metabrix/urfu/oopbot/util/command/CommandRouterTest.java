@@ -0,0 +1,66 @@
+package dev.metabrix.urfu.oopbot.util.command;
+
+import java.util.Map;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class CommandRouterTest {
+    private static final CommandRouter<String> ROUTER = new CommandRouter<>(Map.of(
+        "start", "START",
+        "help", "START",
+        "tasks", "TASKS",
+        "task", "TASK"
+    ));
+
+    @Test
+    public void testCommands() {
+        assertEquals("START", ROUTER.get(ROUTER.route("/start", "potato_bot")));
+        assertEquals("START", ROUTER.get(ROUTER.route("/help", "potato_bot")));
+        assertEquals("TASKS", ROUTER.get(ROUTER.route("/tasks new potato", "potato_bot")));
+        assertEquals("TASK", ROUTER.get(ROUTER.route("/task", "potato_bot")));
+        assertEquals(ROUTER.route("/start", "potato_bot"), ROUTER.route("/help", "potato_bot"));
+    }
+
+    @Test
+    public void testBotUsername() {
+        assertEquals("TASKS", ROUTER.get(ROUTER.route("/tasks@potato_bot list", "potato_bot")));
+        assertEquals("TASKS", ROUTER.get(ROUTER.route("/tasks@Potato_Bot", "potato_bot")));
+        assertEquals(CommandRouter.OTHER_BOT, ROUTER.route("/tasks@tomato_bot list", "potato_bot"));
+        assertEquals(CommandRouter.OTHER_BOT, ROUTER.route("/tasks@potato_bot2", "potato_bot"));
+        assertEquals(CommandRouter.OTHER_BOT, ROUTER.route("/spaghetti@tomato_bot", "potato_bot"));
+    }
+
+    @Test
+    public void testUnknownCommands() {
+        assertEquals(CommandRouter.UNKNOWN_COMMAND, ROUTER.route("/spaghetti monster", "potato_bot"));
+        assertEquals(CommandRouter.UNKNOWN_COMMAND, ROUTER.route("/ta", "potato_bot"));
+        assertEquals(CommandRouter.UNKNOWN_COMMAND, ROUTER.route("/tasksx", "potato_bot"));
+        assertEquals(CommandRouter.UNKNOWN_COMMAND, ROUTER.route("/задачи", "potato_bot"));
+        assertEquals(CommandRouter.UNKNOWN_COMMAND, ROUTER.route("/tasks@ list", "potato_bot"));
+    }
+
+    @Test
+    public void testNotCommands() {
+        assertEquals(CommandRouter.NOT_COMMAND, ROUTER.route("", "potato_bot"));
+        assertEquals(CommandRouter.NOT_COMMAND, ROUTER.route("/", "potato_bot"));
+        assertEquals(CommandRouter.NOT_COMMAND, ROUTER.route("tasks", "potato_bot"));
+        assertEquals(CommandRouter.NOT_COMMAND, ROUTER.route("/ tasks", "potato_bot"));
+        assertEquals(CommandRouter.NOT_COMMAND, ROUTER.route("/usr/bin", "potato_bot"));
+        assertEquals(CommandRouter.NOT_COMMAND, ROUTER.route("/tasks@potato/bot", "potato_bot"));
+        assertEquals("TASKS", ROUTER.get(ROUTER.route("/tasks a/b", "potato_bot")));
+    }
+
+    @Test
+    public void testLabelEnd() {
+        assertEquals(6, CommandRouter.labelEnd("/tasks new potato"));
+        assertEquals(17, CommandRouter.labelEnd("/tasks@potato_bot"));
+    }
+
+    @Test
+    public void testInvalidNames() {
+        assertThrows(IllegalArgumentException.class, () -> new CommandRouter<>(Map.of("", "EMPTY")));
+        assertThrows(IllegalArgumentException.class, () -> new CommandRouter<>(Map.of("tasks new", "TASKS")));
+        assertThrows(IllegalArgumentException.class, () -> new CommandRouter<>(Map.of("задачи", "TASKS")));
+    }
+}
@@ -0,0 +1,74 @@
+package dev.metabrix.urfu.oopbot.util.markdown;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MarkdownTemplateTest {
+    @ParameterizedTest
+    @ValueSource(strings = {"", "Задача", "a_b*c[d]e(f)g~h`i>j#k+l-m=n|o{p}q.r!s", "1.2.3 - (готово)!", "\\ и _"})
+    public void testEscape(String text) {
+        // Arrange
+        String expected = text.replaceAll("([_*\\[\\]()~`>#+\\-=|{}.!\\\\])", "\\\\$1");
+
+        // Act
+        String escaped = MarkdownWriter.escape(text);
+
+        // Assert
+        assertEquals(expected, escaped);
+    }
+
+    @Test
+    public void testRender() {
+        // Arrange
+        MarkdownTemplate template = MarkdownTemplate.compile("*{}* \\(страница {} из {}\\) {}\n");
+        MarkdownWriter writer = new MarkdownWriter();
+
+        // Act
+        template.render(writer, "a.b", 1, -2L, (MarkdownTemplate.Fragment) w -> w.raw("_raw_"));
+
+        // Assert
+        assertEquals(4, template.getPlaceholders());
+        assertEquals("*a\\.b* \\(страница 1 из \\-2\\) _raw_\n", writer.toString());
+    }
+
+    @Test
+    public void testRenderChecksValues() {
+        // Arrange
+        MarkdownTemplate template = MarkdownTemplate.compile("{} и {}");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> template.format("один"));
+        assertEquals("один и два", template.format("один", "два"));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"{", "}", "{x}", "a { b", "a }", "ends with \\"})
+    public void testCompileRejectsInvalidTemplates(String template) {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> MarkdownTemplate.compile(template));
+    }
+
+    @Test
+    public void testEscapedBracesAreText() {
+        // Act
+        MarkdownTemplate template = MarkdownTemplate.compile("\\{{}\\}");
+
+        // Assert
+        assertEquals("\\{x\\}", template.format("x"));
+    }
+
+    @Test
+    public void testQuote() {
+        // Arrange
+        MarkdownWriter writer = new MarkdownWriter();
+
+        // Act
+        writer.quote("первая.\n\nтретья\n\n").quote("").quote("\n");
+
+        // Assert
+        assertEquals(">первая\\.\n>\n>третья\n>\n", writer.toString());
+    }
+}